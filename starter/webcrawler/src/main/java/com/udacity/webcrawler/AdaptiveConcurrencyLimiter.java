@@ -0,0 +1,187 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits how many pages are fetched at once, adjusting the limit with additive-increase,
+ * multiplicative-decrease (AIMD) based on how fetches are going.
+ *
+ * <p>Completed fetches are collected into windows of roughly one fetch per permit. At the end of
+ * each window the limiter compares the window's 90th percentile latency with the best it has seen:
+ *
+ * <ul>
+ *   <li>If latency has stayed within {@link #LATENCY_TOLERANCE} times the baseline, the limit grows
+ *       by one.</li>
+ *   <li>If latency has inflated beyond that, the host is queueing requests and the limit is cut by
+ *       {@link #BACKOFF}.</li>
+ * </ul>
+ *
+ * <p>A failed fetch (a timeout or an error) cuts the limit immediately. Fetches that were already
+ * running when the limit was cut do not cut it again, so one burst of errors only counts once.
+ *
+ * <p>The limit starts at the target parallelism and stays between 1 and {@link #MAX_MULTIPLIER}
+ * times the target. The limit can go above the size of the crawler's pool, because workers wait on
+ * downloads as {@link java.util.concurrent.ForkJoinPool.ManagedBlocker managed blocks} (see
+ * {@link #acquire}). It is reported through the {@link Profiler} as
+ * {@link CrawlMetrics#CONCURRENCY_LIMIT}.
+ */
+final class AdaptiveConcurrencyLimiter {
+
+  static final int MAX_MULTIPLIER = 4;
+  static final double LATENCY_TOLERANCE = 2.0;
+  static final double BACKOFF = 0.5;
+
+  // The smallest window used to estimate p90 latency, so a low limit still sees enough samples.
+  private static final int MIN_WINDOW = 10;
+  // How far the baseline moves towards a slower window, so a host that slows down for good does
+  // not hold the limit at its minimum forever.
+  private static final double BASELINE_DRIFT = 0.05;
+  private static final Duration MAX_WAIT = Duration.ofSeconds(1);
+
+  private final Clock clock;
+  private final Profiler profiler;
+  private final int minLimit;
+  private final int maxLimit;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition permitReleased = lock.newCondition();
+  private double limit;
+  private int inFlight;
+  private long[] window = new long[MIN_WINDOW];
+  private int windowSize;
+  private long baselineNanos = Long.MAX_VALUE;
+  private Instant lastDecrease = Instant.MIN;
+
+  /**
+   * Creates a limiter for the given target parallelism.
+   *
+   * @param targetParallelism the {@code parallelism} from the crawler configuration. Used as the
+   *                          starting limit.
+   */
+  AdaptiveConcurrencyLimiter(Clock clock, Profiler profiler, int targetParallelism) {
+    this.clock = Objects.requireNonNull(clock);
+    this.profiler = Objects.requireNonNull(profiler);
+    this.minLimit = 1;
+    this.maxLimit = Math.max(1, targetParallelism) * MAX_MULTIPLIER;
+    this.limit = Math.max(1, targetParallelism);
+    profiler.recordGauge(CrawlMetrics.CONCURRENCY_LIMIT, (long) limit);
+  }
+
+  /**
+   * Waits for a fetch permit, giving up at the deadline.
+   *
+   * <p>This deliberately blocks without telling a {@link java.util.concurrent.ForkJoinPool}: a
+   * worker waiting for a permit should not make the pool start another worker, which would only
+   * end up waiting as well. The fetch that follows is a managed block instead, so the pool starts
+   * a spare worker for each page being downloaded. Fetches in flight can therefore grow past the
+   * pool's parallelism up to the limit, while at most the pool's parallelism in workers wait here.
+   *
+   * @return the time the permit was acquired, to be passed to {@link #release}, or {@code null}
+   *         if the deadline passed first.
+   */
+  Instant acquire(Instant deadline) throws InterruptedException {
+    lock.lock();
+    try {
+      while (inFlight >= (int) limit) {
+        Duration remaining = Duration.between(clock.instant(), deadline);
+        if (remaining.isNegative() || remaining.isZero()) {
+          return null;
+        }
+        // Re-check at least once a second, so a far-off deadline cannot overflow the wait.
+        permitReleased.await(
+            remaining.compareTo(MAX_WAIT) < 0 ? remaining.toNanos() : MAX_WAIT.toNanos(),
+            TimeUnit.NANOSECONDS);
+      }
+      inFlight++;
+    } finally {
+      lock.unlock();
+    }
+    return clock.instant();
+  }
+
+  /**
+   * Returns a permit and records how the fetch went.
+   *
+   * @param start  the value returned by {@link #acquire}.
+   * @param failed whether the fetch timed out or failed.
+   */
+  void release(Instant start, boolean failed) {
+    Instant end = clock.instant();
+    lock.lock();
+    try {
+      inFlight--;
+      if (failed) {
+        if (start.isAfter(lastDecrease)) {
+          decrease(end);
+        }
+      } else {
+        record(Duration.between(start, end).toNanos(), end);
+      }
+      permitReleased.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the current limit.
+   */
+  int getLimit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void record(long latencyNanos, Instant now) {
+    if (windowSize == window.length) {
+      window = Arrays.copyOf(window, window.length * 2);
+    }
+    window[windowSize++] = latencyNanos;
+    if (windowSize < Math.max(MIN_WINDOW, (int) limit)) {
+      return;
+    }
+
+    long[] sorted = Arrays.copyOf(window, windowSize);
+    Arrays.sort(sorted);
+    long p90 = sorted[(int) Math.ceil(sorted.length * 0.9) - 1];
+    windowSize = 0;
+
+    if (p90 <= baselineNanos) {
+      baselineNanos = p90;
+    } else {
+      baselineNanos += (long) ((p90 - baselineNanos) * BASELINE_DRIFT);
+    }
+
+    if (p90 > baselineNanos * LATENCY_TOLERANCE) {
+      decrease(now);
+    } else {
+      setLimit(limit + 1);
+    }
+  }
+
+  private void decrease(Instant now) {
+    lastDecrease = now;
+    windowSize = 0;
+    setLimit(limit * BACKOFF);
+  }
+
+  private void setLimit(double newLimit) {
+    double clamped = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    if ((int) clamped != (int) limit) {
+      profiler.recordGauge(CrawlMetrics.CONCURRENCY_LIMIT, (int) clamped);
+    }
+    limit = clamped;
+  }
+}
@@ -0,0 +1,258 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link VisitedSet} backed by a scalable Bloom filter, which fits in a fixed memory budget no
+ * matter how many URLs are added, at the cost of sometimes mistaking a new URL for a visited one.
+ * Such a URL is not crawled.
+ *
+ * <p>The filter grows in stages. Each stage is a Bloom filter sized for twice as many URLs as the
+ * one before, with half its false-positive rate, so the rate across all stages stays under the
+ * target however many stages there are. New URLs go into the newest stage, and a URL counts as
+ * visited if any stage contains it. Once the next stage would not fit in the budget, the newest
+ * stage keeps taking URLs past what it was sized for, and the false-positive rate rises above the
+ * target rather than the memory going over the budget.
+ *
+ * <p>{@link #size()} counts the URLs that {@link #addIfAbsent(String)} claimed, which is exactly
+ * the number of URLs crawled. The estimated false-positive rate and fill level are reported
+ * through {@link #reportTo(Profiler)}.
+ */
+final class BloomVisitedSet implements VisitedSet {
+
+  /**
+   * The estimated chance that a new URL is mistaken for a visited one, in parts per million.
+   */
+  static final String FALSE_POSITIVE_PPM = "visitedFilter.falsePositivePpm";
+
+  /**
+   * The share of the filter's bits that are set, in percent.
+   */
+  static final String FILL_PERCENT = "visitedFilter.fillPercent";
+
+  /**
+   * The number of stages the filter has grown to.
+   */
+  static final String STAGES = "visitedFilter.stages";
+
+  /**
+   * The memory the filter takes up, in bytes.
+   */
+  static final String BYTES = "visitedFilter.bytes";
+
+  static final int INITIAL_CAPACITY = 1 << 16;
+
+  // Each stage's false-positive rate is this fraction of the one before, so the rates of all the
+  // stages add up to at most the first stage's rate / (1 - TIGHTENING).
+  private static final double TIGHTENING = 0.5;
+  private static final int LOCK_STRIPES = 256;
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private final long maxBytes;
+  private final Object[] locks = new Object[LOCK_STRIPES];
+  private final AtomicInteger size = new AtomicInteger();
+  // Replaced, never modified, when a stage is added.
+  private volatile Stage[] stages;
+
+  /**
+   * Creates an empty set that takes at most {@code maxBytes} of memory and aims for the given
+   * false-positive rate.
+   */
+  BloomVisitedSet(long maxBytes, double falsePositiveRate) {
+    if (maxBytes < Long.BYTES) {
+      throw new IllegalArgumentException("maxBytes is too small");
+    }
+    if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+    }
+    this.maxBytes = maxBytes;
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      locks[i] = new Object();
+    }
+    Stage first = new Stage(INITIAL_CAPACITY, falsePositiveRate * (1 - TIGHTENING));
+    if (first.bytes() > maxBytes) {
+      first = Stage.fitting(maxBytes, falsePositiveRate);
+    }
+    this.stages = new Stage[]{first};
+  }
+
+  @Override
+  public boolean addIfAbsent(String url) {
+    long[] hash = FingerprintVisitedSet.fingerprint(url);
+    // Only the same URL, or one in the same stripe, can race this insert, so one thread's check
+    // and set never interleaves with another's for the same URL.
+    synchronized (locks[(int) (hash[0] >>> 56) & (LOCK_STRIPES - 1)]) {
+      Stage[] current = stages;
+      for (Stage stage : current) {
+        if (stage.mightContain(hash[0], hash[1])) {
+          return false;
+        }
+      }
+      Stage newest = current[current.length - 1];
+      newest.put(hash[0], hash[1]);
+      if (newest.count.incrementAndGet() == newest.capacity) {
+        grow(newest);
+      }
+    }
+    size.incrementAndGet();
+    return true;
+  }
+
+  @Override
+  public boolean contains(String url) {
+    long[] hash = FingerprintVisitedSet.fingerprint(url);
+    for (Stage stage : stages) {
+      if (stage.mightContain(hash[0], hash[1])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  @Override
+  public void reportTo(Profiler profiler) {
+    profiler.recordGauge(FALSE_POSITIVE_PPM, Math.round(falsePositiveRate() * 1_000_000));
+    profiler.recordGauge(FILL_PERCENT, Math.round(fillRatio() * 100));
+    profiler.recordGauge(STAGES, stages.length);
+    profiler.recordGauge(BYTES, bytes());
+  }
+
+  /**
+   * Returns the estimated chance that a URL that was never added is reported as visited.
+   */
+  double falsePositiveRate() {
+    double allNegative = 1;
+    for (Stage stage : stages) {
+      allNegative *= 1 - stage.falsePositiveRate();
+    }
+    return 1 - allNegative;
+  }
+
+  /**
+   * Returns the share of the filter's bits that are set.
+   */
+  double fillRatio() {
+    long set = 0;
+    long bits = 0;
+    for (Stage stage : stages) {
+      set += stage.bitsSet.get();
+      bits += stage.bits;
+    }
+    return (double) set / bits;
+  }
+
+  /**
+   * Returns the memory the filter's bits take up, in bytes.
+   */
+  long bytes() {
+    long bytes = 0;
+    for (Stage stage : stages) {
+      bytes += stage.bytes();
+    }
+    return bytes;
+  }
+
+  private void grow(Stage full) {
+    synchronized (this) {
+      Stage[] current = stages;
+      if (current[current.length - 1] != full) {
+        return;
+      }
+      Stage next = new Stage(full.capacity * 2, full.targetRate * TIGHTENING);
+      if (bytes() + next.bytes() > maxBytes) {
+        // Out of budget: the newest stage keeps filling up instead.
+        return;
+      }
+      Stage[] grown = new Stage[current.length + 1];
+      System.arraycopy(current, 0, grown, 0, current.length);
+      grown[current.length] = next;
+      stages = grown;
+    }
+  }
+
+  /**
+   * One Bloom filter, sized for {@link #capacity} URLs at {@link #targetRate}.
+   */
+  private static final class Stage {
+    private final long capacity;
+    private final double targetRate;
+    private final int hashes;
+    private final long bits;
+    private final long[] words;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong bitsSet = new AtomicLong();
+
+    Stage(long capacity, double targetRate) {
+      this(capacity, targetRate, optimalBits(capacity, targetRate));
+    }
+
+    private Stage(long capacity, double targetRate, long bits) {
+      this.capacity = capacity;
+      this.targetRate = targetRate;
+      this.bits = Math.max(Long.SIZE, (bits + Long.SIZE - 1) / Long.SIZE * Long.SIZE);
+      this.hashes = Math.max(1, (int) Math.round((double) this.bits / capacity * Math.log(2)));
+      this.words = new long[Math.toIntExact(this.bits / Long.SIZE)];
+    }
+
+    /**
+     * Returns the largest stage that fits in {@code maxBytes}, sized for however many URLs it can
+     * hold at the given false-positive rate.
+     */
+    static Stage fitting(long maxBytes, double targetRate) {
+      long bits = maxBytes * Byte.SIZE;
+      long capacity =
+          Math.max(1, (long) (bits * Math.log(2) * Math.log(2) / -Math.log(targetRate)));
+      return new Stage(capacity, targetRate, bits);
+    }
+
+    long bytes() {
+      return bits / Byte.SIZE;
+    }
+
+    boolean mightContain(long h1, long h2) {
+      for (int i = 0; i < hashes; i++) {
+        long bit = Math.floorMod(h1 + i * h2, bits);
+        long word = (long) WORDS.getVolatile(words, (int) (bit >>> 6));
+        if ((word & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void put(long h1, long h2) {
+      long newBits = 0;
+      for (int i = 0; i < hashes; i++) {
+        long bit = Math.floorMod(h1 + i * h2, bits);
+        long mask = 1L << bit;
+        long previous = (long) WORDS.getAndBitwiseOr(words, (int) (bit >>> 6), mask);
+        if ((previous & mask) == 0) {
+          newBits++;
+        }
+      }
+      bitsSet.addAndGet(newBits);
+    }
+
+    /**
+     * Estimates the false-positive rate from how many bits are set: a URL that was never added
+     * hits a set bit with each of its hashes with probability equal to the fill ratio.
+     */
+    double falsePositiveRate() {
+      return Math.pow((double) bitsSet.get() / bits, hashes);
+    }
+
+    private static long optimalBits(long capacity, double targetRate) {
+      return (long) Math.ceil(-capacity * Math.log(targetRate) / (Math.log(2) * Math.log(2)));
+    }
+  }
+}
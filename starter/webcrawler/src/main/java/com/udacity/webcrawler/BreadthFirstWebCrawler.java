@@ -0,0 +1,283 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.parser.PatternFilter;
+import com.udacity.webcrawler.parser.UrlCanonicalizer;
+import com.udacity.webcrawler.parser.WordCountMap;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * A {@link WebCrawler} that crawls one depth level at a time.
+ *
+ * <p>The crawler keeps an explicit frontier instead of tracking depth through recursion. For each
+ * level it takes a wave of links off the frontier at a time, filters and dedupes them on the
+ * calling thread, downloads and parses the surviving pages in parallel on a {@link ForkJoinPool},
+ * and then merges the results and adds their links to the next level's frontier. The visited set
+ * and word counts are only ever touched by the calling thread, so they need no locking. A page is
+ * only marked as visited once it has been attempted, so a page the deadline cut off before it
+ * started is not counted.
+ *
+ * <p>Frontiers keep at most {@code frontierMemoryUrls} links in memory and spill the rest to disk
+ * (see {@link SpillingFrontier}), and a wave is a bounded number of pages, so a very wide site
+ * does not need a heap that grows with its width.
+ *
+ * <p>Because every page at depth {@code d} is finished before any page at depth {@code d + 1} is
+ * started, a crawl that runs out of time has always covered the shallowest pages first.
+ */
+final class BreadthFirstWebCrawler implements WebCrawler {
+
+  // Enough pages per thread that a wave is rarely held up waiting on its slowest page.
+  private static final int WAVE_PAGES_PER_THREAD = 16;
+
+  private final Clock clock;
+  private final PageParserFactory parserFactory;
+  private final Profiler profiler;
+  private final Duration timeout;
+  private final int popularWordCount;
+  private final int maxDepth;
+  private final PatternFilter ignoredUrls;
+  private final int frontierMemoryUrls;
+  private final ForkJoinPool pool;
+  private final Provider<VisitedSet> visitedSets;
+  private final UrlCanonicalizer canonicalizer;
+
+  @Inject
+  BreadthFirstWebCrawler(
+      Clock clock,
+      PageParserFactory parserFactory,
+      Profiler profiler,
+      @Timeout Duration timeout,
+      @PopularWordCount int popularWordCount,
+      @TargetParallelism int threadCount,
+      @MaxDepth int maxDepth,
+      @IgnoredUrls PatternFilter ignoredUrls,
+      @FrontierMemoryUrls int frontierMemoryUrls,
+      Provider<VisitedSet> visitedSets,
+      UrlCanonicalizer canonicalizer) {
+    this.clock = clock;
+    this.parserFactory = parserFactory;
+    this.profiler = profiler;
+    this.timeout = timeout;
+    this.popularWordCount = popularWordCount;
+    this.maxDepth = maxDepth;
+    this.ignoredUrls = ignoredUrls;
+    this.frontierMemoryUrls = frontierMemoryUrls;
+    this.pool = new ForkJoinPool(Math.min(threadCount, getMaxParallelism()));
+    this.visitedSets = visitedSets;
+    this.canonicalizer = canonicalizer;
+  }
+
+  @Override
+  public CrawlResult crawl(List<String> startingUrls) {
+
+    Instant deadline = clock.instant().plus(timeout);
+
+    WordCountMap counts = new WordCountMap();
+    VisitedSet visitedUrls = visitedSets.get();
+
+    crawlLevels(startingUrls, deadline, counts, visitedUrls, null);
+    visitedUrls.reportTo(profiler);
+
+    if (counts.isEmpty()) {
+      return new CrawlResult.Builder()
+          .setWordCounts(counts.asMap())
+          .setUrlsVisited(visitedUrls.size())
+          .build();
+    }
+
+    return new CrawlResult.Builder()
+        .setWordCounts(WordCounts.sort(counts.asMap(), popularWordCount))
+        .setUrlsVisited(visitedUrls.size())
+        .build();
+  }
+
+  @Override
+  public Flow.Publisher<PageEvent> crawlPages(List<String> startingUrls) {
+    List<String> roots = List.copyOf(startingUrls);
+    return PageStreams.onNewThread("crawl-pages", publisher -> {
+      VisitedSet visitedUrls = visitedSets.get();
+      crawlLevels(roots, clock.instant().plus(timeout), null, visitedUrls, publisher);
+      visitedUrls.reportTo(profiler);
+    });
+  }
+
+  @Override
+  public int getMaxParallelism() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Crawls level by level until the levels run out, the deadline passes, or a streaming
+   * subscriber cancels. A streaming crawl passes a publisher instead of counts.
+   */
+  private void crawlLevels(
+      List<String> startingUrls,
+      Instant deadline,
+      WordCountMap counts,
+      VisitedSet visitedUrls,
+      SubmissionPublisher<PageEvent> publisher) {
+    SpillingFrontier frontier = new SpillingFrontier(frontierMemoryUrls, profiler);
+    try {
+      for (String url : startingUrls) {
+        frontier.add(canonicalizer.canonicalize(url));
+      }
+      for (int depth = maxDepth; depth > 0 && !frontier.isEmpty(); depth--) {
+        // The next level is swapped in first, so the finally block closes it if this one throws.
+        try (SpillingFrontier level = frontier) {
+          frontier = new SpillingFrontier(frontierMemoryUrls, profiler);
+          if (!crawlLevel(
+              level, frontier, maxDepth - depth, deadline, counts, visitedUrls, publisher)) {
+            break;
+          }
+        }
+      }
+    } finally {
+      frontier.close();
+    }
+  }
+
+  /**
+   * Crawls the pages of one level a wave at a time, adding their links to the next level. Returns
+   * false if the deadline passed or the subscriber cancelled before the level was finished.
+   */
+  private boolean crawlLevel(
+      SpillingFrontier level,
+      SpillingFrontier next,
+      int depth,
+      Instant deadline,
+      WordCountMap counts,
+      VisitedSet visitedUrls,
+      SubmissionPublisher<PageEvent> publisher) {
+    int waveSize = pool.getParallelism() * WAVE_PAGES_PER_THREAD;
+    while (!level.isEmpty()) {
+      if (PageStreams.isUnsubscribed(publisher)) {
+        return false;
+      }
+      if (clock.instant().isAfter(deadline)) {
+        profiler.incrementCounter(
+            CrawlMetrics.PAGES_CANCELLED, countUncrawled(level, visitedUrls));
+        return false;
+      }
+
+      List<String> wave = nextWave(level, waveSize, visitedUrls);
+      List<CrawledPage> pages = crawlWave(wave, deadline);
+
+      for (int i = 0; i < wave.size(); i++) {
+        CrawledPage page = pages.get(i);
+        if (page == null) {
+          // The deadline passed before this page was started, so it was never attempted and is
+          // not marked as visited.
+          profiler.incrementCounter(CrawlMetrics.PAGES_CANCELLED, 1);
+          continue;
+        }
+        visitedUrls.addIfAbsent(wave.get(i));
+        PageParser.Result result = page.result;
+        if (result.isCancelled()) {
+          profiler.incrementCounter(CrawlMetrics.PAGES_CANCELLED, 1);
+          continue;
+        }
+        if (publisher != null) {
+          PageStreams.submit(publisher, wave.get(i), depth, page.fetchTime, result);
+        } else {
+          result.addWordCountsTo(counts);
+        }
+        CrawlMetrics.countDuplicatesAvoided(profiler, result, visitedUrls::contains);
+        result.getLinks().forEach(next::add);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Takes links off the front of the level until it has {@code waveSize} pages to crawl or the
+   * level is empty. Ignored URLs, URLs that were already visited and repeats within the wave are
+   * dropped. Returns the URLs that make up the wave, in discovery order. They are only marked as
+   * visited once they have been attempted.
+   */
+  private List<String> nextWave(SpillingFrontier level, int waveSize, VisitedSet visitedUrls) {
+    List<String> wave = new ArrayList<>(waveSize);
+    Set<String> inWave = new HashSet<>();
+    String url;
+    while (wave.size() < waveSize && (url = level.poll()) != null) {
+      if (!ignoredUrls.matchesAny(url) && !visitedUrls.contains(url) && inWave.add(url)) {
+        wave.add(url);
+      }
+    }
+    return wave;
+  }
+
+  /**
+   * Drains the rest of a level that the deadline cut short, and returns how many distinct pages
+   * in it would have been crawled, leaving out ignored and already visited URLs.
+   */
+  private int countUncrawled(SpillingFrontier level, VisitedSet visitedUrls) {
+    Set<String> uncrawled = new HashSet<>();
+    String url;
+    while ((url = level.poll()) != null) {
+      if (!ignoredUrls.matchesAny(url) && !visitedUrls.contains(url)) {
+        uncrawled.add(url);
+      }
+    }
+    return uncrawled.size();
+  }
+
+  /**
+   * Downloads and parses every page of a wave in parallel. The entry for a page is {@code null}
+   * if the deadline passed before the page was started, and its result is cancelled if it passed
+   * while the page was downloading.
+   */
+  private List<CrawledPage> crawlWave(List<String> wave, Instant deadline) {
+    List<Callable<CrawledPage>> tasks = new ArrayList<>(wave.size());
+    for (String url : wave) {
+      tasks.add(() -> {
+        Instant start = clock.instant();
+        if (start.isAfter(deadline)) {
+          return null;
+        }
+        PageParser.Result result = parserFactory.get(url, deadline).parse();
+        return new CrawledPage(result, Duration.between(start, clock.instant()));
+      });
+    }
+
+    List<CrawledPage> results = new ArrayList<>(wave.size());
+    for (Future<CrawledPage> future : pool.invokeAll(tasks)) {
+      try {
+        results.add(future.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        results.add(null);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+    return results;
+  }
+
+  private static final class CrawledPage {
+    private final PageParser.Result result;
+    private final Duration fetchTime;
+
+    CrawledPage(PageParser.Result result, Duration fetchTime) {
+      this.result = result;
+      this.fetchTime = fetchTime;
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.udacity.webcrawler;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A binding annotation for how long a node of a distributed crawl waits for the other nodes to
+ * start listening.
+ *
+ * <p>The value bound to this annotation is derived from the
+ * {@code "clusterConnectTimeoutSeconds"} option from the crawler configuration JSON.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ClusterConnectTimeout {
+}
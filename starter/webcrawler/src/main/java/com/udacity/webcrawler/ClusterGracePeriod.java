@@ -0,0 +1,17 @@
+package com.udacity.webcrawler;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A binding annotation for how long past the deadline the coordinator of a distributed crawl
+ * waits for work that is still in flight.
+ *
+ * <p>The value bound to this annotation is derived from the {@code "clusterGracePeriodSeconds"}
+ * option from the crawler configuration JSON.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ClusterGracePeriod {
+}
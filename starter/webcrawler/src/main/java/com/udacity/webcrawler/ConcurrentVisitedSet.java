@@ -0,0 +1,30 @@
+package com.udacity.webcrawler;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link VisitedSet} backed by a {@link ConcurrentHashMap} key set.
+ *
+ * <p>Lookups never lock, and an insert only locks the one hash bin it lands in, so threads adding
+ * different URLs almost never wait on each other.
+ */
+final class ConcurrentVisitedSet implements VisitedSet {
+
+  private final Set<String> urls = ConcurrentHashMap.newKeySet();
+
+  @Override
+  public boolean addIfAbsent(String url) {
+    return urls.add(url);
+  }
+
+  @Override
+  public boolean contains(String url) {
+    return urls.contains(url);
+  }
+
+  @Override
+  public int size() {
+    return urls.size();
+  }
+}
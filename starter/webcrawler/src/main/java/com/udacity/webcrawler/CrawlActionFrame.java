@@ -1,18 +1,18 @@
 package com.udacity.webcrawler;
 
+import com.udacity.webcrawler.checkpoint.CheckpointJournal;
 import com.udacity.webcrawler.parser.PageParser;
 import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.parser.PatternFilter;
+import com.udacity.webcrawler.profiler.Profiler;
 
 import javax.inject.Inject;
 import java.time.Clock;
 import java.time.Instant;
-import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
-import java.util.regex.Pattern;
+import java.util.concurrent.SubmissionPublisher;
 
 /**
  * RecursiveAction class that performs a crawl through a url.
@@ -27,39 +27,63 @@ public final class CrawlActionFrame {
 
     private final Instant deadline;
     private final Clock clock;
-    private final List<Pattern> ignoredUrls;
+    private final PatternFilter ignoredUrls;
     private final PageParserFactory parserFactory;
-    private final Map<String, Integer> counts;
-    private final Set<String> visitedUrls;
+    private final WordCountAggregator wordCounts;
+    private final VisitedSet visitedUrls;
     private final ForkJoinPool pool;
+    private final Profiler profiler;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final SubmissionPublisher<PageEvent> publisher;
+    private final int maxDepth;
+    private final CheckpointJournal journal;
+    private final NearDuplicateIndex nearDuplicates;
 
 
     @Inject
     private CrawlActionFrame(Instant deadline,
                              Clock clock,
-                             List<Pattern> ignoredUrls,
+                             PatternFilter ignoredUrls,
                              PageParserFactory parserFactory,
-                             Map<String, Integer> counts,
-                             Set<String> visitedUrls,
-                             ForkJoinPool pool){
+                             WordCountAggregator wordCounts,
+                             VisitedSet visitedUrls,
+                             ForkJoinPool pool,
+                             Profiler profiler,
+                             AdaptiveConcurrencyLimiter limiter,
+                             SubmissionPublisher<PageEvent> publisher,
+                             int maxDepth,
+                             CheckpointJournal journal,
+                             NearDuplicateIndex nearDuplicates){
 
         this.deadline = deadline;
         this.clock = clock;
         this.ignoredUrls = ignoredUrls;
         this.parserFactory = parserFactory;
-        this.counts = counts;
+        this.wordCounts = wordCounts;
         this.visitedUrls = visitedUrls;
         this.pool = pool;
+        this.profiler = profiler;
+        this.limiter = limiter;
+        this.publisher = publisher;
+        this.maxDepth = maxDepth;
+        this.journal = journal;
+        this.nearDuplicates = nearDuplicates;
     }
 
     public static final class Builder {
         private Instant deadline;
         private Clock clock;
-        private List<Pattern> ignoredUrls;
+        private PatternFilter ignoredUrls;
         private PageParserFactory parserFactory;
-        private Map<String, Integer> counts;
-        private Set<String> visitedUrls;
+        private WordCountAggregator wordCounts;
+        private VisitedSet visitedUrls;
         private ForkJoinPool pool;
+        private Profiler profiler;
+        private AdaptiveConcurrencyLimiter limiter;
+        private SubmissionPublisher<PageEvent> publisher;
+        private int maxDepth;
+        private CheckpointJournal journal;
+        private NearDuplicateIndex nearDuplicates = NearDuplicateIndex.disabled();
 
         public Builder setDeadline(Instant deadline){
             this.deadline = Objects.requireNonNull(deadline);
@@ -71,7 +95,7 @@ public final class CrawlActionFrame {
             return this;
         }
 
-        public Builder setIgnoredUrls(List<Pattern> ignoredUrls){
+        public Builder setIgnoredUrls(PatternFilter ignoredUrls){
             this.ignoredUrls = Objects.requireNonNull(ignoredUrls);
             return this;
         }
@@ -81,12 +105,12 @@ public final class CrawlActionFrame {
             return this;
         }
 
-        public Builder setCounts(Map<String, Integer> counts){
-            this.counts = counts;
+        public Builder setWordCounts(WordCountAggregator wordCounts){
+            this.wordCounts = wordCounts;
             return this;
         }
 
-        public Builder setVisitedUrls(Set<String> visitedUrls){
+        public Builder setVisitedUrls(VisitedSet visitedUrls){
             this.visitedUrls = visitedUrls;
             return this;
         }
@@ -96,15 +120,51 @@ public final class CrawlActionFrame {
             return this;
         }
 
+        public Builder setProfiler(Profiler profiler){
+            this.profiler = Objects.requireNonNull(profiler);
+            return this;
+        }
+
+        public Builder setLimiter(AdaptiveConcurrencyLimiter limiter){
+            this.limiter = limiter;
+            return this;
+        }
+
+        public Builder setPublisher(SubmissionPublisher<PageEvent> publisher){
+            this.publisher = publisher;
+            return this;
+        }
+
+        public Builder setMaxDepth(int maxDepth){
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        public Builder setJournal(CheckpointJournal journal){
+            this.journal = journal;
+            return this;
+        }
+
+        public Builder setNearDuplicates(NearDuplicateIndex nearDuplicates){
+            this.nearDuplicates = Objects.requireNonNull(nearDuplicates);
+            return this;
+        }
+
         public CrawlActionFrame build(){
             return new CrawlActionFrame(
                     deadline,
                     clock,
                     ignoredUrls,
                     parserFactory,
-                    counts,
+                    wordCounts,
                     visitedUrls,
-                    pool);
+                    pool,
+                    profiler,
+                    limiter,
+                    publisher,
+                    maxDepth,
+                    journal,
+                    nearDuplicates);
         }
     }
 
@@ -124,15 +184,61 @@ public final class CrawlActionFrame {
         return parserFactory;
     }
 
-    public List<Pattern> getIgnoredUrls() {
+    public PatternFilter getIgnoredUrls() {
         return ignoredUrls;
     }
 
-    public Set<String> getVisitedUrls() {
+    public VisitedSet getVisitedUrls() {
         return visitedUrls;
     }
 
-    public Map<String, Integer> getCounts() {
-        return counts;
+    /**
+     * Returns the per-thread word counts pages add to, or null if pages are
+     * published instead.
+     */
+    public WordCountAggregator getWordCounts() {
+        return wordCounts;
+    }
+
+    public Profiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Returns the limiter on concurrent fetches, or null if fetches are not limited.
+     */
+    public AdaptiveConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * Returns the publisher that each crawled page is submitted to, or null if the crawl is not
+     * streaming.
+     */
+    public SubmissionPublisher<PageEvent> getPublisher() {
+        return publisher;
+    }
+
+    /**
+     * Returns the max depth the crawl started with, so pages can report how deep they are.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the journal that crawled pages are checkpointed to, or null if the crawl is not
+     * checkpointed.
+     */
+    public CheckpointJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Returns the index of pages already counted, which finds pages that are near-duplicates of
+     * them. It finds nothing if near-duplicates are not skipped.
+     */
+    public NearDuplicateIndex getNearDuplicates() {
+        return nearDuplicates;
     }
 }
@@ -1,18 +1,20 @@
 package com.udacity.webcrawler;
 
+import com.udacity.webcrawler.checkpoint.CheckpointJournal;
 import com.udacity.webcrawler.parser.PageParser;
 import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.parser.PatternFilter;
 
 import javax.inject.Inject;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
-import java.util.regex.Pattern;
+import java.util.concurrent.SubmissionPublisher;
 
 /**
  * RecursiveAction class that performs a crawl through a url.
@@ -54,54 +56,147 @@ public final class CrawlActionImpl extends RecursiveAction {
     protected void compute() {
 
 
-        //Check that we haven't timed out
-        if (maxDepth == 0 ||
-                cAF.getClock().instant().isAfter(cAF.getDeadline())) {
+        //Check that we haven't timed out, and that a streaming subscriber
+        //is still listening
+        if (maxDepth == 0 || PageStreams.isUnsubscribed(cAF.getPublisher())) {
             return;
         }
 
         //Skip urls that match the ignoredUrls pattern
-        for (Pattern pattern : cAF.getIgnoredUrls()) {
-            if (pattern.matcher(url).matches()) {
-                return;
-            }
+        if (cAF.getIgnoredUrls().matchesAny(url)) {
+            return;
         }
 
-    /*
-    skip urls that have already been visited.  Lock this Set in a synchronized
-    block until the update is complete
-     */
-        Set<String> visitedUrls = cAF.getVisitedUrls();
-        synchronized (visitedUrls){
-            if (visitedUrls.contains(url)) {
-                return;
-            }
+        //Only a page that would otherwise have been crawled counts as cancelled,
+        //so the visited check comes before the deadline check.
+        if (cAF.getVisitedUrls().contains(url)) {
+            return;
+        }
+        if (cAF.getClock().instant().isAfter(cAF.getDeadline())) {
+            cAF.getProfiler().incrementCounter(CrawlMetrics.PAGES_CANCELLED, 1);
+            return;
+        }
 
-            //Add this url to the list of visited
-            visitedUrls.add(url);
-            //Unlock visitedUrls here to keep execution running
+        //Skip urls that have already been visited.  addIfAbsent() checks and
+        //claims the url in one step, so no lock is needed.
+        if (!cAF.getVisitedUrls().addIfAbsent(url)) {
+            return;
         }
 
         //Get results from this URL
 
-        PageParser.Result result = cAF.getParserFactory().get(url).parse();
+        //The download is abandoned if the deadline passes while it is in flight.
+        Instant start = cAF.getClock().instant();
+        PageParser.Result result = fetchAndParse();
+        if (result == null || result.isCancelled()) {
+            cAF.getProfiler().incrementCounter(CrawlMetrics.PAGES_CANCELLED, 1);
+            return;
+        }
 
-        //Record the results by updating word counts
-        for (Map.Entry<String, Integer> e : result.getWordCounts().entrySet()) {
-            Map<String, Integer> counts = cAF.getCounts();
-            if (counts.containsKey(e.getKey())) {
-                counts.put(e.getKey(), e.getValue() + counts.get(e.getKey()));
-            } else {
-                counts.put(e.getKey(), e.getValue());
-            }
+        //A near-duplicate of a page already counted, such as a mirror of it,
+        //is neither counted again nor followed, which prunes the whole copy.
+        if (cAF.getNearDuplicates().findOrAdd(url, result.getSimHash()) != null) {
+            return;
         }
 
-        //Results also included a list of embedded URLs
-        // Recurse down the list of links
+        //Streaming crawls hand each page to the subscriber instead of keeping
+        //totals. submit() blocks while the subscriber is behind, which holds
+        //back the crawl.
+        SubmissionPublisher<PageEvent> publisher = cAF.getPublisher();
+        if (publisher != null) {
+            PageStreams.submit(publisher, url, cAF.getMaxDepth() - maxDepth,
+                    Duration.between(start, cAF.getClock().instant()), result);
+        } else {
+            //Record the results in this worker's own counts, so that threads
+            //never write to the same entry for common words.
+            cAF.getWordCounts().add(result);
+        }
+
+        //Checkpoint the page so a resumed crawl neither repeats nor loses it.
+        //This only queues the page; the journal writes it in the background.
+        CheckpointJournal journal = cAF.getJournal();
+        if (journal != null) {
+            journal.recordPage(url, maxDepth, result.getWordCounts(), result.getLinks());
+        }
+
+        //Count the links that canonicalization kept from being crawled again
+        //as another spelling of a visited page.
+        CrawlMetrics.countDuplicatesAvoided(
+                cAF.getProfiler(), result, cAF.getVisitedUrls()::contains);
+
+        //Results also included a list of embedded URLs.  Fork every child
+        //link together so the pool can work on all of them at once, then
+        //join them before this page counts as done.
+        List<CrawlActionImpl> subtasks = new ArrayList<>();
         for (String link : result.getLinks()) {
-             CrawlActionImpl crawlAction =
-                    new CrawlActionImpl(link, maxDepth-1, cAF);
-            cAF.getPool().invoke(crawlAction);
+            subtasks.add(new CrawlActionImpl(link, maxDepth - 1, cAF));
+        }
+        invokeAll(subtasks);
+    }
+
+    /**
+     * Downloads and parses the page, first waiting for the limiter to allow another fetch.
+     * Returns null if the deadline passed while waiting.
+     */
+    private PageParser.Result fetchAndParse() {
+        AdaptiveConcurrencyLimiter limiter = cAF.getLimiter();
+        if (limiter == null) {
+            return cAF.getParserFactory().get(url, cAF.getDeadline()).parse();
+        }
+
+        Instant permit;
+        try {
+            permit = limiter.acquire(cAF.getDeadline());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (permit == null) {
+            return null;
+        }
+
+        //The latency includes parsing, which is small and steady next to the download.
+        PageParser.Result result = null;
+        try {
+            result = fetchBlocking(cAF.getParserFactory().get(url, cAF.getDeadline()));
+            return result;
+        } finally {
+            limiter.release(permit, result == null || result.isFailed());
+        }
+    }
+
+    /**
+     * Parses the page as a {@link ForkJoinPool.ManagedBlocker}, so the pool can start another
+     * worker while this one waits on the download. The limiter, not the pool size, then decides
+     * how many downloads are in flight. Returns null if interrupted.
+     */
+    private static PageParser.Result fetchBlocking(PageParser parser) {
+        Fetch fetch = new Fetch(parser);
+        try {
+            ForkJoinPool.managedBlock(fetch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return fetch.result;
+    }
+
+    private static final class Fetch implements ForkJoinPool.ManagedBlocker {
+        private final PageParser parser;
+        private PageParser.Result result;
+
+        Fetch(PageParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean block() {
+            result = parser.parse();
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return result != null;
         }
     }
 }
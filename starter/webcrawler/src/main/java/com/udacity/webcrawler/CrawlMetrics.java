@@ -0,0 +1,72 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.UrlCanonicalizer;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.util.function.Predicate;
+
+/**
+ * Names of the crawl metrics that crawlers report through the
+ * {@link com.udacity.webcrawler.profiler.Profiler}.
+ */
+final class CrawlMetrics {
+
+  /**
+   * Pages left uncrawled because the deadline had passed, plus downloads that were aborted
+   * mid-flight when it passed. Links to ignored or already visited pages are not counted, since
+   * they would not have been crawled anyway.
+   */
+  static final String PAGES_CANCELLED = "crawl.pagesCancelled";
+
+  /**
+   * Links written in a non-canonical spelling of a page that had already been visited. Without the
+   * {@link UrlCanonicalizer}, each would have been crawled again under its own spelling.
+   */
+  static final String DUPLICATES_AVOIDED = "canonicalizer.duplicatesAvoided";
+
+  /**
+   * The current limit on concurrent fetches chosen by the {@link AdaptiveConcurrencyLimiter}.
+   */
+  static final String CONCURRENCY_LIMIT = "crawl.concurrencyLimit";
+
+  /**
+   * Checkpoint journals that could not be written in full. The crawl result is still returned, but
+   * resuming from the checkpoint may repeat or miss pages.
+   */
+  static final String CHECKPOINT_FAILURES = "crawl.checkpointFailures";
+
+  /**
+   * Links that a node of a distributed crawl found for another node but could not send, and so
+   * crawled itself.
+   */
+  static final String LINKS_CRAWLED_LOCALLY = "distributed.linksCrawledLocally";
+
+  /**
+   * Connections between the nodes of a distributed crawl that failed while receiving messages. Any
+   * links in flight on them are lost.
+   */
+  static final String TRANSPORT_ERRORS = "distributed.transportErrors";
+
+  /**
+   * Distributed crawls whose coordinator stopped waiting for the other nodes at the end of the
+   * grace period, while some links were still unaccounted for. Their results may be incomplete.
+   */
+  static final String UNFINISHED_CRAWLS = "distributed.unfinishedCrawls";
+
+  private CrawlMetrics() {
+    // This class cannot be instantiated
+  }
+
+  /**
+   * Adds the links on a crawled page that are non-canonical spellings of visited pages to
+   * {@link #DUPLICATES_AVOIDED}.
+   */
+  static void countDuplicatesAvoided(
+      Profiler profiler, PageParser.Result result, Predicate<String> isVisited) {
+    long duplicates = result.getRewrittenLinks().stream().filter(isVisited).count();
+    if (duplicates > 0) {
+      profiler.incrementCounter(DUPLICATES_AVOIDED, duplicates);
+    }
+  }
+}
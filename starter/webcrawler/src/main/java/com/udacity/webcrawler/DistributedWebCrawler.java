@@ -0,0 +1,439 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.distributed.Cluster;
+import com.udacity.webcrawler.distributed.ClusterTransport;
+import com.udacity.webcrawler.distributed.Link;
+import com.udacity.webcrawler.distributed.NodeReport;
+import com.udacity.webcrawler.distributed.NodeStatus;
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.parser.PatternFilter;
+import com.udacity.webcrawler.parser.UrlCanonicalizer;
+import com.udacity.webcrawler.parser.WordDictionary;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link WebCrawler} that runs as one node of a {@link Cluster} of crawler processes.
+ *
+ * <p>Every node runs {@link #crawl} with the same start pages. Each URL is owned by one node, and
+ * only its owner downloads it: a node seeds its frontier with the start pages it owns, and sends
+ * links it finds for other nodes' URLs to them in batches over a {@link ClusterTransport}. The
+ * visited set and word counts therefore stay local to each node.
+ *
+ * <p>The coordinator decides when the crawl is finished by polling every node's
+ * {@link NodeStatus}. It stops once two rounds in a row find every node idle, the same number of
+ * links sent as received, and the same totals as the round before; any link still in transit or
+ * any work started between the rounds shows up as a difference. It then collects every node's word
+ * counts and returns the merged result. The other nodes return their own share of the crawl.
+ *
+ * <p>{@link #crawlPages} works the same way, except that each node publishes the pages it crawled
+ * itself instead of counting their words. Every node must subscribe for the crawl to start.
+ */
+public final class DistributedWebCrawler implements WebCrawler {
+
+  private static final Logger LOGGER = Logger.getLogger(DistributedWebCrawler.class.getName());
+
+  private static final int BATCH_SIZE = 64;
+  private static final Duration FLUSH_INTERVAL = Duration.ofMillis(5);
+  private static final Duration POLL_INTERVAL = Duration.ofMillis(20);
+
+  private final Clock clock;
+  private final PageParserFactory parserFactory;
+  private final Profiler profiler;
+  private final Duration timeout;
+  private final int popularWordCount;
+  private final int threadCount;
+  private final int maxDepth;
+  private final PatternFilter ignoredUrls;
+  private final Cluster cluster;
+  private final Duration connectTimeout;
+  // How long past the deadline the coordinator waits for pages that are still in flight.
+  private final Duration gracePeriod;
+  private final WordDictionary dictionary;
+  private final UrlCanonicalizer canonicalizer;
+
+  @Inject
+  DistributedWebCrawler(
+      Clock clock,
+      PageParserFactory parserFactory,
+      Profiler profiler,
+      @Timeout Duration timeout,
+      @PopularWordCount int popularWordCount,
+      @TargetParallelism int threadCount,
+      @MaxDepth int maxDepth,
+      @IgnoredUrls PatternFilter ignoredUrls,
+      Cluster cluster,
+      @ClusterConnectTimeout Duration connectTimeout,
+      @ClusterGracePeriod Duration gracePeriod,
+      WordDictionary dictionary,
+      UrlCanonicalizer canonicalizer) {
+    this.clock = clock;
+    this.parserFactory = parserFactory;
+    this.profiler = profiler;
+    this.timeout = timeout;
+    this.popularWordCount = popularWordCount;
+    this.threadCount = Math.min(threadCount, getMaxParallelism());
+    this.maxDepth = maxDepth;
+    this.ignoredUrls = ignoredUrls;
+    this.cluster = cluster;
+    this.connectTimeout = connectTimeout;
+    this.gracePeriod = gracePeriod;
+    this.dictionary = dictionary;
+    this.canonicalizer = canonicalizer;
+  }
+
+  @Override
+  public CrawlResult crawl(List<String> startingUrls) {
+    return crawl(startingUrls, null);
+  }
+
+  @Override
+  public Flow.Publisher<PageEvent> crawlPages(List<String> startingUrls) {
+    List<String> roots = List.copyOf(startingUrls);
+    return PageStreams.onNewThread("crawl-pages", publisher -> crawl(roots, publisher));
+  }
+
+  /**
+   * Runs this node's share of a crawl. A streaming crawl passes a publisher, and its result has
+   * no word counts.
+   */
+  private CrawlResult crawl(List<String> startingUrls, SubmissionPublisher<PageEvent> publisher) {
+    Instant deadline = clock.instant().plus(timeout);
+    Node node = new Node(deadline, publisher);
+
+    try (ClusterTransport transport = ClusterTransport.start(cluster, node)) {
+      node.transport = transport;
+      transport.connectAll(clock, clock.instant().plus(connectTimeout));
+      node.start(startingUrls);
+
+      if (!cluster.isCoordinator()) {
+        if (!transport.awaitFinish(
+            timeout.plus(gracePeriod).plus(connectTimeout).toMillis(), TimeUnit.MILLISECONDS)) {
+          node.finish();
+        }
+        return toResult(node.report());
+      }
+
+      if (!awaitQuiescence(node, transport, deadline)) {
+        profiler.incrementCounter(CrawlMetrics.UNFINISHED_CRAWLS, 1);
+      }
+      NodeReport own = node.finish();
+      Map<String, Integer> counts = new HashMap<>(own.getWordCounts());
+      int urlsVisited = own.getUrlsVisited();
+      for (int peer = 0; peer < cluster.size(); peer++) {
+        if (peer != cluster.self()) {
+          NodeReport report = transport.finish(peer);
+          urlsVisited += report.getUrlsVisited();
+          report.getWordCounts().forEach((word, count) -> counts.merge(word, count, Integer::sum));
+        }
+      }
+      return toResult(new NodeReport(urlsVisited, counts));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Distributed crawl failed", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return toResult(node.finish());
+    } finally {
+      node.finish();
+    }
+  }
+
+  @Override
+  public int getMaxParallelism() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Polls every node until the crawl is finished or the grace period after the deadline is over.
+   * Returns false in the second case.
+   */
+  private boolean awaitQuiescence(Node node, ClusterTransport transport, Instant deadline)
+      throws IOException, InterruptedException {
+    Instant giveUpAt = deadline.plus(gracePeriod);
+    long[] previous = null;
+    while (clock.instant().isBefore(giveUpAt)) {
+      boolean idle = true;
+      long sent = 0;
+      long received = 0;
+      for (int i = 0; i < cluster.size(); i++) {
+        NodeStatus status = (i == cluster.self()) ? node.status() : transport.queryStatus(i);
+        idle &= status.isIdle();
+        sent += status.getLinksSent();
+        received += status.getLinksReceived();
+      }
+      if (idle && sent == received) {
+        if (previous != null && previous[0] == sent && previous[1] == received) {
+          return true;
+        }
+        previous = new long[]{sent, received};
+      } else {
+        previous = null;
+      }
+      Thread.sleep(POLL_INTERVAL.toMillis());
+    }
+    return false;
+  }
+
+  private CrawlResult toResult(NodeReport report) {
+    Map<String, Integer> counts = report.getWordCounts();
+    return new CrawlResult.Builder()
+        .setWordCounts(counts.isEmpty() ? counts : WordCounts.sort(counts, popularWordCount))
+        .setUrlsVisited(report.getUrlsVisited())
+        .build();
+  }
+
+  /**
+   * The state of this node's share of one crawl.
+   */
+  private final class Node implements ClusterTransport.Handler {
+    private final Instant deadline;
+    private final SubmissionPublisher<PageEvent> publisher;
+    private final BlockingQueue<Link> frontier = new LinkedBlockingQueue<>();
+    private final Set<String> seenUrls = ConcurrentHashMap.newKeySet();
+    // Each of the node's crawl threads adds to its own shard. Counts are always exact, since the
+    // nodes send each other their counts word by word.
+    private final WordCountAggregator counts = new WordCountAggregator(dictionary);
+    private final AtomicInteger urlsVisited = new AtomicInteger();
+    private final List<List<Link>> outboxes = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    // Links queued or being crawled here, and links waiting in an outbox.
+    private final AtomicLong active = new AtomicLong();
+    private final AtomicLong buffered = new AtomicLong();
+    private final AtomicLong linksSent = new AtomicLong();
+    private final AtomicLong linksReceived = new AtomicLong();
+    private volatile boolean seeded;
+    private volatile boolean stopped;
+    private volatile ClusterTransport transport;
+
+    Node(Instant deadline, SubmissionPublisher<PageEvent> publisher) {
+      this.deadline = deadline;
+      this.publisher = publisher;
+      for (int i = 0; i < cluster.size(); i++) {
+        outboxes.add(new ArrayList<>());
+      }
+    }
+
+    void start(List<String> startingUrls) {
+      for (String startingUrl : startingUrls) {
+        // Spelled the way links to it are, so that every node agrees on who owns it.
+        String url = canonicalizer.canonicalize(startingUrl);
+        if (cluster.owner(url) == cluster.self()) {
+          route(url, maxDepth);
+        }
+      }
+      seeded = true;
+      for (int i = 0; i < threadCount; i++) {
+        threads.add(startThread(this::work, "crawl-node-" + cluster.self() + "-" + i));
+      }
+      threads.add(startThread(this::flushPeriodically, "crawl-node-" + cluster.self() + "-flush"));
+    }
+
+    @Override
+    public void onLinks(List<Link> links) {
+      for (Link link : links) {
+        enqueue(link.getUrl(), link.getDepth());
+      }
+      // Counted only once the links are queued, so a node that counts them also counts them as
+      // active until they have been crawled.
+      linksReceived.addAndGet(links.size());
+    }
+
+    @Override
+    public void onError(IOException e) {
+      profiler.incrementCounter(CrawlMetrics.TRANSPORT_ERRORS, 1);
+      LOGGER.log(
+          Level.WARNING, "Node " + cluster.self() + " lost a connection to another node", e);
+    }
+
+    @Override
+    public NodeStatus status() {
+      // Read in the opposite order to how work moves between the counters, so that work cannot
+      // slip past unseen from one counter into one that has already been read.
+      long received = linksReceived.get();
+      boolean idle = seeded && active.get() == 0 && buffered.get() == 0;
+      return new NodeStatus(idle, linksSent.get(), received);
+    }
+
+    @Override
+    public synchronized NodeReport finish() {
+      if (!stopped) {
+        stopped = true;
+        for (Thread thread : threads) {
+          try {
+            thread.join();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            break;
+          }
+        }
+      }
+      return report();
+    }
+
+    NodeReport report() {
+      return new NodeReport(urlsVisited.get(), counts.snapshot(ForkJoinPool.commonPool()));
+    }
+
+    private void work() {
+      while (!stopped) {
+        Link link;
+        try {
+          link = frontier.poll(POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          return;
+        }
+        if (link != null) {
+          try {
+            crawlPage(link);
+          } finally {
+            active.decrementAndGet();
+          }
+        }
+      }
+    }
+
+    private void crawlPage(Link link) {
+      // Once a streaming subscriber has cancelled, the rest of the frontier is only drained.
+      if (PageStreams.isUnsubscribed(publisher)) {
+        return;
+      }
+      Instant start = clock.instant();
+      if (start.isAfter(deadline)) {
+        profiler.incrementCounter(CrawlMetrics.PAGES_CANCELLED, 1);
+        return;
+      }
+      urlsVisited.incrementAndGet();
+      PageParser.Result result = parserFactory.get(link.getUrl(), deadline).parse();
+      if (result.isCancelled()) {
+        profiler.incrementCounter(CrawlMetrics.PAGES_CANCELLED, 1);
+        return;
+      }
+      if (publisher != null) {
+        PageStreams.submit(publisher, link.getUrl(), maxDepth - link.getDepth(),
+            Duration.between(start, clock.instant()), result);
+      } else {
+        counts.add(result);
+      }
+      // Only this node's own links can be checked against the URLs it has seen.
+      CrawlMetrics.countDuplicatesAvoided(profiler, result,
+          url -> cluster.owner(url) == cluster.self() && seenUrls.contains(url));
+      for (String url : result.getLinks()) {
+        route(url, link.getDepth() - 1);
+      }
+    }
+
+    /**
+     * Queues a link here if this node owns it, or in the owner's outbox otherwise.
+     */
+    private void route(String url, int depth) {
+      if (depth == 0) {
+        return;
+      }
+      if (ignoredUrls.matchesAny(url)) {
+        return;
+      }
+      int owner = cluster.owner(url);
+      if (owner == cluster.self()) {
+        enqueue(url, depth);
+        return;
+      }
+      List<Link> outbox = outboxes.get(owner);
+      List<Link> batch = null;
+      synchronized (outbox) {
+        buffered.incrementAndGet();
+        outbox.add(new Link(url, depth));
+        if (outbox.size() >= BATCH_SIZE) {
+          batch = new ArrayList<>(outbox);
+          outbox.clear();
+        }
+      }
+      if (batch != null) {
+        send(owner, batch);
+      }
+    }
+
+    private void enqueue(String url, int depth) {
+      // Like the other crawlers, the first path to reach a URL decides how deep it is crawled.
+      if (seenUrls.add(url)) {
+        active.incrementAndGet();
+        frontier.add(new Link(url, depth));
+      }
+    }
+
+    private void flushPeriodically() {
+      while (!stopped) {
+        for (int owner = 0; owner < outboxes.size(); owner++) {
+          List<Link> outbox = outboxes.get(owner);
+          List<Link> batch;
+          synchronized (outbox) {
+            if (outbox.isEmpty()) {
+              continue;
+            }
+            batch = new ArrayList<>(outbox);
+            outbox.clear();
+          }
+          send(owner, batch);
+        }
+        try {
+          Thread.sleep(FLUSH_INTERVAL.toMillis());
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Sends a batch of links to their owner. If that fails, they are crawled here instead, so that
+     * an unreachable node costs time rather than pages. A page may then be crawled twice, if part
+     * of the batch did arrive.
+     */
+    private void send(int owner, List<Link> batch) {
+      try {
+        // Counted as sent before the links leave, so that they are never missing from both sides.
+        linksSent.addAndGet(batch.size());
+        transport.sendLinks(owner, batch);
+      } catch (IOException e) {
+        // Queued here before they stop counting as buffered, so the node never looks idle.
+        linksSent.addAndGet(-batch.size());
+        for (Link link : batch) {
+          enqueue(link.getUrl(), link.getDepth());
+        }
+        profiler.incrementCounter(CrawlMetrics.LINKS_CRAWLED_LOCALLY, batch.size());
+      } finally {
+        buffered.addAndGet(-batch.size());
+      }
+    }
+
+    private Thread startThread(Runnable task, String name) {
+      Thread thread = new Thread(task, name);
+      thread.setDaemon(true);
+      thread.start();
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package com.udacity.webcrawler;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link VisitedSet} that keeps a 64- or 128-bit fingerprint of each URL instead of the URL
+ * itself, in open-addressed hash tables outside the Java heap.
+ *
+ * <p>A URL costs one table slot of 8 or 16 bytes. Tables double once they are {@link #MAX_LOAD}
+ * full, so they stay between 35% and 70% full and a URL takes about 11 to 23 bytes with 64-bit
+ * fingerprints, and twice that with 128-bit ones. A full URL {@code String} in a hash set takes
+ * well over 100.
+ *
+ * <p>Two different URLs with the same fingerprint are treated as one, so the second is never
+ * crawled. With {@code n} URLs and {@code b}-bit fingerprints, the chance that any two URLs
+ * collide is about {@code n^2 / 2^(b+1)}:
+ *
+ * <ul>
+ *   <li>64 bits: about 1 in 370,000 for 10 million URLs, and 1 in 3,700 for 100 million.</li>
+ *   <li>128 bits: negligible for any number of URLs a crawl could reach.</li>
+ * </ul>
+ *
+ * <p>{@link #size()} counts distinct fingerprints, so it is exact unless a collision happened.
+ *
+ * <p>The fingerprints are split across {@link #SEGMENTS} tables. Slots are claimed with a
+ * compare-and-set on their first 8 bytes, so any number of threads can add to a table at once.
+ * When one table needs to grow, only threads adding to that table wait for it.
+ */
+final class FingerprintVisitedSet implements VisitedSet {
+
+  static final int SEGMENTS = 64;
+  static final double MAX_LOAD = 0.7;
+
+  private static final int INITIAL_SLOTS = 1024;
+  private static final VarHandle LONGS =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+  private final boolean wide;
+  private final int slotBytes;
+  private final Segment[] segments = new Segment[SEGMENTS];
+
+  /**
+   * Creates an empty set that keeps fingerprints of the given size, which must be 64 or 128 bits.
+   */
+  FingerprintVisitedSet(int fingerprintBits) {
+    if (fingerprintBits != 64 && fingerprintBits != 128) {
+      throw new IllegalArgumentException("fingerprintBits must be 64 or 128");
+    }
+    this.wide = fingerprintBits == 128;
+    this.slotBytes = wide ? 16 : 8;
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(INITIAL_SLOTS);
+    }
+  }
+
+  @Override
+  public boolean addIfAbsent(String url) {
+    long[] fingerprint = fingerprint(url);
+    long hi = nonZero(fingerprint[0]);
+    long lo = wide ? nonZero(fingerprint[1]) : 0;
+    Segment segment = segmentFor(hi);
+    segment.lock.readLock().lock();
+    try {
+      ByteBuffer table = segment.table;
+      int mask = segment.slots - 1;
+      for (int i = (int) hi & mask; ; i = (i + 1) & mask) {
+        int offset = i * slotBytes;
+        long current = (long) LONGS.getVolatile(table, offset);
+        if (current == 0) {
+          if (LONGS.compareAndSet(table, offset, 0L, hi)) {
+            if (wide) {
+              LONGS.setVolatile(table, offset + 8, lo);
+            }
+            break;
+          }
+          current = (long) LONGS.getVolatile(table, offset);
+        }
+        if (current == hi && (!wide || awaitLow(table, offset) == lo)) {
+          return false;
+        }
+      }
+    } finally {
+      segment.lock.readLock().unlock();
+    }
+    if (segment.count.incrementAndGet() > segment.slots * MAX_LOAD) {
+      grow(segment);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean contains(String url) {
+    long[] fingerprint = fingerprint(url);
+    long hi = nonZero(fingerprint[0]);
+    long lo = wide ? nonZero(fingerprint[1]) : 0;
+    Segment segment = segmentFor(hi);
+    segment.lock.readLock().lock();
+    try {
+      ByteBuffer table = segment.table;
+      int mask = segment.slots - 1;
+      for (int i = (int) hi & mask; ; i = (i + 1) & mask) {
+        int offset = i * slotBytes;
+        long current = (long) LONGS.getVolatile(table, offset);
+        if (current == 0) {
+          return false;
+        }
+        if (current == hi && (!wide || awaitLow(table, offset) == lo)) {
+          return true;
+        }
+      }
+    } finally {
+      segment.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.count.get();
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns the number of bytes of off-heap memory the tables take up.
+   */
+  long offHeapBytes() {
+    long bytes = 0;
+    for (Segment segment : segments) {
+      bytes += (long) segment.slots * slotBytes;
+    }
+    return bytes;
+  }
+
+  private Segment segmentFor(long hi) {
+    // The top bits pick the segment; the bottom bits pick the slot within it.
+    return segments[(int) (hi >>> 58) & (SEGMENTS - 1)];
+  }
+
+  /**
+   * Doubles the segment's table, unless another thread already did.
+   */
+  private void grow(Segment segment) {
+    segment.lock.writeLock().lock();
+    try {
+      if (segment.count.get() <= segment.slots * MAX_LOAD) {
+        return;
+      }
+      if ((long) segment.slots * 2 * slotBytes > Integer.MAX_VALUE) {
+        throw new IllegalStateException("Visited set is full");
+      }
+      int slots = segment.slots * 2;
+      ByteBuffer table =
+          ByteBuffer.allocateDirect(slots * slotBytes).order(ByteOrder.nativeOrder());
+      ByteBuffer old = segment.table;
+      for (int i = 0; i < segment.slots; i++) {
+        long hi = old.getLong(i * slotBytes);
+        if (hi == 0) {
+          continue;
+        }
+        int j = (int) hi & (slots - 1);
+        while (table.getLong(j * slotBytes) != 0) {
+          j = (j + 1) & (slots - 1);
+        }
+        table.putLong(j * slotBytes, hi);
+        if (wide) {
+          table.putLong(j * slotBytes + 8, old.getLong(i * slotBytes + 8));
+        }
+      }
+      segment.table = table;
+      segment.slots = slots;
+    } finally {
+      segment.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the low half of a 128-bit slot, waiting for the thread that claimed the slot to finish
+   * writing it.
+   */
+  private static long awaitLow(ByteBuffer table, int offset) {
+    long lo;
+    while ((lo = (long) LONGS.getVolatile(table, offset + 8)) == 0) {
+      Thread.onSpinWait();
+    }
+    return lo;
+  }
+
+  // 0 marks an empty slot, so it is never stored. One fingerprint in 2^64 then collides with 1.
+  private static long nonZero(long value) {
+    return (value == 0) ? 1 : value;
+  }
+
+  /**
+   * Returns the 128-bit MurmurHash3 (x64 variant) of the URL's UTF-16 code units.
+   */
+  static long[] fingerprint(String url) {
+    final long c1 = 0x87c37b91114253d5L;
+    final long c2 = 0x4cf5ad432745937fL;
+    int length = url.length();
+    long h1 = 0;
+    long h2 = 0;
+    int i = 0;
+    for (; i + 8 <= length; i += 8) {
+      long k1 = chars(url, i, 4);
+      long k2 = chars(url, i + 4, 4);
+      h1 ^= Long.rotateLeft(k1 * c1, 31) * c2;
+      h1 = Long.rotateLeft(h1, 27) + h2;
+      h1 = h1 * 5 + 0x52dce729;
+      h2 ^= Long.rotateLeft(k2 * c2, 33) * c1;
+      h2 = Long.rotateLeft(h2, 31) + h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+    int tail = length - i;
+    if (tail > 4) {
+      h2 ^= Long.rotateLeft(chars(url, i + 4, tail - 4) * c2, 33) * c1;
+    }
+    if (tail > 0) {
+      h1 ^= Long.rotateLeft(chars(url, i, Math.min(tail, 4)) * c1, 31) * c2;
+    }
+    h1 ^= 2L * length;
+    h2 ^= 2L * length;
+    h1 += h2;
+    h2 += h1;
+    h1 = mix(h1);
+    h2 = mix(h2);
+    h1 += h2;
+    h2 += h1;
+    return new long[]{h1, h2};
+  }
+
+  // Packs up to four chars into a long, the first in the lowest bits.
+  private static long chars(String s, int start, int count) {
+    long k = 0;
+    for (int j = count - 1; j >= 0; j--) {
+      k = (k << 16) | s.charAt(start + j);
+    }
+    return k;
+  }
+
+  private static long mix(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  private final class Segment {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger count = new AtomicInteger();
+    // Only replaced under the write lock, and only read under the read lock.
+    private ByteBuffer table;
+    private int slots;
+
+    Segment(int slots) {
+      this.slots = slots;
+      this.table = ByteBuffer.allocateDirect(slots * slotBytes).order(ByteOrder.nativeOrder());
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.udacity.webcrawler;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A binding annotation for the number of links waiting to be crawled that a crawler may keep in
+ * memory.
+ *
+ * <p>The value bound to this annotation is the value of the {@code "frontierMemoryUrls"} option
+ * from the crawler configuration JSON.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FrontierMemoryUrls {
+}
@@ -0,0 +1,308 @@
+package com.udacity.webcrawler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Counts words approximately in a fixed amount of memory, keeping close track of only the most
+ * frequent ones.
+ *
+ * <p>Two structures share the memory budget:
+ *
+ * <ul>
+ *   <li>A Count-Min sketch: rows of counters, where every word adds its count to one counter per
+ *       row, chosen by a hash. A word's count is at most the smallest of its counters, since other
+ *       words can only have added to them. With {@code w} counters per row, that is at most
+ *       {@code e / w} of all the words counted too high, except with a small probability.</li>
+ *   <li>A Space-Saving summary of the words with the highest counts seen so far. When a word that
+ *       is not in the summary arrives and the summary is full, it replaces the word with the lowest
+ *       count, and starts from that count, which it cannot have been above. The lowest count is
+ *       therefore how far any count in the summary may be too high.</li>
+ * </ul>
+ *
+ * <p>A word's estimate is the smaller of the two upper bounds, and it is never too low. Each word
+ * in the summary also has a lower bound, so {@link #maxError(Collection)} can report exactly how
+ * far the reported counts may be off.
+ *
+ * <p>Two sketches with the same dimensions can be {@link #merge merged}, which gives the same
+ * guarantees as one sketch that had counted both sets of words. This is not thread-safe; each
+ * crawler thread keeps its own and they are merged at the end.
+ */
+final class HeavyHitters {
+
+  // Each extra row halves the chance that a word's estimate misses the error target.
+  private static final int DEPTH = 5;
+  private static final int MIN_WIDTH = 64;
+  // A rough cost of one summary entry: the slot arrays, the index entry and the word itself.
+  private static final int ENTRY_BYTES = 128;
+
+  private final int width;
+  private final long[] sketch;
+  private final int capacity;
+  // The summary, as a binary min-heap on counts, so the word to replace is always at the root.
+  private final String[] words;
+  private final long[] counts;
+  private final long[] errors;
+  private final Map<String, Integer> slots;
+  private int size;
+  // The most a word not in the summary can have been counted.
+  private long floor;
+  private long total;
+
+  /**
+   * Creates an empty sketch with {@code width} counters per row, a power of two, and room for
+   * {@code capacity} words in the summary.
+   */
+  HeavyHitters(int width, int capacity) {
+    if (width < 1 || Integer.bitCount(width) != 1) {
+      throw new IllegalArgumentException("width must be a power of two");
+    }
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.width = width;
+    this.sketch = new long[DEPTH * width];
+    this.capacity = capacity;
+    this.words = new String[capacity];
+    this.counts = new long[capacity];
+    this.errors = new long[capacity];
+    this.slots = new HashMap<>();
+  }
+
+  /**
+   * Creates an empty sketch that takes about {@code memoryBytes} of memory. The Count-Min sketch
+   * gets enough counters for an error of {@code errorRate} of all the words counted, but no more
+   * than half the memory, and the summary gets the rest.
+   */
+  static HeavyHitters forBudget(long memoryBytes, double errorRate) {
+    if (!(errorRate > 0 && errorRate < 1)) {
+      throw new IllegalArgumentException("errorRate must be between 0 and 1");
+    }
+    long wanted = (long) Math.ceil(Math.E / errorRate);
+    long affordable = memoryBytes / 2 / DEPTH / Long.BYTES;
+    int width = MIN_WIDTH;
+    while (width < wanted && (long) width * 2 <= affordable && width < (1 << 28)) {
+      width *= 2;
+    }
+    long left = memoryBytes - (long) DEPTH * width * Long.BYTES;
+    int capacity = (int) Math.max(1, Math.min(left / ENTRY_BYTES, 1 << 24));
+    return new HeavyHitters(width, capacity);
+  }
+
+  /**
+   * Adds the given count to the word.
+   */
+  void add(String word, int count) {
+    Objects.requireNonNull(word);
+    if (count <= 0) {
+      return;
+    }
+    total += count;
+    long hash = hash(word);
+    for (int row = 0; row < DEPTH; row++) {
+      sketch[row * width + column(hash, row)] += count;
+    }
+
+    Integer slot = slots.get(word);
+    if (slot != null) {
+      counts[slot] += count;
+      siftDown(slot);
+    } else if (size < capacity) {
+      set(size, word, count, 0);
+      slots.put(word, size);
+      siftUp(size++);
+    } else {
+      // Replace the word with the lowest count, which the new word cannot have been above.
+      long min = counts[0];
+      floor = Math.max(floor, min);
+      slots.remove(words[0]);
+      set(0, word, min + count, min);
+      slots.put(word, 0);
+      siftDown(0);
+    }
+  }
+
+  /**
+   * Adds the counts of the other sketch to this one. Both must have the same dimensions.
+   */
+  void merge(HeavyHitters other) {
+    if (other.width != width || other.capacity != capacity) {
+      throw new IllegalArgumentException("Only sketches of the same size can be merged");
+    }
+    for (int i = 0; i < sketch.length; i++) {
+      sketch[i] += other.sketch[i];
+    }
+    total += other.total;
+
+    // A word missing from one summary may have been counted there up to that summary's floor.
+    Map<String, long[]> merged = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      merged.put(words[i], new long[]{counts[i] + other.floor, errors[i] + other.floor});
+    }
+    for (int i = 0; i < other.size; i++) {
+      long[] entry = merged.get(other.words[i]);
+      if (entry == null) {
+        merged.put(other.words[i],
+            new long[]{other.counts[i] + floor, other.errors[i] + floor});
+      } else {
+        entry[0] += other.counts[i] - other.floor;
+        entry[1] += other.errors[i] - other.floor;
+      }
+    }
+    long mergedFloor = floor + other.floor;
+
+    // Keep the words with the highest counts. The rest can have been counted at most as much.
+    List<Map.Entry<String, long[]>> ranked = new ArrayList<>(merged.entrySet());
+    ranked.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+    slots.clear();
+    size = 0;
+    for (Map.Entry<String, long[]> e : ranked) {
+      if (size < capacity) {
+        set(size, e.getKey(), e.getValue()[0], e.getValue()[1]);
+        slots.put(e.getKey(), size);
+        siftUp(size++);
+      } else {
+        mergedFloor = Math.max(mergedFloor, e.getValue()[0]);
+      }
+    }
+    floor = mergedFloor;
+  }
+
+  /**
+   * Returns a copy of this sketch.
+   */
+  HeavyHitters copy() {
+    HeavyHitters copy = new HeavyHitters(width, capacity);
+    System.arraycopy(sketch, 0, copy.sketch, 0, sketch.length);
+    System.arraycopy(words, 0, copy.words, 0, size);
+    System.arraycopy(counts, 0, copy.counts, 0, size);
+    System.arraycopy(errors, 0, copy.errors, 0, size);
+    copy.slots.putAll(slots);
+    copy.size = size;
+    copy.floor = floor;
+    copy.total = total;
+    return copy;
+  }
+
+  /**
+   * Returns the estimated count of every word in the summary. No estimate is lower than the
+   * word's true count.
+   */
+  Map<String, Integer> estimates() {
+    Map<String, Integer> estimates = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      estimates.put(words[i], (int) Math.min(Integer.MAX_VALUE, estimate(i)));
+    }
+    return estimates;
+  }
+
+  /**
+   * Returns the most that the estimate of any of the given words, all of which must be in the
+   * summary, can be above the word's true count.
+   */
+  int maxError(Collection<String> reported) {
+    long max = 0;
+    for (String word : reported) {
+      Integer slot = slots.get(word);
+      if (slot == null) {
+        throw new IllegalArgumentException(word + " is not in the summary");
+      }
+      long lower = Math.max(0, counts[slot] - errors[slot]);
+      max = Math.max(max, estimate(slot) - lower);
+    }
+    return (int) Math.min(Integer.MAX_VALUE, max);
+  }
+
+  /**
+   * Returns the total of all the counts added.
+   */
+  long total() {
+    return total;
+  }
+
+  private long estimate(int slot) {
+    long hash = hash(words[slot]);
+    long estimate = counts[slot];
+    for (int row = 0; row < DEPTH; row++) {
+      estimate = Math.min(estimate, sketch[row * width + column(hash, row)]);
+    }
+    return estimate;
+  }
+
+  /**
+   * Returns the word's counter in the given row. The rows' hashes are derived from two halves of
+   * one 64-bit hash, which is as good as independent hashes for a Count-Min sketch.
+   */
+  private int column(long hash, int row) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    return (h1 + row * h2) & (width - 1);
+  }
+
+  private void set(int slot, String word, long count, long error) {
+    words[slot] = word;
+    counts[slot] = count;
+    errors[slot] = error;
+  }
+
+  private void siftUp(int slot) {
+    while (slot > 0) {
+      int parent = (slot - 1) >>> 1;
+      if (counts[parent] <= counts[slot]) {
+        return;
+      }
+      swap(slot, parent);
+      slot = parent;
+    }
+  }
+
+  private void siftDown(int slot) {
+    while (true) {
+      int smallest = slot;
+      int left = 2 * slot + 1;
+      if (left < size && counts[left] < counts[smallest]) {
+        smallest = left;
+      }
+      if (left + 1 < size && counts[left + 1] < counts[smallest]) {
+        smallest = left + 1;
+      }
+      if (smallest == slot) {
+        return;
+      }
+      swap(slot, smallest);
+      slot = smallest;
+    }
+  }
+
+  private void swap(int a, int b) {
+    String word = words[a];
+    long count = counts[a];
+    long error = errors[a];
+    set(a, words[b], counts[b], errors[b]);
+    set(b, word, count, error);
+    slots.put(words[a], a);
+    slots.put(words[b], b);
+  }
+
+  /**
+   * Returns a 64-bit FNV-1a hash of the word's UTF-16 code units, with the bits mixed afterwards
+   * so that every bit depends on every character.
+   */
+  private static long hash(String word) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < word.length(); i++) {
+      h ^= word.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -5,7 +5,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
 /**
- * A binding annotation for the crawler's list of ignored URL patterns.
+ * A binding annotation for the crawler's ignored URL patterns, compiled into a
+ * {@link com.udacity.webcrawler.parser.PatternFilter}.
  *
  * <p>The value bound to this annotation is the value of the {@code "ignoredUrl"} option from the
  * crawler configuration JSON.
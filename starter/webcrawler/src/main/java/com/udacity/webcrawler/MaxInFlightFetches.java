@@ -0,0 +1,17 @@
+package com.udacity.webcrawler;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A binding annotation for the maximum number of page downloads a crawler may have outstanding at
+ * once.
+ *
+ * <p>The value bound to this annotation is the value of the {@code "maxInFlightFetches"} option
+ * from the crawler configuration JSON, or 0 if the crawler should choose its own limit.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface MaxInFlightFetches {
+}
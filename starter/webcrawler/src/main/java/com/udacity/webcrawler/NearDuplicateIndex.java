@@ -0,0 +1,155 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Remembers the SimHash of every page a crawl has counted, so that a page whose words are nearly
+ * the same as an earlier page's can be recognized as a copy of it and skipped.
+ *
+ * <p>Two pages are near-duplicates if their fingerprints differ in at most {@code maxDistance}
+ * bits. The 64 bits are split into {@code maxDistance + 1} bands, and each page is indexed under
+ * the value of each of its bands. Fingerprints that differ in only {@code maxDistance} bits must
+ * agree on at least one whole band, so only pages sharing a band with the new page are compared.
+ *
+ * <p>Each page that is not a near-duplicate starts a cluster, and the near-duplicates found later
+ * join it. Two near-duplicates crawled at the same moment can both be taken as new, in which case
+ * the copy is counted once more than it should be; the index takes no locks to rule that out.
+ */
+final class NearDuplicateIndex {
+
+  /**
+   * Pages skipped because they were near-duplicates of a page already crawled.
+   */
+  static final String PAGES = "nearDuplicates.pages";
+
+  /**
+   * Pages that one or more later pages were near-duplicates of.
+   */
+  static final String CLUSTERS = "nearDuplicates.clusters";
+
+  /**
+   * The most near-duplicates found of any one page.
+   */
+  static final String LARGEST_CLUSTER = "nearDuplicates.largestCluster";
+
+  private static final NearDuplicateIndex DISABLED = new NearDuplicateIndex();
+
+  private final int maxDistance;
+  private final int bandBits;
+  private final ConcurrentHashMap<Long, Queue<Page>>[] bands;
+  private final Queue<Page> pages = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger duplicates = new AtomicInteger();
+
+  private NearDuplicateIndex() {
+    this.maxDistance = -1;
+    this.bandBits = 0;
+    this.bands = null;
+  }
+
+  /**
+   * Creates an empty index in which pages whose fingerprints differ in at most
+   * {@code maxDistance} bits, which must be between 0 and 7, are near-duplicates.
+   */
+  @SuppressWarnings("unchecked")
+  NearDuplicateIndex(int maxDistance) {
+    if (maxDistance < 0 || maxDistance > 7) {
+      throw new IllegalArgumentException("maxDistance must be between 0 and 7");
+    }
+    this.maxDistance = maxDistance;
+    this.bandBits = Long.SIZE / (maxDistance + 1);
+    this.bands = new ConcurrentHashMap[maxDistance + 1];
+    for (int i = 0; i < bands.length; i++) {
+      bands[i] = new ConcurrentHashMap<>();
+    }
+  }
+
+  /**
+   * Returns an index that never finds a near-duplicate.
+   */
+  static NearDuplicateIndex disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * Returns the URL of an earlier page that the given page is a near-duplicate of, or null if
+   * there is none, in which case the page is added to the index.
+   *
+   * <p>Pages without words all have the fingerprint 0, but are not copies of each other, so they
+   * are never near-duplicates and are not added.
+   */
+  String findOrAdd(String url, long simHash) {
+    if (bands == null || simHash == 0) {
+      return null;
+    }
+    for (int band = 0; band < bands.length; band++) {
+      Queue<Page> candidates = bands[band].get(bandKey(simHash, band));
+      if (candidates == null) {
+        continue;
+      }
+      for (Page candidate : candidates) {
+        if (Long.bitCount(candidate.simHash ^ simHash) <= maxDistance) {
+          candidate.duplicates.incrementAndGet();
+          duplicates.incrementAndGet();
+          return candidate.url;
+        }
+      }
+    }
+    Page page = new Page(url, simHash);
+    pages.add(page);
+    for (int band = 0; band < bands.length; band++) {
+      bands[band]
+          .computeIfAbsent(bandKey(simHash, band), k -> new ConcurrentLinkedQueue<>())
+          .add(page);
+    }
+    return null;
+  }
+
+  /**
+   * Records how many near-duplicates were found, and how they cluster, through the given
+   * {@link Profiler}.
+   */
+  void reportTo(Profiler profiler) {
+    if (bands == null) {
+      return;
+    }
+    long clusters = 0;
+    long largest = 0;
+    for (Page page : pages) {
+      int size = page.duplicates.get();
+      if (size > 0) {
+        clusters++;
+        largest = Math.max(largest, size);
+      }
+    }
+    profiler.recordGauge(PAGES, duplicates.get());
+    profiler.recordGauge(CLUSTERS, clusters);
+    profiler.recordGauge(LARGEST_CLUSTER, largest);
+  }
+
+  /**
+   * Returns the bits of the given band. The last band also takes the bits left over when 64 does
+   * not divide evenly.
+   */
+  private long bandKey(long simHash, int band) {
+    int shift = band * bandBits;
+    int bits = (band == bands.length - 1) ? Long.SIZE - shift : bandBits;
+    long mask = (bits == Long.SIZE) ? -1L : (1L << bits) - 1;
+    return (simHash >>> shift) & mask;
+  }
+
+  private static final class Page {
+    private final String url;
+    private final long simHash;
+    private final AtomicInteger duplicates = new AtomicInteger();
+
+    Page(String url, long simHash) {
+      this.url = url;
+      this.simHash = simHash;
+    }
+  }
+}
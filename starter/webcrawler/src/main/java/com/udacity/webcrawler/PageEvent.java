@@ -0,0 +1,132 @@
+package com.udacity.webcrawler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Data class describing a single page that finished crawling. Published by
+ * {@link WebCrawler#crawlPages(List)}.
+ */
+public final class PageEvent {
+
+  private final String url;
+  private final int depth;
+  private final Duration fetchTime;
+  private final Map<String, Integer> wordCounts;
+  private final List<String> links;
+
+  private PageEvent(
+      String url,
+      int depth,
+      Duration fetchTime,
+      Map<String, Integer> wordCounts,
+      List<String> links) {
+    this.url = url;
+    this.depth = depth;
+    this.fetchTime = fetchTime;
+    this.wordCounts = wordCounts;
+    this.links = links;
+  }
+
+  /**
+   * Returns the URL of the page.
+   */
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Returns how many links away from a starting URL the page was found. Starting URLs have a depth
+   * of 0.
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Returns how long it took to download and parse the page.
+   */
+  public Duration getFetchTime() {
+    return fetchTime;
+  }
+
+  /**
+   * Returns an unmodifiable {@link Map} of the words on this page and how often each appeared. The
+   * counts are not limited to the most popular words.
+   */
+  public Map<String, Integer> getWordCounts() {
+    return wordCounts;
+  }
+
+  /**
+   * Returns an unmodifiable {@link List} of the hyperlinks on this page.
+   */
+  public List<String> getLinks() {
+    return links;
+  }
+
+  /**
+   * A builder class for {@link PageEvent}s.
+   */
+  public static final class Builder {
+    private String url;
+    private int depth;
+    private Duration fetchTime = Duration.ZERO;
+    private Map<String, Integer> wordCounts = Map.of();
+    private List<String> links = List.of();
+
+    /**
+     * Sets the page URL. See {@link #getUrl()}.
+     */
+    public Builder setUrl(String url) {
+      this.url = Objects.requireNonNull(url);
+      return this;
+    }
+
+    /**
+     * Sets the page depth. See {@link #getDepth()}.
+     */
+    public Builder setDepth(int depth) {
+      this.depth = depth;
+      return this;
+    }
+
+    /**
+     * Sets the fetch time. See {@link #getFetchTime()}.
+     */
+    public Builder setFetchTime(Duration fetchTime) {
+      this.fetchTime = Objects.requireNonNull(fetchTime);
+      return this;
+    }
+
+    /**
+     * Sets the word counts. See {@link #getWordCounts()}.
+     */
+    public Builder setWordCounts(Map<String, Integer> wordCounts) {
+      this.wordCounts = Objects.requireNonNull(wordCounts);
+      return this;
+    }
+
+    /**
+     * Sets the outgoing links. See {@link #getLinks()}.
+     */
+    public Builder setLinks(List<String> links) {
+      this.links = Objects.requireNonNull(links);
+      return this;
+    }
+
+    /**
+     * Constructs a {@link PageEvent} from this builder.
+     */
+    public PageEvent build() {
+      return new PageEvent(
+          Objects.requireNonNull(url),
+          depth,
+          fetchTime,
+          Map.copyOf(wordCounts),
+          List.copyOf(links));
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.PageParser;
+
+import java.time.Duration;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
+
+/**
+ * Helpers shared by the implementations of {@link WebCrawler#crawlPages}, including its default.
+ */
+final class PageStreams {
+
+  private PageStreams() {
+  }
+
+  /**
+   * Returns a publisher that runs a new crawl on its own thread for each subscriber. The crawl is
+   * given a {@link SubmissionPublisher} to submit pages to, which is closed when the crawl returns,
+   * or closed exceptionally if it throws.
+   */
+  static Flow.Publisher<PageEvent> onNewThread(
+      String name, Consumer<SubmissionPublisher<PageEvent>> crawl) {
+    return subscriber -> {
+      SubmissionPublisher<PageEvent> publisher = new SubmissionPublisher<>();
+      publisher.subscribe(subscriber);
+      Thread thread = new Thread(() -> {
+        try {
+          crawl.accept(publisher);
+          publisher.close();
+        } catch (Throwable t) {
+          publisher.closeExceptionally(t);
+        }
+      }, name);
+      thread.setDaemon(true);
+      thread.start();
+    };
+  }
+
+  /**
+   * Hands a crawled page to the subscriber. Blocks while the subscriber is behind, which holds
+   * back the crawl.
+   */
+  static void submit(
+      SubmissionPublisher<PageEvent> publisher,
+      String url,
+      int depth,
+      Duration fetchTime,
+      PageParser.Result result) {
+    publisher.submit(new PageEvent.Builder()
+        .setUrl(url)
+        .setDepth(depth)
+        .setFetchTime(fetchTime)
+        .setWordCounts(result.getWordCounts())
+        .setLinks(result.getLinks())
+        .build());
+  }
+
+  /**
+   * Returns whether a streaming crawl should stop because its subscriber has gone away. Always
+   * false for a crawl that is not streaming.
+   */
+  static boolean isUnsubscribed(SubmissionPublisher<PageEvent> publisher) {
+    return publisher != null && !publisher.hasSubscribers();
+  }
+}
@@ -2,39 +2,65 @@ package com.udacity.webcrawler;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.udacity.webcrawler.checkpoint.CheckpointJournal;
+import com.udacity.webcrawler.checkpoint.CheckpointState;
 import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.parser.PageParser;
 import com.udacity.webcrawler.parser.PageParserFactory;
 import com.udacity.webcrawler.parser.ParserModule;
+import com.udacity.webcrawler.parser.PatternFilter;
+import com.udacity.webcrawler.parser.UrlCanonicalizer;
+import com.udacity.webcrawler.profiler.Profiler;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Flow;
 import java.util.concurrent.ForkJoinPool;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
  * A concrete implementation of {@link WebCrawler} that runs multiple threads on a
  * {@link ForkJoinPool} to fetch and process multiple web pages in parallel.
+ *
+ * <p>The number of pages fetched at once is tuned during the crawl by an
+ * {@link AdaptiveConcurrencyLimiter}, starting from the configured parallelism. Workers wait on
+ * downloads as managed blocks, so the pool adds spare workers and the limit may go above the pool's
+ * size.
  */
 final class ParallelWebCrawler implements WebCrawler {
 
+  private static final Logger LOGGER = Logger.getLogger(ParallelWebCrawler.class.getName());
+
   private final Clock clock;
   private final Duration timeout;
   private final int popularWordCount;
   private final int threadCount;
   private final ForkJoinPool pool;
   private final int maxDepth;
-  private final List<Pattern> ignoredUrls;
+  private final PatternFilter ignoredUrls;
+  private final String checkpointPath;
+  private final String resumeFrom;
 
   //Guice creates parserFactory from the binding in WebCrawlerModule
   @Inject PageParserFactory parserFactory;
+  @Inject UrlCanonicalizer canonicalizer;
+  @Inject Profiler profiler;
+  @Inject Provider<VisitedSet> visitedSets;
+  @Inject Provider<NearDuplicateIndex> nearDuplicateIndexes;
+  @Inject Provider<WordCountAggregator> wordCountAggregators;
 
 
   @Inject
@@ -44,7 +70,9 @@ final class ParallelWebCrawler implements WebCrawler {
       @PopularWordCount int popularWordCount,
       @TargetParallelism int threadCount,
       @MaxDepth int maxDepth,
-      @IgnoredUrls List<Pattern> ignoredUrls) {
+      @IgnoredUrls PatternFilter ignoredUrls,
+      @CheckpointPath String checkpointPath,
+      @ResumeFrom String resumeFrom) {
     this.clock = clock;
     this.timeout = timeout;
     this.popularWordCount = popularWordCount;
@@ -52,6 +80,8 @@ final class ParallelWebCrawler implements WebCrawler {
     this.pool = new ForkJoinPool(Math.min(threadCount, getMaxParallelism()));
     this.ignoredUrls = ignoredUrls;
     this.maxDepth = maxDepth;
+    this.checkpointPath = checkpointPath;
+    this.resumeFrom = resumeFrom;
   }
 
   @Override
@@ -60,36 +90,157 @@ final class ParallelWebCrawler implements WebCrawler {
     Instant deadline = clock.instant().plus(timeout);
 
 
-    Map<String, Integer> counts = new ConcurrentHashMap<>();
-    Set<String> visitedUrls = Collections.synchronizedSet(new HashSet<>());
+    WordCountAggregator wordCounts = wordCountAggregators.get();
+    VisitedSet visitedUrls = visitedSets.get();
+    NearDuplicateIndex nearDuplicates = nearDuplicateIndexes.get();
+
+    //Pick up where a previous crawl left off, if asked to.
+    CheckpointState resumed = loadCheckpoint();
+    wordCounts.addAll(resumed.getWordCounts());
+    resumed.getCrawledUrls().forEach(visitedUrls::addIfAbsent);
+    CheckpointJournal journal = createJournal(resumed);
 
     CrawlActionFrame cAF = new CrawlActionFrame.Builder()
             .setClock(clock)
-            .setCounts(counts)
+            .setWordCounts(wordCounts)
             .setDeadline(deadline)
             .setPool(pool)
             .setIgnoredUrls(ignoredUrls)
             .setParserFactory(parserFactory)
             .setVisitedUrls(visitedUrls)
+            .setProfiler(profiler)
+            .setLimiter(new AdaptiveConcurrencyLimiter(clock, profiler, threadCount))
+            .setJournal(journal)
+            .setNearDuplicates(nearDuplicates)
             .build();
 
 
-    for (String url: startingUrls) {
-      CrawlActionImpl crawlAction = new CrawlActionImpl(url, maxDepth, cAF);
-      pool.invoke(crawlAction);
+    //Crawl every start page concurrently instead of one root at a time.
+    List<CrawlActionImpl> roots = roots(resumed, startingUrls, cAF);
+    try {
+      pool.invoke(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          invokeAll(roots);
+        }
+      });
+    } finally {
+      closeJournal(journal);
     }
+    visitedUrls.reportTo(profiler);
+    nearDuplicates.reportTo(profiler);
 
-    if (counts.isEmpty()) {
-      return new CrawlResult.Builder()
-              .setWordCounts(counts)
-              .setUrlsVisited(visitedUrls.size())
-              .build();
+    //Each worker kept its own counts; add them up now that all pages are in.
+    return wordCounts.popularWords(pool, popularWordCount)
+            .setUrlsVisited(visitedUrls.size())
+            .build();
+  }
+
+  //Links left over from the checkpoint come first, then the start pages,
+  //spelled the way links to them are. Start pages that were already crawled
+  //are skipped as visited.
+  private List<CrawlActionImpl> roots(
+      CheckpointState resumed, List<String> startingUrls, CrawlActionFrame cAF) {
+    Map<String, Integer> rootDepths = new LinkedHashMap<>(resumed.getFrontier());
+    for (String url : startingUrls) {
+      rootDepths.merge(canonicalizer.canonicalize(url), maxDepth, Math::max);
     }
+    return rootDepths.entrySet().stream()
+            .map(e -> new CrawlActionImpl(e.getKey(), e.getValue(), cAF))
+            .collect(Collectors.toList());
+  }
 
-    return new CrawlResult.Builder()
-            .setWordCounts(WordCounts.sort(counts, popularWordCount))
-            .setUrlsVisited(visitedUrls.size())
+  private CheckpointState loadCheckpoint() {
+    if (resumeFrom.isEmpty()) {
+      return CheckpointState.empty();
+    }
+    try {
+      return CheckpointJournal.load(Path.of(resumeFrom));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not resume from " + resumeFrom, e);
+    }
+  }
+
+  private CheckpointJournal createJournal(CheckpointState initial) {
+    if (checkpointPath.isEmpty()) {
+      return null;
+    }
+    try {
+      return CheckpointJournal.create(Path.of(checkpointPath), initial);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not create checkpoint " + checkpointPath, e);
+    }
+  }
+
+  //A checkpoint that could not be written should not throw away the result,
+  //but the failure is recorded in the profile and logged so it is not missed.
+  private void closeJournal(CheckpointJournal journal) {
+    if (journal == null) {
+      return;
+    }
+    try {
+      journal.close();
+    } catch (IOException e) {
+      profiler.incrementCounter(CrawlMetrics.CHECKPOINT_FAILURES, 1);
+      LOGGER.log(Level.WARNING, "Could not write checkpoint " + checkpointPath, e);
+    }
+  }
+
+  @Override
+  public Flow.Publisher<PageEvent> crawlPages(List<String> startingUrls) {
+    List<String> startCopy = List.copyOf(startingUrls);
+    return subscriber -> {
+      SubmissionPublisher<PageEvent> publisher = new SubmissionPublisher<>();
+      publisher.subscribe(subscriber);
+
+      //Run the crawl in the background; the publisher completes when it is done.
+      pool.execute(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          try {
+            streamPages(startCopy, publisher);
+            publisher.close();
+          } catch (Throwable t) {
+            publisher.closeExceptionally(t);
+          }
+        }
+      });
+    };
+  }
+
+  //Same collaborators as crawl(), except that pages go to the publisher
+  //instead of into word counts. A resumed crawl does not publish the pages
+  //the checkpoint already has.
+  private void streamPages(List<String> startingUrls, SubmissionPublisher<PageEvent> publisher) {
+    VisitedSet visitedUrls = visitedSets.get();
+    NearDuplicateIndex nearDuplicates = nearDuplicateIndexes.get();
+
+    CheckpointState resumed = loadCheckpoint();
+    resumed.getCrawledUrls().forEach(visitedUrls::addIfAbsent);
+    CheckpointJournal journal = createJournal(resumed);
+
+    CrawlActionFrame cAF = new CrawlActionFrame.Builder()
+            .setClock(clock)
+            .setDeadline(clock.instant().plus(timeout))
+            .setPool(pool)
+            .setIgnoredUrls(ignoredUrls)
+            .setParserFactory(parserFactory)
+            .setVisitedUrls(visitedUrls)
+            .setProfiler(profiler)
+            .setLimiter(new AdaptiveConcurrencyLimiter(clock, profiler, threadCount))
+            .setJournal(journal)
+            .setNearDuplicates(nearDuplicates)
+            .setPublisher(publisher)
+            .setMaxDepth(maxDepth)
             .build();
+
+    try {
+      ForkJoinTask.invokeAll(roots(resumed, startingUrls, cAF));
+    } finally {
+      closeJournal(journal);
+    }
+    visitedUrls.reportTo(profiler);
+    nearDuplicates.reportTo(profiler);
   }
 
   @Override
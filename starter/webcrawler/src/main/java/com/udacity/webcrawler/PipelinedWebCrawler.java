@@ -0,0 +1,422 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.parser.FetchedPage;
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.parser.PatternFilter;
+import com.udacity.webcrawler.parser.UrlCanonicalizer;
+import com.udacity.webcrawler.parser.WordCountMap;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link WebCrawler} that splits the work on each page into three stages, each with its own
+ * threads:
+ *
+ * <ol>
+ *   <li>Fetch: a dispatcher thread filters links and starts asynchronous downloads, keeping up to
+ *       {@code maxInFlightFetches} of them outstanding.</li>
+ *   <li>Parse: a pool sized to the number of CPU cores builds the DOM and counts words.</li>
+ *   <li>Aggregate: a single thread merges word counts and feeds new links back to the fetch
+ *       stage. Being the only writer, it needs no locking.</li>
+ * </ol>
+ *
+ * <p>The stages are connected by bounded queues. When aggregation falls behind, parse threads
+ * block handing it results; when parsing falls behind, downloaded pages hold on to their fetch
+ * permits and the dispatcher stops starting new downloads. The queue of links waiting to be
+ * fetched is the only unbounded one, because it is fed by the last stage; bounding it as well
+ * could deadlock the pipeline. It never holds more than the number of distinct links found.
+ *
+ * <p>When the deadline passes, the dispatcher aborts every outstanding download, and pages that
+ * are still waiting for a stage are dropped instead of processed.
+ *
+ * <p>Pages found in the parse cache go straight from the dispatcher to the aggregate stage, and
+ * pages that are parsed are added to the cache, as with the other crawlers.
+ *
+ * <p>Queue depths and per-stage throughput are reported through the {@link Profiler}.
+ */
+final class PipelinedWebCrawler implements WebCrawler {
+
+  // Fetches are asynchronous and hold no thread while they wait, so many can be in flight.
+  private static final int DEFAULT_MAX_IN_FLIGHT_FETCHES = 1000;
+
+  private final Clock clock;
+  private final PageParserFactory parserFactory;
+  private final Profiler profiler;
+  private final Duration timeout;
+  private final int popularWordCount;
+  private final int maxDepth;
+  private final PatternFilter ignoredUrls;
+  private final int maxInFlightFetches;
+  private final Provider<VisitedSet> visitedSets;
+  private final int parseThreads;
+  private final UrlCanonicalizer canonicalizer;
+
+  @Inject
+  PipelinedWebCrawler(
+      Clock clock,
+      PageParserFactory parserFactory,
+      Profiler profiler,
+      @Timeout Duration timeout,
+      @PopularWordCount int popularWordCount,
+      @TargetParallelism int threadCount,
+      @MaxDepth int maxDepth,
+      @IgnoredUrls PatternFilter ignoredUrls,
+      @MaxInFlightFetches int maxInFlightFetches,
+      Provider<VisitedSet> visitedSets,
+      UrlCanonicalizer canonicalizer) {
+    this.clock = clock;
+    this.parserFactory = parserFactory;
+    this.profiler = profiler;
+    this.timeout = timeout;
+    this.popularWordCount = popularWordCount;
+    this.maxDepth = maxDepth;
+    this.ignoredUrls = ignoredUrls;
+    this.maxInFlightFetches =
+        (maxInFlightFetches > 0) ? maxInFlightFetches : DEFAULT_MAX_IN_FLIGHT_FETCHES;
+    this.visitedSets = visitedSets;
+    this.parseThreads = Math.max(1, Math.min(threadCount, getMaxParallelism()));
+    this.canonicalizer = canonicalizer;
+  }
+
+  @Override
+  public CrawlResult crawl(List<String> startingUrls) {
+
+    Instant start = clock.instant();
+    Instant deadline = start.plus(timeout);
+
+    Pipeline pipeline = new Pipeline(deadline, null);
+    for (String url : startingUrls) {
+      pipeline.enqueue(canonicalizer.canonicalize(url), maxDepth);
+    }
+    pipeline.run();
+
+    double seconds = Math.max(Duration.between(start, clock.instant()).toMillis(), 1) / 1000.0;
+    for (Stage stage : Stage.values()) {
+      profiler.recordGauge(
+          stage.metric("pagesPerSecond"), Math.round(stage.completed(pipeline) / seconds));
+    }
+
+    Map<String, Integer> counts = pipeline.counts.asMap();
+    int urlsVisited = pipeline.visitedUrls.size();
+    pipeline.visitedUrls.reportTo(profiler);
+    if (counts.isEmpty()) {
+      return new CrawlResult.Builder()
+          .setWordCounts(counts)
+          .setUrlsVisited(urlsVisited)
+          .build();
+    }
+
+    return new CrawlResult.Builder()
+        .setWordCounts(WordCounts.sort(counts, popularWordCount))
+        .setUrlsVisited(urlsVisited)
+        .build();
+  }
+
+  @Override
+  public Flow.Publisher<PageEvent> crawlPages(List<String> startingUrls) {
+    List<String> roots = List.copyOf(startingUrls);
+    return PageStreams.onNewThread("crawl-pages-dispatcher", publisher -> {
+      Pipeline pipeline = new Pipeline(clock.instant().plus(timeout), publisher);
+      for (String url : roots) {
+        pipeline.enqueue(canonicalizer.canonicalize(url), maxDepth);
+      }
+      pipeline.run();
+      pipeline.visitedUrls.reportTo(profiler);
+    });
+  }
+
+  @Override
+  public int getMaxParallelism() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * The three stages of the pipeline, used to name their metrics.
+   */
+  private enum Stage {
+    FETCH, PARSE, AGGREGATE;
+
+    String metric(String name) {
+      return "pipeline." + name().toLowerCase() + "." + name;
+    }
+
+    int completed(Pipeline pipeline) {
+      switch (this) {
+        case FETCH:
+          return pipeline.fetched.get();
+        case PARSE:
+          return pipeline.parsed.get();
+        default:
+          return pipeline.aggregated;
+      }
+    }
+  }
+
+  /**
+   * The queues and threads of a single crawl.
+   *
+   * <p>{@code pending} counts links that have been queued but not yet fully processed. The crawl
+   * is finished when it drops to zero.
+   *
+   * <p>A streaming crawl has a publisher, and the aggregate stage hands each page to it instead of
+   * keeping totals. When the subscriber is behind, the aggregator blocks, which backs up the
+   * earlier stages in turn.
+   */
+  private final class Pipeline {
+    private final Instant deadline;
+    private final SubmissionPublisher<PageEvent> publisher;
+    private final VisitedSet visitedUrls = visitedSets.get();
+    private final WordCountMap counts = new WordCountMap();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger fetched = new AtomicInteger();
+    private final AtomicInteger parsed = new AtomicInteger();
+    private volatile int aggregated;
+
+    private final BlockingQueue<QueuedLink> frontier = new LinkedBlockingQueue<>();
+    private final Semaphore fetchPermits = new Semaphore(maxInFlightFetches);
+    private final Set<CompletableFuture<FetchedPage>> inFlight = ConcurrentHashMap.newKeySet();
+    // Every page in this queue holds a fetch permit, so it can never overflow.
+    private final BlockingQueue<Downloaded> parseQueue =
+        new ArrayBlockingQueue<>(maxInFlightFetches);
+    private final BlockingQueue<Parsed> aggregateQueue =
+        new ArrayBlockingQueue<>(parseThreads * 2);
+
+    Pipeline(Instant deadline, SubmissionPublisher<PageEvent> publisher) {
+      this.deadline = deadline;
+      this.publisher = publisher;
+    }
+
+    void enqueue(String url, int depth) {
+      pending.incrementAndGet();
+      frontier.add(new QueuedLink(url, depth));
+      profiler.recordGauge(Stage.FETCH.metric("queueDepth"), frontier.size());
+    }
+
+    /**
+     * Marks one queued link as fully processed.
+     */
+    private void done() {
+      pending.decrementAndGet();
+    }
+
+    private boolean pastDeadline() {
+      return clock.instant().isAfter(deadline);
+    }
+
+    /**
+     * Marks one queued link as dropped because the deadline passed.
+     */
+    private void cancelled() {
+      profiler.incrementCounter(CrawlMetrics.PAGES_CANCELLED, 1);
+      done();
+    }
+
+    void run() {
+      ExecutorService parsers = Executors.newFixedThreadPool(parseThreads);
+      Thread aggregator = new Thread(this::aggregate, "crawl-aggregator");
+      aggregator.setDaemon(true);
+      try {
+        for (int i = 0; i < parseThreads; i++) {
+          parsers.execute(this::parse);
+        }
+        aggregator.start();
+        dispatch();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        parsers.shutdownNow();
+        aggregator.interrupt();
+        try {
+          aggregator.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    /**
+     * Fetch stage. Runs on the calling thread until every queued link has been processed.
+     */
+    private void dispatch() throws InterruptedException {
+      while (pending.get() > 0) {
+        if (pastDeadline()) {
+          // Each cancelled download releases its permit and is counted by its own callback.
+          inFlight.forEach(future -> future.cancel(true));
+        }
+        QueuedLink link = frontier.poll(10, TimeUnit.MILLISECONDS);
+        if (link == null) {
+          continue;
+        }
+        if (link.depth == 0 || !shouldCrawl(link)) {
+          done();
+          continue;
+        }
+        // Only a page that would otherwise have been crawled counts as cancelled.
+        if (pastDeadline()) {
+          cancelled();
+          continue;
+        }
+        visitedUrls.addIfAbsent(link.url);
+        // A page that is still in the parse cache skips the fetch and parse stages.
+        Optional<PageParser.Result> cached = parserFactory.cached(link.url);
+        if (cached.isPresent()) {
+          aggregateQueue.put(new Parsed(link, cached.get(), Duration.ZERO));
+          continue;
+        }
+        // Wait for a permit, but not past the deadline.
+        while (!fetchPermits.tryAcquire(10, TimeUnit.MILLISECONDS)) {
+          if (pastDeadline()) {
+            inFlight.forEach(future -> future.cancel(true));
+          }
+        }
+        if (pastDeadline()) {
+          fetchPermits.release();
+          cancelled();
+          continue;
+        }
+        fetch(link);
+      }
+    }
+
+    private void fetch(QueuedLink link) {
+      Instant start = clock.instant();
+      CompletableFuture<FetchedPage> future = parserFactory.fetch(link.url);
+      inFlight.add(future);
+      future.whenComplete((page, error) -> {
+        inFlight.remove(future);
+        if (future.isCancelled()) {
+          fetchPermits.release();
+          cancelled();
+          return;
+        }
+        fetched.incrementAndGet();
+        parseQueue.add(new Downloaded(link, page, start));
+        profiler.recordGauge(Stage.PARSE.metric("queueDepth"), parseQueue.size());
+      });
+    }
+
+    /**
+     * Returns whether the link is neither ignored nor visited. Only the dispatcher claims URLs, so
+     * a URL that is not visited yet stays that way until the dispatcher claims it. Once a
+     * streaming subscriber has cancelled, nothing more is crawled.
+     */
+    private boolean shouldCrawl(QueuedLink link) {
+      return !PageStreams.isUnsubscribed(publisher)
+          && !ignoredUrls.matchesAny(link.url)
+          && !visitedUrls.contains(link.url);
+    }
+
+    /**
+     * Parse stage. Each parse thread runs this loop until it is interrupted.
+     */
+    private void parse() {
+      try {
+        while (true) {
+          Downloaded downloaded = parseQueue.take();
+          fetchPermits.release();
+          if (pastDeadline()) {
+            cancelled();
+            continue;
+          }
+          // A failed download still counts as visited, but has nothing to parse.
+          PageParser.Result result = (downloaded.page == null)
+              ? null
+              : parserFactory.get(downloaded.link.url, downloaded.page).parse();
+          parsed.incrementAndGet();
+          Duration fetchTime = Duration.between(downloaded.start, clock.instant());
+          aggregateQueue.put(new Parsed(downloaded.link, result, fetchTime));
+          profiler.recordGauge(Stage.AGGREGATE.metric("queueDepth"), aggregateQueue.size());
+        }
+      } catch (InterruptedException e) {
+        // The crawl is over.
+      }
+    }
+
+    /**
+     * Aggregate stage. The single aggregator thread runs this loop until it is interrupted.
+     */
+    private void aggregate() {
+      try {
+        while (true) {
+          Parsed parsed = aggregateQueue.take();
+          // Pages that made it this far are counted even after the deadline, but their links
+          // are queued only to be dropped by the dispatcher.
+          if (parsed.result != null) {
+            if (publisher != null) {
+              PageStreams.submit(publisher, parsed.link.url, maxDepth - parsed.link.depth,
+                  parsed.fetchTime, parsed.result);
+            } else {
+              parsed.result.addWordCountsTo(counts);
+            }
+            CrawlMetrics.countDuplicatesAvoided(
+                profiler, parsed.result, visitedUrls::contains);
+            for (String link : parsed.result.getLinks()) {
+              enqueue(link, parsed.link.depth - 1);
+            }
+          }
+          aggregated++;
+          done();
+        }
+      } catch (InterruptedException e) {
+        // The crawl is over.
+      }
+    }
+  }
+
+  private static final class QueuedLink {
+    private final String url;
+    private final int depth;
+
+    QueuedLink(String url, int depth) {
+      this.url = url;
+      this.depth = depth;
+    }
+  }
+
+  private static final class Downloaded {
+    private final QueuedLink link;
+    private final FetchedPage page;
+    private final Instant start;
+
+    Downloaded(QueuedLink link, FetchedPage page, Instant start) {
+      this.link = link;
+      this.page = page;
+      this.start = start;
+    }
+  }
+
+  private static final class Parsed {
+    private final QueuedLink link;
+    private final PageParser.Result result;
+    private final Duration fetchTime;
+
+    Parsed(QueuedLink link, PageParser.Result result, Duration fetchTime) {
+      this.link = link;
+      this.result = result;
+      this.fetchTime = fetchTime;
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.udacity.webcrawler;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A binding annotation for the path of the checkpoint file a crawl continues from.
+ *
+ * <p>The value bound to this annotation is the value of the {@code "resumeFrom"} option from
+ * the crawler configuration JSON. It is empty if the option is not set.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ResumeFrom {
+}
@@ -3,6 +3,9 @@ package com.udacity.webcrawler;
 import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.parser.PageParser;
 import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.parser.PatternFilter;
+import com.udacity.webcrawler.parser.UrlCanonicalizer;
+import com.udacity.webcrawler.profiler.Profiler;
 
 import javax.inject.Inject;
 import java.time.Clock;
@@ -13,7 +16,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
 
 /**
  * A {@link WebCrawler} that downloads and processes one page at a time.
@@ -22,25 +26,31 @@ final class SequentialWebCrawler implements WebCrawler {
 
   private final Clock clock;
   private final PageParserFactory parserFactory;
+  private final Profiler profiler;
   private final Duration timeout;
   private final int popularWordCount;
   private final int maxDepth;
-  private final List<Pattern> ignoredUrls;
+  private final PatternFilter ignoredUrls;
+  private final UrlCanonicalizer canonicalizer;
 
   @Inject
   SequentialWebCrawler(
       Clock clock,
       PageParserFactory parserFactory,
+      Profiler profiler,
       @Timeout Duration timeout,
       @PopularWordCount int popularWordCount,
       @MaxDepth int maxDepth,
-      @IgnoredUrls List<Pattern> ignoredUrls) {
+      @IgnoredUrls PatternFilter ignoredUrls,
+      UrlCanonicalizer canonicalizer) {
     this.clock = clock;
     this.parserFactory = parserFactory;
+    this.profiler = profiler;
     this.timeout = timeout;
     this.popularWordCount = popularWordCount;
     this.maxDepth = maxDepth;
     this.ignoredUrls = ignoredUrls;
+    this.canonicalizer = canonicalizer;
   }
 
   @Override
@@ -54,9 +64,10 @@ final class SequentialWebCrawler implements WebCrawler {
     Map<String, Integer> counts = new HashMap<>();  //Make this threadable
     Set<String> visitedUrls = new HashSet<>();      //Make this threadable
 
-    //Initiate crawl down each url in list of roots.
+    //Initiate crawl down each url in list of roots, spelled the way links
+    //to them are.
     for (String url : startingUrls) {
-      crawlInternal(url, deadline, maxDepth, counts, visitedUrls);
+      crawlInternal(canonicalizer.canonicalize(url), deadline, maxDepth, counts, visitedUrls, null);
     }
 
     if (counts.isEmpty()) {
@@ -72,24 +83,37 @@ final class SequentialWebCrawler implements WebCrawler {
         .build();
   }
 
-  //Recursive crawl function
+  @Override
+  public Flow.Publisher<PageEvent> crawlPages(List<String> startingUrls) {
+    List<String> roots = List.copyOf(startingUrls);
+    return PageStreams.onNewThread("crawl-pages", publisher -> {
+      Instant deadline = clock.instant().plus(timeout);
+      Set<String> visitedUrls = new HashSet<>();
+      for (String url : roots) {
+        crawlInternal(
+            canonicalizer.canonicalize(url), deadline, maxDepth, null, visitedUrls, publisher);
+      }
+    });
+  }
+
+  //Recursive crawl function. A streaming crawl passes a publisher instead
+  //of counts.
   private void crawlInternal(
       String url,
       Instant deadline,
       int maxDepth,
       Map<String, Integer> counts,
-      Set<String> visitedUrls) {
+      Set<String> visitedUrls,
+      SubmissionPublisher<PageEvent> publisher) {
 
-    //Check that we haven't timed out
-    if (maxDepth == 0 || clock.instant().isAfter(deadline)) {
+    //Stop once a streaming subscriber is no longer listening
+    if (maxDepth == 0 || PageStreams.isUnsubscribed(publisher)) {
       return;
     }
 
     //Skip urls that match the ignoredUrls pattern
-    for (Pattern pattern : ignoredUrls) {
-      if (pattern.matcher(url).matches()) {
-        return;
-      }
+    if (ignoredUrls.matchesAny(url)) {
+      return;
     }
 
     /*
@@ -102,25 +126,44 @@ final class SequentialWebCrawler implements WebCrawler {
       return;
     }
 
+    //Check that we haven't timed out. Only a page that would otherwise have
+    //been crawled counts as cancelled.
+    if (clock.instant().isAfter(deadline)) {
+      profiler.incrementCounter(CrawlMetrics.PAGES_CANCELLED, 1);
+      return;
+    }
+
     //Add this url to the list of visited
     visitedUrls.add(url);
     //We will unlock visitedUrls here to keep execution running
 
-    //Parse the page
-    PageParser.Result result = parserFactory.get(url).parse();
+    //Parse the page, giving up on the download if the deadline passes
+    Instant start = clock.instant();
+    PageParser.Result result = parserFactory.get(url, deadline).parse();
+    if (result.isCancelled()) {
+      profiler.incrementCounter(CrawlMetrics.PAGES_CANCELLED, 1);
+      return;
+    }
 
-    //Update word counts
-    for (Map.Entry<String, Integer> e : result.getWordCounts().entrySet()) {
-      if (counts.containsKey(e.getKey())) {
-        counts.put(e.getKey(), e.getValue() + counts.get(e.getKey()));
-      } else {
-        counts.put(e.getKey(), e.getValue());
+    if (publisher != null) {
+      //Hand the page to the subscriber instead of keeping totals
+      PageStreams.submit(publisher, url, this.maxDepth - maxDepth,
+          Duration.between(start, clock.instant()), result);
+    } else {
+      //Update word counts
+      for (Map.Entry<String, Integer> e : result.getWordCounts().entrySet()) {
+        if (counts.containsKey(e.getKey())) {
+          counts.put(e.getKey(), e.getValue() + counts.get(e.getKey()));
+        } else {
+          counts.put(e.getKey(), e.getValue());
+        }
       }
     }
 
     //Recurse down the tree of links within this url
+    CrawlMetrics.countDuplicatesAvoided(profiler, result, visitedUrls::contains);
     for (String link : result.getLinks()) {
-      crawlInternal(link, deadline, maxDepth - 1, counts, visitedUrls);
+      crawlInternal(link, deadline, maxDepth - 1, counts, visitedUrls, publisher);
     }
   }
 }
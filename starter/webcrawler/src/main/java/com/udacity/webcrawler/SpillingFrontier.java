@@ -0,0 +1,236 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Objects;
+
+/**
+ * A first-in, first-out queue of URLs waiting to be crawled that keeps at most a fixed number of
+ * them on the heap, and spills the rest to temporary files.
+ *
+ * <p>URLs are taken from an in-memory head. Once the head is full, or once any URLs have been
+ * spilled, new URLs are appended to a segment file instead, so the order is kept. A segment holds
+ * as many URLs as the head, and when the head runs dry the oldest segment is read back into it in
+ * one sequential pass and deleted. Memory use is therefore bounded by the head, however wide the
+ * site is.
+ *
+ * <p>Each URL in a segment is stored as the number of leading characters it shares with the URL
+ * before it, followed by the length and UTF-8 bytes of the rest. Links found on the same page
+ * mostly share their scheme, host and leading path, so this takes a fraction of the URL's size.
+ *
+ * <p>A frontier is used by one thread at a time. {@link #close()} deletes any segments left.
+ */
+final class SpillingFrontier implements Closeable {
+
+  /**
+   * URLs that did not fit in memory and were written to disk.
+   */
+  static final String SPILLED_URLS = "frontier.spilledUrls";
+
+  private final int memoryCap;
+  private final Profiler profiler;
+  private final ArrayDeque<String> head = new ArrayDeque<>();
+  // Full segments, oldest first. They are older than anything in the writer.
+  private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+  private SegmentWriter writer;
+  private long size;
+  private long spilled;
+
+  /**
+   * Creates an empty frontier that holds up to {@code memoryCap} URLs on the heap, and records
+   * how many it spills to the given {@link Profiler} when it is closed.
+   */
+  SpillingFrontier(int memoryCap, Profiler profiler) {
+    if (memoryCap <= 0) {
+      throw new IllegalArgumentException("memoryCap must be positive");
+    }
+    this.memoryCap = memoryCap;
+    this.profiler = Objects.requireNonNull(profiler);
+  }
+
+  /**
+   * Adds the URL to the back of the frontier.
+   */
+  void add(String url) {
+    Objects.requireNonNull(url);
+    if (writer == null && segments.isEmpty() && head.size() < memoryCap) {
+      head.add(url);
+    } else {
+      try {
+        if (writer == null) {
+          writer = new SegmentWriter(Files.createTempFile("crawl-frontier-", ".seg"));
+        }
+        writer.write(url);
+        if (writer.count == memoryCap) {
+          segments.add(writer.finish());
+          writer = null;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not spill the crawl frontier to disk", e);
+      }
+      spilled++;
+    }
+    size++;
+  }
+
+  /**
+   * Removes and returns the URL at the front of the frontier, or returns null if it is empty.
+   */
+  String poll() {
+    if (head.isEmpty() && !refill()) {
+      return null;
+    }
+    size--;
+    return head.poll();
+  }
+
+  /**
+   * Returns the number of URLs in the frontier, on the heap and on disk.
+   */
+  long size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns how many of the URLs added so far were spilled to disk.
+   */
+  long spilledCount() {
+    return spilled;
+  }
+
+  @Override
+  public void close() {
+    if (spilled > 0) {
+      profiler.incrementCounter(SPILLED_URLS, spilled);
+      spilled = 0;
+    }
+    head.clear();
+    try {
+      if (writer != null) {
+        segments.add(writer.finish());
+        writer = null;
+      }
+      for (Segment segment : segments) {
+        Files.deleteIfExists(segment.path);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not delete the crawl frontier's files", e);
+    } finally {
+      segments.clear();
+      size = 0;
+    }
+  }
+
+  /**
+   * Reads the oldest segment into the head. Returns false if nothing was spilled.
+   */
+  private boolean refill() {
+    try {
+      if (segments.isEmpty()) {
+        if (writer == null) {
+          return false;
+        }
+        segments.add(writer.finish());
+        writer = null;
+      }
+      Segment segment = segments.poll();
+      try (DataInputStream in = new DataInputStream(
+          new BufferedInputStream(Files.newInputStream(segment.path)))) {
+        String previous = "";
+        for (int i = 0; i < segment.count; i++) {
+          int shared = readVarInt(in);
+          byte[] suffix = new byte[readVarInt(in)];
+          in.readFully(suffix);
+          previous = previous.substring(0, shared) + new String(suffix, StandardCharsets.UTF_8);
+          head.add(previous);
+        }
+      }
+      Files.delete(segment.path);
+      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read the crawl frontier back from disk", e);
+    }
+  }
+
+  private static int readVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = in.readByte();
+      value |= (b & 0x7f) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  private static final class Segment {
+    private final Path path;
+    private final int count;
+
+    Segment(Path path, int count) {
+      this.path = path;
+      this.count = count;
+    }
+  }
+
+  /**
+   * Appends URLs to a new segment file.
+   */
+  private static final class SegmentWriter {
+    private final Path path;
+    private final DataOutputStream out;
+    private String previous = "";
+    private int count;
+
+    SegmentWriter(Path path) throws IOException {
+      this.path = path;
+      this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+    }
+
+    void write(String url) throws IOException {
+      int shared = 0;
+      int limit = Math.min(previous.length(), url.length());
+      while (shared < limit && previous.charAt(shared) == url.charAt(shared)) {
+        shared++;
+      }
+      // Never split a surrogate pair between the shared prefix and the suffix.
+      if (shared > 0 && Character.isHighSurrogate(url.charAt(shared - 1))) {
+        shared--;
+      }
+      byte[] suffix = url.substring(shared).getBytes(StandardCharsets.UTF_8);
+      writeVarInt(shared);
+      writeVarInt(suffix.length);
+      out.write(suffix);
+      previous = url;
+      count++;
+    }
+
+    Segment finish() throws IOException {
+      out.close();
+      return new Segment(path, count);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+      while ((value & ~0x7f) != 0) {
+        out.writeByte((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      out.writeByte(value);
+    }
+  }
+}
@@ -0,0 +1,322 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.parser.PatternFilter;
+import com.udacity.webcrawler.parser.UrlCanonicalizer;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.lang.reflect.Method;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link WebCrawler} that downloads and parses every page on its own virtual thread.
+ *
+ * <p>Crawls are almost entirely I/O-bound, so rather than sizing a thread pool to the number of
+ * CPU cores, this crawler keeps up to {@code maxInFlightFetches} pages outstanding at once. The
+ * calling thread acts as a dispatcher: it takes links off a work queue, filters out the ones that
+ * should not be crawled, and starts a new thread for each remaining page once a permit is free.
+ *
+ * <p>Virtual threads require Java 21. On older runtimes, including the Java 11 this project is
+ * built for, the crawler falls back to one platform thread per in-flight page. Each of those
+ * threads costs a full stack, so unless {@code maxInFlightFetches} is set, the limit is then
+ * {@value #PLATFORM_THREADS_PER_CORE} per core instead of {@value #DEFAULT_MAX_IN_FLIGHT_FETCHES}.
+ *
+ * <p>The dispatcher blocks until a link is queued or a permit is free, and is woken up to finish
+ * once the last page has been crawled.
+ */
+final class VirtualThreadWebCrawler implements WebCrawler {
+
+  // The in-flight limit on virtual threads, which cost little more than the page they download.
+  static final int DEFAULT_MAX_IN_FLIGHT_FETCHES = 1000;
+  // The in-flight limit per core on platform threads.
+  static final int PLATFORM_THREADS_PER_CORE = 16;
+
+  // Executors.newVirtualThreadPerTaskExecutor(), or null before Java 21.
+  private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadExecutor();
+
+  private final Clock clock;
+  private final PageParserFactory parserFactory;
+  private final Profiler profiler;
+  private final Duration timeout;
+  private final int popularWordCount;
+  private final int maxDepth;
+  private final PatternFilter ignoredUrls;
+  private final int maxInFlightFetches;
+  private final Provider<VisitedSet> visitedSets;
+  private final Provider<NearDuplicateIndex> nearDuplicateIndexes;
+  private final Provider<WordCountAggregator> wordCountAggregators;
+  private final UrlCanonicalizer canonicalizer;
+
+  @Inject
+  VirtualThreadWebCrawler(
+      Clock clock,
+      PageParserFactory parserFactory,
+      Profiler profiler,
+      @Timeout Duration timeout,
+      @PopularWordCount int popularWordCount,
+      @MaxDepth int maxDepth,
+      @IgnoredUrls PatternFilter ignoredUrls,
+      @MaxInFlightFetches int maxInFlightFetches,
+      Provider<VisitedSet> visitedSets,
+      Provider<NearDuplicateIndex> nearDuplicateIndexes,
+      Provider<WordCountAggregator> wordCountAggregators,
+      UrlCanonicalizer canonicalizer) {
+    this.clock = clock;
+    this.parserFactory = parserFactory;
+    this.profiler = profiler;
+    this.timeout = timeout;
+    this.popularWordCount = popularWordCount;
+    this.maxDepth = maxDepth;
+    this.ignoredUrls = ignoredUrls;
+    this.maxInFlightFetches = (maxInFlightFetches > 0) ? maxInFlightFetches
+        : usesVirtualThreads() ? DEFAULT_MAX_IN_FLIGHT_FETCHES
+        : PLATFORM_THREADS_PER_CORE * Runtime.getRuntime().availableProcessors();
+    this.visitedSets = visitedSets;
+    this.nearDuplicateIndexes = nearDuplicateIndexes;
+    this.wordCountAggregators = wordCountAggregators;
+    this.canonicalizer = canonicalizer;
+  }
+
+  @Override
+  public CrawlResult crawl(List<String> startingUrls) {
+
+    Instant deadline = clock.instant().plus(timeout);
+
+    // Every page gets a new thread, so the threads share one stripe per core that can run them.
+    WordCountAggregator wordCounts =
+        wordCountAggregators.get().striped(Runtime.getRuntime().availableProcessors());
+    VisitedSet visitedUrls = visitedSets.get();
+    NearDuplicateIndex nearDuplicates = nearDuplicateIndexes.get();
+
+    CrawlActionFrame cAF = new CrawlActionFrame.Builder()
+            .setClock(clock)
+            .setWordCounts(wordCounts)
+            .setDeadline(deadline)
+            .setIgnoredUrls(ignoredUrls)
+            .setParserFactory(parserFactory)
+            .setVisitedUrls(visitedUrls)
+            .setProfiler(profiler)
+            .setNearDuplicates(nearDuplicates)
+            .build();
+
+    Dispatcher dispatcher = new Dispatcher(cAF);
+    for (String url : startingUrls) {
+      dispatcher.enqueue(canonicalizer.canonicalize(url), maxDepth);
+    }
+    dispatcher.run();
+    visitedUrls.reportTo(profiler);
+    nearDuplicates.reportTo(profiler);
+
+    return wordCounts.popularWords(ForkJoinPool.commonPool(), popularWordCount)
+            .setUrlsVisited(visitedUrls.size())
+            .build();
+  }
+
+  @Override
+  public Flow.Publisher<PageEvent> crawlPages(List<String> startingUrls) {
+    List<String> roots = List.copyOf(startingUrls);
+    return PageStreams.onNewThread("crawl-pages-dispatcher", publisher -> {
+      VisitedSet visitedUrls = visitedSets.get();
+      NearDuplicateIndex nearDuplicates = nearDuplicateIndexes.get();
+
+      CrawlActionFrame cAF = new CrawlActionFrame.Builder()
+              .setClock(clock)
+              .setDeadline(clock.instant().plus(timeout))
+              .setIgnoredUrls(ignoredUrls)
+              .setParserFactory(parserFactory)
+              .setVisitedUrls(visitedUrls)
+              .setProfiler(profiler)
+              .setNearDuplicates(nearDuplicates)
+              .setPublisher(publisher)
+              .setMaxDepth(maxDepth)
+              .build();
+
+      Dispatcher dispatcher = new Dispatcher(cAF);
+      for (String url : roots) {
+        dispatcher.enqueue(canonicalizer.canonicalize(url), maxDepth);
+      }
+      dispatcher.run();
+      visitedUrls.reportTo(profiler);
+      nearDuplicates.reportTo(profiler);
+    });
+  }
+
+  @Override
+  public int getMaxParallelism() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Returns the most pages this crawler has in flight at once.
+   */
+  int getMaxInFlightFetches() {
+    return maxInFlightFetches;
+  }
+
+  /**
+   * Returns whether pages are crawled on virtual threads, rather than on platform threads.
+   */
+  static boolean usesVirtualThreads() {
+    return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+  }
+
+  private static Method findVirtualThreadExecutor() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns an executor that starts a new virtual thread for each task, or a new platform thread
+   * when the runtime does not support virtual threads.
+   */
+  private static ExecutorService newThreadPerTaskExecutor() {
+    if (usesVirtualThreads()) {
+      try {
+        return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Could not create virtual threads", e);
+      }
+    }
+    return Executors.newCachedThreadPool();
+  }
+
+  /**
+   * Hands queued links to page threads, one crawl at a time.
+   *
+   * <p>{@code pending} counts links that are queued or being crawled. The crawl is finished when
+   * it drops to zero. If a page thread is the one to drop it to zero, the dispatcher is waiting
+   * for the queue, so the thread queues {@link #DONE} to wake it up.
+   */
+  private final class Dispatcher {
+    private final CrawlActionFrame cAF;
+    private final LinkedBlockingQueue<QueuedLink> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Semaphore inFlight = new Semaphore(maxInFlightFetches);
+
+    Dispatcher(CrawlActionFrame cAF) {
+      this.cAF = cAF;
+    }
+
+    void enqueue(String url, int depth) {
+      pending.incrementAndGet();
+      queue.add(new QueuedLink(url, depth));
+    }
+
+    void run() {
+      if (pending.get() == 0) {
+        return;
+      }
+      ExecutorService executor = newThreadPerTaskExecutor();
+      try {
+        while (true) {
+          QueuedLink link = queue.take();
+          if (link == DONE) {
+            break;
+          }
+          if (!shouldCrawl(link)) {
+            if (pending.decrementAndGet() == 0) {
+              break;
+            }
+            continue;
+          }
+          inFlight.acquire();
+          executor.execute(() -> {
+            try {
+              crawlPage(link);
+            } finally {
+              inFlight.release();
+              if (pending.decrementAndGet() == 0) {
+                queue.add(DONE);
+              }
+            }
+          });
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    /**
+     * Applies the depth, deadline, ignored-URL and visited checks. These are cheap, so they run on
+     * the dispatcher thread and only pages that will actually be downloaded take a permit. Once a
+     * streaming subscriber has cancelled, nothing more is crawled.
+     */
+    private boolean shouldCrawl(QueuedLink link) {
+      if (link.depth == 0 || PageStreams.isUnsubscribed(cAF.getPublisher())) {
+        return false;
+      }
+      if (cAF.getIgnoredUrls().matchesAny(link.url)) {
+        return false;
+      }
+      // Only a page that would otherwise have been crawled counts as cancelled.
+      if (cAF.getVisitedUrls().contains(link.url)) {
+        return false;
+      }
+      if (cAF.getClock().instant().isAfter(cAF.getDeadline())) {
+        cAF.getProfiler().incrementCounter(CrawlMetrics.PAGES_CANCELLED, 1);
+        return false;
+      }
+      return cAF.getVisitedUrls().addIfAbsent(link.url);
+    }
+
+    private void crawlPage(QueuedLink link) {
+      Instant start = cAF.getClock().instant();
+      PageParser.Result result =
+          cAF.getParserFactory().get(link.url, cAF.getDeadline()).parse();
+      if (result.isCancelled()) {
+        cAF.getProfiler().incrementCounter(CrawlMetrics.PAGES_CANCELLED, 1);
+        return;
+      }
+      if (cAF.getNearDuplicates().findOrAdd(link.url, result.getSimHash()) != null) {
+        return;
+      }
+
+      SubmissionPublisher<PageEvent> publisher = cAF.getPublisher();
+      if (publisher != null) {
+        PageStreams.submit(publisher, link.url, cAF.getMaxDepth() - link.depth,
+            Duration.between(start, cAF.getClock().instant()), result);
+      } else {
+        cAF.getWordCounts().add(result);
+      }
+
+      CrawlMetrics.countDuplicatesAvoided(
+          cAF.getProfiler(), result, cAF.getVisitedUrls()::contains);
+      for (String child : result.getLinks()) {
+        enqueue(child, link.depth - 1);
+      }
+    }
+  }
+
+  // Queued once the crawl is finished, to wake up the dispatcher.
+  private static final QueuedLink DONE = new QueuedLink("", 0);
+
+  private static final class QueuedLink {
+    private final String url;
+    private final int depth;
+
+    QueuedLink(String url, int depth) {
+      this.url = url;
+      this.depth = depth;
+    }
+  }
+}
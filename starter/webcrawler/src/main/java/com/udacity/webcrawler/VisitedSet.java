@@ -0,0 +1,62 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.profiler.Profiler;
+
+/**
+ * The set of URLs a crawl has already claimed, shared by every thread working on the crawl.
+ *
+ * <p>{@link #addIfAbsent(String)} is the only way a thread should decide whether to crawl a URL: it
+ * checks and claims the URL in one atomic step, so two threads that discover the same link never
+ * both crawl it.
+ */
+public interface VisitedSet {
+
+  /**
+   * Marks the URL as visited. Returns true if it was not visited before, in which case the caller
+   * owns the URL and should crawl it.
+   */
+  boolean addIfAbsent(String url);
+
+  /**
+   * Returns true if the URL has been visited.
+   */
+  boolean contains(String url);
+
+  /**
+   * Returns the number of distinct URLs visited so far.
+   */
+  int size();
+
+  /**
+   * Records anything worth knowing about how the set held up, such as how likely it was to
+   * mistake a new URL for a visited one, through the given {@link Profiler}. Crawlers call this
+   * when a crawl finishes. Does nothing by default.
+   */
+  default void reportTo(Profiler profiler) {
+  }
+
+  /**
+   * Returns an empty {@link VisitedSet} that many threads can add to without blocking each other.
+   */
+  static VisitedSet concurrent() {
+    return new ConcurrentVisitedSet();
+  }
+
+  /**
+   * Returns an empty {@link VisitedSet} that keeps a fingerprint of each URL, of the given size in
+   * bits (64 or 128), outside the Java heap. Two URLs with the same fingerprint count as one; see
+   * {@link FingerprintVisitedSet} for how likely that is.
+   */
+  static VisitedSet fingerprinted(int fingerprintBits) {
+    return new FingerprintVisitedSet(fingerprintBits);
+  }
+
+  /**
+   * Returns an empty {@link VisitedSet} backed by a Bloom filter that never takes more than
+   * {@code maxBytes} and aims to mistake a new URL for a visited one at most at the given rate.
+   * See {@link BloomVisitedSet}.
+   */
+  static VisitedSet bloom(long maxBytes, double falsePositiveRate) {
+    return new BloomVisitedSet(maxBytes, falsePositiveRate);
+  }
+}
@@ -3,7 +3,9 @@ package com.udacity.webcrawler;
 import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.profiler.Profiled;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Flow;
 
 /**
  * The main interface that defines the web crawler API.
@@ -19,6 +21,37 @@ public interface WebCrawler {
   @Profiled
   CrawlResult crawl(List<String> startingUrls);
 
+  /**
+   * Returns a publisher that crawls from the given URLs and publishes a {@link PageEvent} for each
+   * page as soon as it has been crawled.
+   *
+   * <p>Each subscriber gets its own crawl, which starts when it subscribes. The crawl waits when
+   * the subscriber falls behind by more than {@link Flow#defaultBufferSize()} pages, and stops once
+   * the subscription is cancelled. The publisher completes when the crawl is finished. No word
+   * counts are kept across pages, so streaming crawls use little memory beyond the visited URLs.
+   *
+   * <p>The default implementation cannot see the individual pages of a crawl, so it runs
+   * {@link #crawl(List)} on its own thread and publishes one event for the whole crawl: the first
+   * starting URL at depth 0, with the crawl's popular words and how long the crawl took. Crawlers
+   * that can publish each page as it is crawled override this.
+   *
+   * @param startingUrls the starting points of the crawl.
+   */
+  default Flow.Publisher<PageEvent> crawlPages(List<String> startingUrls) {
+    List<String> roots = List.copyOf(startingUrls);
+    return PageStreams.onNewThread("crawl-pages", publisher -> {
+      long start = System.nanoTime();
+      CrawlResult result = crawl(roots);
+      if (!roots.isEmpty()) {
+        publisher.submit(new PageEvent.Builder()
+            .setUrl(roots.get(0))
+            .setFetchTime(Duration.ofNanos(System.nanoTime() - start))
+            .setWordCounts(result.getWordCounts())
+            .build());
+      }
+    });
+  }
+
   /**
    * Returns the maximum amount of parallelism (number of CPU cores) supported by this web crawler.
    */
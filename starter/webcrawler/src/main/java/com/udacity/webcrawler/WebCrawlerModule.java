@@ -7,6 +7,8 @@ import com.google.inject.ProvisionException;
 import com.google.inject.multibindings.Multibinder;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
 import com.udacity.webcrawler.parser.ParserModule;
+import com.udacity.webcrawler.parser.PatternFilter;
+import com.udacity.webcrawler.parser.WordDictionary;
 import com.udacity.webcrawler.profiler.Profiler;
 
 import javax.inject.Qualifier;
@@ -15,10 +17,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.time.Clock;
 import java.time.Duration;
-import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
  * Guice dependency injection module that installs all the required dependencies to run the web
@@ -33,6 +33,13 @@ import java.util.regex.Pattern;
  */
 public final class WebCrawlerModule extends AbstractModule {
 
+  // The crawlers that can count words approximately, and skip near-duplicate pages. See
+  // checkSupported().
+  private static final Set<Class<?>> APPROXIMATE_WORD_COUNT_CRAWLERS =
+      Set.of(ParallelWebCrawler.class, VirtualThreadWebCrawler.class);
+  private static final Set<Class<?>> NEAR_DUPLICATE_CRAWLERS =
+      Set.of(ParallelWebCrawler.class, VirtualThreadWebCrawler.class);
+
   private final CrawlerConfiguration config;
 
   /**
@@ -42,6 +49,26 @@ public final class WebCrawlerModule extends AbstractModule {
     this.config = Objects.requireNonNull(config);
   }
 
+  /**
+   * Checks that the given crawler supports every option set in the configuration. The module
+   * checks the crawler it picks itself; code that injects a crawler class directly, such as
+   * {@link DistributedWebCrawler}, calls this before crawling.
+   *
+   * @throws IllegalArgumentException if the crawler ignores an option the configuration sets.
+   */
+  public static void checkSupported(CrawlerConfiguration config, Class<?> crawler) {
+    if (config.isApproximateWordCounts() && !APPROXIMATE_WORD_COUNT_CRAWLERS.contains(crawler)) {
+      throw new IllegalArgumentException(
+          "approximateWordCounts is not supported by " + crawler.getName()
+              + "; only the parallel and virtual-thread crawlers count words approximately.");
+    }
+    if (config.isSkipNearDuplicates() && !NEAR_DUPLICATE_CRAWLERS.contains(crawler)) {
+      throw new IllegalArgumentException(
+          "skipNearDuplicates is not supported by " + crawler.getName()
+              + "; only the parallel and virtual-thread crawlers skip near-duplicate pages.");
+    }
+  }
+
   @Override
   protected void configure() {
     /*
@@ -54,18 +81,42 @@ public final class WebCrawlerModule extends AbstractModule {
         Multibinder.newSetBinder(binder(), WebCrawler.class, Internal.class);
     multibinder.addBinding().to(SequentialWebCrawler.class);
     multibinder.addBinding().to(ParallelWebCrawler.class);
+    multibinder.addBinding().to(VirtualThreadWebCrawler.class);
+    multibinder.addBinding().to(BreadthFirstWebCrawler.class);
+    multibinder.addBinding().to(PipelinedWebCrawler.class);
 
     bind(Clock.class).toInstance(Clock.systemUTC());
     bind(Key.get(Integer.class, MaxDepth.class)).toInstance(config.getMaxDepth());
     bind(Key.get(Integer.class, PopularWordCount.class)).toInstance(config.getPopularWordCount());
     bind(Key.get(Duration.class, Timeout.class)).toInstance(config.getTimeout());
-    bind(new Key<List<Pattern>>(IgnoredUrls.class){}).toInstance(config.getIgnoredUrls());
+    // Compiled once here, so crawlers check each URL against every pattern in a single pass.
+    bind(Key.get(PatternFilter.class, IgnoredUrls.class))
+        .toInstance(PatternFilter.compile(config.getIgnoredUrls()));
+    bind(Key.get(Integer.class, MaxInFlightFetches.class))
+        .toInstance(config.getMaxInFlightFetches());
+    bind(Key.get(Integer.class, FrontierMemoryUrls.class))
+        .toInstance(config.getFrontierMemoryUrls());
+    bind(Key.get(Duration.class, ClusterConnectTimeout.class))
+        .toInstance(Duration.ofSeconds(config.getClusterConnectTimeoutSeconds()));
+    bind(Key.get(Duration.class, ClusterGracePeriod.class))
+        .toInstance(Duration.ofSeconds(config.getClusterGracePeriodSeconds()));
+    bind(Key.get(String.class, CheckpointPath.class)).toInstance(config.getCheckpointPath());
+    bind(Key.get(String.class, ResumeFrom.class)).toInstance(config.getResumeFrom());
 
 
     install(
         new ParserModule.Builder()
             .setTimeout(config.getTimeout())
             .setIgnoredWords(config.getIgnoredWords())
+            .setRecrawlStorePath(config.getRecrawlStorePath())
+            .setResponseCachePath(config.getResponseCachePath())
+            .setResponseCacheMaxMegabytes(config.getResponseCacheMaxMegabytes())
+            .setParseCacheMaxMegabytes(config.getParseCacheMaxMegabytes())
+            .setParseCacheTtl(Duration.ofSeconds(config.getParseCacheTtlSeconds()))
+            .setSortQueryParameters(config.isSortQueryParameters())
+            .setStrippedQueryParameters(config.getStrippedQueryParameters())
+            // Approximate counts stay within their budget only if words are not kept elsewhere.
+            .setInternWords(!config.isApproximateWordCounts())
             .build());
   }
 
@@ -85,6 +136,18 @@ public final class WebCrawlerModule extends AbstractModule {
   WebCrawler provideRawWebCrawler(
       @Internal Set<WebCrawler> implementations,
       @TargetParallelism int targetParallelism) {
+    WebCrawler crawler = chooseCrawler(implementations, targetParallelism);
+    // Checked against the crawler actually chosen, since without an override that depends on
+    // the parallelism and, by default, on the number of cores.
+    try {
+      checkSupported(config, crawler.getClass());
+    } catch (IllegalArgumentException e) {
+      throw new ProvisionException(e.getMessage(), e);
+    }
+    return crawler;
+  }
+
+  private WebCrawler chooseCrawler(Set<WebCrawler> implementations, int targetParallelism) {
     String override = config.getImplementationOverride();
     if (!override.isEmpty()) {
       return implementations
@@ -123,6 +186,49 @@ public final class WebCrawlerModule extends AbstractModule {
     return Runtime.getRuntime().availableProcessors();
   }
 
+  /*
+  Not a singleton: every crawl asks for a fresh, empty set.
+   */
+  @Provides
+  VisitedSet provideVisitedSet() {
+    if (config.getVisitedSet().equals("fingerprint")) {
+      return VisitedSet.fingerprinted(config.getVisitedFingerprintBits());
+    }
+    if (config.getVisitedSet().equals("bloom")) {
+      return VisitedSet.bloom(
+          (long) config.getVisitedMemoryMb() << 20, config.getVisitedFalsePositiveRate());
+    }
+    return VisitedSet.concurrent();
+  }
+
+  /*
+  Also fresh for every crawl, so pages from an earlier crawl are not taken as copies.
+   */
+  @Provides
+  NearDuplicateIndex provideNearDuplicateIndex() {
+    if (!config.isSkipNearDuplicates()) {
+      return NearDuplicateIndex.disabled();
+    }
+    return new NearDuplicateIndex(config.getNearDuplicateMaxDistance());
+  }
+
+  /*
+  Fresh for every crawl too. Exact counts are kept by word ID in the shared dictionary.
+  Approximate ones share the configured budget among a sketch per thread of the parallel
+  crawler's pool.
+   */
+  @Provides
+  WordCountAggregator provideWordCountAggregator(
+      WordDictionary dictionary, @TargetParallelism int targetParallelism) {
+    if (!config.isApproximateWordCounts()) {
+      return new WordCountAggregator(dictionary);
+    }
+    return WordCountAggregator.approximate(
+        (long) config.getWordCountMemoryMb() << 20,
+        config.getWordCountErrorRate(),
+        Math.min(targetParallelism, Runtime.getRuntime().availableProcessors()));
+  }
+
   /*
   Because this is Guice and injection, the @Internal annotation can give this
   function a WebCrawler object specified from the configuration.
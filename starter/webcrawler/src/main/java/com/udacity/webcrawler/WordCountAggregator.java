@@ -0,0 +1,293 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.parser.IdCountMap;
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.WordCountMap;
+import com.udacity.webcrawler.parser.WordDictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Adds up word counts from many crawler threads without the threads sharing a map.
+ *
+ * <p>Each thread that adds counts gets its own shard, an {@link IdCountMap} from each word's ID in
+ * a {@link WordDictionary} to its count. Only that thread writes to it, so adding a page's words
+ * never writes to memory another thread is using, even for words on every page like "the". The
+ * shards hold no strings, and only the IDs their own thread counted, so a shard's size does not
+ * grow with the dictionary or with the number of threads. Adding a page parsed with the same
+ * dictionary hashes only {@code int}s. {@link #snapshot(ForkJoinPool)} adds the shards up in a
+ * parallel tree reduction, pairing them up and adding each pair until one map is left, and only
+ * then looks the words up by ID.
+ *
+ * <p>Shards are found by thread, so this suits a fixed pool of threads such as a
+ * {@link ForkJoinPool}. With a new thread per page, every page would get its own shard, so a
+ * crawler that starts a thread per page uses a {@link #striped striped} aggregator instead, whose
+ * threads share a fixed number of shards.
+ *
+ * <p>Each shard is locked while its thread adds to it and while a snapshot copies it. Unless the
+ * aggregator is striped, only a snapshot ever competes for that lock. A snapshot can be taken at
+ * any time, including while the crawl is running, and sees every page that was added in full
+ * before it started.
+ *
+ * <p>An {@link #approximate approximate} aggregator gives each shard a {@link HeavyHitters} sketch
+ * instead, and {@link #sketch(ForkJoinPool)} merges the sketches in the same kind of reduction.
+ * It is always striped, and splits its memory budget evenly among its stripes, so its memory stays
+ * fixed however many distinct words the crawl finds and however many threads add to it.
+ */
+final class WordCountAggregator {
+
+  // Below this many shards, a snapshot task adds them up itself instead of splitting.
+  private static final int SEQUENTIAL_SHARDS = 2;
+
+  // Set if counts are exact. Otherwise, the sketches share the memory budget.
+  private final WordDictionary dictionary;
+  private final long memoryBytes;
+  private final double errorRate;
+  // The number of shards threads share, or 0 for a shard per thread.
+  private final int stripes;
+  private final ConcurrentHashMap<Object, Shard> shards = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an aggregator that counts words by their ID in the given {@link WordDictionary}.
+   */
+  WordCountAggregator(WordDictionary dictionary) {
+    this(Objects.requireNonNull(dictionary), 0, 0, 0);
+  }
+
+  private WordCountAggregator(
+      WordDictionary dictionary, long memoryBytes, double errorRate, int stripes) {
+    this.dictionary = dictionary;
+    this.memoryBytes = memoryBytes;
+    this.errorRate = errorRate;
+    this.stripes = stripes;
+  }
+
+  /**
+   * Creates an aggregator that counts words approximately in about {@code memoryBytes} in all,
+   * aiming for an error of {@code errorRate} of all the words counted. Its threads share
+   * {@code stripes} shards, each with a {@link HeavyHitters} sketch in an equal share of the
+   * memory.
+   */
+  static WordCountAggregator approximate(long memoryBytes, double errorRate, int stripes) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("stripes must be positive");
+    }
+    return new WordCountAggregator(null, memoryBytes, errorRate, stripes);
+  }
+
+  /**
+   * Returns an empty aggregator that counts words the same way as this one, but whose threads
+   * share {@code stripes} shards, picked by thread ID. A thread then waits on a shard's lock only
+   * when another thread with the same stripe is adding to it at the same moment. An approximate
+   * aggregator splits the same memory among the new number of stripes.
+   */
+  WordCountAggregator striped(int stripes) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("stripes must be positive");
+    }
+    return new WordCountAggregator(dictionary, memoryBytes, errorRate, stripes);
+  }
+
+  /**
+   * Returns whether this aggregator counts words approximately. If so, use
+   * {@link #sketch(ForkJoinPool)} instead of {@link #snapshot(ForkJoinPool)}.
+   */
+  boolean isApproximate() {
+    return dictionary == null;
+  }
+
+  /**
+   * Adds the given counts to the calling thread's shard.
+   */
+  void addAll(Map<String, Integer> counts) {
+    if (counts.isEmpty()) {
+      return;
+    }
+    Shard shard = shardForCurrentThread();
+    synchronized (shard) {
+      if (shard.sketch != null) {
+        counts.forEach(shard.sketch::add);
+        return;
+      }
+      for (Map.Entry<String, Integer> e : counts.entrySet()) {
+        shard.counts.add(dictionary.idOf(e.getKey()), e.getValue());
+      }
+    }
+  }
+
+  /**
+   * Adds the word counts of the given page to the calling thread's shard.
+   */
+  void add(PageParser.Result page) {
+    if (page.getWordCounts().isEmpty()) {
+      return;
+    }
+    Shard shard = shardForCurrentThread();
+    synchronized (shard) {
+      if (shard.sketch != null) {
+        page.getWordCounts().forEach(shard.sketch::add);
+      } else {
+        page.addWordCountsTo(shard.counts, dictionary);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of shards, which is the number of threads that have added counts, or at
+   * most the number of stripes.
+   */
+  int shardCount() {
+    return shards.size();
+  }
+
+  /**
+   * Returns the total count of every word added so far, adding the shards up in parallel on the
+   * given pool.
+   */
+  Map<String, Integer> snapshot(ForkJoinPool pool) {
+    if (isApproximate()) {
+      throw new IllegalStateException("Approximate counts are only available as a sketch");
+    }
+    List<Shard> all = new ArrayList<>(shards.values());
+    if (all.isEmpty()) {
+      return Map.of();
+    }
+    IdCountMap totals =
+        pool.invoke(new Reduction<>(all, 0, all.size(), Shard::copyCounts, Reduction::add));
+    WordCountMap counts = new WordCountMap(totals.size());
+    totals.forEach((id, count) -> counts.add(dictionary.word(id), count));
+    return counts.asMap();
+  }
+
+  /**
+   * Returns a sketch of every word added so far, merging the shards' sketches in parallel on the
+   * given pool. Only for an {@link #approximate approximate} aggregator.
+   */
+  HeavyHitters sketch(ForkJoinPool pool) {
+    if (!isApproximate()) {
+      throw new IllegalStateException("Exact counts are only available as a snapshot");
+    }
+    List<Shard> all = new ArrayList<>(shards.values());
+    if (all.isEmpty()) {
+      return newSketch();
+    }
+    return pool.invoke(new Reduction<>(all, 0, all.size(), Shard::copySketch, (a, b) -> {
+      a.merge(b);
+      return a;
+    }));
+  }
+
+  /**
+   * Returns a {@link CrawlResult.Builder} with the {@code popularWordCount} most popular words
+   * counted so far, adding the shards up on the given pool. An approximate result is marked as
+   * such, along with how far off its counts may be.
+   */
+  CrawlResult.Builder popularWords(ForkJoinPool pool, int popularWordCount) {
+    if (isApproximate()) {
+      HeavyHitters sketch = sketch(pool);
+      Map<String, Integer> popular = WordCounts.sort(sketch.estimates(), popularWordCount);
+      return new CrawlResult.Builder()
+          .setWordCounts(popular)
+          .setApproximate(true)
+          .setWordCountErrorBound(sketch.maxError(popular.keySet()));
+    }
+    Map<String, Integer> counts = snapshot(pool);
+    return new CrawlResult.Builder()
+        .setWordCounts(counts.isEmpty() ? counts : WordCounts.sort(counts, popularWordCount));
+  }
+
+  private HeavyHitters newSketch() {
+    return HeavyHitters.forBudget(memoryBytes / stripes, errorRate);
+  }
+
+  private Shard shardForCurrentThread() {
+    Thread thread = Thread.currentThread();
+    Object key = (stripes == 0) ? thread : (int) Math.floorMod(thread.getId(), (long) stripes);
+    Shard shard = shards.get(key);
+    if (shard == null) {
+      shard = new Shard(isApproximate() ? newSketch() : null);
+      Shard raced = shards.putIfAbsent(key, shard);
+      if (raced != null) {
+        shard = raced;
+      }
+    }
+    return shard;
+  }
+
+  private static final class Shard {
+    // Counts by word ID, or null if the shard keeps a sketch. Guarded by this shard's lock.
+    private final IdCountMap counts;
+    private final HeavyHitters sketch;
+
+    Shard(HeavyHitters sketch) {
+      this.sketch = sketch;
+      this.counts = (sketch == null) ? new IdCountMap() : null;
+    }
+
+    /**
+     * Returns a copy of the counts that the reduction is free to modify.
+     */
+    synchronized IdCountMap copyCounts() {
+      return counts.copy();
+    }
+
+    /**
+     * Returns a copy of the sketch that the reduction is free to modify.
+     */
+    synchronized HeavyHitters copySketch() {
+      return sketch.copy();
+    }
+  }
+
+  /**
+   * Adds up the shards in {@code [from, to)} by adding up each half in parallel and then merging
+   * one result into the other. For exact counts, the smaller map is added into the larger.
+   */
+  private static final class Reduction<T> extends RecursiveTask<T> {
+    private final List<Shard> shards;
+    private final int from;
+    private final int to;
+    private final Function<Shard, T> copy;
+    private final BinaryOperator<T> merge;
+
+    Reduction(
+        List<Shard> shards, int from, int to, Function<Shard, T> copy, BinaryOperator<T> merge) {
+      this.shards = shards;
+      this.from = from;
+      this.to = to;
+      this.copy = copy;
+      this.merge = merge;
+    }
+
+    @Override
+    protected T compute() {
+      if (to - from <= SEQUENTIAL_SHARDS) {
+        T sum = copy.apply(shards.get(from));
+        for (int i = from + 1; i < to; i++) {
+          sum = merge.apply(sum, copy.apply(shards.get(i)));
+        }
+        return sum;
+      }
+      int middle = (from + to) >>> 1;
+      Reduction<T> left = new Reduction<>(shards, from, middle, copy, merge);
+      left.fork();
+      T right = new Reduction<>(shards, middle, to, copy, merge).compute();
+      return merge.apply(left.join(), right);
+    }
+
+    private static IdCountMap add(IdCountMap a, IdCountMap b) {
+      IdCountMap into = (a.size() >= b.size()) ? a : b;
+      into.mergeFrom((into == a) ? b : a);
+      return into;
+    }
+  }
+}
@@ -1,40 +1,109 @@
 package com.udacity.webcrawler;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
 
 /**
  * Utility class that sorts the map of word counts.
- *
- * <p>TODO: Reimplement the sort() method using only the Stream API and lambdas and/or method
- *          references.
  */
 final class WordCounts {
 
+  /**
+   * Maps with at least this many words are searched in parallel.
+   */
+  static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private static final Comparator<Map.Entry<String, Integer>> ORDER = new WordCountComparator();
+
   /**
    * Given an unsorted map of word counts, returns a new map whose word counts are sorted according
    * to the provided {@link WordCountComparator}, and includes only the top
    * {@param popluarWordCount} words and counts.
    *
-   * <p>TODO: Reimplement this method using only the Stream API and lambdas and/or method
-   *          references.
+   * <p>Only the top words are ever sorted. The rest are checked against a heap of the best
+   * {@code popularWordCount} words found so far, which takes O(n log k) time for n words rather
+   * than the O(n log n) of sorting them all. Maps of {@link #PARALLEL_THRESHOLD} words or more are
+   * split into chunks that are searched in parallel, and the top words of each chunk are merged.
    *
    * @param wordCounts       the unsorted map of word counts.
    * @param popularWordCount the number of popular words to include in the result map.
    * @return a map containing the top {@param popularWordCount} words and counts in the right order.
    */
   static Map<String, Integer> sort(Map<String, Integer> wordCounts, int popularWordCount) {
+    return sort(wordCounts, popularWordCount, wordCounts.size() >= PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Same as {@link #sort(Map, int)}, but searches the map in parallel only if asked to.
+   */
+  static Map<String, Integer> sort(
+      Map<String, Integer> wordCounts, int popularWordCount, boolean parallel) {
+    int k = Math.min(popularWordCount, wordCounts.size());
+    if (k <= 0) {
+      return new LinkedHashMap<>();
+    }
+    Stream<Map.Entry<String, Integer>> entries = parallel
+        ? wordCounts.entrySet().parallelStream()
+        : wordCounts.entrySet().stream();
+    return entries.collect(topK(k));
+  }
+
+  /**
+   * Returns a {@link Collector} that keeps the {@code k} entries that come first in
+   * {@link #ORDER}, and returns them in that order. Each chunk of a parallel stream keeps its own
+   * top {@code k}, and merging two chunks offers the entries of one to the other.
+   */
+  private static Collector<Map.Entry<String, Integer>, ?, Map<String, Integer>> topK(int k) {
+    return Collector.of(
+        () -> new TopK(k),
+        TopK::offer,
+        TopK::merge,
+        TopK::toMap);
+  }
+
+  /**
+   * The best {@code k} entries seen so far, in a heap whose head is the worst of them.
+   */
+  private static final class TopK {
+    private final int k;
+    private final PriorityQueue<Map.Entry<String, Integer>> heap;
 
-    // TODO: Reimplement this method using only the Stream API and lambdas and/or method references.
-    return wordCounts.entrySet()
-            .stream()
-            .sorted(new WordCountComparator())
-            .limit(Math.min(popularWordCount, wordCounts.size()))
-            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue,
-                    (oldValue, newValue) -> oldValue, LinkedHashMap::new));
+    TopK(int k) {
+      this.k = k;
+      this.heap = new PriorityQueue<>(k, ORDER.reversed());
+    }
+
+    void offer(Map.Entry<String, Integer> entry) {
+      if (heap.size() < k) {
+        heap.add(entry);
+      } else if (ORDER.compare(entry, heap.peek()) < 0) {
+        heap.poll();
+        heap.add(entry);
+      }
+    }
+
+    TopK merge(TopK other) {
+      TopK smaller = (heap.size() < other.heap.size()) ? this : other;
+      TopK larger = (smaller == this) ? other : this;
+      smaller.heap.forEach(larger::offer);
+      return larger;
+    }
+
+    Map<String, Integer> toMap() {
+      List<Map.Entry<String, Integer>> top = new ArrayList<>(heap);
+      top.sort(ORDER);
+      Map<String, Integer> sorted = new LinkedHashMap<>();
+      top.forEach(e -> sorted.put(e.getKey(), e.getValue()));
+      return sorted;
+    }
   }
+
   /**
    * A {@link Comparator} that sorts word count pairs correctly:
    *
@@ -61,4 +130,4 @@ final class WordCounts {
   private WordCounts() {
     // This class cannot be instantiated
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,309 @@
+package com.udacity.webcrawler.checkpoint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An append-only log of crawled pages, from which a crawl can be resumed after it dies.
+ *
+ * <p>Crawler threads call {@link #recordPage} once per crawled page. That only puts the page on a
+ * queue; a single background thread appends it to the file, flushes the file to disk every
+ * {@link #FLUSH_INTERVAL}, and compacts the file once the log has grown to several times the size
+ * of its last snapshot. Compaction replays the log into a {@link CheckpointState} and replaces the
+ * file with a snapshot of that state, so crawler threads are never held up by disk I/O.
+ *
+ * <p>A process that is killed can leave a partly written record at the end of the file.
+ * {@link #load(Path)} ignores it, so at most the last {@link #FLUSH_INTERVAL} of pages is lost.
+ *
+ * <p>The file starts with {@link #MAGIC}, followed by records that each start with a type byte:
+ *
+ * <ul>
+ *   <li>{@code 'P'}: a crawled page, with its URL, remaining depth, word counts and links.</li>
+ *   <li>{@code 'C'}: a crawled URL, written by compaction.</li>
+ *   <li>{@code 'F'}: a frontier link and its remaining depth, written by compaction.</li>
+ *   <li>{@code 'W'}: total word counts, written by compaction.</li>
+ * </ul>
+ */
+public final class CheckpointJournal implements AutoCloseable {
+
+  static final int MAGIC = 0x57434a31;  // "WCJ1"
+  static final Duration FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+  private static final byte PAGE = 'P';
+  private static final byte CRAWLED = 'C';
+  private static final byte FRONTIER = 'F';
+  private static final byte WORDS = 'W';
+  private static final long MIN_COMPACTION_BYTES = 8L << 20;
+  private static final int COMPACTION_RATIO = 4;
+
+  // Queued by close() after the last page.
+  private static final PageRecord END = new PageRecord("", 0, Map.of(), List.of());
+
+  private final Path path;
+  private final long minCompactionBytes;
+  private final BlockingQueue<PageRecord> queue = new LinkedBlockingQueue<>();
+  private final Thread writer;
+  private volatile boolean closed;
+  private volatile IOException failure;
+
+  // Only touched by the writer thread once it has started.
+  private FileChannel channel;
+  private DataOutputStream out;
+  private long snapshotBytes;
+
+  private CheckpointJournal(Path path, long minCompactionBytes) {
+    this.path = path;
+    this.minCompactionBytes = minCompactionBytes;
+    this.writer = new Thread(this::run, "crawl-checkpoint");
+    writer.setDaemon(true);
+  }
+
+  /**
+   * Creates a journal at the given path, replacing any file that is already there with a snapshot
+   * of the given state.
+   */
+  public static CheckpointJournal create(Path path, CheckpointState initial) throws IOException {
+    return create(path, initial, MIN_COMPACTION_BYTES);
+  }
+
+  static CheckpointJournal create(Path path, CheckpointState initial, long minCompactionBytes)
+      throws IOException {
+    CheckpointJournal journal =
+        new CheckpointJournal(Objects.requireNonNull(path), minCompactionBytes);
+    journal.writeSnapshot(Objects.requireNonNull(initial));
+    journal.writer.start();
+    return journal;
+  }
+
+  /**
+   * Reads the crawl state recorded in a journal file.
+   */
+  public static CheckpointState load(Path path) throws IOException {
+    CheckpointState state = CheckpointState.empty();
+    try (DataInputStream in =
+             new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a crawl checkpoint: " + path);
+      }
+      while (true) {
+        int type = in.read();
+        if (type < 0) {
+          break;
+        }
+        try {
+          readRecord(in, type, state);
+        } catch (EOFException | UTFDataFormatException e) {
+          // A record that was cut off when the process died. Everything before it is intact.
+          break;
+        }
+      }
+    }
+    return state;
+  }
+
+  /**
+   * Queues a crawled page to be written to the journal. Does not block.
+   *
+   * @param depth the remaining depth of the page, as passed to the crawl task for it.
+   * @param links the links found on the page.
+   */
+  public void recordPage(
+      String url, int depth, Map<String, Integer> wordCounts, List<String> links) {
+    if (!closed) {
+      queue.add(new PageRecord(url, depth, wordCounts, links));
+    }
+  }
+
+  /**
+   * Writes out every queued page, flushes the journal to disk and stops the writer thread.
+   *
+   * @throws IOException if the journal could not be written at some point during the crawl.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      // Interrupting the writer would close the file channel, so wake it with a marker instead.
+      queue.add(END);
+    }
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void run() {
+    try {
+      long nextFlush = System.nanoTime() + FLUSH_INTERVAL.toNanos();
+      while (true) {
+        PageRecord record = queue.poll(nextFlush - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (record == END) {
+          break;
+        }
+        if (record != null) {
+          record.writeTo(out);
+        }
+        if (record == null || System.nanoTime() >= nextFlush) {
+          flush();
+          nextFlush = System.nanoTime() + FLUSH_INTERVAL.toNanos();
+          if (channel.size() > Math.max(minCompactionBytes, snapshotBytes * COMPACTION_RATIO)) {
+            compact();
+          }
+        }
+      }
+      flush();
+      out.close();
+    } catch (IOException e) {
+      failure = e;
+      closed = true;
+    } catch (InterruptedException e) {
+      // Nothing interrupts the writer; stop without losing the flag.
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void flush() throws IOException {
+    out.flush();
+    channel.force(false);
+  }
+
+  private void compact() throws IOException {
+    out.close();
+    writeSnapshot(load(path));
+  }
+
+  /**
+   * Atomically replaces the journal file with a snapshot of the given state, and opens it for
+   * appending.
+   */
+  private void writeSnapshot(CheckpointState state) throws IOException {
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel tempChannel = FileChannel.open(temp,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+         DataOutputStream snapshot = new DataOutputStream(
+             new BufferedOutputStream(Channels.newOutputStream(tempChannel), 1 << 16))) {
+      snapshot.writeInt(MAGIC);
+      for (String url : state.getCrawledUrls()) {
+        snapshot.writeByte(CRAWLED);
+        snapshot.writeUTF(url);
+      }
+      for (Map.Entry<String, Integer> e : state.getFrontier().entrySet()) {
+        snapshot.writeByte(FRONTIER);
+        snapshot.writeUTF(e.getKey());
+        snapshot.writeInt(e.getValue());
+      }
+      snapshot.writeByte(WORDS);
+      writeCounts(snapshot, state.getWordCounts());
+      snapshot.flush();
+      tempChannel.force(true);
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    out = new DataOutputStream(
+        new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+    snapshotBytes = channel.size();
+  }
+
+  private static void readRecord(DataInputStream in, int type, CheckpointState state)
+      throws IOException {
+    switch (type) {
+      case PAGE:
+        String url = in.readUTF();
+        int depth = in.readInt();
+        Map<String, Integer> wordCounts = readCounts(in);
+        int linkCount = in.readInt();
+        if (linkCount < 0) {
+          throw new EOFException();
+        }
+        String[] links = new String[linkCount];
+        for (int i = 0; i < linkCount; i++) {
+          links[i] = in.readUTF();
+        }
+        state.addPage(url, depth, wordCounts, List.of(links));
+        break;
+      case CRAWLED:
+        state.addCrawled(in.readUTF());
+        break;
+      case FRONTIER:
+        state.addFrontier(in.readUTF(), in.readInt());
+        break;
+      case WORDS:
+        state.addWordCounts(readCounts(in));
+        break;
+      default:
+        throw new IOException("Corrupt crawl checkpoint: unknown record type " + type);
+    }
+  }
+
+  private static void writeCounts(DataOutputStream out, Map<String, Integer> counts)
+      throws IOException {
+    out.writeInt(counts.size());
+    for (Map.Entry<String, Integer> e : counts.entrySet()) {
+      out.writeUTF(e.getKey());
+      out.writeInt(e.getValue());
+    }
+  }
+
+  private static Map<String, Integer> readCounts(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    if (size < 0) {
+      throw new EOFException();
+    }
+    Map<String, Integer> counts = new HashMap<>(size * 2);
+    for (int i = 0; i < size; i++) {
+      counts.put(in.readUTF(), in.readInt());
+    }
+    return counts;
+  }
+
+  private static final class PageRecord {
+    private final String url;
+    private final int depth;
+    private final Map<String, Integer> wordCounts;
+    private final List<String> links;
+
+    PageRecord(String url, int depth, Map<String, Integer> wordCounts, List<String> links) {
+      this.url = Objects.requireNonNull(url);
+      this.depth = depth;
+      this.wordCounts = Objects.requireNonNull(wordCounts);
+      this.links = Objects.requireNonNull(links);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+      out.writeByte(PAGE);
+      out.writeUTF(url);
+      out.writeInt(depth);
+      writeCounts(out, wordCounts);
+      // Links from the deepest pages will never be followed, so they are not worth the space.
+      List<String> followed = (depth > 1) ? links : List.of();
+      out.writeInt(followed.size());
+      for (String link : followed) {
+        out.writeUTF(link);
+      }
+    }
+  }
+}
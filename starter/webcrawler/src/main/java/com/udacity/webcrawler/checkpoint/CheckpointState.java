@@ -0,0 +1,87 @@
+package com.udacity.webcrawler.checkpoint;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The progress of a crawl, as recorded in a checkpoint.
+ *
+ * <p>A page counts as crawled once it has been downloaded and parsed, even if the download failed.
+ * Pages that were in flight when the checkpoint was written are not crawled yet, so a crawl that
+ * resumes from the checkpoint will crawl them again.
+ */
+public final class CheckpointState {
+
+  private final Set<String> crawledUrls = new HashSet<>();
+  private final Map<String, Integer> frontier = new LinkedHashMap<>();
+  private final Map<String, Integer> wordCounts = new HashMap<>();
+
+  /**
+   * Returns the state of a crawl that has not started yet.
+   */
+  public static CheckpointState empty() {
+    return new CheckpointState();
+  }
+
+  /**
+   * Returns an unmodifiable view of the URLs that have been crawled.
+   */
+  public Set<String> getCrawledUrls() {
+    return Collections.unmodifiableSet(crawledUrls);
+  }
+
+  /**
+   * Returns an unmodifiable view of the links that were found but not crawled yet, in the order
+   * they were found. Each is mapped to the depth it may still be crawled to, which is the same as
+   * the {@code maxDepth} a fresh crawl starting at that link would use.
+   */
+  public Map<String, Integer> getFrontier() {
+    return Collections.unmodifiableMap(frontier);
+  }
+
+  /**
+   * Returns an unmodifiable view of the total word counts of the crawled pages.
+   */
+  public Map<String, Integer> getWordCounts() {
+    return Collections.unmodifiableMap(wordCounts);
+  }
+
+  /**
+   * Records that a page was crawled.
+   *
+   * @param depth the remaining depth of the page. Its links are added to the frontier with one
+   *              less, unless that is zero.
+   */
+  void addPage(String url, int depth, Map<String, Integer> pageWordCounts, List<String> links) {
+    addCrawled(url);
+    addWordCounts(pageWordCounts);
+    if (depth > 1) {
+      for (String link : links) {
+        addFrontier(link, depth - 1);
+      }
+    }
+  }
+
+  void addCrawled(String url) {
+    crawledUrls.add(url);
+    frontier.remove(url);
+  }
+
+  void addFrontier(String url, int depth) {
+    if (!crawledUrls.contains(url)) {
+      // A link found again closer to a start page may be followed further.
+      frontier.merge(url, depth, Math::max);
+    }
+  }
+
+  void addWordCounts(Map<String, Integer> pageWordCounts) {
+    for (Map.Entry<String, Integer> e : pageWordCounts.entrySet()) {
+      wordCounts.merge(e.getKey(), e.getValue(), Integer::sum);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.udacity.webcrawler.distributed;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The nodes taking part in a distributed crawl, and which one of them this process is.
+ *
+ * <p>Every URL is owned by exactly one node, chosen by hashing the URL. Only the owner crawls a
+ * URL, so no two nodes ever crawl the same page. Node 0 is the coordinator: it decides when the
+ * crawl is finished and merges every node's results.
+ */
+public final class Cluster {
+
+  private final List<InetSocketAddress> nodes;
+  private final int self;
+
+  /**
+   * Creates a cluster of the given nodes.
+   *
+   * @param nodes the address each node listens on, in node order.
+   * @param self  the index of this process's node in {@code nodes}.
+   */
+  public Cluster(List<InetSocketAddress> nodes, int self) {
+    if (nodes.isEmpty()) {
+      throw new IllegalArgumentException("A cluster needs at least one node");
+    }
+    if (self < 0 || self >= nodes.size()) {
+      throw new IllegalArgumentException("Node index out of range: " + self);
+    }
+    this.nodes = List.copyOf(nodes);
+    this.self = self;
+  }
+
+  /**
+   * Parses a comma-separated list of {@code host:port} addresses, such as
+   * {@code "127.0.0.1:7001,127.0.0.1:7002"}.
+   */
+  public static Cluster parse(String addresses, int self) {
+    List<InetSocketAddress> nodes = new ArrayList<>();
+    for (String address : addresses.split(",")) {
+      String trimmed = address.strip();
+      int colon = trimmed.lastIndexOf(':');
+      if (colon <= 0) {
+        throw new IllegalArgumentException("Expected host:port but got \"" + trimmed + "\"");
+      }
+      nodes.add(new InetSocketAddress(
+          trimmed.substring(0, colon), Integer.parseInt(trimmed.substring(colon + 1))));
+    }
+    return new Cluster(nodes, self);
+  }
+
+  /**
+   * Returns the number of nodes in the cluster.
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  /**
+   * Returns the index of this process's node.
+   */
+  public int self() {
+    return self;
+  }
+
+  /**
+   * Returns true if this process is the coordinator.
+   */
+  public boolean isCoordinator() {
+    return self == 0;
+  }
+
+  /**
+   * Returns the address the given node listens on.
+   */
+  public InetSocketAddress address(int node) {
+    return nodes.get(node);
+  }
+
+  /**
+   * Returns the index of the node that owns the given URL. {@link String#hashCode()} is specified
+   * by the language, so every process agrees on the owner.
+   */
+  public int owner(String url) {
+    return Math.floorMod(Objects.requireNonNull(url).hashCode(), nodes.size());
+  }
+}
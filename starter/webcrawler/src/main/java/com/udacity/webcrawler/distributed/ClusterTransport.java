@@ -0,0 +1,307 @@
+package com.udacity.webcrawler.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carries messages between the nodes of a {@link Cluster} over plain TCP sockets.
+ *
+ * <p>Each node listens on its own address and keeps one connection open to every other node.
+ * Messages on a connection are handled in the order they were sent, so a status request that
+ * follows a batch of links is only answered once those links have been queued.
+ *
+ * <p>Every message starts with a type byte:
+ *
+ * <ul>
+ *   <li>{@code 'L'}: a batch of links for the receiving node to crawl. No reply.</li>
+ *   <li>{@code 'S'}: a status request from the coordinator. Answered with a
+ *       {@link NodeStatus}.</li>
+ *   <li>{@code 'F'}: tells the node the crawl is finished. Answered with a {@link NodeReport}.</li>
+ * </ul>
+ */
+public final class ClusterTransport implements AutoCloseable {
+
+  /**
+   * Handles messages received from other nodes. Called on the transport's threads.
+   */
+  public interface Handler {
+
+    /**
+     * Queues links that were sent to this node.
+     */
+    void onLinks(List<Link> links);
+
+    /**
+     * Reports a connection that failed while receiving messages. Links in flight on it are lost.
+     */
+    void onError(IOException e);
+
+    /**
+     * Returns this node's current status.
+     */
+    NodeStatus status();
+
+    /**
+     * Stops crawling and returns what this node crawled.
+     */
+    NodeReport finish();
+  }
+
+  private static final byte LINKS = 'L';
+  private static final byte STATUS = 'S';
+  private static final byte FINISH = 'F';
+  private static final long CONNECT_RETRY_MILLIS = 50;
+
+  private final Cluster cluster;
+  private final Handler handler;
+  private final ServerSocket server;
+  private final Map<Integer, Connection> peers = new ConcurrentHashMap<>();
+  private final Set<Socket> accepted = ConcurrentHashMap.newKeySet();
+  private final CountDownLatch finished = new CountDownLatch(1);
+  private volatile boolean closed;
+
+  private ClusterTransport(Cluster cluster, Handler handler, ServerSocket server) {
+    this.cluster = cluster;
+    this.handler = handler;
+    this.server = server;
+  }
+
+  /**
+   * Starts listening on this node's address. Messages are passed to the handler from then on.
+   */
+  public static ClusterTransport start(Cluster cluster, Handler handler) throws IOException {
+    ServerSocket server = new ServerSocket();
+    server.setReuseAddress(true);
+    server.bind(cluster.address(cluster.self()));
+    ClusterTransport transport = new ClusterTransport(
+        Objects.requireNonNull(cluster), Objects.requireNonNull(handler), server);
+    Thread acceptor = new Thread(transport::acceptLoop, "cluster-accept");
+    acceptor.setDaemon(true);
+    acceptor.start();
+    return transport;
+  }
+
+  /**
+   * Connects to every other node, retrying until they are all listening.
+   *
+   * @throws IOException if some node is still not listening at the given time.
+   */
+  public void connectAll(Clock clock, Instant giveUpAt) throws IOException {
+    for (int node = 0; node < cluster.size(); node++) {
+      if (node == cluster.self()) {
+        continue;
+      }
+      InetSocketAddress address = cluster.address(node);
+      while (true) {
+        try {
+          Socket socket = new Socket();
+          socket.setTcpNoDelay(true);
+          socket.connect(address);
+          peers.put(node, new Connection(socket));
+          break;
+        } catch (ConnectException e) {
+          if (clock.instant().isAfter(giveUpAt)) {
+            throw new IOException("Node " + node + " at " + address + " is not listening", e);
+          }
+          try {
+            Thread.sleep(CONNECT_RETRY_MILLIS);
+          } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while connecting to node " + node, ie);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends a batch of links to the node that owns them.
+   */
+  public void sendLinks(int node, List<Link> links) throws IOException {
+    Connection connection = peer(node);
+    synchronized (connection) {
+      DataOutputStream out = connection.out;
+      out.writeByte(LINKS);
+      out.writeInt(links.size());
+      for (Link link : links) {
+        out.writeUTF(link.getUrl());
+        out.writeInt(link.getDepth());
+      }
+      out.flush();
+    }
+  }
+
+  /**
+   * Asks a node for its status.
+   */
+  public NodeStatus queryStatus(int node) throws IOException {
+    Connection connection = peer(node);
+    synchronized (connection) {
+      connection.out.writeByte(STATUS);
+      connection.out.flush();
+      DataInputStream in = connection.in;
+      return new NodeStatus(in.readBoolean(), in.readLong(), in.readLong());
+    }
+  }
+
+  /**
+   * Tells a node the crawl is finished, and returns what it crawled.
+   */
+  public NodeReport finish(int node) throws IOException {
+    Connection connection = peer(node);
+    synchronized (connection) {
+      connection.out.writeByte(FINISH);
+      connection.out.flush();
+      DataInputStream in = connection.in;
+      int urlsVisited = in.readInt();
+      int size = in.readInt();
+      Map<String, Integer> wordCounts = new HashMap<>(size * 2);
+      for (int i = 0; i < size; i++) {
+        wordCounts.put(in.readUTF(), in.readInt());
+      }
+      return new NodeReport(urlsVisited, wordCounts);
+    }
+  }
+
+  /**
+   * Waits until this node has answered the coordinator's finish message, so that closing the
+   * transport afterwards cannot cut off the report.
+   *
+   * @return false if the wait timed out.
+   */
+  public boolean awaitFinish(long timeout, TimeUnit unit) throws InterruptedException {
+    return finished.await(timeout, unit);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    closeQuietly(server);
+    for (Connection connection : peers.values()) {
+      closeQuietly(connection.socket);
+    }
+    for (Socket socket : accepted) {
+      closeQuietly(socket);
+    }
+  }
+
+  private Connection peer(int node) throws IOException {
+    Connection connection = peers.get(node);
+    if (connection == null) {
+      throw new IOException("Not connected to node " + node);
+    }
+    return connection;
+  }
+
+  private void acceptLoop() {
+    while (!closed) {
+      try {
+        Socket socket = server.accept();
+        socket.setTcpNoDelay(true);
+        accepted.add(socket);
+        Thread reader = new Thread(() -> serve(socket), "cluster-peer");
+        reader.setDaemon(true);
+        reader.start();
+      } catch (IOException e) {
+        if (!closed) {
+          handler.onError(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Handles the messages arriving on one connection, in order, until it is closed.
+   */
+  private void serve(Socket socket) {
+    try (DataInputStream in =
+             new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+         DataOutputStream out =
+             new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+      while (true) {
+        int type = in.read();
+        if (type < 0) {
+          return;
+        }
+        switch (type) {
+          case LINKS:
+            int count = in.readInt();
+            List<Link> links = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+              links.add(new Link(in.readUTF(), in.readInt()));
+            }
+            handler.onLinks(links);
+            break;
+          case STATUS:
+            NodeStatus status = handler.status();
+            out.writeBoolean(status.isIdle());
+            out.writeLong(status.getLinksSent());
+            out.writeLong(status.getLinksReceived());
+            out.flush();
+            break;
+          case FINISH:
+            NodeReport report = handler.finish();
+            out.writeInt(report.getUrlsVisited());
+            out.writeInt(report.getWordCounts().size());
+            for (Map.Entry<String, Integer> e : report.getWordCounts().entrySet()) {
+              out.writeUTF(e.getKey());
+              out.writeInt(e.getValue());
+            }
+            out.flush();
+            finished.countDown();
+            break;
+          default:
+            throw new IOException("Unknown message type " + type);
+        }
+      }
+    } catch (EOFException | SocketException e) {
+      // The other node closed the connection.
+    } catch (IOException e) {
+      if (!closed) {
+        handler.onError(e);
+      }
+    } finally {
+      accepted.remove(socket);
+    }
+  }
+
+  private static void closeQuietly(AutoCloseable closeable) {
+    try {
+      closeable.close();
+    } catch (Exception e) {
+      // Already closing.
+    }
+  }
+
+  private static final class Connection {
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+
+    Connection(Socket socket) throws IOException {
+      this.socket = socket;
+      this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.udacity.webcrawler.distributed;
+
+import java.util.Objects;
+
+/**
+ * A link waiting to be crawled, together with how much deeper the crawl may go from it.
+ */
+public final class Link {
+
+  private final String url;
+  private final int depth;
+
+  public Link(String url, int depth) {
+    this.url = Objects.requireNonNull(url);
+    this.depth = depth;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Returns the remaining depth, the same as the {@code maxDepth} a fresh crawl starting at this
+   * link would use.
+   */
+  public int getDepth() {
+    return depth;
+  }
+}
@@ -0,0 +1,32 @@
+package com.udacity.webcrawler.distributed;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * What a node crawled, sent to the coordinator when the crawl is finished.
+ */
+public final class NodeReport {
+
+  private final int urlsVisited;
+  private final Map<String, Integer> wordCounts;
+
+  public NodeReport(int urlsVisited, Map<String, Integer> wordCounts) {
+    this.urlsVisited = urlsVisited;
+    this.wordCounts = Objects.requireNonNull(wordCounts);
+  }
+
+  /**
+   * Returns the number of URLs the node visited. Nodes never visit the same URL, so these add up.
+   */
+  public int getUrlsVisited() {
+    return urlsVisited;
+  }
+
+  /**
+   * Returns the node's unsorted word counts, covering every word it saw.
+   */
+  public Map<String, Integer> getWordCounts() {
+    return wordCounts;
+  }
+}
@@ -0,0 +1,43 @@
+package com.udacity.webcrawler.distributed;
+
+/**
+ * A node's answer when the coordinator asks whether it still has work.
+ *
+ * <p>The crawl is finished once every node is idle and every link sent between nodes has been
+ * received. Links in transit are the reason both are needed: a node can be idle while a link
+ * that will wake it is still on the wire.
+ */
+public final class NodeStatus {
+
+  private final boolean idle;
+  private final long linksSent;
+  private final long linksReceived;
+
+  public NodeStatus(boolean idle, long linksSent, long linksReceived) {
+    this.idle = idle;
+    this.linksSent = linksSent;
+    this.linksReceived = linksReceived;
+  }
+
+  /**
+   * Returns true if the node has nothing queued, nothing in progress and nothing waiting to be
+   * sent.
+   */
+  public boolean isIdle() {
+    return idle;
+  }
+
+  /**
+   * Returns how many links the node has handed to other nodes so far.
+   */
+  public long getLinksSent() {
+    return linksSent;
+  }
+
+  /**
+   * Returns how many links the node has received from other nodes and queued so far.
+   */
+  public long getLinksReceived() {
+    return linksReceived;
+  }
+}
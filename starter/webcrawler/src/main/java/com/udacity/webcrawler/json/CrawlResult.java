@@ -1,5 +1,7 @@
 package com.udacity.webcrawler.json;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -12,13 +14,21 @@ public final class CrawlResult {
 
   private final Map<String, Integer> wordCounts;
   private final int urlsVisited;
+  private final boolean approximate;
+  private final int wordCountErrorBound;
 
   /**
    * Constructs a {@link CrawlResult} with the given word counts and visited URL count.
    */
-  private CrawlResult(Map<String, Integer> wordCounts, int urlsVisited) {
+  private CrawlResult(
+      Map<String, Integer> wordCounts,
+      int urlsVisited,
+      boolean approximate,
+      int wordCountErrorBound) {
     this.wordCounts = wordCounts;
     this.urlsVisited = urlsVisited;
+    this.approximate = approximate;
+    this.wordCountErrorBound = wordCountErrorBound;
   }
 
   /**
@@ -52,12 +62,37 @@ public final class CrawlResult {
     return urlsVisited;
   }
 
+  /**
+   * Returns whether the word counts are estimates, from a crawl that counted words approximately
+   * to bound its memory. Estimates are never lower than the true counts, and at most
+   * {@link #getWordCountErrorBound()} higher.
+   *
+   * <p>Left out of the JSON output when false.
+   */
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  public boolean isApproximate() {
+    return approximate;
+  }
+
+  /**
+   * Returns the most that any of the word counts can be above the true count, or 0 if the counts
+   * are exact. See {@link #isApproximate()}.
+   *
+   * <p>Left out of the JSON output when 0.
+   */
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  public int getWordCountErrorBound() {
+    return wordCountErrorBound;
+  }
+
   /**
    * A package-private builder class for constructing web crawl {@link CrawlResult}s.
    */
   public static final class Builder {
     private Map<String, Integer> wordFrequencies = new HashMap<>();
     private int pageCount;
+    private boolean approximate;
+    private int wordCountErrorBound;
 
     /**
      * Sets the word counts. See {@link #getWordCounts()}
@@ -76,11 +111,32 @@ public final class CrawlResult {
       return this;
     }
 
+    /**
+     * Sets whether the word counts are estimates. See {@link #isApproximate()}.
+     */
+    public Builder setApproximate(boolean approximate) {
+      this.approximate = approximate;
+      return this;
+    }
+
+    /**
+     * Sets how far the word counts can be off. See {@link #getWordCountErrorBound()}.
+     */
+    public Builder setWordCountErrorBound(int wordCountErrorBound) {
+      if (wordCountErrorBound < 0) {
+        throw new IllegalArgumentException("wordCountErrorBound cannot be negative");
+      }
+      this.wordCountErrorBound = wordCountErrorBound;
+      return this;
+    }
+
     /**
      * Constructs a {@link CrawlResult} from this builder.
      */
     public CrawlResult build() {
-      return new CrawlResult(Collections.unmodifiableMap(wordFrequencies), pageCount);
+      return new CrawlResult(
+          Collections.unmodifiableMap(wordFrequencies), pageCount, approximate,
+          wordCountErrorBound);
     }
   }
 }
\ No newline at end of file
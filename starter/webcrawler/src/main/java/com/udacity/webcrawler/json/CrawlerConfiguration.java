@@ -25,6 +25,28 @@ public final class CrawlerConfiguration {
   private final int popularWordCount;
   private final String profileOutputPath;
   private final String resultPath;
+  private final int maxInFlightFetches;
+  private final String checkpointPath;
+  private final String resumeFrom;
+  private final String recrawlStorePath;
+  private final String responseCachePath;
+  private final int responseCacheMaxMegabytes;
+  private final int parseCacheMaxMegabytes;
+  private final int parseCacheTtlSeconds;
+  private final String visitedSet;
+  private final int visitedFingerprintBits;
+  private final int visitedMemoryMb;
+  private final double visitedFalsePositiveRate;
+  private final boolean sortQueryParameters;
+  private final List<Pattern> strippedQueryParameters;
+  private final boolean skipNearDuplicates;
+  private final int nearDuplicateMaxDistance;
+  private final int frontierMemoryUrls;
+  private final boolean approximateWordCounts;
+  private final int wordCountMemoryMb;
+  private final double wordCountErrorRate;
+  private final int clusterConnectTimeoutSeconds;
+  private final int clusterGracePeriodSeconds;
 
   private CrawlerConfiguration(
       List<String> startPages,
@@ -36,7 +58,29 @@ public final class CrawlerConfiguration {
       Duration timeout,
       int popularWordCount,
       String profileOutputPath,
-      String resultPath) {
+      String resultPath,
+      int maxInFlightFetches,
+      String checkpointPath,
+      String resumeFrom,
+      String recrawlStorePath,
+      String responseCachePath,
+      int responseCacheMaxMegabytes,
+      int parseCacheMaxMegabytes,
+      int parseCacheTtlSeconds,
+      String visitedSet,
+      int visitedFingerprintBits,
+      int visitedMemoryMb,
+      double visitedFalsePositiveRate,
+      boolean sortQueryParameters,
+      List<Pattern> strippedQueryParameters,
+      boolean skipNearDuplicates,
+      int nearDuplicateMaxDistance,
+      int frontierMemoryUrls,
+      boolean approximateWordCounts,
+      int wordCountMemoryMb,
+      double wordCountErrorRate,
+      int clusterConnectTimeoutSeconds,
+      int clusterGracePeriodSeconds) {
     this.startPages = startPages;
     this.ignoredUrls = ignoredUrls;
     this.ignoredWords = ignoredWords;
@@ -47,6 +91,28 @@ public final class CrawlerConfiguration {
     this.popularWordCount = popularWordCount;
     this.profileOutputPath = profileOutputPath;
     this.resultPath = resultPath;
+    this.maxInFlightFetches = maxInFlightFetches;
+    this.checkpointPath = checkpointPath;
+    this.resumeFrom = resumeFrom;
+    this.recrawlStorePath = recrawlStorePath;
+    this.responseCachePath = responseCachePath;
+    this.responseCacheMaxMegabytes = responseCacheMaxMegabytes;
+    this.parseCacheMaxMegabytes = parseCacheMaxMegabytes;
+    this.parseCacheTtlSeconds = parseCacheTtlSeconds;
+    this.visitedSet = visitedSet;
+    this.visitedFingerprintBits = visitedFingerprintBits;
+    this.visitedMemoryMb = visitedMemoryMb;
+    this.visitedFalsePositiveRate = visitedFalsePositiveRate;
+    this.sortQueryParameters = sortQueryParameters;
+    this.strippedQueryParameters = strippedQueryParameters;
+    this.skipNearDuplicates = skipNearDuplicates;
+    this.nearDuplicateMaxDistance = nearDuplicateMaxDistance;
+    this.frontierMemoryUrls = frontierMemoryUrls;
+    this.approximateWordCounts = approximateWordCounts;
+    this.wordCountMemoryMb = wordCountMemoryMb;
+    this.wordCountErrorRate = wordCountErrorRate;
+    this.clusterConnectTimeoutSeconds = clusterConnectTimeoutSeconds;
+    this.clusterGracePeriodSeconds = clusterGracePeriodSeconds;
   }
 
   /**
@@ -172,6 +238,260 @@ public final class CrawlerConfiguration {
     return resultPath;
   }
 
+  /**
+   * The maximum number of page downloads that may be in flight at the same time.
+   *
+   * <p>This setting is optional and only applies to crawler implementations that are not bound to
+   * a fixed-size thread pool, such as {@code com.udacity.webcrawler.VirtualThreadWebCrawler}.
+   * Defaults to 0, which lets the crawler choose: 1000 for downloads that do not hold a platform
+   * thread each, or 16 per core for the virtual-thread crawler when it has to fall back to
+   * platform threads.
+   */
+  public int getMaxInFlightFetches() {
+    return maxInFlightFetches;
+  }
+
+  /**
+   * Path to the file where the crawl should keep a checkpoint of its progress.
+   *
+   * <p>The checkpoint is an append-only log that is flushed to disk about once a second and
+   * compacted as it grows. If a file already exists at the path, it is replaced.
+   *
+   * <p>This setting is optional and is only supported by
+   * {@code com.udacity.webcrawler.ParallelWebCrawler}. If the path is empty, no checkpoint is kept.
+   */
+  public String getCheckpointPath() {
+    return checkpointPath;
+  }
+
+  /**
+   * Path to a checkpoint file (see {@link #getCheckpointPath()}) from which the crawl should
+   * continue.
+   *
+   * <p>Pages that the checkpoint records as crawled are not crawled again, and their word counts
+   * are included in the result. Links that had been found but not yet crawled are crawled next,
+   * before the start pages. It may be the same path as {@link #getCheckpointPath()}.
+   *
+   * <p>This setting is optional. If the path is empty, the crawl starts from scratch.
+   */
+  public String getResumeFrom() {
+    return resumeFrom;
+  }
+
+  /**
+   * Path to the file where the crawler keeps the validators and parse results of pages it has
+   * downloaded, so that a later crawl can recrawl them with conditional requests.
+   *
+   * <p>When set, every page with a stored {@code ETag} or {@code Last-Modified} header is requested
+   * with {@code If-None-Match} or {@code If-Modified-Since}. If the server answers 304 Not
+   * Modified, the stored word counts and links are used without downloading or parsing the page.
+   * The file is created if it does not exist, and updated as pages are downloaded.
+   *
+   * <p>This setting is optional. If the path is empty, every page is downloaded in full.
+   */
+  public String getRecrawlStorePath() {
+    return recrawlStorePath;
+  }
+
+  /**
+   * Path to a directory where downloaded pages are cached, so that running the same crawl again
+   * reads them from disk instead of the network.
+   *
+   * <p>Cached pages never expire; they are only evicted, oldest first, when the cache grows past
+   * {@link #getResponseCacheMaxMegabytes()}. The directory is created if it does not exist.
+   *
+   * <p>This setting is optional. If the path is empty, pages are not cached.
+   */
+  public String getResponseCachePath() {
+    return responseCachePath;
+  }
+
+  /**
+   * The size, in megabytes, that the response cache (see {@link #getResponseCachePath()}) may grow
+   * to before its oldest pages are evicted. Defaults to 1024.
+   */
+  public int getResponseCacheMaxMegabytes() {
+    return responseCacheMaxMegabytes;
+  }
+
+  /**
+   * The size, in megabytes, of an in-memory cache of parsed pages shared by every crawl the process
+   * runs, so that a page reached again by a later crawl is not downloaded and parsed again. The
+   * size of each page is estimated from its words and links.
+   *
+   * <p>This setting is optional. If it is 0, which is the default, parsed pages are not cached.
+   */
+  public int getParseCacheMaxMegabytes() {
+    return parseCacheMaxMegabytes;
+  }
+
+  /**
+   * How long, in seconds, a page stays in the parse cache (see
+   * {@link #getParseCacheMaxMegabytes()}) before it is parsed again. Defaults to 3600.
+   */
+  public int getParseCacheTtlSeconds() {
+    return parseCacheTtlSeconds;
+  }
+
+  /**
+   * How the crawlers remember which URLs they have visited. Every crawler but the sequential and
+   * distributed ones uses this setting:
+   *
+   * <ul>
+   *   <li>{@code "exact"}, the default, keeps every URL.</li>
+   *   <li>{@code "fingerprint"} keeps a fingerprint of each URL outside the Java heap, which
+   *       takes a fraction of the memory for crawls of millions of pages. Two URLs with the same
+   *       fingerprint count as one, so one of them is not crawled; see
+   *       {@link #getVisitedFingerprintBits()}.</li>
+   *   <li>{@code "bloom"} keeps a Bloom filter that never grows past
+   *       {@link #getVisitedMemoryMb()}, for very large exploratory crawls. It occasionally
+   *       mistakes a new URL for a visited one and skips it; see
+   *       {@link #getVisitedFalsePositiveRate()}.</li>
+   * </ul>
+   */
+  public String getVisitedSet() {
+    return visitedSet;
+  }
+
+  /**
+   * The size of each URL fingerprint when {@link #getVisitedSet()} is {@code "fingerprint"}: 64,
+   * the default, or 128 bits. With 64 bits, a crawl of 10 million URLs has about a 1 in 370,000
+   * chance of any two URLs colliding; 128 bits makes collisions negligible, at twice the memory.
+   */
+  public int getVisitedFingerprintBits() {
+    return visitedFingerprintBits;
+  }
+
+  /**
+   * The most memory, in megabytes, the visited set may take when {@link #getVisitedSet()} is
+   * {@code "bloom"}. Defaults to 256. Once the filter has grown to this size it stops growing, and
+   * its false-positive rate rises past {@link #getVisitedFalsePositiveRate()} instead.
+   */
+  public int getVisitedMemoryMb() {
+    return visitedMemoryMb;
+  }
+
+  /**
+   * The target chance that the {@code "bloom"} visited set (see {@link #getVisitedSet()}) mistakes
+   * a URL it has never seen for a visited one, which means the page is not crawled. Defaults to
+   * 0.001. The estimated rate the crawl actually reached is written to the profile.
+   */
+  public double getVisitedFalsePositiveRate() {
+    return visitedFalsePositiveRate;
+  }
+
+  /**
+   * Whether links are canonicalized with their query parameters sorted by name, so that
+   * {@code ?b=1&a=2} and {@code ?a=2&b=1} are crawled as one page. Defaults to false, since some
+   * sites give parameter order a meaning.
+   *
+   * <p>Links and start pages are always canonicalized in other ways before they are checked
+   * against the visited URLs: the scheme and host are lowercased, default ports and fragments are
+   * dropped, and {@code .} and {@code ..} path segments are resolved.
+   */
+  public boolean isSortQueryParameters() {
+    return sortQueryParameters;
+  }
+
+  /**
+   * A {@link List} of regular expression {@link Pattern}s that match the names of query
+   * parameters to remove from links before they are crawled, such as {@code utm_.*} tracking
+   * parameters. Empty by default.
+   */
+  public List<Pattern> getStrippedQueryParameters() {
+    return strippedQueryParameters;
+  }
+
+  /**
+   * Whether the crawler skips pages that are near-duplicates of a page already crawled, such as
+   * mirrored copies of a site or the same article under several URLs. A near-duplicate's words are
+   * not counted again and its links are not followed, which prunes whole mirrored subtrees. Pages
+   * are compared by a SimHash of their words; see {@link #getNearDuplicateMaxDistance()}.
+   *
+   * <p>Only the parallel and virtual-thread crawlers skip near-duplicates. Creating any other
+   * crawler with this set fails, as with {@link #isApproximateWordCounts()}.
+   *
+   * <p>This setting is optional and defaults to false.
+   */
+  public boolean isSkipNearDuplicates() {
+    return skipNearDuplicates;
+  }
+
+  /**
+   * How many of the 64 bits of two pages' SimHashes may differ for the pages to count as
+   * near-duplicates, when {@link #isSkipNearDuplicates()} is set. Must be between 0, which only
+   * matches pages with identical word frequencies, and 7. Defaults to 3.
+   */
+  public int getNearDuplicateMaxDistance() {
+    return nearDuplicateMaxDistance;
+  }
+
+  /**
+   * The most links waiting to be crawled that the breadth-first crawler keeps in memory. Links
+   * past this number are written to temporary files and read back in order when their turn comes,
+   * so very wide sites can be crawled without the heap growing with the site.
+   *
+   * <p>This setting is optional and defaults to 100000.
+   */
+  public int getFrontierMemoryUrls() {
+    return frontierMemoryUrls;
+  }
+
+  /**
+   * Whether the crawler counts words approximately, in a fixed amount of memory, instead of keeping
+   * an exact count of every distinct word. The popular words are then found with a
+   * Count-Min sketch and a Space-Saving summary sized by {@link #getWordCountMemoryMb()} and
+   * {@link #getWordCountErrorRate()}, and the result is marked as approximate, with a bound on how
+   * far its counts may be off. Useful for open-ended crawls, where the exact counts grow with every
+   * new word.
+   *
+   * <p>Only the parallel and virtual-thread crawlers count words approximately. Creating any
+   * other crawler with this set fails, including the sequential crawler that a parallelism of 1,
+   * or the default parallelism on a single core, picks, and the distributed crawler.
+   *
+   * <p>This setting is optional and defaults to false.
+   */
+  public boolean isApproximateWordCounts() {
+    return approximateWordCounts;
+  }
+
+  /**
+   * The memory, in megabytes, approximate word counting may take in all when
+   * {@link #isApproximateWordCounts()} is set. Defaults to 16. It is split evenly among a sketch
+   * for each crawler thread, or for each CPU core for the virtual-thread crawler. If the Count-Min
+   * sketch that {@link #getWordCountErrorRate()} asks for does not fit in half of a sketch's share,
+   * a smaller one is used, and the error bound reported with the result is wider.
+   */
+  public int getWordCountMemoryMb() {
+    return wordCountMemoryMb;
+  }
+
+  /**
+   * The target error of approximate word counting (see {@link #isApproximateWordCounts()}), as a
+   * fraction of all the words counted. Defaults to 0.0001, so a popular word's count from a crawl
+   * of 10 million words should be at most 1,000 too high. Counts are never too low.
+   */
+  public double getWordCountErrorRate() {
+    return wordCountErrorRate;
+  }
+
+  /**
+   * How long, in seconds, each node of a distributed crawl waits for the other nodes to start
+   * listening before it gives up. Defaults to 30.
+   */
+  public int getClusterConnectTimeoutSeconds() {
+    return clusterConnectTimeoutSeconds;
+  }
+
+  /**
+   * How long, in seconds, the coordinator of a distributed crawl keeps waiting past the deadline
+   * for pages and links that are still in flight before it collects the results anyway. Defaults
+   * to 10.
+   */
+  public int getClusterGracePeriodSeconds() {
+    return clusterGracePeriodSeconds;
+  }
+
   /**
    * A builder class to create {@link CrawlerConfiguration} instances.
    */
@@ -186,6 +506,28 @@ public final class CrawlerConfiguration {
     private int popularWordCount = 0;
     private String profileOutputPath = "";
     private String resultPath = "";
+    private int maxInFlightFetches = 0;
+    private String checkpointPath = "";
+    private String resumeFrom = "";
+    private String recrawlStorePath = "";
+    private String responseCachePath = "";
+    private int responseCacheMaxMegabytes = 1024;
+    private int parseCacheMaxMegabytes = 0;
+    private int parseCacheTtlSeconds = 3600;
+    private String visitedSet = "exact";
+    private int visitedFingerprintBits = 64;
+    private int visitedMemoryMb = 256;
+    private double visitedFalsePositiveRate = 0.001;
+    private boolean sortQueryParameters = false;
+    private boolean skipNearDuplicates = false;
+    private int nearDuplicateMaxDistance = 3;
+    private int frontierMemoryUrls = 100_000;
+    private boolean approximateWordCounts = false;
+    private int wordCountMemoryMb = 16;
+    private double wordCountErrorRate = 0.0001;
+    private int clusterConnectTimeoutSeconds = 30;
+    private int clusterGracePeriodSeconds = 10;
+    private final Set<String> strippedQueryParameters = new LinkedHashSet<>();
 
     /**
      * Adds a start page URL.
@@ -312,6 +654,254 @@ public final class CrawlerConfiguration {
       return this;
     }
 
+    /**
+     * Sets the maximum number of page downloads that may be in flight at once.
+     *
+     * <p>See {@link #getMaxInFlightFetches()}.
+     */
+    @JsonProperty("maxInFlightFetches")
+    public Builder setMaxInFlightFetches(int maxInFlightFetches) {
+      this.maxInFlightFetches = maxInFlightFetches;
+      return this;
+    }
+
+    /**
+     * Sets the path to the file where the crawl should keep a checkpoint of its progress.
+     *
+     * <p>See {@link #getCheckpointPath()}.
+     */
+    @JsonProperty("checkpointPath")
+    public Builder setCheckpointPath(String checkpointPath) {
+      this.checkpointPath = Objects.requireNonNull(checkpointPath);
+      return this;
+    }
+
+    /**
+     * Sets the path to the checkpoint file from which the crawl should continue.
+     *
+     * <p>See {@link #getResumeFrom()}.
+     */
+    @JsonProperty("resumeFrom")
+    public Builder setResumeFrom(String resumeFrom) {
+      this.resumeFrom = Objects.requireNonNull(resumeFrom);
+      return this;
+    }
+
+    /**
+     * Sets the path to the file where validators and parse results are kept for recrawls.
+     *
+     * <p>See {@link #getRecrawlStorePath()}.
+     */
+    @JsonProperty("recrawlStorePath")
+    public Builder setRecrawlStorePath(String recrawlStorePath) {
+      this.recrawlStorePath = Objects.requireNonNull(recrawlStorePath);
+      return this;
+    }
+
+    /**
+     * Sets the path to the directory where downloaded pages are cached.
+     *
+     * <p>See {@link #getResponseCachePath()}.
+     */
+    @JsonProperty("responseCachePath")
+    public Builder setResponseCachePath(String responseCachePath) {
+      this.responseCachePath = Objects.requireNonNull(responseCachePath);
+      return this;
+    }
+
+    /**
+     * Sets the size cap of the response cache, in megabytes.
+     *
+     * <p>See {@link #getResponseCacheMaxMegabytes()}.
+     */
+    @JsonProperty("responseCacheMaxMegabytes")
+    public Builder setResponseCacheMaxMegabytes(int responseCacheMaxMegabytes) {
+      this.responseCacheMaxMegabytes = responseCacheMaxMegabytes;
+      return this;
+    }
+
+    /**
+     * Sets the size of the in-memory parse cache, in megabytes.
+     *
+     * <p>See {@link #getParseCacheMaxMegabytes()}.
+     */
+    @JsonProperty("parseCacheMaxMegabytes")
+    public Builder setParseCacheMaxMegabytes(int parseCacheMaxMegabytes) {
+      this.parseCacheMaxMegabytes = parseCacheMaxMegabytes;
+      return this;
+    }
+
+    /**
+     * Sets how long a page stays in the parse cache, in seconds.
+     *
+     * <p>See {@link #getParseCacheTtlSeconds()}.
+     */
+    @JsonProperty("parseCacheTtlSeconds")
+    public Builder setParseCacheTtlSeconds(int parseCacheTtlSeconds) {
+      this.parseCacheTtlSeconds = parseCacheTtlSeconds;
+      return this;
+    }
+
+    /**
+     * Sets how visited URLs are remembered: "exact", "fingerprint" or "bloom".
+     *
+     * <p>See {@link #getVisitedSet()}.
+     */
+    @JsonProperty("visitedSet")
+    public Builder setVisitedSet(String visitedSet) {
+      this.visitedSet = Objects.requireNonNull(visitedSet);
+      return this;
+    }
+
+    /**
+     * Sets the size of each URL fingerprint, in bits.
+     *
+     * <p>See {@link #getVisitedFingerprintBits()}.
+     */
+    @JsonProperty("visitedFingerprintBits")
+    public Builder setVisitedFingerprintBits(int visitedFingerprintBits) {
+      this.visitedFingerprintBits = visitedFingerprintBits;
+      return this;
+    }
+
+    /**
+     * Sets the memory budget of the Bloom filter visited set, in megabytes.
+     *
+     * <p>See {@link #getVisitedMemoryMb()}.
+     */
+    @JsonProperty("visitedMemoryMb")
+    public Builder setVisitedMemoryMb(int visitedMemoryMb) {
+      this.visitedMemoryMb = visitedMemoryMb;
+      return this;
+    }
+
+    /**
+     * Sets the target false-positive rate of the Bloom filter visited set.
+     *
+     * <p>See {@link #getVisitedFalsePositiveRate()}.
+     */
+    @JsonProperty("visitedFalsePositiveRate")
+    public Builder setVisitedFalsePositiveRate(double visitedFalsePositiveRate) {
+      this.visitedFalsePositiveRate = visitedFalsePositiveRate;
+      return this;
+    }
+
+    /**
+     * Sets whether links are canonicalized with their query parameters sorted.
+     *
+     * <p>See {@link #isSortQueryParameters()}.
+     */
+    @JsonProperty("sortQueryParameters")
+    public Builder setSortQueryParameters(boolean sortQueryParameters) {
+      this.sortQueryParameters = sortQueryParameters;
+      return this;
+    }
+
+    /**
+     * Adds regular expression patterns that match the names of query parameters to remove from
+     * links.
+     *
+     * <p>Does nothing if the same pattern has already been added. See
+     * {@link #getStrippedQueryParameters()}.
+     *
+     * @param patterns one or more regular expressions that define a valid {@link Pattern}.
+     */
+    @JsonProperty("strippedQueryParameters")
+    public Builder addStrippedQueryParameters(String... patterns) {
+      for (String pattern : patterns) {
+        strippedQueryParameters.add(Objects.requireNonNull(pattern));
+      }
+      return this;
+    }
+
+    /**
+     * Sets whether pages that are near-duplicates of an already crawled page are skipped.
+     *
+     * <p>See {@link #isSkipNearDuplicates()}.
+     */
+    @JsonProperty("skipNearDuplicates")
+    public Builder setSkipNearDuplicates(boolean skipNearDuplicates) {
+      this.skipNearDuplicates = skipNearDuplicates;
+      return this;
+    }
+
+    /**
+     * Sets how many SimHash bits may differ between near-duplicate pages.
+     *
+     * <p>See {@link #getNearDuplicateMaxDistance()}.
+     */
+    @JsonProperty("nearDuplicateMaxDistance")
+    public Builder setNearDuplicateMaxDistance(int nearDuplicateMaxDistance) {
+      this.nearDuplicateMaxDistance = nearDuplicateMaxDistance;
+      return this;
+    }
+
+    /**
+     * Sets how many links waiting to be crawled are kept in memory.
+     *
+     * <p>See {@link #getFrontierMemoryUrls()}.
+     */
+    @JsonProperty("frontierMemoryUrls")
+    public Builder setFrontierMemoryUrls(int frontierMemoryUrls) {
+      this.frontierMemoryUrls = frontierMemoryUrls;
+      return this;
+    }
+
+    /**
+     * Sets whether words are counted approximately, in fixed memory.
+     *
+     * <p>See {@link #isApproximateWordCounts()}.
+     */
+    @JsonProperty("approximateWordCounts")
+    public Builder setApproximateWordCounts(boolean approximateWordCounts) {
+      this.approximateWordCounts = approximateWordCounts;
+      return this;
+    }
+
+    /**
+     * Sets the memory approximate word counting may take in all.
+     *
+     * <p>See {@link #getWordCountMemoryMb()}.
+     */
+    @JsonProperty("wordCountMemoryMb")
+    public Builder setWordCountMemoryMb(int wordCountMemoryMb) {
+      this.wordCountMemoryMb = wordCountMemoryMb;
+      return this;
+    }
+
+    /**
+     * Sets the target error of approximate word counting.
+     *
+     * <p>See {@link #getWordCountErrorRate()}.
+     */
+    @JsonProperty("wordCountErrorRate")
+    public Builder setWordCountErrorRate(double wordCountErrorRate) {
+      this.wordCountErrorRate = wordCountErrorRate;
+      return this;
+    }
+
+    /**
+     * Sets how long, in seconds, a node waits for the rest of the cluster to start.
+     *
+     * <p>See {@link #getClusterConnectTimeoutSeconds()}.
+     */
+    @JsonProperty("clusterConnectTimeoutSeconds")
+    public Builder setClusterConnectTimeoutSeconds(int clusterConnectTimeoutSeconds) {
+      this.clusterConnectTimeoutSeconds = clusterConnectTimeoutSeconds;
+      return this;
+    }
+
+    /**
+     * Sets how long, in seconds, the coordinator waits for in-flight work past the deadline.
+     *
+     * <p>See {@link #getClusterGracePeriodSeconds()}.
+     */
+    @JsonProperty("clusterGracePeriodSeconds")
+    public Builder setClusterGracePeriodSeconds(int clusterGracePeriodSeconds) {
+      this.clusterGracePeriodSeconds = clusterGracePeriodSeconds;
+      return this;
+    }
+
     /**
      * Constructs a {@link CrawlerConfiguration} from this builder.
      */
@@ -325,6 +915,49 @@ public final class CrawlerConfiguration {
       if (popularWordCount < 0) {
         throw new IllegalArgumentException("popularWordCount cannot be negative");
       }
+      if (maxInFlightFetches < 0) {
+        throw new IllegalArgumentException("maxInFlightFetches cannot be negative");
+      }
+      if (responseCacheMaxMegabytes <= 0) {
+        throw new IllegalArgumentException("responseCacheMaxMegabytes must be positive");
+      }
+      if (parseCacheMaxMegabytes < 0) {
+        throw new IllegalArgumentException("parseCacheMaxMegabytes cannot be negative");
+      }
+      if (parseCacheTtlSeconds <= 0) {
+        throw new IllegalArgumentException("parseCacheTtlSeconds must be positive");
+      }
+      if (!List.of("exact", "fingerprint", "bloom").contains(visitedSet)) {
+        throw new IllegalArgumentException(
+            "visitedSet must be \"exact\", \"fingerprint\" or \"bloom\"");
+      }
+      if (visitedFingerprintBits != 64 && visitedFingerprintBits != 128) {
+        throw new IllegalArgumentException("visitedFingerprintBits must be 64 or 128");
+      }
+      if (visitedMemoryMb <= 0) {
+        throw new IllegalArgumentException("visitedMemoryMb must be positive");
+      }
+      if (!(visitedFalsePositiveRate > 0 && visitedFalsePositiveRate < 1)) {
+        throw new IllegalArgumentException("visitedFalsePositiveRate must be between 0 and 1");
+      }
+      if (nearDuplicateMaxDistance < 0 || nearDuplicateMaxDistance > 7) {
+        throw new IllegalArgumentException("nearDuplicateMaxDistance must be between 0 and 7");
+      }
+      if (frontierMemoryUrls <= 0) {
+        throw new IllegalArgumentException("frontierMemoryUrls must be positive");
+      }
+      if (wordCountMemoryMb <= 0) {
+        throw new IllegalArgumentException("wordCountMemoryMb must be positive");
+      }
+      if (!(wordCountErrorRate > 0 && wordCountErrorRate < 1)) {
+        throw new IllegalArgumentException("wordCountErrorRate must be between 0 and 1");
+      }
+      if (clusterConnectTimeoutSeconds <= 0) {
+        throw new IllegalArgumentException("clusterConnectTimeoutSeconds must be positive");
+      }
+      if (clusterGracePeriodSeconds < 0) {
+        throw new IllegalArgumentException("clusterGracePeriodSeconds must not be negative");
+      }
 
       return new CrawlerConfiguration(
           startPages.stream().collect(Collectors.toUnmodifiableList()),
@@ -336,7 +969,31 @@ public final class CrawlerConfiguration {
           Duration.ofSeconds(timeoutSeconds),
           popularWordCount,
           profileOutputPath,
-          resultPath);
+          resultPath,
+          maxInFlightFetches,
+          checkpointPath,
+          resumeFrom,
+          recrawlStorePath,
+          responseCachePath,
+          responseCacheMaxMegabytes,
+          parseCacheMaxMegabytes,
+          parseCacheTtlSeconds,
+          visitedSet,
+          visitedFingerprintBits,
+          visitedMemoryMb,
+          visitedFalsePositiveRate,
+          sortQueryParameters,
+          strippedQueryParameters.stream()
+              .map(Pattern::compile)
+              .collect(Collectors.toUnmodifiableList()),
+          skipNearDuplicates,
+          nearDuplicateMaxDistance,
+          frontierMemoryUrls,
+          approximateWordCounts,
+          wordCountMemoryMb,
+          wordCountErrorRate,
+          clusterConnectTimeoutSeconds,
+          clusterGracePeriodSeconds);
     }
   }
 }
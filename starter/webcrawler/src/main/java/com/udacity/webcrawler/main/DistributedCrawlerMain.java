@@ -0,0 +1,90 @@
+package com.udacity.webcrawler.main;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.udacity.webcrawler.DistributedWebCrawler;
+import com.udacity.webcrawler.WebCrawler;
+import com.udacity.webcrawler.WebCrawlerModule;
+import com.udacity.webcrawler.distributed.Cluster;
+import com.udacity.webcrawler.json.ConfigurationLoader;
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.json.CrawlResultWriter;
+import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.profiler.ProfilerModule;
+
+import javax.inject.Inject;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Runs one node of a distributed crawl. Start one process per node, each with the same
+ * configuration and node list. Only the coordinator, node 0, writes the crawl result and profile.
+ */
+public final class DistributedCrawlerMain {
+
+  private final CrawlerConfiguration config;
+  private final Cluster cluster;
+
+  private DistributedCrawlerMain(CrawlerConfiguration config, Cluster cluster) {
+    this.config = Objects.requireNonNull(config);
+    this.cluster = Objects.requireNonNull(cluster);
+  }
+
+  @Inject
+  private DistributedWebCrawler distributedCrawler;
+
+  @Inject
+  private Profiler profiler;
+
+  private void run() throws Exception {
+    WebCrawlerModule.checkSupported(config, DistributedWebCrawler.class);
+    Guice.createInjector(
+        new WebCrawlerModule(config),
+        new ProfilerModule(),
+        new AbstractModule() {
+          @Override
+          protected void configure() {
+            bind(Cluster.class).toInstance(cluster);
+          }
+        }).injectMembers(this);
+
+    WebCrawler crawler = profiler.wrap(WebCrawler.class, distributedCrawler);
+    CrawlResult result = crawler.crawl(config.getStartPages());
+    if (!cluster.isCoordinator()) {
+      return;
+    }
+
+    CrawlResultWriter resultWriter = new CrawlResultWriter(result);
+    if (config.getResultPath().isEmpty()) {
+      Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+      resultWriter.write(out);
+    } else {
+      Path path = Path.of(config.getResultPath());
+      resultWriter.write(path);
+      System.out.println(path);
+    }
+    if (config.getProfileOutputPath().isEmpty()) {
+      Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+      profiler.writeData(out);
+    } else {
+      Path path = Path.of(config.getProfileOutputPath());
+      profiler.writeData(path);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 3) {
+      System.out.println(
+          "Usage: DistributedCrawlerMain [config-file] [node-index] [host:port,host:port,...]");
+      return;
+    }
+
+    CrawlerConfiguration config = new ConfigurationLoader(Path.of(args[0])).load();
+    Cluster cluster = Cluster.parse(args[2], Integer.parseInt(args[1]));
+    new DistributedCrawlerMain(config, cluster).run();
+  }
+}
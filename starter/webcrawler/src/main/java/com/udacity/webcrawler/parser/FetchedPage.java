@@ -0,0 +1,137 @@
+package com.udacity.webcrawler.parser;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A data class that holds a downloaded page before it is parsed.
+ */
+public final class FetchedPage {
+  private final URI uri;
+  private final String charset;
+  private final ByteBuffer body;
+  private final Validators validators;
+  private final boolean notModified;
+
+  /**
+   * Creates a {@link FetchedPage}.
+   *
+   * @param uri     the URI the page was finally served from, after any redirects.
+   * @param charset the charset named in the response headers, or {@code null} if there was none.
+   * @param body    the decoded (not compressed) page body.
+   */
+  public FetchedPage(URI uri, String charset, ByteBuffer body) {
+    this(uri, charset, body, Validators.NONE);
+  }
+
+  /**
+   * Creates a {@link FetchedPage} whose response carried cache validators.
+   *
+   * @param uri        the URI the page was finally served from, after any redirects.
+   * @param charset    the charset named in the response headers, or {@code null} if there was none.
+   * @param body       the decoded (not compressed) page body.
+   * @param validators the {@code ETag} and {@code Last-Modified} headers of the response.
+   */
+  public FetchedPage(URI uri, String charset, ByteBuffer body, Validators validators) {
+    this(uri, charset, body, validators, false);
+  }
+
+  private FetchedPage(
+      URI uri, String charset, ByteBuffer body, Validators validators, boolean notModified) {
+    this.uri = Objects.requireNonNull(uri);
+    this.charset = charset;
+    this.body = Objects.requireNonNull(body).asReadOnlyBuffer();
+    this.validators = Objects.requireNonNull(validators);
+    this.notModified = notModified;
+  }
+
+  /**
+   * Returns a {@link FetchedPage} for a 304 Not Modified response to a conditional request. It
+   * has no body; the page should be taken from wherever the validators came from.
+   *
+   * @param uri        the URI of the page.
+   * @param validators the validators that were sent with the request.
+   */
+  public static FetchedPage notModified(URI uri, Validators validators) {
+    return new FetchedPage(uri, null, ByteBuffer.allocate(0), validators, true);
+  }
+
+  /**
+   * Returns the URI the page was finally served from. Relative links resolve against it.
+   */
+  public URI getUri() {
+    return uri;
+  }
+
+  /**
+   * Returns the charset from the response headers, if the server sent one.
+   */
+  public Optional<String> getCharset() {
+    return Optional.ofNullable(charset);
+  }
+
+  /**
+   * Returns a read-only view of the page body.
+   */
+  public ByteBuffer getBody() {
+    return body.duplicate();
+  }
+
+  /**
+   * Returns the cache validators of the response, or {@link Validators#NONE} if it had none.
+   */
+  public Validators getValidators() {
+    return validators;
+  }
+
+  /**
+   * Returns true if the server answered a conditional request with 304 Not Modified.
+   */
+  public boolean isNotModified() {
+    return notModified;
+  }
+
+  /**
+   * Returns a new {@link InputStream} that reads the page body without copying it.
+   */
+  public InputStream openStream() {
+    return new ByteBufferInputStream(getBody());
+  }
+
+  /**
+   * An {@link InputStream} that reads directly from a {@link ByteBuffer}.
+   */
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
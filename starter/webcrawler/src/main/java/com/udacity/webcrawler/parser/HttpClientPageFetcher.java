@@ -0,0 +1,254 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.Timeout;
+
+import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A {@link PageFetcher} built on {@link HttpClient}.
+ *
+ * <p>A single client is shared by every page, so it negotiates HTTP/2 where the server supports
+ * it and keeps idle connections open for reuse. Many pages on the same host then pay for
+ * connection setup and the TLS handshake once instead of once per page. Responses are requested
+ * gzip-compressed and decoded before they are returned.
+ *
+ * <p>Cancelling a returned future aborts the download. Cancelling the future from
+ * {@link HttpClient#sendAsync} is not enough for that on Java 11, where the exchange carries on
+ * and holds its connection until the response is complete. Instead, the body subscriber cancels
+ * its subscription, which closes the HTTP/1.1 connection or resets the HTTP/2 stream. If the
+ * response headers have not arrived yet, this happens as soon as they do, so until then the
+ * request timeout is what bounds the exchange.
+ *
+ * <p>Like Jsoup, it reads at most {@link #MAX_BODY_SIZE} bytes of a body and parses the page as if
+ * it ended there. Once that much has arrived, the subscription is cancelled the same way, so an
+ * endless or huge response neither fills the heap nor holds its connection.
+ */
+final class HttpClientPageFetcher implements PageFetcher {
+
+  /**
+   * The most bytes of a page body that are read, after decoding. The same as Jsoup's default.
+   */
+  static final int MAX_BODY_SIZE = 2 << 20;
+
+  private static final String USER_AGENT = "udacity-webcrawler";
+
+  private final HttpClient client;
+  private final int maxBodySize;
+
+  @Inject
+  HttpClientPageFetcher(@Timeout Duration timeout) {
+    this(timeout, MAX_BODY_SIZE);
+  }
+
+  HttpClientPageFetcher(Duration timeout, int maxBodySize) {
+    if (maxBodySize <= 0) {
+      throw new IllegalArgumentException("maxBodySize must be positive");
+    }
+    this.maxBodySize = maxBodySize;
+    this.client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .connectTimeout(timeout)
+        .build();
+  }
+
+  @Override
+  public CompletableFuture<FetchedPage> fetch(URI uri, Duration timeout) {
+    return fetch(uri, timeout, Validators.NONE);
+  }
+
+  @Override
+  public CompletableFuture<FetchedPage> fetch(URI uri, Duration timeout, Validators validators) {
+    HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+        .timeout(timeout)
+        .header("Accept-Encoding", "gzip")
+        .header("User-Agent", USER_AGENT)
+        .GET();
+    validators.getETag().ifPresent(etag -> builder.header("If-None-Match", etag));
+    validators.getLastModified().ifPresent(date -> builder.header("If-Modified-Since", date));
+    AbortableBodyHandler body = new AbortableBodyHandler(maxBodySize);
+    CompletableFuture<HttpResponse<byte[]>> response = client.sendAsync(builder.build(), body);
+    CompletableFuture<FetchedPage> page = response.thenApply(r -> (r.statusCode() == 304)
+        ? FetchedPage.notModified(r.uri(), validators)
+        : toFetchedPage(r, maxBodySize));
+    // Cancelling a dependent future does not reach the exchange, so pass the cancellation on.
+    page.whenComplete((p, e) -> {
+      if (page.isCancelled()) {
+        body.abort();
+        response.cancel(true);
+      }
+    });
+    return page;
+  }
+
+  /**
+   * Reads response bodies into byte arrays, like {@link HttpResponse.BodyHandlers#ofByteArray()},
+   * but can abort the exchange by cancelling the body's subscription. A body is cut off after
+   * {@code maxBodySize} bytes: the subscription is cancelled and the body is what arrived so far.
+   */
+  static final class AbortableBodyHandler implements HttpResponse.BodyHandler<byte[]> {
+    private final int maxBodySize;
+    private volatile boolean aborted;
+    private volatile Flow.Subscription subscription;
+
+    AbortableBodyHandler(int maxBodySize) {
+      this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<byte[]> apply(HttpResponse.ResponseInfo responseInfo) {
+      CompletableFuture<byte[]> body = new CompletableFuture<>();
+      ByteArrayOutputStream received = new ByteArrayOutputStream();
+      return new HttpResponse.BodySubscriber<>() {
+        @Override
+        public CompletionStage<byte[]> getBody() {
+          return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+          // Set before checking, while abort() sets and checks in the opposite order, so that
+          // one of them always sees the other. Cancelling twice does no harm.
+          subscription = s;
+          s.request(Long.MAX_VALUE);
+          if (aborted) {
+            s.cancel();
+          }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+          if (body.isDone()) {
+            return;
+          }
+          for (ByteBuffer buffer : item) {
+            byte[] bytes = new byte[Math.min(buffer.remaining(), maxBodySize - received.size())];
+            buffer.get(bytes);
+            received.write(bytes, 0, bytes.length);
+            if (received.size() == maxBodySize) {
+              subscription.cancel();
+              body.complete(received.toByteArray());
+              return;
+            }
+          }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+          body.complete(received.toByteArray());
+        }
+      };
+    }
+
+    /**
+     * Aborts the exchange, now if the body is being received, or else as soon as it starts.
+     */
+    void abort() {
+      aborted = true;
+      Flow.Subscription s = subscription;
+      if (s != null) {
+        s.cancel();
+      }
+    }
+  }
+
+  /**
+   * Checks the status and content type of the response, like {@code Jsoup.parse(URL)} does, and
+   * decodes the body.
+   */
+  private static FetchedPage toFetchedPage(HttpResponse<byte[]> response, int maxBodySize) {
+    if (response.statusCode() >= 400) {
+      throw new CompletionException(
+          new IOException("HTTP error " + response.statusCode() + " fetching " + response.uri()));
+    }
+    String contentType = response.headers().firstValue("Content-Type").orElse("");
+    if (!isHtml(contentType)) {
+      throw new CompletionException(
+          new IOException("Unhandled content type " + contentType + " at " + response.uri()));
+    }
+    byte[] body = response.body();
+    boolean gzipped = response.headers()
+        .firstValue("Content-Encoding")
+        .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+        .orElse(false);
+    if (gzipped) {
+      body = gunzip(body, maxBodySize);
+    }
+    Validators validators = new Validators(
+        response.headers().firstValue("ETag").orElse(null),
+        response.headers().firstValue("Last-Modified").orElse(null));
+    return new FetchedPage(
+        response.uri(), charsetOf(contentType), ByteBuffer.wrap(body), validators);
+  }
+
+  private static boolean isHtml(String contentType) {
+    String type = contentType.toLowerCase(Locale.ROOT);
+    return type.isEmpty()
+        || type.startsWith("text/")
+        || type.startsWith("application/xml")
+        || type.startsWith("application/xhtml+xml");
+  }
+
+  /**
+   * Returns the {@code charset} parameter of a Content-Type header, or {@code null} if there is
+   * none. Jsoup detects the charset from the document itself in that case.
+   */
+  private static String charsetOf(String contentType) {
+    for (String parameter : contentType.split(";")) {
+      String trimmed = parameter.strip();
+      if (trimmed.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+        return trimmed.substring("charset=".length()).replace("\"", "");
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Decodes at most {@code maxBodySize} bytes. If the compressed body was cut off at
+   * {@code maxBodySize}, whatever could be decoded before the end is returned.
+   */
+  private static byte[] gunzip(byte[] compressed, int maxBodySize) {
+    ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      byte[] buffer = new byte[8192];
+      while (decoded.size() < maxBodySize) {
+        int read = in.read(buffer, 0, Math.min(buffer.length, maxBodySize - decoded.size()));
+        if (read == -1) {
+          break;
+        }
+        decoded.write(buffer, 0, read);
+      }
+    } catch (EOFException e) {
+      // Only a body that was cut off may end early.
+      if (compressed.length < maxBodySize) {
+        throw new CompletionException(e);
+      }
+    } catch (IOException e) {
+      throw new CompletionException(e);
+    }
+    return decoded.toByteArray();
+  }
+}
@@ -0,0 +1,197 @@
+package com.udacity.webcrawler.parser;
+
+import java.util.Arrays;
+
+/**
+ * A map from word IDs in a {@link WordDictionary} to counts, which holds only the IDs that were
+ * counted, however many words the dictionary has.
+ *
+ * <p>IDs and counts are kept in two parallel {@code int} arrays, and an ID's slot is found by open
+ * addressing with linear probing, as in {@link WordCountMap}. Counting an ID that is already in
+ * the map allocates nothing and boxes nothing.
+ *
+ * <p>IDs cannot be removed. A map is not thread-safe.
+ */
+public final class IdCountMap {
+
+  /**
+   * Takes an ID and its count.
+   */
+  @FunctionalInterface
+  public interface IdCountConsumer {
+    void accept(int id, int count);
+  }
+
+  private static final int MIN_CAPACITY = 16;
+  // Marks an empty slot. IDs are never negative.
+  private static final int EMPTY = -1;
+
+  private int[] ids;
+  private int[] counts;
+  private int size;
+
+  /**
+   * Creates an empty map.
+   */
+  public IdCountMap() {
+    this(MIN_CAPACITY / 2);
+  }
+
+  /**
+   * Creates an empty map with room for the given number of IDs before it has to grow.
+   */
+  public IdCountMap(int expectedIds) {
+    if (expectedIds < 0) {
+      throw new IllegalArgumentException("expectedIds must not be negative");
+    }
+    allocate(capacityFor(expectedIds));
+  }
+
+  /**
+   * Adds the given amount to the count of the given ID.
+   */
+  public void add(int id, int count) {
+    if (id < 0) {
+      throw new IllegalArgumentException("IDs must not be negative");
+    }
+    int mask = ids.length - 1;
+    for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+      int existing = ids[i];
+      if (existing == EMPTY) {
+        ids[i] = id;
+        counts[i] = count;
+        size++;
+        if (size > maxSize(ids.length)) {
+          rehash(ids.length * 2);
+        }
+        return;
+      }
+      if (existing == id) {
+        counts[i] += count;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Adds every count in the given map to this one.
+   */
+  public void mergeFrom(IdCountMap other) {
+    if (other == this) {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] *= 2;
+      }
+      return;
+    }
+    int capacity = capacityFor(size + other.size);
+    if (capacity > ids.length) {
+      rehash(capacity);
+    }
+    int[] otherIds = other.ids;
+    for (int j = 0; j < otherIds.length; j++) {
+      if (otherIds[j] != EMPTY) {
+        add(otherIds[j], other.counts[j]);
+      }
+    }
+  }
+
+  /**
+   * Returns the count of the given ID, or 0 if it has not been counted.
+   */
+  public int get(int id) {
+    if (id < 0) {
+      return 0;
+    }
+    int mask = ids.length - 1;
+    for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+      int existing = ids[i];
+      if (existing == EMPTY) {
+        return 0;
+      }
+      if (existing == id) {
+        return counts[i];
+      }
+    }
+  }
+
+  /**
+   * Returns the number of distinct IDs in the map.
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Calls the given action with every ID and its count, in no particular order.
+   */
+  public void forEach(IdCountConsumer action) {
+    for (int i = 0; i < ids.length; i++) {
+      if (ids[i] != EMPTY) {
+        action.accept(ids[i], counts[i]);
+      }
+    }
+  }
+
+  /**
+   * Returns a copy of this map.
+   */
+  public IdCountMap copy() {
+    IdCountMap copy = new IdCountMap(0);
+    copy.ids = ids.clone();
+    copy.counts = counts.clone();
+    copy.size = size;
+    return copy;
+  }
+
+  private void rehash(int capacity) {
+    int[] oldIds = ids;
+    int[] oldCounts = counts;
+    allocate(capacity);
+    int mask = capacity - 1;
+    for (int j = 0; j < oldIds.length; j++) {
+      if (oldIds[j] != EMPTY) {
+        int i = hash(oldIds[j]) & mask;
+        while (ids[i] != EMPTY) {
+          i = (i + 1) & mask;
+        }
+        ids[i] = oldIds[j];
+        counts[i] = oldCounts[j];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    ids = new int[capacity];
+    Arrays.fill(ids, EMPTY);
+    counts = new int[capacity];
+  }
+
+  /**
+   * Returns the smallest power of two that holds the given number of IDs without going over the
+   * load factor of 3/4.
+   */
+  private static int capacityFor(int expectedIds) {
+    int capacity = MIN_CAPACITY;
+    while (maxSize(capacity) < expectedIds) {
+      capacity *= 2;
+    }
+    return capacity;
+  }
+
+  private static int maxSize(int capacity) {
+    return capacity - (capacity >>> 2);
+  }
+
+  /**
+   * Spreads the bits of the ID. IDs are dense, so without this, the IDs of words first seen
+   * together would fill runs of neighbouring slots and make probes long.
+   */
+  private static int hash(int id) {
+    int h = id * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,39 @@
+package com.udacity.webcrawler.parser;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Downloads remote web pages so they can be handed to a {@link PageParser}.
+ *
+ * <p>Implementations are expected to be shared by every parser in the process, so that they can
+ * pool and reuse connections across pages.
+ */
+public interface PageFetcher {
+
+  /**
+   * Starts downloading the page at the given {@link URI}.
+   *
+   * @param uri     the remote page to download.
+   * @param timeout how long to wait for the response before giving up.
+   * @return a future that completes with the downloaded page, or completes exceptionally with an
+   *         {@link java.io.IOException} if the download failed or the server returned an error.
+   *         Cancelling the future aborts the download.
+   */
+  CompletableFuture<FetchedPage> fetch(URI uri, Duration timeout);
+
+  /**
+   * Starts downloading the page at the given {@link URI} with a conditional request, which the
+   * server may answer with 304 Not Modified if the page still matches the given validators.
+   *
+   * <p>Fetchers that do not support conditional requests download the page in full.
+   *
+   * @param validators the validators of the copy of the page that is already stored.
+   * @return a future like {@link #fetch(URI, Duration)}, whose page is
+   *         {@link FetchedPage#isNotModified() not modified} if the server answered 304.
+   */
+  default CompletableFuture<FetchedPage> fetch(URI uri, Duration timeout, Validators validators) {
+    return fetch(uri, timeout);
+  }
+}
@@ -2,8 +2,6 @@ package com.udacity.webcrawler.parser;
 
 import com.udacity.webcrawler.profiler.Profiled;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -26,12 +24,38 @@ public interface PageParser {
    * A data class that represents the outcome of processing an HTML page.
    */
   final class Result {
-    private final Map<String, Integer> wordCounts;
+    private final WordCountMap wordCounts;
+    private final Map<String, Integer> wordCountsView;
     private final List<String> links;
+    private final Set<String> rewrittenLinks;
+    private final boolean cancelled;
+    private final boolean failed;
+    private final long simHash;
+    // The page's words by ID in the dictionary it was parsed with, or null if it had none.
+    private final WordDictionary dictionary;
+    private final int[] wordIds;
+    private final int[] wordIdCounts;
 
-    private Result(Map<String, Integer> wordCounts, List<String> links) {
+    private Result(
+        WordCountMap wordCounts,
+        List<String> links,
+        Set<String> rewrittenLinks,
+        boolean cancelled,
+        boolean failed,
+        long simHash,
+        WordDictionary dictionary,
+        int[] wordIds,
+        int[] wordIdCounts) {
       this.wordCounts = Objects.requireNonNull(wordCounts);
+      this.wordCountsView = wordCounts.asMap();
       this.links = Objects.requireNonNull(links);
+      this.rewrittenLinks = Objects.requireNonNull(rewrittenLinks);
+      this.cancelled = cancelled;
+      this.failed = failed;
+      this.simHash = simHash;
+      this.dictionary = dictionary;
+      this.wordIds = wordIds;
+      this.wordIdCounts = wordIdCounts;
     }
 
     /**
@@ -39,7 +63,32 @@ public interface PageParser {
      * when parsing the web page.
      */
     public Map<String, Integer> getWordCounts() {
-      return wordCounts;
+      return wordCountsView;
+    }
+
+    /**
+     * Adds the words and word frequencies encountered when parsing the web page to the given
+     * {@link WordCountMap}, without boxing any of the counts.
+     */
+    public void addWordCountsTo(WordCountMap counts) {
+      counts.mergeFrom(wordCounts);
+    }
+
+    /**
+     * Adds the words and word frequencies encountered when parsing the web page to
+     * {@code countsById}, which counts words by their ID in the given {@link WordDictionary}.
+     *
+     * <p>If the page was parsed with the same dictionary, this only adds up {@code int}s. If not,
+     * each of the page's words is looked up in the dictionary first.
+     */
+    public void addWordCountsTo(IdCountMap countsById, WordDictionary dictionary) {
+      if (dictionary == this.dictionary) {
+        for (int i = 0; i < wordIds.length; i++) {
+          countsById.add(wordIds[i], wordIdCounts[i]);
+        }
+        return;
+      }
+      wordCounts.forEach((word, count) -> countsById.add(dictionary.idOf(word), count));
     }
 
     /**
@@ -49,20 +98,63 @@ public interface PageParser {
       return links;
     }
 
+    /**
+     * Returns the links from {@link #getLinks()} that the page wrote in a non-canonical spelling,
+     * such as with a fragment or an uppercase host, in their canonical spelling.
+     */
+    public Set<String> getRewrittenLinks() {
+      return rewrittenLinks;
+    }
+
+    /**
+     * Returns true if the crawl deadline passed before the page could be downloaded, in which case
+     * the result is empty.
+     */
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    /**
+     * Returns true if the page could not be downloaded or parsed, for example because the download
+     * timed out or the server returned an error. The result is empty in that case.
+     */
+    public boolean isFailed() {
+      return failed;
+    }
+
+    /**
+     * Returns a 64-bit SimHash of the page's words, weighted by how often each occurs. Pages with
+     * mostly the same words have fingerprints that differ in only a few bits. The fingerprint is 0
+     * if the page has no words.
+     */
+    public long getSimHash() {
+      return simHash;
+    }
+
     /**
      * A builder class for the parse {@link Result}. This builder keeps track of word counts and
      * hyperlinks encountered while parsing a web page.
      */
     static final class Builder {
-      private final Map<String, Integer> wordCounts = new HashMap<>();
+      private final WordCountMap wordCounts = new WordCountMap();
       private final Set<String> links = new HashSet<>();
+      private final Set<String> rewrittenLinks = new HashSet<>();
+      private boolean cancelled;
+      private boolean failed;
+      private WordDictionary dictionary;
 
       /**
        * Increments the frequency counter for the given word.
        */
       void addWord(String word) {
-        Objects.requireNonNull(word);
-        wordCounts.compute(word, (k, v) -> (v == null) ? 1 : v + 1);
+        wordCounts.increment(word);
+      }
+
+      /**
+       * Adds the given amount to the frequency counter for the given word.
+       */
+      void addWord(String word, int count) {
+        wordCounts.add(word, count);
       }
 
       /**
@@ -72,13 +164,79 @@ public interface PageParser {
         links.add(Objects.requireNonNull(link));
       }
 
+      /**
+       * Adds the given link, which the page wrote in a non-canonical spelling. See
+       * {@link Result#getRewrittenLinks()}.
+       */
+      void addRewrittenLink(String link) {
+        addLink(link);
+        rewrittenLinks.add(link);
+      }
+
+      /**
+       * Marks the result as cancelled. See {@link Result#isCancelled()}.
+       */
+      Builder setCancelled() {
+        cancelled = true;
+        return this;
+      }
+
+      /**
+       * Marks the result as failed. See {@link Result#isFailed()}.
+       */
+      Builder setFailed() {
+        failed = true;
+        return this;
+      }
+
+      /**
+       * Sets the {@link WordDictionary} the result's words are looked up in. The result then holds
+       * the dictionary's copy of each word, and the word's ID. By default, words are not looked up.
+       */
+      Builder setDictionary(WordDictionary dictionary) {
+        this.dictionary = Objects.requireNonNull(dictionary);
+        return this;
+      }
+
       /**
        * Constructs a {@link Result} from this builder.
        */
       Result build() {
+        List<String> linkList = links.stream().collect(Collectors.toUnmodifiableList());
+        Set<String> rewritten = Set.copyOf(rewrittenLinks);
+        if (dictionary == null || wordCounts.isEmpty()) {
+          return new Result(
+              wordCounts,
+              linkList,
+              rewritten,
+              cancelled,
+              failed,
+              SimHash.of(wordCounts),
+              null,
+              null,
+              null);
+        }
+        // Swap each word for the dictionary's copy, so the page's own copy can be collected.
+        WordCountMap interned = new WordCountMap(wordCounts.size());
+        int[] ids = new int[wordCounts.size()];
+        int[] counts = new int[ids.length];
+        int[] next = new int[1];
+        wordCounts.forEach((word, count) -> {
+          int id = dictionary.idOf(word);
+          interned.add(dictionary.word(id), count);
+          ids[next[0]] = id;
+          counts[next[0]++] = count;
+        });
         return new Result(
-            Collections.unmodifiableMap(wordCounts),
-            links.stream().collect(Collectors.toUnmodifiableList()));
+            interned,
+            linkList,
+            rewritten,
+            cancelled,
+            failed,
+            SimHash.of(interned),
+            dictionary,
+            ids,
+            counts);
       }
     }
   }
@@ -1,5 +1,9 @@
 package com.udacity.webcrawler.parser;
 
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * A factory interface that supplies instances of {@link PageParser} that have common parameters
  * (such as the timeout and ignored words) preset from injected values.
@@ -10,4 +14,33 @@ public interface PageParserFactory {
    * Returns a {@link PageParser} that parses the given {@link url}.
    */
   PageParser get(String url);
+
+  /**
+   * Returns a {@link PageParser} that parses the given {@link url}, giving up on the download when
+   * the crawl deadline passes. See {@link PageParser.Result#isCancelled()}.
+   */
+  PageParser get(String url, Instant deadline);
+
+  /**
+   * Starts downloading the page at the given {@link url} without parsing it, so that downloading
+   * and parsing can happen on different threads. Local {@code file:} URLs are read from disk.
+   * Cancelling the returned future aborts the download.
+   *
+   * @return a future that completes with the downloaded page, or completes exceptionally if the
+   *         URL is invalid or the download failed.
+   */
+  CompletableFuture<FetchedPage> fetch(String url);
+
+  /**
+   * Returns a {@link PageParser} that parses a page previously downloaded with
+   * {@link #fetch(String)}. Its result is cached like those of the other parsers.
+   */
+  PageParser get(String url, FetchedPage page);
+
+  /**
+   * Returns the cached result for the given {@link url}, if it was parsed recently enough to still
+   * be cached. Callers that use {@link #fetch(String)} check this first, so that a cached page is
+   * not downloaded again.
+   */
+  Optional<PageParser.Result> cached(String url);
 }
@@ -7,17 +7,27 @@ import com.udacity.webcrawler.profiler.Profiler;
 import com.udacity.webcrawler.profiler.ProfilerModule;
 
 import javax.inject.Inject;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Clock;
 import java.time.Duration;
-import java.util.List;
-import java.util.regex.Pattern;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A {@link PageParserFactory} that wraps its returned instances using a {@link Profiler}.
  */
 final class PageParserFactoryImpl implements PageParserFactory {
   private final Profiler profiler;
-  private final List<Pattern> ignoredWords;
+  private final PatternFilter ignoredWords;
   private final Duration timeout;
+  private final PageFetcher fetcher;
+  private final Clock clock;
+  private final RecrawlStore store;
+  private final ParseResultCache cache;
+  private final UrlCanonicalizer canonicalizer;
+  private final WordDictionary dictionary;
 
   /*
   This Inject annotation is for Ignored words and Timeout.  Profiler was
@@ -27,11 +37,25 @@ final class PageParserFactoryImpl implements PageParserFactory {
   @Inject
   PageParserFactoryImpl(
       Profiler profiler,
-      @IgnoredWords List<Pattern> ignoredWords,
-      @Timeout Duration timeout) {
+      @IgnoredWords PatternFilter ignoredWords,
+      @Timeout Duration timeout,
+      PageFetcher fetcher,
+      Clock clock,
+      RecrawlStore store,
+      ParseResultCache cache,
+      UrlCanonicalizer canonicalizer,
+      WordDictionary dictionary,
+      @InternWords boolean internWords) {
     this.profiler = profiler;
     this.ignoredWords = ignoredWords;
     this.timeout = timeout;
+    this.fetcher = fetcher;
+    this.clock = clock;
+    this.store = store;
+    this.cache = cache;
+    this.canonicalizer = canonicalizer;
+    // Without interning, each page keeps its own copy of its words, and the dictionary stays empty.
+    this.dictionary = internWords ? dictionary : null;
   }
 
   @Override
@@ -41,7 +65,42 @@ final class PageParserFactoryImpl implements PageParserFactory {
     //Wrap the PageParser in the Profiler invocation handler.
     //Injector injector = Guice.createInjector(new ProfilerModule());
    // Profiler profiler = injector.getInstance(Profiler.class);
-    PageParser delegate = new PageParserImpl(url, timeout, ignoredWords);
-    return profiler.wrap(PageParser.class, delegate);
+    PageParser delegate =
+        new PageParserImpl(
+            url, timeout, ignoredWords, fetcher, clock, Instant.MAX, store, canonicalizer,
+            dictionary);
+    return cache.wrap(url, profiler.wrap(PageParser.class, delegate));
+  }
+
+  @Override
+  public PageParser get(String url, Instant deadline) {
+    // The download still gets the full timeout, but is abandoned as soon as the crawl deadline
+    // passes, so a crawl never waits on stragglers.
+    PageParser delegate =
+        new PageParserImpl(
+            url, timeout, ignoredWords, fetcher, clock, deadline, store, canonicalizer,
+            dictionary);
+    return cache.wrap(url, profiler.wrap(PageParser.class, delegate));
+  }
+
+  @Override
+  public CompletableFuture<FetchedPage> fetch(String url) {
+    try {
+      return PageParserImpl.fetch(new URI(url), fetcher, timeout, store);
+    } catch (URISyntaxException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  @Override
+  public PageParser get(String url, FetchedPage page) {
+    PageParser delegate =
+        new PageParserImpl(url, page, ignoredWords, store, canonicalizer, dictionary);
+    return cache.wrap(url, profiler.wrap(PageParser.class, delegate));
+  }
+
+  @Override
+  public Optional<PageParser.Result> cached(String url) {
+    return Optional.ofNullable(cache.lookup(url));
   }
 }
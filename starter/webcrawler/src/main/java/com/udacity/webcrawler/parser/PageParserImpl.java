@@ -12,13 +12,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 
 /**
@@ -42,19 +51,94 @@ final class PageParserImpl implements PageParser {
 
   private final String uri;
   private final Duration timeout;
-  private final List<Pattern> ignoredWords;
+  private final PatternFilter ignoredWords;
+  private final PageFetcher fetcher;
+  private final Clock clock;
+  private final Instant deadline;
+  private final RecrawlStore store;
+  private final UrlCanonicalizer canonicalizer;
+  private final FetchedPage fetchedPage;
+  private final WordDictionary dictionary;
 
   /**
-   * Constructs a page parser with the given parameters.
+   * Constructs a page parser with the given parameters, which does not look the page's words up
+   * in a {@link WordDictionary}.
    *
    * @param uri          the URI of the file to parse.
    * @param timeout      the timeout to use when downloading the file, if it is remote.
    * @param ignoredWords patterns of which words should be ignored by the {@link #parse()} method.
+   * @param fetcher      the {@link PageFetcher} used to download the file, if it is remote.
    */
-  PageParserImpl(String uri, Duration timeout, List<Pattern> ignoredWords) {
+  PageParserImpl(String uri, Duration timeout, List<Pattern> ignoredWords, PageFetcher fetcher) {
+    this(uri, timeout, PatternFilter.compile(ignoredWords), fetcher, Clock.systemUTC(), Instant.MAX,
+        RecrawlStore.disabled(), UrlCanonicalizer.DEFAULT, null);
+  }
+
+  /**
+   * Constructs a page parser that gives up on the download when the crawl deadline passes.
+   *
+   * @param uri           the URI of the file to parse.
+   * @param timeout       the timeout to use when downloading the file, if it is remote.
+   * @param ignoredWords  patterns of which words should be ignored by the {@link #parse()} method.
+   * @param fetcher       the {@link PageFetcher} used to download the file, if it is remote.
+   * @param clock         the clock used to check the deadline.
+   * @param deadline      the crawl deadline. If it passes before the download completes, the
+   *                      download is aborted and {@link #parse()} returns a cancelled result.
+   * @param store         the {@link RecrawlStore} used to skip pages that have not changed.
+   * @param canonicalizer the {@link UrlCanonicalizer} applied to every link on the page.
+   * @param dictionary    the {@link WordDictionary} the page's words are looked up in, or null
+   *                      if they should not be.
+   */
+  PageParserImpl(
+      String uri,
+      Duration timeout,
+      PatternFilter ignoredWords,
+      PageFetcher fetcher,
+      Clock clock,
+      Instant deadline,
+      RecrawlStore store,
+      UrlCanonicalizer canonicalizer,
+      WordDictionary dictionary) {
     this.uri = Objects.requireNonNull(uri);
     this.timeout = Objects.requireNonNull(timeout);
     this.ignoredWords = Objects.requireNonNull(ignoredWords);
+    this.fetcher = Objects.requireNonNull(fetcher);
+    this.clock = Objects.requireNonNull(clock);
+    this.deadline = Objects.requireNonNull(deadline);
+    this.store = Objects.requireNonNull(store);
+    this.canonicalizer = Objects.requireNonNull(canonicalizer);
+    this.fetchedPage = null;
+    this.dictionary = dictionary;
+  }
+
+  /**
+   * Constructs a page parser for a page that has already been downloaded.
+   *
+   * @param uri           the URI the page was requested from.
+   * @param fetchedPage   the downloaded page.
+   * @param ignoredWords  patterns of which words should be ignored by the {@link #parse()} method.
+   * @param store         the {@link RecrawlStore} the page was fetched through.
+   * @param canonicalizer the {@link UrlCanonicalizer} applied to every link on the page.
+   * @param dictionary    the {@link WordDictionary} the page's words are looked up in, or null
+   *                      if they should not be.
+   */
+  PageParserImpl(
+      String uri,
+      FetchedPage fetchedPage,
+      PatternFilter ignoredWords,
+      RecrawlStore store,
+      UrlCanonicalizer canonicalizer,
+      WordDictionary dictionary) {
+    this.uri = Objects.requireNonNull(uri);
+    this.timeout = Duration.ZERO;
+    this.ignoredWords = Objects.requireNonNull(ignoredWords);
+    this.fetcher = null;
+    this.clock = null;
+    this.deadline = Instant.MAX;
+    this.store = Objects.requireNonNull(store);
+    this.canonicalizer = Objects.requireNonNull(canonicalizer);
+    this.fetchedPage = Objects.requireNonNull(fetchedPage);
+    this.dictionary = dictionary;
   }
 
   @Override
@@ -68,19 +152,38 @@ final class PageParserImpl implements PageParser {
       return new Result.Builder().build();
     }
 
+    FetchedPage page;
+    try {
+      page = (fetchedPage != null) ? fetchedPage : download(parsedUri);
+    } catch (CancellationException e) {
+      // The crawl deadline passed before the page arrived.
+      return new Result.Builder().setCancelled().build();
+    } catch (Exception e) {
+      System.out.println("Parser had exception: " + e.getMessage());
+      return new Result.Builder().setFailed().build();
+    }
+    if (page.isNotModified()) {
+      // Unchanged since the last crawl, so the stored result is still right.
+      Result stored = store.storedResult(uri);
+      return (stored != null) ? stored : new Result.Builder().setFailed().build();
+    }
+
     //Ducument is a JSOUP class
     Document document;
     try {
-      document = parseDocument(parsedUri);
+      document = parseDocument(parsedUri, page);
     } catch (Exception e) {
       // There are multiple exceptions that can be encountered due to invalid URIs or Mimetypes that
       // Jsoup does not handle. There is not much we can do here.
       System.out.println("Parser had exception: " + e.getMessage());
-      return new Result.Builder().build();
+      return new Result.Builder().setFailed().build();
     }
 
     //If we made it this far, prepare a builder for the result
     Result.Builder builder = new Result.Builder();
+    if (dictionary != null) {
+      builder.setDictionary(dictionary);
+    }
 
     // Do a single pass over the document to gather all hyperlinks and text.
     document.traverse(new NodeVisitor() {
@@ -90,7 +193,7 @@ final class PageParserImpl implements PageParser {
           String text = ((TextNode) node).text().strip();
           Arrays.stream(WHITESPACE.split(text))
               .filter(s -> !s.isBlank())
-              .filter(s -> ignoredWords.stream().noneMatch(p -> p.matcher(s).matches()))
+              .filter(s -> !ignoredWords.matchesAny(s))
               .map(s -> NON_WORD_CHARACTERS.matcher(s).replaceAll(""))
               .map(String::toLowerCase)
               .forEach(builder::addWord);
@@ -109,8 +212,15 @@ final class PageParserImpl implements PageParser {
           String basePath = Path.of(parsedUri).getParent().toString();
           builder.addLink(Path.of(basePath, element.attr("href")).toUri().toString());
         } else {
-          // Otherwise, let Jsoup resolve the absolute URL for us.
-          builder.addLink(element.attr("abs:href"));
+          // Otherwise, let Jsoup resolve the absolute URL for us, and spell it the one way the
+          // visited check will recognize.
+          String href = element.attr("abs:href");
+          String link = canonicalizer.canonicalize(href);
+          if (link.equals(href)) {
+            builder.addLink(link);
+          } else {
+            builder.addRewrittenLink(link);
+          }
         }
       }
 
@@ -118,24 +228,96 @@ final class PageParserImpl implements PageParser {
       public void tail(Node node, int depth) {
       }
     });
-    return builder.build();
+    Result result = builder.build();
+    if (!isLocalFile(parsedUri)) {
+      store.put(uri, page.getValidators(), result);
+    }
+    return result;
   }
 
   /**
    * Returns a Jsoup {@link Document} representation of the file at the given {@link URI}, which may
    * refer to a local document or a remote web page.
    */
-  private Document parseDocument(URI uri) throws IOException {
-    if (!isLocalFile(uri)) {
-      return Jsoup.parse(uri.toURL(), (int) timeout.toMillis());
-    }
-
+  private Document parseDocument(URI uri, FetchedPage page) throws IOException {
     // Unfortunately, Jsoup.parse() has a baseUri parameter that does not work with local
     // "file://" URIs. If we want the parser to support those URIs, which are very useful for
     // testing, the work-around is to pass in an empty baseUri and manually add the base back to
     // href attributes.
-    try (InputStream in = Files.newInputStream(Path.of(uri))) {
-      return Jsoup.parse(in, StandardCharsets.UTF_8.name(), "");
+    String baseUri = isLocalFile(uri) ? "" : page.getUri().toString();
+    try (InputStream in = page.openStream()) {
+      return Jsoup.parse(in, page.getCharset().orElse(null), baseUri);
+    }
+  }
+
+  /**
+   * Downloads a page and waits for it to arrive. See
+   * {@link #fetch(URI, PageFetcher, Duration, RecrawlStore)}.
+   *
+   * @throws CancellationException if the deadline passes before the page arrives. The download is
+   *                               aborted in that case.
+   */
+  private FetchedPage download(URI uri) throws IOException {
+    if (deadline.equals(Instant.MAX)) {
+      return await(fetch(uri, fetcher, timeout, store));
+    }
+    if (!clock.instant().isBefore(deadline)) {
+      throw new CancellationException("Deadline passed before fetching " + uri);
+    }
+    CompletableFuture<FetchedPage> future = fetch(uri, fetcher, timeout, store);
+    try {
+      long remaining = Duration.between(clock.instant(), deadline).toMillis();
+      return future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      throw new CancellationException("Deadline passed while fetching " + uri);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while fetching " + uri, e);
+    } catch (ExecutionException e) {
+      // The download timeout and the crawl deadline often end together. Either way, the page was
+      // cut off by the deadline rather than by a problem with the host.
+      if (e.getCause() instanceof HttpTimeoutException && !clock.instant().isBefore(deadline)) {
+        throw new CancellationException("Deadline passed while fetching " + uri);
+      }
+      throw unwrap(e);
+    }
+  }
+
+  private static FetchedPage await(CompletableFuture<FetchedPage> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while fetching", e);
+    } catch (ExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  private static IOException unwrap(ExecutionException e) {
+    if (e.getCause() instanceof IOException) {
+      return (IOException) e.getCause();
+    }
+    return new IOException(e.getCause());
+  }
+
+  /**
+   * Starts downloading the page at the given {@link URI}. Local files are read right away; remote
+   * pages are downloaded with the given {@link PageFetcher}, conditionally if they are in the
+   * {@link RecrawlStore}.
+   */
+  static CompletableFuture<FetchedPage> fetch(
+      URI uri, PageFetcher fetcher, Duration timeout, RecrawlStore store) {
+    if (!isLocalFile(uri)) {
+      return store.fetch(uri.toString(), uri, fetcher, timeout);
+    }
+    try {
+      byte[] body = Files.readAllBytes(Path.of(uri));
+      return CompletableFuture.completedFuture(
+          new FetchedPage(uri, StandardCharsets.UTF_8.name(), ByteBuffer.wrap(body)));
+    } catch (IOException | RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
     }
   }
 
@@ -0,0 +1,223 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An in-memory cache of parse {@link PageParser.Result}s, shared by every crawl in the process, so
+ * that a page reached again by a later crawl is not downloaded and parsed again.
+ *
+ * <p>The cache is bounded by an estimate of the memory its results take up rather than by how many
+ * there are, since one page can have hundreds of times as many words and links as another. It is
+ * split into {@link #STRIPES} independently locked stripes by URL hash, so crawler threads rarely
+ * wait on each other. Each stripe evicts its least recently used results once it is over its share
+ * of the budget, and results older than the time to live are dropped when they are next looked up.
+ *
+ * <p>URLs are normalized before lookup, so {@code HTTP://Example.com/a#top} and
+ * {@code http://example.com/a} share an entry.
+ */
+final class ParseResultCache {
+
+  /**
+   * Pages whose result was found in the cache.
+   */
+  static final String HITS = "parseCache.hits";
+
+  /**
+   * Pages that had to be parsed.
+   */
+  static final String MISSES = "parseCache.misses";
+
+  /**
+   * Results evicted to stay within the size budget, or dropped because they expired.
+   */
+  static final String EVICTIONS = "parseCache.evictions";
+
+  static final int STRIPES = 16;
+
+  // Rough JVM sizes: object headers, references, and the HashMap/LinkedHashMap nodes holding them.
+  private static final long ENTRY_OVERHEAD = 160;
+  private static final long WORD_OVERHEAD = 96;
+  private static final long LINK_OVERHEAD = 56;
+
+  private static final ParseResultCache DISABLED = new ParseResultCache();
+
+  private final Clock clock;
+  private final Profiler profiler;
+  private final Duration ttl;
+  private final long stripeBytes;
+  private final Stripe[] stripes;
+
+  private ParseResultCache() {
+    this.clock = null;
+    this.profiler = null;
+    this.ttl = Duration.ZERO;
+    this.stripeBytes = 0;
+    this.stripes = null;
+  }
+
+  /**
+   * Creates a cache that holds results up to an estimated {@code maxBytes} in total, for at most
+   * {@code ttl} each.
+   */
+  ParseResultCache(Clock clock, Profiler profiler, long maxBytes, Duration ttl) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("maxBytes must be positive");
+    }
+    this.clock = Objects.requireNonNull(clock);
+    this.profiler = Objects.requireNonNull(profiler);
+    this.ttl = Objects.requireNonNull(ttl);
+    this.stripeBytes = Math.max(1, maxBytes / STRIPES);
+    this.stripes = new Stripe[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  /**
+   * Returns a cache that holds nothing.
+   */
+  static ParseResultCache disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * Returns a {@link PageParser} that answers from the cache if it can, and otherwise runs the
+   * given parser and caches its result. Failed and cancelled results are not cached.
+   */
+  PageParser wrap(String url, PageParser parser) {
+    if (stripes == null) {
+      return parser;
+    }
+    return () -> {
+      String key = normalize(url);
+      PageParser.Result cached = get(key);
+      if (cached != null) {
+        profiler.incrementCounter(HITS, 1);
+        return cached;
+      }
+      profiler.incrementCounter(MISSES, 1);
+      PageParser.Result result = parser.parse();
+      if (!result.isFailed() && !result.isCancelled()) {
+        put(key, result);
+      }
+      return result;
+    };
+  }
+
+  /**
+   * Returns the cached result for the URL, or {@code null} if there is none, so that a caller that
+   * downloads pages itself can skip the download. A result that is found counts as a hit.
+   */
+  PageParser.Result lookup(String url) {
+    if (stripes == null) {
+      return null;
+    }
+    PageParser.Result cached = get(normalize(url));
+    if (cached != null) {
+      profiler.incrementCounter(HITS, 1);
+    }
+    return cached;
+  }
+
+  PageParser.Result get(String key) {
+    Stripe stripe = stripeFor(key);
+    synchronized (stripe) {
+      Entry entry = stripe.entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (!clock.instant().isBefore(entry.expiresAt)) {
+        stripe.remove(key);
+        profiler.incrementCounter(EVICTIONS, 1);
+        return null;
+      }
+      return entry.result;
+    }
+  }
+
+  void put(String key, PageParser.Result result) {
+    long bytes = estimateBytes(key, result);
+    if (bytes > stripeBytes) {
+      // It would push everything else out of its stripe.
+      return;
+    }
+    Entry entry = new Entry(result, bytes, clock.instant().plus(ttl));
+    Stripe stripe = stripeFor(key);
+    long evicted = 0;
+    synchronized (stripe) {
+      Entry previous = stripe.entries.put(key, entry);
+      if (previous != null) {
+        stripe.bytes -= previous.bytes;
+      }
+      stripe.bytes += bytes;
+      Iterator<Map.Entry<String, Entry>> eldest = stripe.entries.entrySet().iterator();
+      while (stripe.bytes > stripeBytes) {
+        stripe.bytes -= eldest.next().getValue().bytes;
+        eldest.remove();
+        evicted++;
+      }
+    }
+    if (evicted > 0) {
+      profiler.incrementCounter(EVICTIONS, evicted);
+    }
+  }
+
+  private Stripe stripeFor(String key) {
+    return stripes[Math.floorMod(key.hashCode(), STRIPES)];
+  }
+
+  /**
+   * Returns the URL with a lowercase scheme and host, a normalized path and no fragment. See
+   * {@link UrlCanonicalizer}.
+   */
+  static String normalize(String url) {
+    return UrlCanonicalizer.DEFAULT.canonicalize(url);
+  }
+
+  /**
+   * Estimates how much heap a cached result takes up.
+   */
+  static long estimateBytes(String key, PageParser.Result result) {
+    long bytes = ENTRY_OVERHEAD + 2L * key.length();
+    for (String word : result.getWordCounts().keySet()) {
+      bytes += WORD_OVERHEAD + 2L * word.length();
+    }
+    for (String link : result.getLinks()) {
+      bytes += LINK_OVERHEAD + 2L * link.length();
+    }
+    return bytes;
+  }
+
+  private static final class Stripe {
+    // In access order, so iteration starts at the least recently used result.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    void remove(String key) {
+      Entry removed = entries.remove(key);
+      if (removed != null) {
+        bytes -= removed.bytes;
+      }
+    }
+  }
+
+  private static final class Entry {
+    private final PageParser.Result result;
+    private final long bytes;
+    private final Instant expiresAt;
+
+    Entry(PageParser.Result result, long bytes, Instant expiresAt) {
+      this.result = result;
+      this.bytes = bytes;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -2,7 +2,14 @@ package com.udacity.webcrawler.parser;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Key;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.udacity.webcrawler.profiler.Profiler;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
@@ -15,20 +22,101 @@ import java.util.regex.Pattern;
 public final class ParserModule extends AbstractModule {
   private final Duration timeout;
   private final List<Pattern> ignoredWords;
+  private final String recrawlStorePath;
+  private final String responseCachePath;
+  private final int responseCacheMaxMegabytes;
+  private final int parseCacheMaxMegabytes;
+  private final Duration parseCacheTtl;
+  private final boolean sortQueryParameters;
+  private final List<Pattern> strippedQueryParameters;
+  private final boolean internWords;
 
   /**
-   * Creates a {@link ParserModule} from the given timeout and ignored word patterns.
+   * Creates a {@link ParserModule} from the given timeout, ignored word patterns, recrawl store
+   * path, response cache settings, parse cache settings, link canonicalization settings and
+   * whether words are interned.
    */
-  private ParserModule(Duration timeout, List<Pattern> ignoredWords) {
+  private ParserModule(
+      Duration timeout,
+      List<Pattern> ignoredWords,
+      String recrawlStorePath,
+      String responseCachePath,
+      int responseCacheMaxMegabytes,
+      int parseCacheMaxMegabytes,
+      Duration parseCacheTtl,
+      boolean sortQueryParameters,
+      List<Pattern> strippedQueryParameters,
+      boolean internWords) {
     this.timeout = timeout;
     this.ignoredWords = ignoredWords;
+    this.recrawlStorePath = recrawlStorePath;
+    this.responseCachePath = responseCachePath;
+    this.responseCacheMaxMegabytes = responseCacheMaxMegabytes;
+    this.parseCacheMaxMegabytes = parseCacheMaxMegabytes;
+    this.parseCacheTtl = parseCacheTtl;
+    this.sortQueryParameters = sortQueryParameters;
+    this.strippedQueryParameters = strippedQueryParameters;
+    this.internWords = internWords;
   }
 
   @Override
   protected void configure() {
     bind(Key.get(Duration.class, ParseDeadline.class)).toInstance(timeout);
-    bind(new Key<List<Pattern>>(IgnoredWords.class) {}).toInstance(ignoredWords);
+    // Compiled once here rather than per page, since every word of every page is checked.
+    bind(Key.get(PatternFilter.class, IgnoredWords.class))
+        .toInstance(PatternFilter.compile(ignoredWords));
     bind(PageParserFactory.class).to(PageParserFactoryImpl.class);
+    // One fetcher for the whole process, so that connections are pooled across every page.
+    bind(HttpClientPageFetcher.class).in(Singleton.class);
+    // One dictionary for the whole process, so that every page shares one copy of each word.
+    bind(WordDictionary.class).in(Singleton.class);
+    bind(Key.get(Boolean.class, InternWords.class)).toInstance(internWords);
+  }
+
+  @Provides
+  @Singleton
+  PageFetcher providePageFetcher(HttpClientPageFetcher httpFetcher, Profiler profiler) {
+    if (responseCachePath.isEmpty()) {
+      return httpFetcher;
+    }
+    try {
+      return ResponseCache.open(httpFetcher, profiler, Path.of(responseCachePath),
+          (long) responseCacheMaxMegabytes << 20);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not open response cache " + responseCachePath, e);
+    }
+  }
+
+  @Provides
+  @Singleton
+  RecrawlStore provideRecrawlStore(Profiler profiler) {
+    if (recrawlStorePath.isEmpty()) {
+      return RecrawlStore.disabled();
+    }
+    try {
+      return RecrawlStore.open(Path.of(recrawlStorePath), profiler);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not open recrawl store " + recrawlStorePath, e);
+    }
+  }
+
+  @Provides
+  @Singleton
+  ParseResultCache provideParseResultCache(Clock clock, Profiler profiler) {
+    if (parseCacheMaxMegabytes == 0) {
+      return ParseResultCache.disabled();
+    }
+    return new ParseResultCache(
+        clock, profiler, (long) parseCacheMaxMegabytes << 20, parseCacheTtl);
+  }
+
+  @Provides
+  @Singleton
+  UrlCanonicalizer provideUrlCanonicalizer() {
+    return new UrlCanonicalizer.Builder()
+        .setSortQueryParameters(sortQueryParameters)
+        .addStrippedQueryParameters(strippedQueryParameters)
+        .build();
   }
 
   /**
@@ -37,6 +125,14 @@ public final class ParserModule extends AbstractModule {
   public static final class Builder {
     private Duration timeout;
     private List<Pattern> ignoredWords;
+    private String recrawlStorePath = "";
+    private String responseCachePath = "";
+    private int responseCacheMaxMegabytes = 1024;
+    private int parseCacheMaxMegabytes = 0;
+    private Duration parseCacheTtl = Duration.ofHours(1);
+    private boolean sortQueryParameters;
+    private List<Pattern> strippedQueryParameters = List.of();
+    private boolean internWords = true;
 
     /**
      * Sets the timeout that will be used by the page parser.
@@ -54,11 +150,91 @@ public final class ParserModule extends AbstractModule {
       return this;
     }
 
+    /**
+     * Sets the path of the {@link RecrawlStore} file. If it is empty, which is the default, pages
+     * are always downloaded in full.
+     */
+    public Builder setRecrawlStorePath(String recrawlStorePath) {
+      this.recrawlStorePath = Objects.requireNonNull(recrawlStorePath);
+      return this;
+    }
+
+    /**
+     * Sets the directory of the {@link ResponseCache}. If it is empty, which is the default, pages
+     * are not cached.
+     */
+    public Builder setResponseCachePath(String responseCachePath) {
+      this.responseCachePath = Objects.requireNonNull(responseCachePath);
+      return this;
+    }
+
+    /**
+     * Sets the size the {@link ResponseCache} may grow to, in megabytes. Defaults to 1024.
+     */
+    public Builder setResponseCacheMaxMegabytes(int responseCacheMaxMegabytes) {
+      this.responseCacheMaxMegabytes = responseCacheMaxMegabytes;
+      return this;
+    }
+
+    /**
+     * Sets the size the {@link ParseResultCache} may grow to, in megabytes. If it is 0, which is
+     * the default, parsed pages are not cached.
+     */
+    public Builder setParseCacheMaxMegabytes(int parseCacheMaxMegabytes) {
+      this.parseCacheMaxMegabytes = parseCacheMaxMegabytes;
+      return this;
+    }
+
+    /**
+     * Sets how long a page stays in the {@link ParseResultCache}. Defaults to one hour.
+     */
+    public Builder setParseCacheTtl(Duration parseCacheTtl) {
+      this.parseCacheTtl = Objects.requireNonNull(parseCacheTtl);
+      return this;
+    }
+
+    /**
+     * Sets whether the {@link UrlCanonicalizer} sorts query parameters. Defaults to false.
+     */
+    public Builder setSortQueryParameters(boolean sortQueryParameters) {
+      this.sortQueryParameters = sortQueryParameters;
+      return this;
+    }
+
+    /**
+     * Sets the patterns of query parameter names the {@link UrlCanonicalizer} removes from links.
+     * Defaults to none.
+     */
+    public Builder setStrippedQueryParameters(List<Pattern> strippedQueryParameters) {
+      this.strippedQueryParameters = Objects.requireNonNull(strippedQueryParameters);
+      return this;
+    }
+
+    /**
+     * Sets whether parsed words are looked up in the shared {@link WordDictionary}. Defaults to
+     * true. The dictionary keeps every word it is asked about, so a crawl that must stay within a
+     * memory budget turns this off.
+     */
+    public Builder setInternWords(boolean internWords) {
+      this.internWords = internWords;
+      return this;
+    }
+
     /**
      * Builds a {@link ParserModule} from this {@link Builder}.
      */
     public ParserModule build() {
-      return new ParserModule(timeout, ignoredWords);
+      return new ParserModule(
+          timeout,
+          ignoredWords,
+          recrawlStorePath,
+          responseCachePath,
+          responseCacheMaxMegabytes,
+          parseCacheMaxMegabytes,
+          parseCacheTtl,
+          sortQueryParameters,
+          strippedQueryParameters,
+          internWords);
     }
   }
 }
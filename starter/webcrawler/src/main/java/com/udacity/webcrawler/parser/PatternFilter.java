@@ -0,0 +1,326 @@
+package com.udacity.webcrawler.parser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A list of patterns compiled into one filter that tells whether a string fully matches any of
+ * them, as {@link Matcher#matches()} would, without creating a {@link Matcher} per pattern per
+ * string.
+ *
+ * <p>Each pattern is sorted into the cheapest check that gives the same answer:
+ *
+ * <ul>
+ *   <li>Plain strings, like {@code the} or {@code https://example\.com/}, are looked up in a hash
+ *       set.</li>
+ *   <li>Patterns that only constrain the length, like {@code ^.{1,3}$}, compare the length of the
+ *       string.</li>
+ *   <li>Patterns that only look for literal text at the start, at the end or anywhere, like
+ *       {@code http://example\.com/.*}, {@code .*\.pdf} or {@code .*dead-.*}, use
+ *       {@link String#startsWith}, {@link String#endsWith} or {@link String#contains}.</li>
+ *   <li>All other patterns are joined into a single alternation, matched with one reusable
+ *       {@link Matcher} per thread. If every one of them starts with some literal text, strings
+ *       that start with none of it are rejected without running the regex at all.</li>
+ * </ul>
+ *
+ * <p>Patterns that cannot be joined without changing their meaning, because they have flags,
+ * back-references or named groups, are matched on their own.
+ */
+public final class PatternFilter {
+
+  private static final PatternFilter NONE = new PatternFilter(List.of());
+
+  private static final Pattern LENGTH_ONLY =
+      Pattern.compile("\\.(?:\\{(\\d+)(,(\\d*))?}|([*+?]))?");
+  private static final Pattern UNJOINABLE = Pattern.compile("\\\\[1-9k]|\\(\\?<[a-zA-Z]");
+
+  private final Set<String> literals = new HashSet<>();
+  private final List<int[]> lengths = new ArrayList<>();
+  private final List<String> starts = new ArrayList<>();
+  private final List<String> ends = new ArrayList<>();
+  private final List<String> contains = new ArrayList<>();
+  // The patterns behind starts, ends and contains, for strings those checks cannot answer.
+  private final List<Pattern> affixPatterns = new ArrayList<>();
+  private final List<String> prefixes = new ArrayList<>();
+  private final List<Pattern> separate = new ArrayList<>();
+  private final Pattern joined;
+  private final ThreadLocal<Matcher> matchers;
+
+  private PatternFilter(List<Pattern> patterns) {
+    List<String> joinable = new ArrayList<>();
+    boolean allPrefixed = true;
+    for (Pattern pattern : patterns) {
+      String regex = pattern.pattern();
+      if (pattern.flags() != 0 || UNJOINABLE.matcher(regex).find()) {
+        separate.add(pattern);
+        continue;
+      }
+      String body = stripAnchors(regex);
+      String literal = literal(body);
+      if (literal != null) {
+        literals.add(literal);
+        continue;
+      }
+      Matcher length = LENGTH_ONLY.matcher(body);
+      if (length.matches()) {
+        lengths.add(lengthRange(length));
+        continue;
+      }
+      if (addAffix(body)) {
+        affixPatterns.add(pattern);
+        continue;
+      }
+      String prefix = prefix(body);
+      if (prefix.isEmpty()) {
+        allPrefixed = false;
+      } else {
+        prefixes.add(prefix);
+      }
+      joinable.add(regex);
+    }
+    if (!allPrefixed) {
+      prefixes.clear();
+    }
+
+    this.joined = join(joinable);
+    if (joined == null && !joinable.isEmpty()) {
+      // Something this class failed to spot; matching each pattern on its own is always right.
+      joinable.forEach(regex -> separate.add(Pattern.compile(regex)));
+      prefixes.clear();
+    }
+    this.matchers = (joined == null) ? null : ThreadLocal.withInitial(() -> joined.matcher(""));
+  }
+
+  /**
+   * Compiles the given patterns into a filter.
+   */
+  public static PatternFilter compile(List<Pattern> patterns) {
+    return patterns.isEmpty() ? NONE : new PatternFilter(List.copyOf(patterns));
+  }
+
+  /**
+   * Returns true if the whole of the given string matches at least one of the patterns.
+   */
+  public boolean matchesAny(String input) {
+    Objects.requireNonNull(input);
+    if (!literals.isEmpty() && literals.contains(input)) {
+      return true;
+    }
+    int length = (lengths.isEmpty() && affixPatterns.isEmpty()) ? 0 : dotLength(input);
+    for (int[] range : lengths) {
+      if (length >= range[0] && length <= range[1]) {
+        return true;
+      }
+    }
+    if (!affixPatterns.isEmpty() && matchesAffix(input, length >= 0)) {
+      return true;
+    }
+    if (joined != null && startsWithAnyPrefix(input)
+        && matchers.get().reset(input).matches()) {
+      return true;
+    }
+    for (Pattern pattern : separate) {
+      if (pattern.matcher(input).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Pattern join(List<String> regexes) {
+    if (regexes.isEmpty()) {
+      return null;
+    }
+    try {
+      return Pattern.compile("(?:" + String.join(")|(?:", regexes) + ")");
+    } catch (PatternSyntaxException e) {
+      return null;
+    }
+  }
+
+  private boolean matchesAffix(String input, boolean singleLine) {
+    if (!singleLine) {
+      // ".*" stops at a line terminator, which the string checks would step over.
+      for (Pattern pattern : affixPatterns) {
+        if (pattern.matcher(input).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+    for (String start : starts) {
+      if (input.startsWith(start)) {
+        return true;
+      }
+    }
+    for (String end : ends) {
+      if (input.endsWith(end)) {
+        return true;
+      }
+    }
+    for (String part : contains) {
+      if (input.contains(part)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adds the regex to {@link #starts}, {@link #ends} or {@link #contains} if it is literal text
+   * followed by {@code .*}, preceded by it, or both. Returns false if it is none of these.
+   */
+  private boolean addAffix(String body) {
+    boolean anyStart = body.startsWith(".*");
+    String rest = anyStart ? body.substring(2) : body;
+    StringBuilder literal = new StringBuilder();
+    int end = literalRun(rest, literal);
+    boolean anyEnd = rest.length() - end == 2 && rest.startsWith(".*", end);
+    if (literal.length() == 0 || (end != rest.length() && !anyEnd)) {
+      return false;
+    }
+    if (anyStart && anyEnd) {
+      contains.add(literal.toString());
+    } else if (anyStart) {
+      ends.add(literal.toString());
+    } else if (anyEnd) {
+      starts.add(literal.toString());
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private boolean startsWithAnyPrefix(String input) {
+    if (prefixes.isEmpty()) {
+      return true;
+    }
+    for (String prefix : prefixes) {
+      if (input.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes a leading {@code ^} and a trailing {@code $}, which match nothing extra when the
+   * whole string has to match.
+   */
+  private static String stripAnchors(String regex) {
+    int start = regex.startsWith("^") ? 1 : 0;
+    int end = regex.length();
+    if (end > start && regex.charAt(end - 1) == '$' && !isEscaped(regex, end - 1)) {
+      end--;
+    }
+    return regex.substring(start, end);
+  }
+
+  /**
+   * Returns the string the regex matches if it matches exactly one string, or null if it uses
+   * anything other than plain characters, escaped punctuation and {@code \Q...\E}.
+   */
+  private static String literal(String body) {
+    if (body.length() >= 4 && body.startsWith("\\Q")
+        && body.indexOf("\\E") == body.length() - 2) {
+      return body.substring(2, body.length() - 2);
+    }
+    StringBuilder literal = new StringBuilder(body.length());
+    int end = literalRun(body, literal);
+    return (end == body.length()) ? literal.toString() : null;
+  }
+
+  /**
+   * Returns the literal text every match of the regex starts with, which may be empty.
+   */
+  private static String prefix(String body) {
+    for (int i = 0; i < body.length(); i++) {
+      // An alternative could start with anything.
+      if (body.charAt(i) == '|' && !isEscaped(body, i)) {
+        return "";
+      }
+    }
+    StringBuilder prefix = new StringBuilder();
+    int end = literalRun(body, prefix);
+    if (end < body.length() && "*?{".indexOf(body.charAt(end)) >= 0 && prefix.length() > 0) {
+      // The last character is optional or repeated, so only what comes before it is certain.
+      prefix.setLength(prefix.length() - 1);
+    }
+    return prefix.toString();
+  }
+
+  /**
+   * Appends the leading literal characters of the regex, unescaping escaped punctuation, and
+   * returns the index of the first character that is not literal.
+   */
+  private static int literalRun(String body, StringBuilder out) {
+    int i = 0;
+    while (i < body.length()) {
+      char c = body.charAt(i);
+      if (c == '\\') {
+        if (i + 1 >= body.length() || Character.isLetterOrDigit(body.charAt(i + 1))) {
+          return i;
+        }
+        out.append(body.charAt(i + 1));
+        i += 2;
+      } else if ("[](){}.*+?^$|".indexOf(c) >= 0) {
+        return i;
+      } else {
+        out.append(c);
+        i++;
+      }
+    }
+    return i;
+  }
+
+  private static int[] lengthRange(Matcher length) {
+    if (length.group(4) != null) {
+      switch (length.group(4)) {
+        case "*":
+          return new int[]{0, Integer.MAX_VALUE};
+        case "+":
+          return new int[]{1, Integer.MAX_VALUE};
+        default:
+          return new int[]{0, 1};
+      }
+    }
+    if (length.group(1) == null) {
+      return new int[]{1, 1};
+    }
+    int min = Integer.parseInt(length.group(1));
+    if (length.group(2) == null) {
+      return new int[]{min, min};
+    }
+    String max = length.group(3);
+    return new int[]{min, max.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(max)};
+  }
+
+  private static boolean isEscaped(String regex, int index) {
+    int backslashes = 0;
+    for (int i = index - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+      backslashes++;
+    }
+    return backslashes % 2 == 1;
+  }
+
+  /**
+   * Returns the number of characters {@code .} would step over to match the whole string, which
+   * counts a surrogate pair as one, or -1 if the string has a line terminator, which {@code .}
+   * does not match.
+   */
+  private static int dotLength(String input) {
+    for (int i = 0; i < input.length(); i++) {
+      char c = input.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return -1;
+      }
+    }
+    return input.codePointCount(0, input.length());
+  }
+}
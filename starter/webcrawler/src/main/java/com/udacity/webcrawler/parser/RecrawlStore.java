@@ -0,0 +1,306 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Remembers the cache validators and parse {@link PageParser.Result} of every page downloaded, so
+ * that a later crawl can ask the server whether the page changed before downloading it again.
+ *
+ * <p>The whole store is kept in memory and backed by an append-only file, which is compacted when
+ * the store is opened. Each page is appended and flushed to the operating system as soon as it
+ * has been parsed, so a crawl that dies loses nothing it had already parsed.
+ *
+ * <p>The file starts with {@link #MAGIC}, followed by one record per parsed page: its length in
+ * bytes, then its URL, {@code ETag}, {@code Last-Modified} (empty if the server sent none), word
+ * counts and links. Strings are written as their UTF-8 length and bytes, so they have no length
+ * limit. A later record for the same URL replaces an earlier one. A record without validators
+ * removes the URL, since the page can no longer be requested conditionally.
+ *
+ * <p>Each record is encoded in full before any of it is written. If writing it fails anyway, the
+ * store stops writing, so that only the last record in the file can be cut off, and the next
+ * crawl loads every record before it.
+ */
+final class RecrawlStore {
+
+  static final int MAGIC = 0x57525332;  // "WRS2"
+
+  /**
+   * Pages requested with {@code If-None-Match} or {@code If-Modified-Since}.
+   */
+  static final String CONDITIONAL_REQUESTS = "recrawl.conditionalRequests";
+
+  /**
+   * Conditional requests the server answered with 304 Not Modified.
+   */
+  static final String NOT_MODIFIED = "recrawl.notModified";
+
+  /**
+   * The share of conditional requests answered with 304 so far, in percent.
+   */
+  static final String NOT_MODIFIED_PERCENT = "recrawl.notModifiedPercent";
+
+  /**
+   * Records that could not be written. The store stops writing after the first, so the next crawl
+   * has to download every page parsed after it in full.
+   */
+  static final String WRITE_FAILURES = "recrawl.writeFailures";
+
+  private static final Logger LOGGER = Logger.getLogger(RecrawlStore.class.getName());
+
+  private static final RecrawlStore DISABLED = new RecrawlStore(null, null);
+
+  private final Profiler profiler;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong conditionalRequests = new AtomicLong();
+  private final AtomicLong notModified = new AtomicLong();
+  private final DataOutputStream out;
+  // Set once a record could not be written. Guarded by out's lock.
+  private boolean failed;
+
+  private RecrawlStore(Profiler profiler, DataOutputStream out) {
+    this.profiler = profiler;
+    this.out = out;
+  }
+
+  /**
+   * Returns a store that remembers nothing, so every page is downloaded in full.
+   */
+  static RecrawlStore disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * Opens the store at the given path, creating the file if it does not exist.
+   */
+  static RecrawlStore open(Path path, Profiler profiler) throws IOException {
+    Map<String, Entry> entries = load(path);
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (DataOutputStream snapshot =
+             new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+      snapshot.writeInt(MAGIC);
+      for (Map.Entry<String, Entry> e : entries.entrySet()) {
+        snapshot.write(encodeRecord(e.getKey(), e.getValue().validators, e.getValue().result));
+      }
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    RecrawlStore store = new RecrawlStore(
+        Objects.requireNonNull(profiler),
+        new DataOutputStream(new BufferedOutputStream(
+            Files.newOutputStream(path, StandardOpenOption.APPEND), 1 << 16)));
+    store.entries.putAll(entries);
+    return store;
+  }
+
+  /**
+   * Starts downloading the page at the given {@link URI}. If the page is in the store, the request
+   * is conditional, and the returned page is {@link FetchedPage#isNotModified() not modified} if
+   * the server answered 304; its result is then available from {@link #storedResult(String)}.
+   */
+  CompletableFuture<FetchedPage> fetch(
+      String url, URI uri, PageFetcher fetcher, Duration timeout) {
+    Entry entry = entries.get(url);
+    if (entry == null) {
+      return fetcher.fetch(uri, timeout);
+    }
+    CompletableFuture<FetchedPage> response = fetcher.fetch(uri, timeout, entry.validators);
+    CompletableFuture<FetchedPage> page = response.thenApply(p -> {
+      recordResponse(p);
+      return p;
+    });
+    page.whenComplete((p, e) -> {
+      if (page.isCancelled()) {
+        response.cancel(true);
+      }
+    });
+    return page;
+  }
+
+  /**
+   * Returns the stored result of the page at the given URL, or {@code null} if there is none.
+   */
+  PageParser.Result storedResult(String url) {
+    Entry entry = entries.get(url);
+    return (entry == null) ? null : entry.result;
+  }
+
+  /**
+   * Stores the result of a page that was just downloaded and parsed.
+   */
+  void put(String url, Validators validators, PageParser.Result result) {
+    if (out == null) {
+      return;
+    }
+    Entry previous = validators.isPresent()
+        ? entries.put(url, new Entry(validators, result))
+        : entries.remove(url);
+    if (previous == null && !validators.isPresent()) {
+      return;
+    }
+    byte[] record = encodeRecord(url, validators, result);
+    synchronized (out) {
+      if (failed) {
+        return;
+      }
+      try {
+        out.write(record);
+        out.flush();
+      } catch (IOException e) {
+        // The page is still remembered for this crawl; only the next crawl will miss it.
+        failed = true;
+        profiler.incrementCounter(WRITE_FAILURES, 1);
+        LOGGER.log(Level.WARNING, "Could not write to the recrawl store; it is no longer saved", e);
+      }
+    }
+  }
+
+  private void recordResponse(FetchedPage page) {
+    long requests = conditionalRequests.incrementAndGet();
+    long hits = page.isNotModified() ? notModified.incrementAndGet() : notModified.get();
+    profiler.incrementCounter(CONDITIONAL_REQUESTS, 1);
+    if (page.isNotModified()) {
+      profiler.incrementCounter(NOT_MODIFIED, 1);
+    }
+    profiler.recordGauge(NOT_MODIFIED_PERCENT, hits * 100 / requests);
+  }
+
+  private static Map<String, Entry> load(Path path) throws IOException {
+    Map<String, Entry> entries = new ConcurrentHashMap<>();
+    try (DataInputStream in =
+             new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a recrawl store: " + path);
+      }
+      while (true) {
+        byte[] record;
+        try {
+          int length = in.readInt();
+          if (length < 0) {
+            throw new EOFException();
+          }
+          record = in.readNBytes(length);
+          if (record.length < length) {
+            throw new EOFException();
+          }
+        } catch (EOFException e) {
+          // The end of the file, or a record that was cut off when the process died.
+          break;
+        }
+        DataInputStream fields = new DataInputStream(new ByteArrayInputStream(record));
+        String url = readString(fields);
+        String etag = readString(fields);
+        String lastModified = readString(fields);
+        Validators validators = new Validators(
+            etag.isEmpty() ? null : etag, lastModified.isEmpty() ? null : lastModified);
+        PageParser.Result result = readResult(fields);
+        if (validators.isPresent()) {
+          entries.put(url, new Entry(validators, result));
+        } else {
+          entries.remove(url);
+        }
+      }
+    } catch (NoSuchFileException e) {
+      // Nothing has been stored yet.
+    }
+    return entries;
+  }
+
+  /**
+   * Returns the record for a page, including its length.
+   */
+  private static byte[] encodeRecord(String url, Validators validators, PageParser.Result result) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(0);  // The length, filled in below.
+      writeString(out, url);
+      writeString(out, validators.getETag().orElse(""));
+      writeString(out, validators.getLastModified().orElse(""));
+      out.writeInt(result.getWordCounts().size());
+      for (Map.Entry<String, Integer> e : result.getWordCounts().entrySet()) {
+        writeString(out, e.getKey());
+        out.writeInt(e.getValue());
+      }
+      out.writeInt(result.getLinks().size());
+      for (String link : result.getLinks()) {
+        writeString(out, link);
+      }
+    } catch (IOException e) {
+      // A ByteArrayOutputStream never throws.
+      throw new UncheckedIOException(e);
+    }
+    byte[] record = bytes.toByteArray();
+    ByteBuffer.wrap(record).putInt(record.length - Integer.BYTES);
+    return record;
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Corrupt recrawl store record");
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static PageParser.Result readResult(DataInputStream in) throws IOException {
+    PageParser.Result.Builder builder = new PageParser.Result.Builder();
+    int words = in.readInt();
+    if (words < 0) {
+      throw new EOFException();
+    }
+    for (int i = 0; i < words; i++) {
+      builder.addWord(readString(in), in.readInt());
+    }
+    int links = in.readInt();
+    if (links < 0) {
+      throw new EOFException();
+    }
+    for (int i = 0; i < links; i++) {
+      builder.addLink(readString(in));
+    }
+    return builder.build();
+  }
+
+  private static final class Entry {
+    private final Validators validators;
+    private final PageParser.Result result;
+
+    Entry(Validators validators, PageParser.Result result) {
+      this.validators = validators;
+      this.result = result;
+    }
+  }
+}
@@ -0,0 +1,397 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link PageFetcher} that keeps every page it downloads on disk, and serves later requests for
+ * the same URL from there without going to the network.
+ *
+ * <p>Pages are appended to segment files in the cache directory, each a sixteenth of the size cap
+ * (between 1 and 64 MB). A page is read back through a {@link MappedByteBuffer} of its segment,
+ * so the parser reads the body straight from the page cache without copying it onto the heap. An
+ * in-memory index maps the fingerprint of each URL to the segment, offset and length of its page;
+ * it is rebuilt from the segment headers when the cache is opened.
+ *
+ * <p>When the segments grow past the size cap, the oldest segment is deleted with every page in
+ * it. Pages never expire otherwise, so the cache is meant for repeating the same crawl, as in
+ * development and tests, rather than for keeping up with changing sites.
+ *
+ * <p>Each record in a segment starts with {@link #RECORD_MAGIC}, followed by the URL fingerprint,
+ * the requested URL, the URL the page was served from, its charset, {@code ETag} and
+ * {@code Last-Modified} (each an int length and UTF-8 bytes, empty if absent), and the body length
+ * and body.
+ */
+final class ResponseCache implements PageFetcher {
+
+  static final int RECORD_MAGIC = 0x52435231;  // "RCR1"
+
+  /**
+   * Pages served from the cache.
+   */
+  static final String HITS = "responseCache.hits";
+
+  /**
+   * Pages that had to be downloaded.
+   */
+  static final String MISSES = "responseCache.misses";
+
+  /**
+   * Downloaded pages that could not be written to the cache, and so are downloaded again next time.
+   */
+  static final String WRITE_FAILURES = "responseCache.writeFailures";
+
+  private static final Logger LOGGER = Logger.getLogger(ResponseCache.class.getName());
+
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".dat";
+  private static final long MIN_SEGMENT_BYTES = 1L << 20;
+  private static final long MAX_SEGMENT_BYTES = 64L << 20;
+  private static final int SEGMENTS_PER_CAP = 16;
+
+  private final PageFetcher delegate;
+  private final Profiler profiler;
+  private final Path directory;
+  private final long maxBytes;
+  private final long segmentBytes;
+  private final Map<Long, Location> index = new ConcurrentHashMap<>();
+  private final Map<Long, MappedByteBuffer> mappings = new ConcurrentHashMap<>();
+
+  // Guarded by this.
+  private final Deque<Segment> segments = new ArrayDeque<>();
+  private long totalBytes;
+  private FileChannel appendChannel;
+  private long appendSegment;
+
+  private ResponseCache(PageFetcher delegate, Profiler profiler, Path directory, long maxBytes) {
+    this.delegate = delegate;
+    this.profiler = profiler;
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    this.segmentBytes =
+        Math.max(MIN_SEGMENT_BYTES, Math.min(MAX_SEGMENT_BYTES, maxBytes / SEGMENTS_PER_CAP));
+  }
+
+  /**
+   * Opens the cache in the given directory, creating it if needed.
+   *
+   * @param delegate the fetcher used for pages that are not in the cache.
+   * @param maxBytes the size the segments may grow to before the oldest is evicted.
+   */
+  static ResponseCache open(PageFetcher delegate, Profiler profiler, Path directory, long maxBytes)
+      throws IOException {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("maxBytes must be positive");
+    }
+    ResponseCache cache = new ResponseCache(
+        Objects.requireNonNull(delegate), Objects.requireNonNull(profiler),
+        Files.createDirectories(directory), maxBytes);
+    cache.load();
+    return cache;
+  }
+
+  @Override
+  public CompletableFuture<FetchedPage> fetch(URI uri, Duration timeout) {
+    return fetch(uri, timeout, Validators.NONE);
+  }
+
+  @Override
+  public CompletableFuture<FetchedPage> fetch(URI uri, Duration timeout, Validators validators) {
+    String url = uri.toString();
+    FetchedPage cached = get(url);
+    if (cached != null) {
+      profiler.incrementCounter(HITS, 1);
+      return CompletableFuture.completedFuture(cached);
+    }
+    profiler.incrementCounter(MISSES, 1);
+    CompletableFuture<FetchedPage> response = delegate.fetch(uri, timeout, validators);
+    CompletableFuture<FetchedPage> page = response.thenApply(p -> {
+      if (!p.isNotModified()) {
+        put(url, p);
+      }
+      return p;
+    });
+    page.whenComplete((p, e) -> {
+      if (page.isCancelled()) {
+        response.cancel(true);
+      }
+    });
+    return page;
+  }
+
+  /**
+   * Returns the cached page for the given URL, or {@code null} if it is not cached.
+   */
+  FetchedPage get(String url) {
+    Location location = index.get(fingerprint(url));
+    if (location == null || !location.url.equals(url)) {
+      return null;
+    }
+    MappedByteBuffer mapping;
+    try {
+      mapping = map(location.segment, location.bodyOffset + location.bodyLength);
+    } catch (IOException e) {
+      // The segment was evicted in the meantime.
+      return null;
+    }
+    if (mapping == null) {
+      return null;
+    }
+    ByteBuffer body = mapping.duplicate()
+        .position((int) location.bodyOffset)
+        .limit((int) (location.bodyOffset + location.bodyLength))
+        .slice();
+    return new FetchedPage(location.finalUri, location.charset, body, location.validators);
+  }
+
+  /**
+   * Appends a downloaded page to the newest segment.
+   */
+  synchronized void put(String url, FetchedPage page) {
+    ByteBuffer body = page.getBody();
+    byte[][] strings = {
+        utf8(url),
+        utf8(page.getUri().toString()),
+        utf8(page.getCharset().orElse("")),
+        utf8(page.getValidators().getETag().orElse("")),
+        utf8(page.getValidators().getLastModified().orElse(""))};
+    int headerLength = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    for (byte[] s : strings) {
+      headerLength += Integer.BYTES + s.length;
+    }
+    ByteBuffer header = ByteBuffer.allocate(headerLength);
+    long fingerprint = fingerprint(url);
+    header.putInt(RECORD_MAGIC).putLong(fingerprint);
+    for (byte[] s : strings) {
+      header.putInt(s.length).put(s);
+    }
+    header.putInt(body.remaining()).flip();
+
+    try {
+      Segment segment = segments.peekLast();
+      if (segment == null || segment.size >= segmentBytes) {
+        segment = newSegment();
+      }
+      long recordOffset = segment.size;
+      long bodyLength = body.remaining();
+      if (appendChannel == null || appendSegment != segment.id) {
+        if (appendChannel != null) {
+          appendChannel.close();
+        }
+        appendChannel = FileChannel.open(segment.path, StandardOpenOption.WRITE);
+        appendSegment = segment.id;
+      }
+      appendChannel.position(recordOffset);
+      ByteBuffer[] record = {header, body};
+      while (header.hasRemaining() || body.hasRemaining()) {
+        appendChannel.write(record);
+      }
+      long recordLength = headerLength + bodyLength;
+      segment.size += recordLength;
+      totalBytes += recordLength;
+      index.put(fingerprint, new Location(
+          segment.id, url, page.getUri(), page.getCharset().orElse(null), page.getValidators(),
+          recordOffset + headerLength, bodyLength));
+      evict();
+    } catch (IOException e) {
+      // The page is still returned; it just has to be downloaded again next time.
+      profiler.incrementCounter(WRITE_FAILURES, 1);
+      LOGGER.log(Level.WARNING, "Could not write " + url + " to the response cache", e);
+    }
+  }
+
+  private void evict() throws IOException {
+    while (totalBytes > maxBytes && segments.size() > 1) {
+      Segment oldest = segments.removeFirst();
+      index.values().removeIf(location -> location.segment == oldest.id);
+      mappings.remove(oldest.id);
+      totalBytes -= oldest.size;
+      Files.deleteIfExists(oldest.path);
+    }
+  }
+
+  private Segment newSegment() throws IOException {
+    long id = segments.isEmpty() ? 1 : segments.peekLast().id + 1;
+    Path path = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    Files.deleteIfExists(path);
+    Files.createFile(path);
+    Segment segment = new Segment(id, path, 0);
+    segments.addLast(segment);
+    return segment;
+  }
+
+  /**
+   * Returns a read-only mapping of the given segment that covers at least {@code length} bytes,
+   * or {@code null} if the segment no longer exists. Segments only grow, so a mapping is replaced
+   * only when a page was appended after it was made.
+   */
+  private MappedByteBuffer map(long segmentId, long length) throws IOException {
+    MappedByteBuffer mapping = mappings.get(segmentId);
+    if (mapping != null && mapping.capacity() >= length) {
+      return mapping;
+    }
+    Path path = directory.resolve(
+        String.format("%s%08d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < length) {
+        return null;
+      }
+      mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+    mappings.put(segmentId, mapping);
+    return mapping;
+  }
+
+  /**
+   * Rebuilds the index from the segment files, oldest first, and cuts off any record that was
+   * only partly written when a previous process died.
+   */
+  private synchronized void load() throws IOException {
+    Map<Long, Path> found = new TreeMap<>();
+    try (DirectoryStream<Path> files =
+             Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path path : files) {
+        String name = path.getFileName().toString();
+        try {
+          found.put(Long.parseLong(name.substring(
+              SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), path);
+        } catch (NumberFormatException e) {
+          // Not one of ours.
+        }
+      }
+    }
+    for (Map.Entry<Long, Path> e : found.entrySet()) {
+      long id = e.getKey();
+      long validBytes = scan(id, e.getValue());
+      segments.addLast(new Segment(id, e.getValue(), validBytes));
+      totalBytes += validBytes;
+    }
+    evict();
+  }
+
+  private long scan(long segmentId, Path path) throws IOException {
+    long offset = 0;
+    try (FileChannel channel =
+             FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      while (buffer.hasRemaining()) {
+        try {
+          if (buffer.getInt() != RECORD_MAGIC) {
+            break;
+          }
+          long fingerprint = buffer.getLong();
+          String url = readString(buffer);
+          URI finalUri = URI.create(readString(buffer));
+          String charset = readString(buffer);
+          String etag = readString(buffer);
+          String lastModified = readString(buffer);
+          int bodyLength = buffer.getInt();
+          if (bodyLength < 0 || bodyLength > buffer.remaining()) {
+            break;
+          }
+          long bodyOffset = buffer.position();
+          buffer.position(buffer.position() + bodyLength);
+          offset = buffer.position();
+          index.put(fingerprint, new Location(
+              segmentId, url, finalUri, charset.isEmpty() ? null : charset,
+              new Validators(etag.isEmpty() ? null : etag,
+                  lastModified.isEmpty() ? null : lastModified),
+              bodyOffset, bodyLength));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+          break;
+        }
+      }
+      if (offset < channel.size()) {
+        channel.truncate(offset);
+      }
+    }
+    return offset;
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] utf8(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the 64-bit FNV-1a hash of the URL's UTF-8 bytes.
+   */
+  static long fingerprint(String url) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : utf8(url)) {
+      hash ^= (b & 0xff);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  private static final class Segment {
+    private final long id;
+    private final Path path;
+    private long size;
+
+    Segment(long id, Path path, long size) {
+      this.id = id;
+      this.path = path;
+      this.size = size;
+    }
+  }
+
+  private static final class Location {
+    private final long segment;
+    private final String url;
+    private final URI finalUri;
+    private final String charset;
+    private final Validators validators;
+    private final long bodyOffset;
+    private final long bodyLength;
+
+    Location(
+        long segment,
+        String url,
+        URI finalUri,
+        String charset,
+        Validators validators,
+        long bodyOffset,
+        long bodyLength) {
+      this.segment = segment;
+      this.url = url;
+      this.finalUri = finalUri;
+      this.charset = charset;
+      this.validators = validators;
+      this.bodyOffset = bodyOffset;
+      this.bodyLength = bodyLength;
+    }
+  }
+}
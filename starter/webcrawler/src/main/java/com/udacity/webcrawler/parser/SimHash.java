@@ -0,0 +1,58 @@
+package com.udacity.webcrawler.parser;
+
+/**
+ * Computes the 64-bit SimHash of a page's words, a fingerprint in which pages with mostly the same
+ * words differ in only a few bits.
+ *
+ * <p>Every word hashes to 64 bits, and each bit of the fingerprint is set if more word occurrences
+ * have that bit set than clear. A word that occurs {@code n} times votes {@code n} times, so the
+ * fingerprint is the same as if it were built up one token at a time as the page is parsed, but
+ * costs one hash per distinct word rather than per token.
+ */
+final class SimHash {
+
+  private SimHash() {
+    // This class cannot be instantiated
+  }
+
+  /**
+   * Returns the SimHash of the given word frequencies, or 0 if there are none.
+   */
+  static long of(WordCountMap wordCounts) {
+    if (wordCounts.isEmpty()) {
+      return 0;
+    }
+    long[] votes = new long[Long.SIZE];
+    wordCounts.forEach((word, count) -> {
+      long hash = hash(word);
+      for (int bit = 0; bit < Long.SIZE; bit++) {
+        votes[bit] += ((hash >>> bit) & 1) != 0 ? count : -count;
+      }
+    });
+    long simHash = 0;
+    for (int bit = 0; bit < Long.SIZE; bit++) {
+      if (votes[bit] > 0) {
+        simHash |= 1L << bit;
+      }
+    }
+    return simHash;
+  }
+
+  /**
+   * Returns a 64-bit FNV-1a hash of the word's UTF-16 code units, with the bits mixed afterwards
+   * so that every bit depends on every character.
+   */
+  private static long hash(String word) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < word.length(); i++) {
+      h ^= word.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
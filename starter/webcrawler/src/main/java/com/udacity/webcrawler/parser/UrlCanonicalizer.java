@@ -0,0 +1,251 @@
+package com.udacity.webcrawler.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites {@code http} and {@code https} URLs into one canonical spelling, so that links that
+ * point at the same page are crawled once instead of once per spelling.
+ *
+ * <p>The scheme and host are lowercased, a default port ({@code :80} for {@code http},
+ * {@code :443} for {@code https}) and the fragment are dropped, {@code .} and {@code ..} path
+ * segments are resolved, an empty path becomes {@code /}, and percent-escapes get uppercase hex
+ * digits. Optionally, query parameters are sorted and parameters whose names match a pattern, such
+ * as {@code utm_.*} tracking parameters, are removed.
+ *
+ * <p>URLs with any other scheme, and URLs that do not look like {@code scheme://authority...},
+ * are returned unchanged. A URL that is already canonical is returned as the same instance.
+ */
+public final class UrlCanonicalizer {
+
+  /**
+   * A canonicalizer that keeps query parameters as they are.
+   */
+  public static final UrlCanonicalizer DEFAULT = new Builder().build();
+
+  private final boolean sortQueryParameters;
+  private final List<Pattern> strippedQueryParameters;
+
+  private UrlCanonicalizer(
+      boolean sortQueryParameters, List<Pattern> strippedQueryParameters) {
+    this.sortQueryParameters = sortQueryParameters;
+    this.strippedQueryParameters = strippedQueryParameters;
+  }
+
+  /**
+   * Returns the canonical spelling of the given URL.
+   */
+  public String canonicalize(String url) {
+    int schemeEnd = url.indexOf("://");
+    if (schemeEnd <= 0) {
+      return url;
+    }
+    int defaultPort;
+    if (schemeEnd == 4 && url.regionMatches(true, 0, "http", 0, 4)) {
+      defaultPort = 80;
+    } else if (schemeEnd == 5 && url.regionMatches(true, 0, "https", 0, 5)) {
+      defaultPort = 443;
+    } else {
+      return url;
+    }
+
+    int length = url.length();
+    int authorityStart = schemeEnd + 3;
+    int authorityEnd = indexOfAny(url, authorityStart, length, "/?#");
+    int fragment = url.indexOf('#', authorityEnd);
+    int end = (fragment < 0) ? length : fragment;
+    int query = url.indexOf('?', authorityEnd);
+    if (query >= end) {
+      query = -1;
+    }
+    int pathEnd = (query < 0) ? end : query;
+
+    StringBuilder out = new StringBuilder(length);
+    appendLowerCase(out, url, 0, schemeEnd);
+    out.append("://");
+    appendAuthority(out, url, authorityStart, authorityEnd, defaultPort);
+    appendPath(out, url, authorityEnd, pathEnd);
+    if (query >= 0) {
+      appendQuery(out, url, query + 1, end);
+    }
+    return url.contentEquals(out) ? url : out.toString();
+  }
+
+  private static void appendAuthority(
+      StringBuilder out, String url, int start, int end, int defaultPort) {
+    // User info is case-sensitive; only the host is lowercased.
+    int at = url.lastIndexOf('@', end - 1);
+    int hostStart = (at >= start) ? at + 1 : start;
+    out.append(url, start, hostStart);
+    // A colon after the last ']' separates the port, so IPv6 literals are left alone.
+    int bracket = url.lastIndexOf(']', end - 1);
+    int colon = url.lastIndexOf(':', end - 1);
+    if (colon < hostStart || colon < bracket) {
+      appendLowerCase(out, url, hostStart, end);
+      return;
+    }
+    appendLowerCase(out, url, hostStart, colon);
+    String port = url.substring(colon + 1, end);
+    if (!port.isEmpty() && !port.equals(Integer.toString(defaultPort))) {
+      out.append(':').append(port);
+    }
+  }
+
+  /**
+   * Appends the path with dot segments removed, as in RFC 3986 section 5.2.4.
+   */
+  private static void appendPath(StringBuilder out, String url, int start, int end) {
+    int pathStart = out.length();
+    if (start == end) {
+      out.append('/');
+      return;
+    }
+    int i = start;
+    while (i < end) {
+      int next = url.indexOf('/', i + 1);
+      if (next < 0 || next > end) {
+        next = end;
+      }
+      // The segment, without its leading slash.
+      int segmentStart = (url.charAt(i) == '/') ? i + 1 : i;
+      int segmentLength = next - segmentStart;
+      boolean last = next == end;
+      if (segmentLength == 1 && url.charAt(segmentStart) == '.') {
+        if (last) {
+          out.append('/');
+        }
+      } else if (segmentLength == 2
+          && url.charAt(segmentStart) == '.' && url.charAt(segmentStart + 1) == '.') {
+        int parent = out.lastIndexOf("/");
+        out.setLength(Math.max(parent, pathStart));
+        if (last) {
+          out.append('/');
+        }
+      } else {
+        out.append('/');
+        appendEscaped(out, url, segmentStart, next);
+      }
+      i = next;
+    }
+    if (out.length() == pathStart) {
+      out.append('/');
+    }
+  }
+
+  private void appendQuery(StringBuilder out, String url, int start, int end) {
+    if (!sortQueryParameters && strippedQueryParameters.isEmpty()) {
+      if (start < end) {
+        out.append('?');
+        appendEscaped(out, url, start, end);
+      }
+      return;
+    }
+    List<String> parameters = new ArrayList<>();
+    int i = start;
+    while (i < end) {
+      int next = url.indexOf('&', i);
+      if (next < 0 || next > end) {
+        next = end;
+      }
+      if (next > i && !isStripped(url, i, next)) {
+        parameters.add(url.substring(i, next));
+      }
+      i = next + 1;
+    }
+    if (sortQueryParameters) {
+      // Stable, so repeated parameters keep their order.
+      parameters.sort((a, b) -> name(a).compareTo(name(b)));
+    }
+    for (int p = 0; p < parameters.size(); p++) {
+      out.append((p == 0) ? '?' : '&');
+      String parameter = parameters.get(p);
+      appendEscaped(out, parameter, 0, parameter.length());
+    }
+  }
+
+  private boolean isStripped(String url, int start, int end) {
+    int equals = url.indexOf('=', start);
+    CharSequence name = url.subSequence(start, (equals < 0 || equals > end) ? end : equals);
+    for (Pattern pattern : strippedQueryParameters) {
+      if (pattern.matcher(name).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String name(String parameter) {
+    int equals = parameter.indexOf('=');
+    return (equals < 0) ? parameter : parameter.substring(0, equals);
+  }
+
+  /**
+   * Appends the range, uppercasing the hex digits of percent-escapes.
+   */
+  private static void appendEscaped(StringBuilder out, String s, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      out.append(c);
+      if (c == '%' && i + 2 < end && isHex(s.charAt(i + 1)) && isHex(s.charAt(i + 2))) {
+        out.append(Character.toUpperCase(s.charAt(i + 1)));
+        out.append(Character.toUpperCase(s.charAt(i + 2)));
+        i += 2;
+      }
+    }
+  }
+
+  private static void appendLowerCase(StringBuilder out, String s, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      out.append((c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c);
+    }
+  }
+
+  private static boolean isHex(char c) {
+    return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+  }
+
+  private static int indexOfAny(String s, int start, int end, String chars) {
+    for (int i = start; i < end; i++) {
+      if (chars.indexOf(s.charAt(i)) >= 0) {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  /**
+   * A builder class for {@link UrlCanonicalizer}.
+   */
+  public static final class Builder {
+    private boolean sortQueryParameters;
+    private final List<Pattern> strippedQueryParameters = new ArrayList<>();
+
+    /**
+     * Sorts query parameters by name, so {@code ?b=1&a=2} and {@code ?a=2&b=1} are one URL.
+     * Defaults to false, since some sites give parameter order a meaning.
+     */
+    public Builder setSortQueryParameters(boolean sortQueryParameters) {
+      this.sortQueryParameters = sortQueryParameters;
+      return this;
+    }
+
+    /**
+     * Removes query parameters whose whole name matches one of the given patterns.
+     */
+    public Builder addStrippedQueryParameters(List<Pattern> patterns) {
+      patterns.forEach(p -> strippedQueryParameters.add(Objects.requireNonNull(p)));
+      return this;
+    }
+
+    /**
+     * Constructs a {@link UrlCanonicalizer} from this builder.
+     */
+    public UrlCanonicalizer build() {
+      return new UrlCanonicalizer(
+          sortQueryParameters, List.copyOf(strippedQueryParameters));
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.udacity.webcrawler.parser;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The HTTP cache validators of a downloaded page: its {@code ETag} and {@code Last-Modified}
+ * response headers. Sending them back on a later request lets the server answer 304 Not Modified
+ * instead of sending the page again.
+ */
+public final class Validators {
+
+  /**
+   * Validators for a page whose server sent neither header.
+   */
+  public static final Validators NONE = new Validators(null, null);
+
+  private final String etag;
+  private final String lastModified;
+
+  /**
+   * Creates {@link Validators} from the given header values, either of which may be {@code null}.
+   */
+  public Validators(String etag, String lastModified) {
+    this.etag = etag;
+    this.lastModified = lastModified;
+  }
+
+  /**
+   * Returns the {@code ETag} header, to be sent back as {@code If-None-Match}.
+   */
+  public Optional<String> getETag() {
+    return Optional.ofNullable(etag);
+  }
+
+  /**
+   * Returns the {@code Last-Modified} header, to be sent back as {@code If-Modified-Since}.
+   */
+  public Optional<String> getLastModified() {
+    return Optional.ofNullable(lastModified);
+  }
+
+  /**
+   * Returns true if the server sent at least one validator, so the page can be requested
+   * conditionally.
+   */
+  public boolean isPresent() {
+    return etag != null || lastModified != null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Validators)) {
+      return false;
+    }
+    Validators other = (Validators) o;
+    return Objects.equals(etag, other.etag) && Objects.equals(lastModified, other.lastModified);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(etag, lastModified);
+  }
+}
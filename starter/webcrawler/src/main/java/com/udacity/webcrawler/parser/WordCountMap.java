@@ -0,0 +1,329 @@
+package com.udacity.webcrawler.parser;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A map from words to counts that stores the counts as {@code int}s, for counting words without
+ * creating an object per word or per occurrence.
+ *
+ * <p>Words, their hashes and their counts are kept in three parallel arrays, and a word's slot is
+ * found by open addressing with linear probing. Counting a word that is already in the map only
+ * writes to the counts array, so it allocates nothing, where {@link java.util.HashMap} would box a
+ * new {@link Integer} each time. Each word's hash is kept so that growing the map and merging one
+ * map into another never hash a word again.
+ *
+ * <p>Words cannot be removed. A map is not thread-safe; {@link #asMap()} gives a read-only view of
+ * it for code that expects a {@link Map}.
+ */
+public final class WordCountMap {
+
+  private static final int MIN_CAPACITY = 16;
+
+  private String[] words;
+  private int[] hashes;
+  private int[] counts;
+  private int size;
+  private Map<String, Integer> view;
+
+  /**
+   * Creates an empty map.
+   */
+  public WordCountMap() {
+    this(MIN_CAPACITY / 2);
+  }
+
+  /**
+   * Creates an empty map with room for the given number of words before it has to grow.
+   */
+  public WordCountMap(int expectedWords) {
+    if (expectedWords < 0) {
+      throw new IllegalArgumentException("expectedWords must not be negative");
+    }
+    allocate(capacityFor(expectedWords));
+  }
+
+  /**
+   * Adds one to the count of the given word.
+   */
+  public void increment(String word) {
+    add(word, 1);
+  }
+
+  /**
+   * Adds the given amount to the count of the given word.
+   */
+  public void add(String word, int count) {
+    Objects.requireNonNull(word);
+    int hash = hash(word);
+    int mask = words.length - 1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      String existing = words[i];
+      if (existing == null) {
+        insert(i, word, hash, count);
+        return;
+      }
+      if (hashes[i] == hash && existing.equals(word)) {
+        counts[i] += count;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Adds every count in the given map to this one.
+   */
+  public void mergeFrom(WordCountMap other) {
+    if (other == this) {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] *= 2;
+      }
+      return;
+    }
+    ensureCapacity(size + other.size);
+    String[] otherWords = other.words;
+    for (int j = 0; j < otherWords.length; j++) {
+      if (otherWords[j] != null) {
+        addHashed(otherWords[j], other.hashes[j], other.counts[j]);
+      }
+    }
+  }
+
+  /**
+   * Adds every count in the given {@link Map} to this one.
+   */
+  public void mergeFrom(Map<String, Integer> other) {
+    ensureCapacity(size + other.size());
+    for (Map.Entry<String, Integer> e : other.entrySet()) {
+      add(e.getKey(), e.getValue());
+    }
+  }
+
+  /**
+   * Returns the count of the given word, or 0 if it has not been counted.
+   */
+  public int get(String word) {
+    int slot = slotOf(word);
+    return (slot < 0) ? 0 : counts[slot];
+  }
+
+  /**
+   * Returns the number of distinct words in the map.
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Calls the given action with every word and its count, in no particular order.
+   */
+  public void forEach(ObjIntConsumer<String> action) {
+    for (int i = 0; i < words.length; i++) {
+      if (words[i] != null) {
+        action.accept(words[i], counts[i]);
+      }
+    }
+  }
+
+  /**
+   * Returns a copy of this map.
+   */
+  public WordCountMap copy() {
+    WordCountMap copy = new WordCountMap(0);
+    copy.words = words.clone();
+    copy.hashes = hashes.clone();
+    copy.counts = counts.clone();
+    copy.size = size;
+    return copy;
+  }
+
+  /**
+   * Returns a read-only {@link Map} view of this map, which reflects later changes to it. Counts
+   * are boxed as they are read.
+   */
+  public Map<String, Integer> asMap() {
+    if (view == null) {
+      view = new View();
+    }
+    return view;
+  }
+
+  @Override
+  public String toString() {
+    return asMap().toString();
+  }
+
+  private void addHashed(String word, int hash, int count) {
+    int mask = words.length - 1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      String existing = words[i];
+      if (existing == null) {
+        insert(i, word, hash, count);
+        return;
+      }
+      if (hashes[i] == hash && existing.equals(word)) {
+        counts[i] += count;
+        return;
+      }
+    }
+  }
+
+  private void insert(int slot, String word, int hash, int count) {
+    words[slot] = word;
+    hashes[slot] = hash;
+    counts[slot] = count;
+    size++;
+    if (size > maxSize(words.length)) {
+      rehash(words.length * 2);
+    }
+  }
+
+  private int slotOf(Object key) {
+    if (!(key instanceof String)) {
+      return -1;
+    }
+    String word = (String) key;
+    int hash = hash(word);
+    int mask = words.length - 1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      String existing = words[i];
+      if (existing == null) {
+        return -1;
+      }
+      if (hashes[i] == hash && existing.equals(word)) {
+        return i;
+      }
+    }
+  }
+
+  private void ensureCapacity(int expectedWords) {
+    int capacity = capacityFor(expectedWords);
+    if (capacity > words.length) {
+      rehash(capacity);
+    }
+  }
+
+  private void rehash(int capacity) {
+    String[] oldWords = words;
+    int[] oldHashes = hashes;
+    int[] oldCounts = counts;
+    allocate(capacity);
+    int mask = capacity - 1;
+    for (int j = 0; j < oldWords.length; j++) {
+      if (oldWords[j] != null) {
+        int i = oldHashes[j] & mask;
+        while (words[i] != null) {
+          i = (i + 1) & mask;
+        }
+        words[i] = oldWords[j];
+        hashes[i] = oldHashes[j];
+        counts[i] = oldCounts[j];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    words = new String[capacity];
+    hashes = new int[capacity];
+    counts = new int[capacity];
+  }
+
+  /**
+   * Returns the smallest power of two that holds the given number of words without going over
+   * the load factor of 3/4.
+   */
+  private static int capacityFor(int expectedWords) {
+    int capacity = MIN_CAPACITY;
+    while (maxSize(capacity) < expectedWords) {
+      capacity *= 2;
+    }
+    return capacity;
+  }
+
+  private static int maxSize(int capacity) {
+    return capacity - (capacity >>> 2);
+  }
+
+  /**
+   * Spreads the bits of {@link String#hashCode()}, which the string caches, so that words whose
+   * hashes differ only in their high bits do not all probe from the same slot.
+   */
+  private static int hash(String word) {
+    int h = word.hashCode() * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  private final class View extends AbstractMap<String, Integer> {
+    private Set<Map.Entry<String, Integer>> entries;
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return slotOf(key) >= 0;
+    }
+
+    @Override
+    public Integer get(Object key) {
+      int slot = slotOf(key);
+      return (slot < 0) ? null : counts[slot];
+    }
+
+    @Override
+    public Set<Map.Entry<String, Integer>> entrySet() {
+      if (entries == null) {
+        entries = new AbstractSet<>() {
+          @Override
+          public int size() {
+            return size;
+          }
+
+          @Override
+          public Iterator<Map.Entry<String, Integer>> iterator() {
+            return new EntryIterator();
+          }
+        };
+      }
+      return entries;
+    }
+  }
+
+  private final class EntryIterator implements Iterator<Map.Entry<String, Integer>> {
+    private int next = advance(0);
+
+    @Override
+    public boolean hasNext() {
+      return next < words.length;
+    }
+
+    @Override
+    public Map.Entry<String, Integer> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<String, Integer> entry = Map.entry(words[next], counts[next]);
+      next = advance(next + 1);
+      return entry;
+    }
+
+    private int advance(int from) {
+      while (from < words.length && words[from] == null) {
+        from++;
+      }
+      return from;
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.udacity.webcrawler.parser;
+
+import javax.inject.Inject;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Gives every distinct word a dense {@code int} ID the first time it is seen, and keeps one
+ * {@link String} for it, which every page's results share.
+ *
+ * <p>The parser creates a new {@link String} for every word on every page, so without the
+ * dictionary a crawl keeps one copy of a common word per page it has cached, and counts it under
+ * that string. With it, pages hold the dictionary's copy, and crawl-wide totals can be kept by
+ * {@code int} ID, which holds no strings at all. Words are looked up by ID again only to report
+ * them.
+ *
+ * <p>IDs start at 0 and are never reused or taken back. A dictionary is thread-safe, and only
+ * takes a lock the first time a word is seen.
+ */
+public final class WordDictionary {
+
+  private static final int CHUNK_BITS = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int MAX_CHUNKS = 1 << (Integer.SIZE - 1 - CHUNK_BITS);
+
+  private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+  // Words by ID, in chunks so that growing the table only copies references to the chunks, and
+  // readers never take a lock. Replaced by a larger table as chunks are added, which only happens
+  // while holding this dictionary's lock.
+  private volatile AtomicReferenceArray<AtomicReferenceArray<String>> chunks =
+      new AtomicReferenceArray<>(1);
+  private final AtomicInteger nextId = new AtomicInteger();
+
+  /**
+   * Creates an empty dictionary.
+   */
+  @Inject
+  public WordDictionary() {
+  }
+
+  /**
+   * Returns the ID of the given word, giving it the next free ID if it does not have one yet.
+   */
+  public int idOf(String word) {
+    Integer id = ids.get(Objects.requireNonNull(word));
+    if (id == null) {
+      id = ids.computeIfAbsent(word, this::assign);
+    }
+    return id;
+  }
+
+  /**
+   * Returns the dictionary's copy of the given word, adding it if it is not in the dictionary.
+   */
+  public String intern(String word) {
+    return word(idOf(word));
+  }
+
+  /**
+   * Returns the word with the given ID, which must have been returned by {@link #idOf(String)}.
+   */
+  public String word(int id) {
+    AtomicReferenceArray<AtomicReferenceArray<String>> table = chunks;
+    int index = id >>> CHUNK_BITS;
+    AtomicReferenceArray<String> chunk =
+        (id >= 0 && id < nextId.get() && index < table.length()) ? table.get(index) : null;
+    String word = (chunk == null) ? null : chunk.get(id & (CHUNK_SIZE - 1));
+    if (word == null) {
+      throw new IllegalArgumentException("No word has the ID " + id);
+    }
+    return word;
+  }
+
+  /**
+   * Returns the number of distinct words in the dictionary, which is one more than the largest
+   * ID given out so far.
+   */
+  public int size() {
+    return nextId.get();
+  }
+
+  /**
+   * Gives the word the next ID. Runs while the map holds the lock on the word's bin, so a word is
+   * never given two IDs.
+   */
+  private Integer assign(String word) {
+    int id = nextId.getAndIncrement();
+    if (id < 0) {
+      throw new IllegalStateException("The dictionary is full");
+    }
+    int index = id >>> CHUNK_BITS;
+    AtomicReferenceArray<AtomicReferenceArray<String>> table = chunks;
+    AtomicReferenceArray<String> chunk = (index < table.length()) ? table.get(index) : null;
+    if (chunk == null) {
+      chunk = addChunk(index);
+    }
+    chunk.set(id & (CHUNK_SIZE - 1), word);
+    return id;
+  }
+
+  /**
+   * Returns the chunk with the given index, adding it, and growing the table to hold it, if
+   * another thread has not yet. Chunks are only added here, under the lock, so a table being
+   * copied never misses one.
+   */
+  private synchronized AtomicReferenceArray<String> addChunk(int index) {
+    AtomicReferenceArray<AtomicReferenceArray<String>> table = chunks;
+    if (index >= table.length()) {
+      int length = Math.max(index + 1, Math.min(table.length() * 2, MAX_CHUNKS));
+      AtomicReferenceArray<AtomicReferenceArray<String>> grown = new AtomicReferenceArray<>(length);
+      for (int i = 0; i < table.length(); i++) {
+        grown.set(i, table.get(i));
+      }
+      chunks = table = grown;
+    }
+    AtomicReferenceArray<String> chunk = table.get(index);
+    if (chunk == null) {
+      chunk = new AtomicReferenceArray<>(CHUNK_SIZE);
+      table.set(index, chunk);
+    }
+    return chunk;
+  }
+}
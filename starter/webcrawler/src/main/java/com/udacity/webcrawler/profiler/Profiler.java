@@ -26,6 +26,24 @@ public interface Profiler {
    */
   <T> T wrap(Class<T> klass, T delegate);
 
+  /**
+   * Adds the given amount to a named counter, such as the number of pages a crawl stage has
+   * processed. Counters are written after the method timings by {@link #writeData(Writer)}.
+   *
+   * @param name  the name of the counter.
+   * @param delta the amount to add to the counter.
+   */
+  void incrementCounter(String name, long delta);
+
+  /**
+   * Records a sample of a named gauge, such as the current depth of a queue. The latest, mean and
+   * maximum sampled values are written after the method timings by {@link #writeData(Writer)}.
+   *
+   * @param name  the name of the gauge.
+   * @param value the sampled value.
+   */
+  void recordGauge(String name, long value);
+
   /**
    * Formats the profile data as a string and writes it to the given {@link Path}.
    *
@@ -67,6 +67,16 @@ final class ProfilerImpl implements Profiler {
     return proxy;
   }
 
+  @Override
+  public void incrementCounter(String name, long delta) {
+    state.incrementCounter(name, delta);
+  }
+
+  @Override
+  public void recordGauge(String name, long value) {
+    state.recordGauge(name, value);
+  }
+
   private boolean isAnyMethodProfiled(Class<?> klass) {
     Method[] methods = klass.getMethods();
     for (Method m:methods){
@@ -47,7 +47,7 @@ final class ProfilingMethodInterceptor implements InvocationHandler {
 
     if (method.getAnnotation(Profiled.class) != null) {
       try {
-        method.invoke(targetObject, args);
+        return method.invoke(targetObject, args);
       } catch (InvocationTargetException e) {
         throw e.getTargetException();
       } catch (IllegalArgumentException e) {
@@ -57,6 +57,10 @@ final class ProfilingMethodInterceptor implements InvocationHandler {
       }
     }
 
-    return method.invoke(targetObject, args);
+    try {
+      return method.invoke(targetObject, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
   }
 }
\ No newline at end of file
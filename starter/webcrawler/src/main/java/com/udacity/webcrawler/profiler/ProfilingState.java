@@ -4,10 +4,14 @@ import java.io.IOException;
 import java.io.Writer;
 import java.lang.reflect.Method;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -15,6 +19,8 @@ import java.util.stream.Collectors;
  */
 final class ProfilingState {
   private final Map<String, Duration> data = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
 
   /**
    * Records the given method invocation data.
@@ -34,6 +40,22 @@ final class ProfilingState {
     data.compute(key, (k, v) -> (v == null) ? elapsed : v.plus(elapsed));
   }
 
+  /**
+   * Adds the given amount to the named counter.
+   */
+  void incrementCounter(String name, long delta) {
+    Objects.requireNonNull(name);
+    counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+  }
+
+  /**
+   * Records a sample of the named gauge.
+   */
+  void recordGauge(String name, long value) {
+    Objects.requireNonNull(name);
+    gauges.computeIfAbsent(name, k -> new Gauge()).record(value);
+  }
+
   /**
    * Writes the method invocation data to the given {@link Writer}.
    *
@@ -48,7 +70,17 @@ final class ProfilingState {
             .stream()
             .sorted(Map.Entry.comparingByKey())
             .map(e -> e.getKey() + " took " + formatDuration(e.getValue()) + System.lineSeparator())
-            .collect(Collectors.toList());
+            .collect(Collectors.toCollection(ArrayList::new));
+    counters.entrySet()
+        .stream()
+        .sorted(Map.Entry.comparingByKey())
+        .map(e -> e.getKey() + " = " + e.getValue().sum() + System.lineSeparator())
+        .forEach(entries::add);
+    gauges.entrySet()
+        .stream()
+        .sorted(Map.Entry.comparingByKey())
+        .map(e -> e.getKey() + " = " + e.getValue() + System.lineSeparator())
+        .forEach(entries::add);
 
     // We have to use a for-loop here instead of a Stream API method because Writer#write() can
     // throw an IOException, and lambdas are not allowed to throw checked exceptions.
@@ -57,6 +89,30 @@ final class ProfilingState {
     }
   }
 
+  /**
+   * Running statistics for a gauge. Samples may arrive from many threads at once.
+   */
+  private static final class Gauge {
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    private volatile long latest;
+
+    void record(long value) {
+      latest = value;
+      samples.increment();
+      sum.add(value);
+      max.accumulate(value);
+    }
+
+    @Override
+    public String toString() {
+      long count = samples.sum();
+      double mean = (count == 0) ? 0 : (double) sum.sum() / count;
+      return String.format(Locale.ROOT, "%d (mean %.2f, max %d)", latest, mean, max.get());
+    }
+  }
+
   /**
    * Formats the given method call for writing to a text file.
    *
@@ -0,0 +1,208 @@
+package com.udacity.webcrawler;
+
+import com.google.inject.Guice;
+import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.parser.FetchedPage;
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.parser.PatternFilter;
+import com.udacity.webcrawler.parser.WordDictionary;
+import com.udacity.webcrawler.profiler.FakeClock;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class AdaptiveConcurrencyLimiterTest {
+
+  private final FakeClock clock = new FakeClock();
+
+  @Test
+  public void growsWhileLatencyIsStable() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = newLimiter(2);
+    assertThat(limiter.getLimit()).isEqualTo(2);
+
+    completeFetches(limiter, 10, Duration.ofMillis(100));
+    assertThat(limiter.getLimit()).isEqualTo(3);
+
+    completeFetches(limiter, 10, Duration.ofMillis(120));
+    assertThat(limiter.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void backsOffWhenLatencyInflates() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = newLimiter(4);
+
+    completeFetches(limiter, 10, Duration.ofMillis(100));
+    assertThat(limiter.getLimit()).isEqualTo(5);
+
+    completeFetches(limiter, 10, Duration.ofMillis(500));
+    assertThat(limiter.getLimit()).isEqualTo(2);
+  }
+
+  @Test
+  public void backsOffOnceForABurstOfFailures() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = newLimiter(8);
+    Instant first = limiter.acquire(Instant.MAX);
+    Instant second = limiter.acquire(Instant.MAX);
+    clock.tick(Duration.ofSeconds(1));
+
+    limiter.release(first, true);
+    assertThat(limiter.getLimit()).isEqualTo(4);
+
+    // This fetch was already running when the limit was cut.
+    limiter.release(second, true);
+    assertThat(limiter.getLimit()).isEqualTo(4);
+
+    clock.tick(Duration.ofMillis(1));
+    Instant third = limiter.acquire(Instant.MAX);
+    limiter.release(third, true);
+    assertThat(limiter.getLimit()).isEqualTo(2);
+  }
+
+  @Test
+  public void staysWithinBounds() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = newLimiter(2);
+    for (int i = 0; i < 5; i++) {
+      clock.tick(Duration.ofMillis(1));
+      limiter.release(limiter.acquire(Instant.MAX), true);
+    }
+    assertThat(limiter.getLimit()).isEqualTo(1);
+
+    completeFetches(limiter, 200, Duration.ofMillis(100));
+    assertThat(limiter.getLimit()).isEqualTo(2 * AdaptiveConcurrencyLimiter.MAX_MULTIPLIER);
+  }
+
+  @Test
+  public void acquireGivesUpAtDeadline() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = newLimiter(1);
+    Instant held = limiter.acquire(Instant.MAX);
+    assertThat(held).isNotNull();
+
+    assertThat(limiter.acquire(clock.instant())).isNull();
+
+    limiter.release(held, false);
+    assertThat(limiter.acquire(clock.instant())).isNotNull();
+  }
+
+  @Test
+  public void fetchesInFlightCanExceedThePoolSize() {
+    int poolSize = 2;
+    int limit = 6;
+    // Every download waits until all of them have started, or gives up after a few seconds.
+    CountDownLatch allStarted = new CountDownLatch(limit);
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    PageParserFactory slowFactory = new BlockingParserFactory(() -> {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      allStarted.countDown();
+      try {
+        allStarted.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      inFlight.decrementAndGet();
+    });
+
+    ForkJoinPool pool = new ForkJoinPool(poolSize);
+    try {
+      CrawlActionFrame frame = new CrawlActionFrame.Builder()
+          .setClock(Clock.systemUTC())
+          .setDeadline(Instant.now().plus(Duration.ofMinutes(1)))
+          .setPool(pool)
+          .setIgnoredUrls(PatternFilter.compile(List.of()))
+          .setParserFactory(slowFactory)
+          .setVisitedUrls(VisitedSet.concurrent())
+          .setWordCounts(new WordCountAggregator(new WordDictionary()))
+          .setProfiler(new NoOpProfiler())
+          .setLimiter(new AdaptiveConcurrencyLimiter(Clock.systemUTC(), new NoOpProfiler(), limit))
+          .build();
+      List<CrawlActionImpl> pages = new ArrayList<>();
+      for (int i = 0; i < limit; i++) {
+        pages.add(new CrawlActionImpl("http://example.com/page-" + i + ".html", 1, frame));
+      }
+      pool.invoke(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          invokeAll(pages);
+        }
+      });
+    } finally {
+      pool.shutdown();
+    }
+
+    assertThat(maxInFlight.get()).isEqualTo(limit);
+  }
+
+  /**
+   * Parses a local test page for every URL, after running {@code download} to stand in for a
+   * slow download.
+   */
+  private static final class BlockingParserFactory implements PageParserFactory {
+    private final PageParserFactory delegate;
+    private final String page;
+    private final Runnable download;
+
+    BlockingParserFactory(Runnable download) {
+      CrawlerConfiguration config = new CrawlerConfiguration.Builder().build();
+      this.delegate = Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+          .getInstance(PageParserFactory.class);
+      this.page = Paths.get(System.getProperty("testDataDir"), "test-page.html").toUri().toString();
+      this.download = download;
+    }
+
+    @Override
+    public PageParser get(String url) {
+      return get(url, Instant.MAX);
+    }
+
+    @Override
+    public PageParser get(String url, Instant deadline) {
+      return () -> {
+        download.run();
+        return delegate.get(page).parse();
+      };
+    }
+
+    @Override
+    public CompletableFuture<FetchedPage> fetch(String url) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PageParser get(String url, FetchedPage page) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Optional<PageParser.Result> cached(String url) {
+      return Optional.empty();
+    }
+  }
+
+  private AdaptiveConcurrencyLimiter newLimiter(int targetParallelism) {
+    return new AdaptiveConcurrencyLimiter(clock, new NoOpProfiler(), targetParallelism);
+  }
+
+  private void completeFetches(AdaptiveConcurrencyLimiter limiter, int count, Duration latency)
+      throws InterruptedException {
+    for (int i = 0; i < count; i++) {
+      Instant start = limiter.acquire(Instant.MAX);
+      clock.tick(latency);
+      limiter.release(start, false);
+    }
+  }
+}
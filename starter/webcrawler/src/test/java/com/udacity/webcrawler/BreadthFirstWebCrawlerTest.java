@@ -0,0 +1,127 @@
+package com.udacity.webcrawler;
+
+import com.google.inject.Guice;
+import com.google.inject.util.Modules;
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.testing.FixtureSite;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+public final class BreadthFirstWebCrawlerTest {
+  @Inject
+  private WebCrawler crawler;
+
+  @Test
+  public void finishesShallowLevelsBeforeDeadline() throws Exception {
+    // 121 pages with a fan-out of 3 form exactly five levels: 1, 3, 9, 27 and 81 pages. At 400ms
+    // per page even fully parallel levels cannot all finish within the one second timeout.
+    try (FixtureSite site = FixtureSite.start(121, 3, Duration.ofMillis(400))) {
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(BreadthFirstWebCrawler.class.getName())
+              .setParallelism(2)
+              .setMaxDepth(site.depth())
+              .setTimeoutSeconds(1)
+              .setPopularWordCount(100)
+              .addStartPages(site.rootUrl())
+              .build();
+      Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+          .injectMembers(this);
+
+      CrawlResult result = crawler.crawl(config.getStartPages());
+
+      assertThat(result.getUrlsVisited()).isLessThan(site.pageCount());
+      int deepestComplete = -1;
+      int levelStart = 0;
+      int levelSize = 1;
+      for (int level = 0; levelStart < site.pageCount(); level++) {
+        int visited = 0;
+        for (int page = levelStart; page < levelStart + levelSize; page++) {
+          if (result.getWordCounts().containsKey("page" + page)) {
+            visited++;
+          }
+        }
+        if (visited > 0) {
+          assertWithMessage("level %s was started before level %s finished", level, level - 1)
+              .that(deepestComplete)
+              .isEqualTo(level - 1);
+        }
+        if (visited == levelSize) {
+          deepestComplete = level;
+        }
+        levelStart += levelSize;
+        levelSize *= 3;
+      }
+      assertThat(deepestComplete).isAtLeast(0);
+    }
+  }
+
+  @Test
+  public void spilledFrontierMatchesInMemoryCrawl() throws Exception {
+    try (FixtureSite site = FixtureSite.start(121, 3, Duration.ZERO)) {
+      CrawlResult inMemory = crawlSite(site, 100_000);
+      // Levels of up to 81 pages, with only 5 links on the heap at a time.
+      CrawlResult spilled = crawlSite(site, 5);
+
+      assertThat(spilled.getUrlsVisited()).isEqualTo(site.pageCount());
+      assertThat(spilled.getUrlsVisited()).isEqualTo(inMemory.getUrlsVisited());
+      assertThat(spilled.getWordCounts().entrySet())
+          .containsExactlyElementsIn(inMemory.getWordCounts().entrySet())
+          .inOrder();
+    }
+  }
+
+  @Test
+  public void usesTheInjectedVisitedSet() throws Exception {
+    try (FixtureSite site = FixtureSite.start(13, 3, Duration.ZERO)) {
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(BreadthFirstWebCrawler.class.getName())
+              .setParallelism(2)
+              .setMaxDepth(site.depth())
+              .setTimeoutSeconds(30)
+              .addStartPages(site.rootUrl())
+              .build();
+      List<VisitedSet> created = new ArrayList<>();
+      Guice.createInjector(
+              Modules.override(new WebCrawlerModule(config)).with(binder ->
+                  binder.bind(VisitedSet.class).toProvider(() -> {
+                    VisitedSet set = VisitedSet.concurrent();
+                    created.add(set);
+                    return set;
+                  })),
+              new NoOpProfilerModule())
+          .injectMembers(this);
+
+      CrawlResult result = crawler.crawl(config.getStartPages());
+
+      assertThat(created).hasSize(1);
+      assertThat(created.get(0).size()).isEqualTo(site.pageCount());
+      assertThat(result.getUrlsVisited()).isEqualTo(site.pageCount());
+    }
+  }
+
+  private CrawlResult crawlSite(FixtureSite site, int frontierMemoryUrls) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(BreadthFirstWebCrawler.class.getName())
+            .setParallelism(2)
+            .setMaxDepth(site.depth())
+            .setTimeoutSeconds(30)
+            .setPopularWordCount(200)
+            .setFrontierMemoryUrls(frontierMemoryUrls)
+            .addStartPages(site.rootUrl())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    return crawler.crawl(config.getStartPages());
+  }
+}
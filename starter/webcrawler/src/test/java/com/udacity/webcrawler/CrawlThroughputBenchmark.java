@@ -0,0 +1,106 @@
+package com.udacity.webcrawler;
+
+import com.google.inject.Guice;
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.testing.FixtureSite;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * JMH benchmark that measures crawl throughput (pages per second) against a local
+ * {@link FixtureSite} at different {@code parallelism} settings.
+ *
+ * <p>Run it from the project directory with:
+ *
+ * <pre>{@code
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       org.openjdk.jmh.Main CrawlThroughputBenchmark
+ * }</pre>
+ *
+ * <p>The {@code pages} counter in the output is the pages/sec figure.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class CrawlThroughputBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Site {
+    @Param({
+        "ParallelWebCrawler",
+        "VirtualThreadWebCrawler",
+        "BreadthFirstWebCrawler",
+        "PipelinedWebCrawler"})
+    public String implementation;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"20"})
+    public int latencyMillis;
+
+    FixtureSite site;
+
+    @Inject
+    WebCrawler crawler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+      site = FixtureSite.start(200, 4, Duration.ofMillis(latencyMillis));
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride("com.udacity.webcrawler." + implementation)
+              .setParallelism(parallelism)
+              .setMaxDepth(site.depth())
+              .setTimeoutSeconds(600)
+              .setPopularWordCount(10)
+              .build();
+      Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+          .injectMembers(this);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      site.close();
+    }
+  }
+
+  /**
+   * Counts crawled pages so JMH reports them as a rate next to the crawl rate.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Pages {
+    public long pages;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      pages = 0;
+    }
+  }
+
+  @Benchmark
+  public CrawlResult crawl(Site site, Pages pages) {
+    CrawlResult result = site.crawler.crawl(List.of(site.site.rootUrl()));
+    pages.pages += result.getUrlsVisited();
+    return result;
+  }
+}
@@ -0,0 +1,221 @@
+package com.udacity.webcrawler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Guice;
+import com.udacity.webcrawler.distributed.Cluster;
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.main.DistributedCrawlerMain;
+import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.profiler.ProfilerModule;
+import com.udacity.webcrawler.testing.CollectingSubscriber;
+import com.udacity.webcrawler.testing.FixtureSite;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+public final class DistributedWebCrawlerTest {
+  private static final int NODES = 3;
+
+  @Inject
+  private WebCrawler crawler;
+
+  @Test
+  public void threeNodesMatchSingleNodeCrawl(@TempDir Path tempDir) throws Exception {
+    try (FixtureSite site = FixtureSite.start(40, 3, Duration.ZERO)) {
+      List<String> startPages = List.of(site.rootUrl(), site.pageUrl(5), site.pageUrl(7));
+      Path resultPath = tempDir.resolve("result.json");
+      Path configPath = tempDir.resolve("config.json");
+      Map<String, Object> json = new LinkedHashMap<>();
+      json.put("startPages", startPages);
+      json.put("parallelism", 2);
+      json.put("maxDepth", site.depth());
+      json.put("timeoutSeconds", 30);
+      json.put("popularWordCount", 1000);
+      json.put("resultPath", resultPath.toString());
+      json.put("profileOutputPath", tempDir.resolve("profile.txt").toString());
+      new ObjectMapper().writeValue(configPath.toFile(), json);
+
+      StringJoiner addresses = new StringJoiner(",");
+      for (int port : freePorts(NODES)) {
+        addresses.add("127.0.0.1:" + port);
+      }
+      List<Process> nodes = new ArrayList<>();
+      try {
+        for (int node = 0; node < NODES; node++) {
+          nodes.add(new ProcessBuilder(
+              Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+              "--add-opens", "java.base/java.lang=ALL-UNNAMED",
+              "-cp", System.getProperty("java.class.path"),
+              DistributedCrawlerMain.class.getName(),
+              configPath.toString(),
+              Integer.toString(node),
+              addresses.toString())
+              .redirectErrorStream(true)
+              .redirectOutput(tempDir.resolve("node" + node + ".log").toFile())
+              .start());
+        }
+        for (int node = 0; node < NODES; node++) {
+          Process process = nodes.get(node);
+          assertWithMessage("node %s finished", node)
+              .that(process.waitFor(60, TimeUnit.SECONDS))
+              .isTrue();
+          assertWithMessage("node %s exit code; log:\n%s",
+              node, Files.readString(tempDir.resolve("node" + node + ".log")))
+              .that(process.exitValue())
+              .isEqualTo(0);
+        }
+      } finally {
+        nodes.forEach(Process::destroyForcibly);
+      }
+
+      Map<?, ?> distributed = new ObjectMapper().readValue(resultPath.toFile(), Map.class);
+      CrawlResult single = crawlSingleNode(startPages, site.depth());
+
+      assertThat(distributed.get("urlsVisited")).isEqualTo(site.pageCount());
+      assertThat(distributed.get("urlsVisited")).isEqualTo(single.getUrlsVisited());
+      assertThat(((Map<?, ?>) distributed.get("wordCounts")).entrySet())
+          .containsExactlyElementsIn(single.getWordCounts().entrySet())
+          .inOrder();
+      // No page was crawled by more than one node.
+      for (int page = 0; page < site.pageCount(); page++) {
+        assertThat((Map<?, ?>) distributed.get("wordCounts")).containsEntry("page" + page, 1);
+      }
+    }
+  }
+
+  @Test
+  public void singleNodeStreamsEachPageOnce() throws Exception {
+    try (FixtureSite site = FixtureSite.start(13, 3, Duration.ZERO)) {
+      Cluster cluster = Cluster.parse("127.0.0.1:" + freePorts(1)[0], 0);
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setParallelism(2)
+              .setMaxDepth(site.depth())
+              .setTimeoutSeconds(30)
+              .build();
+      DistributedHolder holder = new DistributedHolder();
+      Guice.createInjector(
+              new WebCrawlerModule(config),
+              new NoOpProfilerModule(),
+              binder -> binder.bind(Cluster.class).toInstance(cluster))
+          .injectMembers(holder);
+
+      CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+      holder.crawler.crawlPages(List.of(site.rootUrl())).subscribe(subscriber);
+      List<PageEvent> events = subscriber.await(Duration.ofSeconds(60));
+
+      Set<String> urls = new HashSet<>();
+      for (PageEvent event : events) {
+        assertThat(urls.add(event.getUrl())).isTrue();
+      }
+      assertThat(urls).hasSize(site.pageCount());
+    }
+  }
+
+  @Test
+  public void crawlsLinksLocallyWhenTheirOwnerIsUnreachable() throws Exception {
+    try (FixtureSite site = FixtureSite.start(13, 3, Duration.ofMillis(50));
+         ServerSocket deadPeer = new ServerSocket(0)) {
+      // The coordinator accepts the connection and resets it at once, so every send to it fails.
+      Thread resetter = new Thread(() -> {
+        try (Socket socket = deadPeer.accept()) {
+          socket.setSoLinger(true, 0);
+        } catch (IOException e) {
+          // The test is over.
+        }
+      });
+      resetter.setDaemon(true);
+      resetter.start();
+      Cluster cluster = Cluster.parse(
+          "127.0.0.1:" + deadPeer.getLocalPort() + ",127.0.0.1:" + freePorts(1)[0], 1);
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setParallelism(2)
+              // One level deeper, since pages the coordinator owns may only be reached through the
+              // home link.
+              .setMaxDepth(site.depth() + 1)
+              .setTimeoutSeconds(2)
+              .setClusterConnectTimeoutSeconds(1)
+              .setClusterGracePeriodSeconds(0)
+              .build();
+      DistributedHolder holder = new DistributedHolder();
+      Guice.createInjector(
+              new WebCrawlerModule(config),
+              new ProfilerModule(),
+              binder -> binder.bind(Cluster.class).toInstance(cluster))
+          .injectMembers(holder);
+
+      List<String> startPages = new ArrayList<>();
+      for (int page = 0; page < site.pageCount(); page++) {
+        startPages.add(site.pageUrl(page));
+      }
+      // Only the start pages this node owns are seeded; the rest are reached as links.
+      CrawlResult result = holder.crawler.crawl(startPages);
+
+      assertThat(result.getUrlsVisited()).isEqualTo(site.pageCount());
+      StringWriter profile = new StringWriter();
+      holder.profiler.writeData(profile);
+      assertThat(profile.toString()).contains("distributed.linksCrawledLocally");
+    }
+  }
+
+  private static final class DistributedHolder {
+    @Inject
+    private DistributedWebCrawler crawler;
+
+    @Inject
+    private Profiler profiler;
+  }
+
+  private CrawlResult crawlSingleNode(List<String> startPages, int maxDepth) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(ParallelWebCrawler.class.getName())
+            .setParallelism(2)
+            .setMaxDepth(maxDepth)
+            .setTimeoutSeconds(30)
+            .setPopularWordCount(1000)
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    return crawler.crawl(startPages);
+  }
+
+  private static int[] freePorts(int count) throws IOException {
+    ServerSocket[] sockets = new ServerSocket[count];
+    int[] ports = new int[count];
+    try {
+      for (int i = 0; i < count; i++) {
+        sockets[i] = new ServerSocket(0);
+        ports[i] = sockets[i].getLocalPort();
+      }
+    } finally {
+      for (ServerSocket socket : sockets) {
+        if (socket != null) {
+          socket.close();
+        }
+      }
+    }
+    return ports;
+  }
+}
@@ -0,0 +1,145 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class HeavyHittersTest {
+
+  // Small enough that most of the corpus's words do not fit in the summary.
+  private static final long MEMORY_BYTES = 256 << 10;
+  private static final double ERROR_RATE = 0.001;
+
+  @Test
+  public void countsAreExactUntilTheSummaryFills() {
+    HeavyHitters sketch = new HeavyHitters(1024, 4);
+    sketch.add("the", 3);
+    sketch.add("fox", 1);
+    sketch.add("the", 2);
+
+    assertThat(sketch.estimates()).containsExactly("the", 5, "fox", 1);
+    assertThat(sketch.maxError(List.of("the", "fox"))).isEqualTo(0);
+    assertThat(sketch.total()).isEqualTo(6);
+  }
+
+  @Test
+  public void newWordsReplaceTheLeastCountedWord() {
+    HeavyHitters sketch = new HeavyHitters(1024, 2);
+    sketch.add("the", 5);
+    sketch.add("fox", 1);
+    sketch.add("dog", 2);
+
+    // "dog" takes the place of "fox", so it may have been counted once before it arrived.
+    assertThat(sketch.estimates().keySet()).containsExactly("the", "dog");
+    assertThat(sketch.estimates().get("dog")).isAtLeast(2);
+    assertThat(sketch.maxError(List.of("the"))).isEqualTo(0);
+    assertThrows(IllegalArgumentException.class, () -> sketch.maxError(List.of("fox")));
+  }
+
+  @Test
+  public void popularWordsMatchExactCountsOnAZipfCorpus() {
+    Map<String, Integer> exact = new HashMap<>();
+    HeavyHitters sketch = HeavyHitters.forBudget(MEMORY_BYTES, ERROR_RATE);
+    for (Map<String, Integer> page : corpus(2_000)) {
+      page.forEach((word, count) -> {
+        exact.merge(word, count, Integer::sum);
+        sketch.add(word, count);
+      });
+    }
+
+    assertMatchesExact(sketch, exact);
+  }
+
+  @Test
+  public void mergedSketchesMatchExactCountsOnAZipfCorpus() {
+    Map<String, Integer> exact = new HashMap<>();
+    List<HeavyHitters> sketches = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      sketches.add(HeavyHitters.forBudget(MEMORY_BYTES, ERROR_RATE));
+    }
+    List<Map<String, Integer>> pages = corpus(2_000);
+    for (int i = 0; i < pages.size(); i++) {
+      HeavyHitters sketch = sketches.get(i % sketches.size());
+      pages.get(i).forEach((word, count) -> {
+        exact.merge(word, count, Integer::sum);
+        sketch.add(word, count);
+      });
+    }
+
+    // Merge in a tree, the way the crawler's reduction does.
+    while (sketches.size() > 1) {
+      List<HeavyHitters> merged = new ArrayList<>();
+      for (int i = 0; i < sketches.size(); i += 2) {
+        sketches.get(i).merge(sketches.get(i + 1));
+        merged.add(sketches.get(i));
+      }
+      sketches = merged;
+    }
+
+    assertMatchesExact(sketches.get(0), exact);
+  }
+
+  @Test
+  public void onlySketchesOfTheSameSizeMerge() {
+    HeavyHitters sketch = new HeavyHitters(1024, 16);
+
+    assertThrows(IllegalArgumentException.class, () -> sketch.merge(new HeavyHitters(2048, 16)));
+    assertThrows(IllegalArgumentException.class, () -> sketch.merge(new HeavyHitters(1024, 8)));
+    assertThrows(IllegalArgumentException.class, () -> new HeavyHitters(1000, 16));
+  }
+
+  private static void assertMatchesExact(HeavyHitters sketch, Map<String, Integer> exact) {
+    long total = exact.values().stream().mapToLong(Integer::longValue).sum();
+    assertThat(sketch.total()).isEqualTo(total);
+    // The corpus has far more distinct words than the summary can hold.
+    assertThat(exact.size()).isGreaterThan(sketch.estimates().size() * 4);
+
+    Map<String, Integer> expected = WordCounts.sort(exact, 20);
+    Map<String, Integer> actual = WordCounts.sort(sketch.estimates(), 20);
+    assertThat(actual.keySet()).containsExactlyElementsIn(expected.keySet()).inOrder();
+
+    int maxError = sketch.maxError(actual.keySet());
+    assertThat((double) maxError).isAtMost(ERROR_RATE * total);
+    for (Map.Entry<String, Integer> e : actual.entrySet()) {
+      int trueCount = exact.get(e.getKey());
+      assertThat(e.getValue()).isAtLeast(trueCount);
+      assertThat(e.getValue()).isAtMost(trueCount + maxError);
+    }
+    // Every estimate is an upper bound, including those of the less popular words.
+    sketch.estimates().forEach((word, estimate) -> assertThat(estimate).isAtLeast(exact.get(word)));
+  }
+
+  /**
+   * Generates pages of words whose frequencies follow Zipf's law over 100,000 distinct words, so
+   * that a few words are on every page and most turn up once or twice in the whole corpus.
+   */
+  private static List<Map<String, Integer>> corpus(int pageCount) {
+    int distinct = 100_000;
+    double[] cumulative = new double[distinct];
+    double sum = 0;
+    for (int rank = 0; rank < distinct; rank++) {
+      sum += 1.0 / (rank + 1);
+      cumulative[rank] = sum;
+    }
+    Random random = new Random(42);
+    List<Map<String, Integer>> pages = new ArrayList<>();
+    for (int page = 0; page < pageCount; page++) {
+      Map<String, Integer> counts = new HashMap<>();
+      for (int i = 0; i < 500; i++) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+        rank = (rank < 0) ? -rank - 1 : rank;
+        counts.merge("word" + rank, 1, Integer::sum);
+      }
+      pages.add(counts);
+    }
+    return pages;
+  }
+}
@@ -0,0 +1,113 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.PatternFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * JMH benchmark that checks a batch of words or URLs against more than 50 ignore patterns,
+ * comparing a compiled {@link PatternFilter} with matching each {@link Pattern} in turn, the way
+ * the parser and the crawlers used to.
+ *
+ * <p>The word patterns are stop words, length limits such as {@code ^.{1,3}$} and a number
+ * pattern. The URL patterns are per-host exclusions, which share the literal prefix {@code http},
+ * and file-type exclusions, which have none.
+ *
+ * <p>Run it from the project directory with:
+ *
+ * <pre>{@code
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       org.openjdk.jmh.Main IgnorePatternBenchmark
+ * }</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IgnorePatternBenchmark {
+
+  private static final String[] STOP_WORDS = {
+      "the", "and", "for", "with", "that", "this", "from", "have", "are", "was", "were", "been",
+      "into", "than", "then", "them", "they", "their", "there", "which", "what", "when", "where",
+      "who", "will", "would", "could", "should", "about", "after", "again", "also", "because",
+      "before", "being", "between", "both", "each", "other", "over", "some", "such", "only",
+      "very", "just", "most", "more", "many", "these", "those"};
+
+  @State(Scope.Benchmark)
+  public static class Inputs {
+    @Param({"words", "urls"})
+    public String kind;
+
+    final List<Pattern> patterns = new ArrayList<>();
+    final List<String> inputs = new ArrayList<>();
+    PatternFilter filter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      if (kind.equals("words")) {
+        for (String word : STOP_WORDS) {
+          patterns.add(Pattern.compile(word));
+        }
+        patterns.add(Pattern.compile("^.{1,3}$"));
+        patterns.add(Pattern.compile("^.{40,}$"));
+        patterns.add(Pattern.compile("\\d+"));
+        String text = "the quick brown fox jumps over the lazy dog and then runs into the forest "
+            + "where their friends were waiting for them with something unexpected in 2024";
+        inputs.addAll(List.of(text.split(" ")));
+      } else {
+        for (int i = 0; i < 40; i++) {
+          patterns.add(
+              Pattern.compile("https?://site" + i + "\\.example\\.com/(private|admin)/.*"));
+        }
+        for (String type : List.of("zip", "pdf", "jpg", "png", "gif", "mp4")) {
+          patterns.add(Pattern.compile(".*\\." + type));
+          patterns.add(Pattern.compile(".*\\." + type + "\\?.*"));
+        }
+        for (int i = 0; i < 40; i++) {
+          String section = (i % 5 == 0) ? "admin" : "pages";
+          inputs.add("http://site" + i + ".example.com/" + section + "/" + i + ".html");
+        }
+      }
+      filter = PatternFilter.compile(patterns);
+    }
+  }
+
+  @Benchmark
+  public int eachPattern(Inputs state) {
+    int ignored = 0;
+    for (String input : state.inputs) {
+      if (state.patterns.stream().anyMatch(p -> p.matcher(input).matches())) {
+        ignored++;
+      }
+    }
+    return ignored;
+  }
+
+  @Benchmark
+  public int compiled(Inputs state) {
+    int ignored = 0;
+    for (String input : state.inputs) {
+      if (state.filter.matchesAny(input)) {
+        ignored++;
+      }
+    }
+    return ignored;
+  }
+}
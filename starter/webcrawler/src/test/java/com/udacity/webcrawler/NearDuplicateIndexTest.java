@@ -0,0 +1,63 @@
+package com.udacity.webcrawler;
+
+import com.google.inject.Guice;
+import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.profiler.ProfilerModule;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.time.Clock;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class NearDuplicateIndexTest {
+
+  @Test
+  public void findsPagesWithinMaxDistanceInAnyBand() {
+    NearDuplicateIndex index = new NearDuplicateIndex(3);
+    long original = 0x0123_4567_89ab_cdefL;
+
+    assertThat(index.findOrAdd("http://example.com/a", original)).isNull();
+    // Three bits apart, one in each of three of the four bands.
+    assertThat(index.findOrAdd("http://mirror.com/a", original ^ 0x0001_0001_0001_0000L))
+        .isEqualTo("http://example.com/a");
+    // Three bits apart, all in one band.
+    assertThat(index.findOrAdd("http://mirror.com/b", original ^ 0x7000_0000_0000_0000L))
+        .isEqualTo("http://example.com/a");
+    // Four bits apart is a different page.
+    assertThat(index.findOrAdd("http://example.com/c", original ^ 0x0001_0001_0001_0001L))
+        .isNull();
+  }
+
+  @Test
+  public void ignoresPagesWithoutWords() {
+    NearDuplicateIndex index = new NearDuplicateIndex(3);
+
+    assertThat(index.findOrAdd("http://example.com/empty", 0)).isNull();
+    assertThat(index.findOrAdd("http://example.com/blank", 0)).isNull();
+    assertThat(NearDuplicateIndex.disabled().findOrAdd("http://example.com/a", 42)).isNull();
+  }
+
+  @Test
+  public void reportsClusters() throws Exception {
+    NearDuplicateIndex index = new NearDuplicateIndex(2);
+    index.findOrAdd("http://example.com/a", 0xffL);
+    index.findOrAdd("http://example.com/b", 0xff00_0000_0000L);
+    index.findOrAdd("http://example.com/c", 0xf0f0_f0f0_f0f0_f0f0L);
+    index.findOrAdd("http://mirror.com/a", 0xfeL);
+    index.findOrAdd("http://mirror2.com/a", 0xfdL);
+    index.findOrAdd("http://mirror.com/b", 0x7f00_0000_0000L);
+
+    Profiler profiler = Guice.createInjector(
+            new ProfilerModule(),
+            binder -> binder.bind(Clock.class).toInstance(Clock.systemUTC()))
+        .getInstance(Profiler.class);
+    index.reportTo(profiler);
+    StringWriter profile = new StringWriter();
+    profiler.writeData(profile);
+
+    assertThat(profile.toString()).contains(NearDuplicateIndex.PAGES + " = 3");
+    assertThat(profile.toString()).contains(NearDuplicateIndex.CLUSTERS + " = 2");
+    assertThat(profile.toString()).contains(NearDuplicateIndex.LARGEST_CLUSTER + " = 2");
+  }
+}
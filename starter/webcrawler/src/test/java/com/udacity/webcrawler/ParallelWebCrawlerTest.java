@@ -1,10 +1,22 @@
 package com.udacity.webcrawler;
 
 import com.google.inject.Guice;
+import com.udacity.webcrawler.checkpoint.CheckpointJournal;
+import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.profiler.ProfilerModule;
+import com.udacity.webcrawler.testing.CollectingSubscriber;
+import com.udacity.webcrawler.testing.FixtureSite;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import javax.inject.Inject;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -12,6 +24,9 @@ public final class ParallelWebCrawlerTest {
   @Inject
   private ParallelWebCrawler parallelWebCrawler;
 
+  @Inject
+  private WebCrawler crawler;
+
   @Test
   public void testMaxParallelism() {
     CrawlerConfiguration config = new CrawlerConfiguration.Builder().build();
@@ -19,4 +34,283 @@ public final class ParallelWebCrawlerTest {
         .injectMembers(this);
     assertThat(parallelWebCrawler.getMaxParallelism()).isGreaterThan(1);
   }
+
+  @Test
+  public void fanOutMatchesSequentialCrawl() throws Exception {
+    try (FixtureSite site = FixtureSite.start(40, 3, Duration.ZERO)) {
+      CrawlResult sequential = crawlSite(site, SequentialWebCrawler.class, 1);
+      CrawlResult parallel = crawlSite(site, ParallelWebCrawler.class, 4);
+
+      assertThat(parallel.getUrlsVisited()).isEqualTo(site.pageCount());
+      assertThat(parallel.getUrlsVisited()).isEqualTo(sequential.getUrlsVisited());
+      assertThat(parallel.getWordCounts().entrySet())
+          .containsExactlyElementsIn(sequential.getWordCounts().entrySet())
+          .inOrder();
+    }
+  }
+
+  @Test
+  public void fanOutMatchesSequentialCrawlOfSharedPagesAndCycles() throws Exception {
+    // Each crawl gets its own copy of the site, so their requests can be told apart.
+    try (FixtureSite sequentialSite = FixtureSite.startGraph(40, 3, Duration.ZERO);
+         FixtureSite parallelSite = FixtureSite.startGraph(40, 3, Duration.ZERO)) {
+      CrawlResult sequential = crawlGraph(sequentialSite, SequentialWebCrawler.class, 1);
+      CrawlResult parallel = crawlGraph(parallelSite, ParallelWebCrawler.class, 4);
+
+      assertThat(parallelSite.requestedPaths()).hasSize(parallelSite.pageCount());
+      assertThat(parallelSite.requestedPaths())
+          .containsExactlyElementsIn(sequentialSite.requestedPaths());
+      // Every page was requested once, so no shared page was crawled twice.
+      assertThat(parallelSite.requestCount()).isEqualTo(parallelSite.pageCount());
+      assertThat(parallel.getUrlsVisited()).isEqualTo(sequential.getUrlsVisited());
+      assertThat(parallel.getWordCounts()).containsExactlyEntriesIn(sequential.getWordCounts());
+      assertThat(parallel.getWordCounts()).containsEntry("the", 2 * parallelSite.pageCount());
+    }
+  }
+
+  @Test
+  public void approximateCountsMatchExactCountsOnASmallSite() throws Exception {
+    try (FixtureSite site = FixtureSite.start(40, 3, Duration.ZERO)) {
+      CrawlResult exact = crawlSite(site, ParallelWebCrawler.class, 4);
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(ParallelWebCrawler.class.getName())
+              .setParallelism(4)
+              .setMaxDepth(site.depth())
+              .setTimeoutSeconds(30)
+              .setPopularWordCount(10)
+              .setApproximateWordCounts(true)
+              .setWordCountMemoryMb(1)
+              .addStartPages(site.rootUrl(), site.pageUrl(5), site.pageUrl(7))
+              .build();
+      Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+          .injectMembers(this);
+      CrawlResult approximate = crawler.crawl(config.getStartPages());
+
+      // The site has far fewer words than the sketch has room for, so nothing is evicted.
+      assertThat(exact.isApproximate()).isFalse();
+      assertThat(approximate.isApproximate()).isTrue();
+      assertThat(approximate.getUrlsVisited()).isEqualTo(exact.getUrlsVisited());
+      assertThat(approximate.getWordCounts().entrySet())
+          .containsExactlyElementsIn(exact.getWordCounts().entrySet())
+          .inOrder();
+      assertThat(approximate.getWordCountErrorBound()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void resumesFromCheckpoint(@TempDir Path tempDir) throws Exception {
+    Path checkpoint = tempDir.resolve("crawl.journal");
+    try (FixtureSite site = FixtureSite.start(40, 3, Duration.ofMillis(300))) {
+      // The first crawl runs out of time partway through the site.
+      CrawlerConfiguration first =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(ParallelWebCrawler.class.getName())
+              .setParallelism(2)
+              .setMaxDepth(site.depth())
+              .setTimeoutSeconds(1)
+              .setPopularWordCount(100)
+              .setCheckpointPath(checkpoint.toString())
+              .build();
+      Guice.createInjector(new WebCrawlerModule(first), new NoOpProfilerModule())
+          .injectMembers(this);
+      CrawlResult partial = crawler.crawl(List.of(site.rootUrl()));
+      assertThat(partial.getUrlsVisited()).isLessThan(site.pageCount());
+      int requestsBeforeResume = site.requestCount();
+
+      CrawlerConfiguration second =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(ParallelWebCrawler.class.getName())
+              .setParallelism(4)
+              .setMaxDepth(site.depth())
+              .setTimeoutSeconds(30)
+              .setPopularWordCount(100)
+              .setCheckpointPath(checkpoint.toString())
+              .setResumeFrom(checkpoint.toString())
+              .build();
+      Guice.createInjector(new WebCrawlerModule(second), new NoOpProfilerModule())
+          .injectMembers(this);
+      CrawlResult resumed = crawler.crawl(List.of(site.rootUrl()));
+
+      assertThat(resumed.getUrlsVisited()).isEqualTo(site.pageCount());
+      for (int page = 0; page < site.pageCount(); page++) {
+        assertThat(resumed.getWordCounts()).containsEntry("page" + page, 1);
+      }
+      assertThat(resumed.getWordCounts()).containsEntry("fox", site.pageCount());
+      // Pages finished by the first crawl are not downloaded again.
+      assertThat(site.requestCount() - requestsBeforeResume).isLessThan(site.pageCount());
+    }
+  }
+
+  @Test
+  public void keepsResultWhenCheckpointCannotBeWritten(@TempDir Path tempDir) throws Exception {
+    // The journal cannot store a link longer than 64KB, so writing this page fails.
+    writePage(tempDir, "index.html", "start", "a".repeat(70_000) + ".html");
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(ParallelWebCrawler.class.getName())
+            .setParallelism(2)
+            .setMaxDepth(3)
+            .setTimeoutSeconds(30)
+            .setPopularWordCount(10)
+            .setCheckpointPath(tempDir.resolve("crawl.journal").toString())
+            .build();
+    ProfiledCrawler holder = new ProfiledCrawler();
+    Guice.createInjector(new WebCrawlerModule(config), new ProfilerModule())
+        .injectMembers(holder);
+
+    CrawlResult result =
+        holder.crawler.crawl(List.of(tempDir.resolve("index.html").toUri().toString()));
+
+    assertThat(result.getWordCounts()).containsEntry("start", 1);
+    StringWriter profile = new StringWriter();
+    holder.profiler.writeData(profile);
+    assertThat(profile.toString()).contains("crawl.checkpointFailures = 1");
+  }
+
+  private static final class ProfiledCrawler {
+    @Inject
+    WebCrawler crawler;
+
+    @Inject
+    Profiler profiler;
+  }
+
+  @Test
+  public void skipsNearDuplicatePagesAndTheirLinks(@TempDir Path tempDir) throws Exception {
+    String root = writeMirroredSite(tempDir);
+
+    CrawlResult all = crawlFiles(root, false);
+    CrawlResult pruned = crawlFiles(root, true);
+
+    assertThat(all.getUrlsVisited()).isEqualTo(5);
+    assertThat(all.getWordCounts()).containsEntry("terma0", 20);
+    // The copy found second is not counted, and the page it links to is never reached.
+    assertThat(pruned.getUrlsVisited()).isEqualTo(4);
+    assertThat(pruned.getWordCounts()).containsEntry("terma0", 10);
+    assertThat(pruned.getWordCounts()).containsEntry("more", 1);
+  }
+
+  /**
+   * Writes a start page that links to an article and a near-duplicate copy of it, each of which
+   * links to one more page. Returns the start page's URL.
+   */
+  private static String writeMirroredSite(Path dir) throws Exception {
+    // An odd number of distinct words, each repeated, so one extra word cannot flip a SimHash bit.
+    StringBuilder article = new StringBuilder();
+    for (int repeat = 0; repeat < 10; repeat++) {
+      for (int i = 0; i < 31; i++) {
+        article.append("term").append((char) ('a' + i % 26)).append(i).append(' ');
+      }
+    }
+    writePage(dir, "index.html", "start", "article.html", "mirror.html");
+    writePage(dir, "article.html", article.toString(), "original-more.html");
+    writePage(dir, "mirror.html", article + "mirrored", "mirror-more.html");
+    writePage(dir, "original-more.html", "more");
+    writePage(dir, "mirror-more.html", "more");
+    return dir.resolve("index.html").toUri().toString();
+  }
+
+  private static void writePage(Path dir, String name, String text, String... links)
+      throws Exception {
+    StringBuilder html = new StringBuilder("<html><body><p>").append(text).append("</p>");
+    for (String link : links) {
+      html.append("<a href=\"").append(link).append("\">link</a>");
+    }
+    Files.writeString(dir.resolve(name), html.append("</body></html>"));
+  }
+
+  private CrawlResult crawlFiles(String root, boolean skipNearDuplicates) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(ParallelWebCrawler.class.getName())
+            .setParallelism(4)
+            .setMaxDepth(3)
+            .setTimeoutSeconds(30)
+            .setPopularWordCount(100)
+            .setSkipNearDuplicates(skipNearDuplicates)
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    return crawler.crawl(List.of(root));
+  }
+
+  @Test
+  public void streamingCrawlSkipsNearDuplicatePages(@TempDir Path tempDir) throws Exception {
+    String root = writeMirroredSite(tempDir);
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(ParallelWebCrawler.class.getName())
+            .setParallelism(4)
+            .setMaxDepth(3)
+            .setTimeoutSeconds(30)
+            .setSkipNearDuplicates(true)
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+
+    CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+    crawler.crawlPages(List.of(root)).subscribe(subscriber);
+    List<PageEvent> events = subscriber.await(Duration.ofSeconds(30));
+
+    // Same as a counting crawl: the second copy and the page only it links to are left out.
+    assertThat(events).hasSize(3);
+  }
+
+  @Test
+  public void streamingCrawlWritesCheckpoint(@TempDir Path tempDir) throws Exception {
+    Path checkpoint = tempDir.resolve("crawl.journal");
+    try (FixtureSite site = FixtureSite.start(13, 3, Duration.ZERO)) {
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(ParallelWebCrawler.class.getName())
+              .setParallelism(4)
+              .setMaxDepth(site.depth())
+              .setTimeoutSeconds(30)
+              .setCheckpointPath(checkpoint.toString())
+              .build();
+      Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+          .injectMembers(this);
+
+      CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+      crawler.crawlPages(List.of(site.rootUrl())).subscribe(subscriber);
+      assertThat(subscriber.await(Duration.ofSeconds(30))).hasSize(site.pageCount());
+
+      assertThat(CheckpointJournal.load(checkpoint).getCrawledUrls()).hasSize(site.pageCount());
+    }
+  }
+
+  private CrawlResult crawlSite(FixtureSite site, Class<?> implementation, int parallelism) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(implementation.getName())
+            .setParallelism(parallelism)
+            .setMaxDepth(site.depth())
+            .setTimeoutSeconds(30)
+            .setPopularWordCount(10)
+            .addStartPages(site.rootUrl(), site.pageUrl(5), site.pageUrl(7))
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    return crawler.crawl(config.getStartPages());
+  }
+
+  /**
+   * Crawls every page of the site, and counts every word. A page can be reached by a path longer
+   * than its depth in the tree, so the max depth is the page count, which no path is longer than.
+   */
+  private CrawlResult crawlGraph(FixtureSite site, Class<?> implementation, int parallelism) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(implementation.getName())
+            .setParallelism(parallelism)
+            .setMaxDepth(site.pageCount())
+            .setTimeoutSeconds(30)
+            .setPopularWordCount(1000)
+            .addStartPages(site.rootUrl(), site.pageUrl(5))
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    return crawler.crawl(config.getStartPages());
+  }
 }
@@ -0,0 +1,44 @@
+package com.udacity.webcrawler;
+
+import com.google.inject.Guice;
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.testing.FixtureSite;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.time.Duration;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class PipelinedWebCrawlerTest {
+  @Inject
+  private WebCrawler crawler;
+
+  @Test
+  public void secondCrawlIsServedFromParseCache() throws Exception {
+    try (FixtureSite site = FixtureSite.start(13, 3, Duration.ZERO)) {
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(PipelinedWebCrawler.class.getName())
+              .setParallelism(2)
+              .setMaxDepth(site.depth())
+              .setTimeoutSeconds(30)
+              .setPopularWordCount(100)
+              .setParseCacheMaxMegabytes(16)
+              .addStartPages(site.rootUrl())
+              .build();
+      Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+          .injectMembers(this);
+
+      CrawlResult first = crawler.crawl(config.getStartPages());
+      int requests = site.requestCount();
+      CrawlResult second = crawler.crawl(config.getStartPages());
+
+      assertThat(first.getUrlsVisited()).isEqualTo(site.pageCount());
+      assertThat(second.getUrlsVisited()).isEqualTo(site.pageCount());
+      assertThat(second.getWordCounts()).isEqualTo(first.getWordCounts());
+      assertThat(site.requestCount()).isEqualTo(requests);
+    }
+  }
+}
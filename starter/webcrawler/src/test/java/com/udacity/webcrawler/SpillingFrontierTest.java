@@ -0,0 +1,66 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class SpillingFrontierTest {
+
+  @Test
+  public void keepsOrderAcrossSpilledSegments() {
+    List<String> urls = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      urls.add("http://example.com/section/" + (i / 10) + "/page-" + i);
+    }
+    // Non-ASCII characters, including a surrogate pair that must not be split between the shared
+    // prefix and the rest.
+    urls.add("http://example.com/café/😀a");
+    urls.add("http://example.com/café/😁b");
+
+    List<String> polled = new ArrayList<>();
+    try (SpillingFrontier frontier = new SpillingFrontier(64, new NoOpProfiler())) {
+      // Interleave adds and polls, so URLs are added while spilled ones are still waiting.
+      for (int i = 0; i < urls.size(); i++) {
+        frontier.add(urls.get(i));
+        if (i % 3 == 0) {
+          polled.add(frontier.poll());
+        }
+      }
+      assertThat(frontier.spilledCount()).isGreaterThan(0L);
+      assertThat(frontier.size()).isEqualTo(urls.size() - polled.size());
+      String url;
+      while ((url = frontier.poll()) != null) {
+        polled.add(url);
+      }
+      assertThat(frontier.isEmpty()).isTrue();
+    }
+    assertThat(polled).containsExactlyElementsIn(urls).inOrder();
+  }
+
+  @Test
+  public void closeDeletesSpilledSegments() throws Exception {
+    long before = countSegmentFiles();
+    SpillingFrontier frontier = new SpillingFrontier(4, new NoOpProfiler());
+    for (int i = 0; i < 100; i++) {
+      frontier.add("http://example.com/" + i);
+    }
+    assertThat(countSegmentFiles()).isGreaterThan(before);
+
+    frontier.close();
+    assertThat(countSegmentFiles()).isEqualTo(before);
+    assertThat(frontier.poll()).isNull();
+  }
+
+  private static long countSegmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+      return files.filter(p -> p.getFileName().toString().startsWith("crawl-frontier-")).count();
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.udacity.webcrawler;
+
+import com.google.inject.Guice;
+import com.udacity.webcrawler.json.CrawlerConfiguration;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class VirtualThreadWebCrawlerTest {
+  @Inject
+  private VirtualThreadWebCrawler virtualThreadWebCrawler;
+
+  @Test
+  public void defaultInFlightLimitFitsTheKindOfThread() {
+    CrawlerConfiguration config = new CrawlerConfiguration.Builder().build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+
+    // Platform threads each hold a full stack, so far fewer of them are started.
+    int expected = VirtualThreadWebCrawler.usesVirtualThreads()
+        ? VirtualThreadWebCrawler.DEFAULT_MAX_IN_FLIGHT_FETCHES
+        : VirtualThreadWebCrawler.PLATFORM_THREADS_PER_CORE
+            * Runtime.getRuntime().availableProcessors();
+    assertThat(virtualThreadWebCrawler.getMaxInFlightFetches()).isEqualTo(expected);
+    assertThat(VirtualThreadWebCrawler.usesVirtualThreads())
+        .isEqualTo(Runtime.version().feature() >= 21);
+  }
+
+  @Test
+  public void configuredInFlightLimitIsKept() {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder().setMaxInFlightFetches(5000).build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+
+    assertThat(virtualThreadWebCrawler.getMaxInFlightFetches()).isEqualTo(5000);
+  }
+}
@@ -0,0 +1,146 @@
+package com.udacity.webcrawler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark that measures how long a group of threads takes to mark a batch of discovered links
+ * as visited, comparing the {@link VisitedSet} implementations with the synchronized
+ * {@link HashSet} the parallel crawler used to lock around every check.
+ *
+ * <p>Each thread adds {@link #LINKS_PER_THREAD} links. Half of them are shared with the other
+ * threads, the way popular links are discovered from many pages at once.
+ *
+ * <p>Run it from the project directory with:
+ *
+ * <pre>{@code
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       org.openjdk.jmh.Main VisitedSetBenchmark
+ * }</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisitedSetBenchmark {
+
+  static final int LINKS_PER_THREAD = 4096;
+
+  @State(Scope.Benchmark)
+  public static class Workers {
+    @Param({"synchronized", "concurrent", "fingerprint", "bloom"})
+    public String implementation;
+
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    public int threads;
+
+    ExecutorService executor;
+    String[][] links;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      executor = Executors.newFixedThreadPool(threads);
+      links = new String[threads][LINKS_PER_THREAD];
+      for (int t = 0; t < threads; t++) {
+        for (int i = 0; i < LINKS_PER_THREAD; i++) {
+          links[t][i] = (i % 2 == 0)
+              ? "http://example.com/shared/" + i
+              : "http://example.com/thread" + t + "/" + i;
+        }
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      executor.shutdownNow();
+    }
+
+    VisitedSet newSet() {
+      switch (implementation) {
+        case "concurrent":
+          return VisitedSet.concurrent();
+        case "fingerprint":
+          return VisitedSet.fingerprinted(64);
+        case "bloom":
+          return VisitedSet.bloom(256L << 20, 0.001);
+        default:
+          return new LockedSet();
+      }
+    }
+  }
+
+  @Benchmark
+  public int addLinks(Workers workers) throws Exception {
+    VisitedSet visited = workers.newSet();
+    List<Callable<Integer>> tasks = new ArrayList<>();
+    for (String[] links : workers.links) {
+      tasks.add(() -> {
+        int claimed = 0;
+        for (String link : links) {
+          if (visited.addIfAbsent(link)) {
+            claimed++;
+          }
+        }
+        return claimed;
+      });
+    }
+    int claimed = 0;
+    for (Future<Integer> future : workers.executor.invokeAll(tasks)) {
+      claimed += future.get();
+    }
+    return claimed;
+  }
+
+  /**
+   * The parallel crawler's visited set before {@link VisitedSet}: a synchronized {@link HashSet},
+   * locked again around every check-then-add.
+   */
+  private static final class LockedSet implements VisitedSet {
+    private final Set<String> urls = Collections.synchronizedSet(new HashSet<>());
+
+    @Override
+    public boolean addIfAbsent(String url) {
+      synchronized (urls) {
+        if (urls.contains(url)) {
+          return false;
+        }
+        urls.add(url);
+        return true;
+      }
+    }
+
+    @Override
+    public boolean contains(String url) {
+      return urls.contains(url);
+    }
+
+    @Override
+    public int size() {
+      return urls.size();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.udacity.webcrawler;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * JMH benchmark that measures how much memory each {@link VisitedSet} takes per URL, counting both
+ * the Java heap and direct (off-heap) buffers.
+ *
+ * <p>Run it from the project directory with:
+ *
+ * <pre>{@code
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       org.openjdk.jmh.Main VisitedSetMemoryBenchmark
+ * }</pre>
+ *
+ * <p>The {@code bytesPerUrl} counter in the output is the figure to compare; the time is only how
+ * long filling the set took.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class VisitedSetMemoryBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Urls {
+    @Param({"concurrent", "fingerprint64", "fingerprint128", "bloom"})
+    public String implementation;
+
+    @Param({"1000000"})
+    public int urls;
+
+    VisitedSet newSet() {
+      switch (implementation) {
+        case "fingerprint64":
+          return VisitedSet.fingerprinted(64);
+        case "fingerprint128":
+          return VisitedSet.fingerprinted(128);
+        case "bloom":
+          return VisitedSet.bloom(256L << 20, 0.001);
+        default:
+          return VisitedSet.concurrent();
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Footprint {
+    public double bytesPerUrl;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytesPerUrl = 0;
+    }
+  }
+
+  @Benchmark
+  public VisitedSet fill(Urls urls, Footprint footprint) {
+    long before = usedBytes();
+    VisitedSet visited = urls.newSet();
+    for (int i = 0; i < urls.urls; i++) {
+      // Built here rather than up front, so a set that keeps the URL pays for its String.
+      visited.addIfAbsent("https://www.example.com/articles/" + i + "/index.html");
+    }
+    footprint.bytesPerUrl = (double) (usedBytes() - before) / urls.urls;
+    return visited;
+  }
+
+  private static long usedBytes() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    System.gc();
+    System.gc();
+    long used = memory.getHeapMemoryUsage().getUsed();
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      if (pool.getName().equals("direct")) {
+        used += pool.getMemoryUsed();
+      }
+    }
+    return used;
+  }
+}
@@ -0,0 +1,123 @@
+package com.udacity.webcrawler;
+
+import com.google.inject.Guice;
+import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.profiler.ProfilerModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.StringWriter;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class VisitedSetTest {
+
+  @ParameterizedTest
+  @ValueSource(strings = {"concurrent", "fingerprint64", "fingerprint128", "bloom"})
+  public void addIfAbsentClaimsEachUrlOnce(String implementation) {
+    VisitedSet visited = create(implementation);
+
+    assertThat(visited.addIfAbsent("http://example.com/")).isTrue();
+    assertThat(visited.addIfAbsent("http://example.com/")).isFalse();
+    assertThat(visited.contains("http://example.com/")).isTrue();
+    assertThat(visited.contains("http://example.com/other")).isFalse();
+    assertThat(visited.size()).isEqualTo(1);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"concurrent", "fingerprint64", "fingerprint128"})
+  public void concurrentAddsNeverClaimTheSameUrlTwice(String implementation) throws Exception {
+    // Enough URLs that every fingerprint table has to grow while threads are adding to it.
+    int urls = 200_000;
+    VisitedSet visited = create(implementation);
+    AtomicInteger claimed = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 16; t++) {
+        int offset = t * (urls / 16);
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < urls; i++) {
+            if (visited.addIfAbsent("http://example.com/" + ((i + offset) % urls))) {
+              claimed.incrementAndGet();
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(claimed.get()).isEqualTo(urls);
+    assertThat(visited.size()).isEqualTo(urls);
+    assertThat(visited.contains("http://example.com/" + (urls - 1))).isTrue();
+    assertThat(visited.contains("http://example.com/" + urls)).isFalse();
+  }
+
+  @Test
+  public void bloomFilterGrowsInStagesAndKeepsToTargetRate() {
+    BloomVisitedSet visited = new BloomVisitedSet(64L << 20, 0.01);
+    int urls = 20 * BloomVisitedSet.INITIAL_CAPACITY;
+    for (int i = 0; i < urls; i++) {
+      visited.addIfAbsent("http://example.com/" + i);
+    }
+    int falsePositives = 0;
+    for (int i = urls; i < 2 * urls; i++) {
+      if (visited.contains("http://example.com/" + i)) {
+        falsePositives++;
+      }
+    }
+
+    assertThat(visited.size()).isAtLeast(urls - urls / 100);
+    assertThat((double) falsePositives / urls).isLessThan(0.01);
+    assertThat(visited.falsePositiveRate()).isLessThan(0.01);
+    assertThat(visited.contains("http://example.com/0")).isTrue();
+  }
+
+  @Test
+  public void bloomFilterStaysWithinMemoryBudget() throws Exception {
+    long maxBytes = 256 << 10;
+    BloomVisitedSet visited = new BloomVisitedSet(maxBytes, 0.01);
+    for (int i = 0; i < 1_000_000; i++) {
+      visited.addIfAbsent("http://example.com/" + i);
+    }
+
+    assertThat(visited.bytes()).isAtMost(maxBytes);
+    // Far more URLs than the budget allows for, so the rate has risen well past the target.
+    assertThat(visited.falsePositiveRate()).isGreaterThan(0.01);
+
+    Profiler profiler = Guice.createInjector(
+            new ProfilerModule(),
+            binder -> binder.bind(Clock.class).toInstance(Clock.systemUTC()))
+        .getInstance(Profiler.class);
+    visited.reportTo(profiler);
+    StringWriter profile = new StringWriter();
+    profiler.writeData(profile);
+    assertThat(profile.toString()).contains(BloomVisitedSet.FALSE_POSITIVE_PPM + " = ");
+    assertThat(profile.toString()).contains(BloomVisitedSet.FILL_PERCENT + " = ");
+  }
+
+  private static VisitedSet create(String implementation) {
+    switch (implementation) {
+      case "fingerprint64":
+        return VisitedSet.fingerprinted(64);
+      case "fingerprint128":
+        return VisitedSet.fingerprinted(128);
+      case "bloom":
+        return VisitedSet.bloom(1 << 20, 0.001);
+      default:
+        return VisitedSet.concurrent();
+    }
+  }
+}
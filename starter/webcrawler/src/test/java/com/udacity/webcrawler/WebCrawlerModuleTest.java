@@ -0,0 +1,80 @@
+package com.udacity.webcrawler;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.ProvisionException;
+import com.google.inject.util.Modules;
+import com.udacity.webcrawler.json.CrawlerConfiguration;
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class WebCrawlerModuleTest {
+
+  @Test
+  public void approximateWordCountsWorkWithTheParallelCrawler() {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder().setParallelism(4).setApproximateWordCounts(true).build();
+
+    assertThat(injector(config).getInstance(WebCrawler.class).getMaxParallelism())
+        .isGreaterThan(1);
+  }
+
+  @Test
+  public void approximateWordCountsAreRejectedByOtherCrawlers() {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(BreadthFirstWebCrawler.class.getName())
+            .setApproximateWordCounts(true)
+            .build();
+
+    assertThrows(ProvisionException.class, () -> injector(config).getInstance(WebCrawler.class));
+  }
+
+  @Test
+  public void skippingNearDuplicatesIsRejectedByCrawlersThatIgnoreIt() {
+    CrawlerConfiguration parallel =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(ParallelWebCrawler.class.getName())
+            .setSkipNearDuplicates(true)
+            .build();
+    CrawlerConfiguration pipelined =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(PipelinedWebCrawler.class.getName())
+            .setSkipNearDuplicates(true)
+            .build();
+
+    assertThat(injector(parallel).getInstance(WebCrawler.class)).isNotNull();
+    assertThrows(ProvisionException.class, () -> injector(pipelined).getInstance(WebCrawler.class));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> WebCrawlerModule.checkSupported(pipelined, DistributedWebCrawler.class));
+  }
+
+  @Test
+  public void defaultParallelismOnOneCoreRejectsApproximateWordCounts() {
+    // The parallelism is left at its default, so the number of cores picks the crawler.
+    CrawlerConfiguration exact = new CrawlerConfiguration.Builder().build();
+    CrawlerConfiguration approximate =
+        new CrawlerConfiguration.Builder().setApproximateWordCounts(true).build();
+
+    // The sequential crawler is the only one with a maximum parallelism of 1.
+    assertThat(oneCore(exact).getInstance(WebCrawler.class).getMaxParallelism()).isEqualTo(1);
+    assertThrows(
+        ProvisionException.class, () -> oneCore(approximate).getInstance(WebCrawler.class));
+  }
+
+  private static Injector injector(CrawlerConfiguration config) {
+    return Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule());
+  }
+
+  private static Injector oneCore(CrawlerConfiguration config) {
+    return Guice.createInjector(
+        Modules.override(new WebCrawlerModule(config))
+            .with(binder -> binder.bind(Key.get(Integer.class, TargetParallelism.class))
+                .toInstance(1)),
+        new NoOpProfilerModule());
+  }
+}
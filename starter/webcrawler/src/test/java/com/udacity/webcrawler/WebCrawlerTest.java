@@ -1,18 +1,31 @@
 package com.udacity.webcrawler;
 
 import com.google.inject.Guice;
+import com.google.inject.util.Modules;
 import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.profiler.ProfilerModule;
+import com.udacity.webcrawler.testing.CollectingSubscriber;
+import com.udacity.webcrawler.testing.FixtureSite;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import javax.inject.Inject;
+import java.io.StringWriter;
 import java.nio.file.Paths;
 import java.sql.SQLOutput;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -68,6 +81,18 @@ public final class WebCrawlerTest {
     assertThat(crawler.getClass()).isAssignableTo(ParallelWebCrawler.class);
   }
 
+  @Test
+  public void testOverrideToVirtualThread() {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(VirtualThreadWebCrawler.class.getName())
+            .setMaxInFlightFetches(5000)
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(VirtualThreadWebCrawler.class);
+  }
+
   @Test //5
   public void testSequentialParallelism() {
     CrawlerConfiguration config =
@@ -90,6 +115,24 @@ public final class WebCrawlerTest {
     assertThat(crawler.getClass()).isAssignableTo(ParallelWebCrawler.class);
   }
 
+  @Test
+  public void defaultCrawlPagesPublishesTheWholeCrawl() throws Exception {
+    // Only crawl() is implemented, as by a crawler written before streaming existed.
+    WebCrawler legacy = startingUrls -> new CrawlResult.Builder()
+        .setWordCounts(Map.of("the", 3))
+        .setUrlsVisited(startingUrls.size())
+        .build();
+    CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+    legacy.crawlPages(List.of("http://example.com/", "http://example.org/"))
+        .subscribe(subscriber);
+
+    List<PageEvent> events = subscriber.await(Duration.ofSeconds(10));
+    assertThat(events).hasSize(1);
+    assertThat(events.get(0).getUrl()).isEqualTo("http://example.com/");
+    assertThat(events.get(0).getDepth()).isEqualTo(0);
+    assertThat(events.get(0).getWordCounts()).containsExactly("the", 3);
+  }
+
   @ParameterizedTest
   @MethodSource("provideTestParameters")
   public void zeroMaxDepth(Class<?> crawlerClass) {
@@ -343,4 +386,189 @@ public final class WebCrawlerTest {
             Map.entry("brown", 4))
         .inOrder();
   }
-}
\ No newline at end of file
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void abortsInFlightPagesAtDeadline(Class<?> crawlerClass) throws Exception {
+    // Every page takes five seconds to arrive, far longer than the one second timeout.
+    try (FixtureSite site = FixtureSite.start(40, 3, Duration.ofSeconds(5))) {
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(crawlerClass.getName())
+              .setMaxDepth(site.depth())
+              .setPopularWordCount(3)
+              .setTimeoutSeconds(1)
+              .addStartPages(site.rootUrl())
+              .build();
+      DeadlineHolder holder = new DeadlineHolder();
+      Guice.createInjector(new WebCrawlerModule(config), new ProfilerModule())
+          .injectMembers(holder);
+
+      Instant start = Instant.now();
+      CrawlResult result = holder.crawler.crawl(config.getStartPages());
+      Duration elapsed = Duration.between(start, Instant.now());
+
+      assertWithMessage("crawl() waited for a straggler instead of aborting it")
+          .that(elapsed)
+          .isLessThan(Duration.ofSeconds(3));
+      assertThat(result.getWordCounts()).isEmpty();
+
+      StringWriter profile = new StringWriter();
+      holder.profiler.writeData(profile);
+      assertThat(profile.toString()).contains("crawl.pagesCancelled = 1");
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void countsOnlyPagesThatWouldHaveBeenCrawledAsCancelled(Class<?> crawlerClass)
+      throws Exception {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .addIgnoredUrls("http://ignored\\.example/.*")
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .addStartPages("http://ignored.example/a", "http://ignored.example/b")
+            .build();
+    // The deadline is set from the first reading, and every later reading is a day past it.
+    Clock clock = new JumpingClock(Duration.ofDays(1));
+    DeadlineHolder holder = new DeadlineHolder();
+    Guice.createInjector(
+            Modules.override(new WebCrawlerModule(config))
+                .with(binder -> binder.bind(Clock.class).toInstance(clock)),
+            new ProfilerModule())
+        .injectMembers(holder);
+
+    CrawlResult result = holder.crawler.crawl(config.getStartPages());
+
+    assertThat(result.getUrlsVisited()).isEqualTo(0);
+    StringWriter profile = new StringWriter();
+    holder.profiler.writeData(profile);
+    // The ignored start pages would never have been crawled, so they are not cancelled.
+    assertThat(profile.toString()).contains("crawl.pagesCancelled = 1");
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void countsLinksToVisitedPagesAsDuplicatesAvoided(Class<?> crawlerClass)
+      throws Exception {
+    try (FixtureSite site = FixtureSite.start(13, 3, Duration.ZERO)) {
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(crawlerClass.getName())
+              .setParallelism(4)
+              .setMaxDepth(site.depth())
+              .setTimeoutSeconds(30)
+              .setPopularWordCount(3)
+              .addStartPages(site.rootUrl().replace("/page-0", "/./page-0") + "#top")
+              .build();
+      DeadlineHolder holder = new DeadlineHolder();
+      Guice.createInjector(new WebCrawlerModule(config), new ProfilerModule())
+          .injectMembers(holder);
+
+      CrawlResult result = holder.crawler.crawl(config.getStartPages());
+
+      // The start page is spelled differently from the links back to it, but is crawled once.
+      assertThat(result.getUrlsVisited()).isEqualTo(site.pageCount());
+      StringWriter profile = new StringWriter();
+      holder.profiler.writeData(profile);
+      // Every page links back to the visited root. Links to pages not yet visited do not count.
+      assertThat(profile.toString())
+          .contains("canonicalizer.duplicatesAvoided = " + site.pageCount());
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void streamsEachPageOnce(Class<?> crawlerClass) throws Exception {
+    try (FixtureSite site = FixtureSite.start(13, 3, Duration.ZERO)) {
+      CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+      streamingCrawler(crawlerClass, site).crawlPages(List.of(site.rootUrl()))
+          .subscribe(subscriber);
+      List<PageEvent> events = subscriber.await(Duration.ofSeconds(30));
+
+      Map<String, Integer> depths = new HashMap<>();
+      for (PageEvent event : events) {
+        assertThat(depths.put(event.getUrl(), event.getDepth())).isNull();
+      }
+      assertThat(depths).hasSize(site.pageCount());
+      assertThat(depths).containsEntry(site.pageUrl(0), 0);
+      assertThat(depths).containsEntry(site.pageUrl(3), 1);
+      assertThat(depths).containsEntry(site.pageUrl(12), 2);
+
+      PageEvent root = events.stream()
+          .filter(e -> e.getUrl().equals(site.rootUrl()))
+          .findFirst()
+          .orElseThrow();
+      assertThat(root.getWordCounts()).containsEntry("page0", 1);
+      assertThat(root.getLinks()).contains(site.pageUrl(1));
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void stopsStreamingWhenSubscriptionIsCancelled(Class<?> crawlerClass) throws Exception {
+    try (FixtureSite site = FixtureSite.start(121, 3, Duration.ofMillis(50))) {
+      CollectingSubscriber subscriber = new CollectingSubscriber(1);
+      streamingCrawler(crawlerClass, site).crawlPages(List.of(site.rootUrl()))
+          .subscribe(subscriber);
+      assertThat(subscriber.await(Duration.ofSeconds(30))).hasSize(1);
+
+      // Pages already being downloaded may finish, but no new ones are started.
+      Thread.sleep(1000);
+      assertThat(site.requestCount()).isLessThan(site.pageCount());
+    }
+  }
+
+  private WebCrawler streamingCrawler(Class<?> crawlerClass, FixtureSite site) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setParallelism(4)
+            .setMaxDepth(site.depth())
+            .setTimeoutSeconds(30)
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+    return crawler;
+  }
+
+  /**
+   * A clock that reads the system time once, and then reads {@code jump} ahead of it.
+   */
+  private static final class JumpingClock extends Clock {
+    private final Duration jump;
+    private final AtomicBoolean read = new AtomicBoolean();
+
+    JumpingClock(Duration jump) {
+      this.jump = jump;
+    }
+
+    @Override
+    public Instant instant() {
+      Instant now = Instant.now();
+      return read.getAndSet(true) ? now.plus(jump) : now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static final class DeadlineHolder {
+    @Inject
+    WebCrawler crawler;
+
+    @Inject
+    Profiler profiler;
+  }
+}
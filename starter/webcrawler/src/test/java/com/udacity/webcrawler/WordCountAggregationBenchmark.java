@@ -0,0 +1,128 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.WordDictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * JMH benchmark that measures how long a pool of crawler threads takes to add up the words of a
+ * batch of pages and produce the totals, comparing the shared {@link ConcurrentHashMap} the
+ * parallel crawler merged every word into with the per-thread {@link WordCountAggregator}.
+ *
+ * <p>Every thread adds {@link #PAGES_PER_THREAD} pages. Each page repeats a few words that are on
+ * every page, the way "the" and "and" are, which is where threads sharing a map collide.
+ *
+ * <p>Run it from the project directory with:
+ *
+ * <pre>{@code
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       org.openjdk.jmh.Main WordCountAggregationBenchmark
+ * }</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WordCountAggregationBenchmark {
+
+  static final int PAGES_PER_THREAD = 64;
+  static final int WORDS_PER_PAGE = 200;
+  static final int HOT_WORDS = 20;
+
+  @State(Scope.Benchmark)
+  public static class Workers {
+    @Param({"shared", "perThread"})
+    public String implementation;
+
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    public int threads;
+
+    ForkJoinPool pool;
+    Map<String, Integer>[][] pages;
+    // Shared by every operation, the way one dictionary lasts for the whole process.
+    final WordDictionary dictionary = new WordDictionary();
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+      pool = new ForkJoinPool(threads);
+      pages = new Map[threads][PAGES_PER_THREAD];
+      for (int t = 0; t < threads; t++) {
+        for (int p = 0; p < PAGES_PER_THREAD; p++) {
+          Map<String, Integer> page = new HashMap<>();
+          for (int w = 0; w < WORDS_PER_PAGE; w++) {
+            String word = (w < HOT_WORDS) ? "hot" + w : "word" + ((t * 7919 + p * 31 + w) % 5000);
+            page.merge(word, 1 + (w % 3), Integer::sum);
+          }
+          pages[t][p] = page;
+        }
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      pool.shutdownNow();
+    }
+  }
+
+  @Benchmark
+  public Map<String, Integer> countWords(Workers workers) {
+    if (workers.implementation.equals("shared")) {
+      Map<String, Integer> counts = new ConcurrentHashMap<>();
+      forEachPage(workers, page -> {
+        for (Map.Entry<String, Integer> e : page.entrySet()) {
+          counts.merge(e.getKey(), e.getValue(), Integer::sum);
+        }
+      });
+      return counts;
+    }
+    WordCountAggregator aggregator = new WordCountAggregator(workers.dictionary);
+    forEachPage(workers, aggregator::addAll);
+    return aggregator.snapshot(workers.pool);
+  }
+
+  /**
+   * Hands each thread's pages to one task on the pool, and waits for them all.
+   */
+  private static void forEachPage(Workers workers, Consumer<Map<String, Integer>> add) {
+    workers.pool.invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        RecursiveAction[] tasks = new RecursiveAction[workers.threads];
+        for (int t = 0; t < workers.threads; t++) {
+          Map<String, Integer>[] pages = workers.pages[t];
+          tasks[t] = new RecursiveAction() {
+            @Override
+            protected void compute() {
+              for (Map<String, Integer> page : pages) {
+                add.accept(page);
+              }
+            }
+          };
+        }
+        invokeAll(tasks);
+      }
+    });
+  }
+}
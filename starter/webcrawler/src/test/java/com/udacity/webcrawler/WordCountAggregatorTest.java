@@ -0,0 +1,150 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.WordDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class WordCountAggregatorTest {
+
+  @Test
+  public void snapshotAddsUpCountsFromEveryThread() throws Exception {
+    WordCountAggregator aggregator = new WordCountAggregator(new WordDictionary());
+    aggregator.addAll(Map.of("the", 2, "crawler", 1));
+
+    Thread other = new Thread(() -> aggregator.addAll(Map.of("the", 3, "spider", 4)));
+    other.start();
+    other.join();
+
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      assertThat(aggregator.shardCount()).isEqualTo(2);
+      assertThat(aggregator.snapshot(pool))
+          .containsExactly("the", 5, "crawler", 1, "spider", 4);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void stripedAggregatorSharesShardsBetweenThreads() throws Exception {
+    WordCountAggregator aggregator = new WordCountAggregator(new WordDictionary()).striped(3);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 20; t++) {
+      Thread thread = new Thread(() -> aggregator.addAll(Map.of("the", 1, "crawler", 2)));
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      assertThat(aggregator.shardCount()).isAtMost(3);
+      assertThat(aggregator.snapshot(pool)).containsExactly("the", 20, "crawler", 40);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void approximateAggregatorKeepsOneSketchPerStripe() throws Exception {
+    WordCountAggregator aggregator = WordCountAggregator.approximate(1 << 20, 0.01, 2);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 10; t++) {
+      Thread thread = new Thread(() -> aggregator.addAll(Map.of("the", 3, "crawler", 1)));
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      // However many threads add counts, the budget is only ever split two ways.
+      assertThat(aggregator.shardCount()).isAtMost(2);
+      assertThat(aggregator.sketch(pool).estimates()).containsExactly("the", 30, "crawler", 10);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void snapshotOfNothingIsEmpty() {
+    ForkJoinPool pool = new ForkJoinPool(1);
+    try {
+      assertThat(new WordCountAggregator(new WordDictionary()).snapshot(pool)).isEmpty();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void countsFromSixtyFourThreadsAreExact() throws Exception {
+    int threads = 64;
+    int pagesPerThread = 500;
+    WordCountAggregator aggregator = new WordCountAggregator(new WordDictionary());
+    ForkJoinPool pool = new ForkJoinPool(8);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int page = 0; page < pagesPerThread; page++) {
+            aggregator.addAll(page(thread, page));
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      // Snapshots taken while the threads are adding must never go backwards.
+      int lastHot = 0;
+      while (!futures.stream().allMatch(Future::isDone)) {
+        int hot = aggregator.snapshot(pool).getOrDefault("the", 0);
+        assertThat(hot).isAtLeast(lastHot);
+        lastHot = hot;
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+
+      Map<String, Integer> expected = new HashMap<>();
+      for (int t = 0; t < threads; t++) {
+        for (int page = 0; page < pagesPerThread; page++) {
+          page(t, page).forEach((word, count) -> expected.merge(word, count, Integer::sum));
+        }
+      }
+      assertThat(aggregator.shardCount()).isEqualTo(threads);
+      assertThat(aggregator.snapshot(pool)).containsExactlyEntriesIn(expected);
+    } finally {
+      executor.shutdownNow();
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * A page with a word every page has, a word shared by a tenth of all pages, and a word only
+   * this thread's pages have.
+   */
+  private static Map<String, Integer> page(int thread, int page) {
+    return Map.of(
+        "the", 3,
+        "common" + (page % 10), 2,
+        "thread" + thread + "word" + (page % 50), 1);
+  }
+}
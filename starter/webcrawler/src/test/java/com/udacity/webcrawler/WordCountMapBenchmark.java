@@ -0,0 +1,100 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.WordCountMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark that counts the words of a corpus of pages and adds up the totals, comparing a
+ * {@link HashMap} of boxed counts, the way the parser and the crawlers used to count, with
+ * {@link WordCountMap}.
+ *
+ * <p>The corpus is {@link #PAGES} pages of {@link #WORDS_PER_PAGE} words each. Words are drawn
+ * from a vocabulary of {@link #VOCABULARY} words with a Zipf-like skew, so a few words make up
+ * most of every page, as in real text. Most counts are then above 127 on the totals, which is
+ * where {@link Integer#valueOf(int)} stops handing out cached boxes.
+ *
+ * <p>Run it from the project directory with the GC profiler, which reports the allocation rate
+ * as {@code gc.alloc.rate.norm}, in bytes per operation:
+ *
+ * <pre>{@code
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       org.openjdk.jmh.Main WordCountMapBenchmark -prof gc
+ * }</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WordCountMapBenchmark {
+
+  static final int PAGES = 50;
+  static final int WORDS_PER_PAGE = 2000;
+  static final int VOCABULARY = 5000;
+
+  @State(Scope.Benchmark)
+  public static class Corpus {
+    String[][] pages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      String[] vocabulary = new String[VOCABULARY];
+      for (int i = 0; i < VOCABULARY; i++) {
+        vocabulary[i] = "word" + i;
+      }
+      Random random = new Random(42);
+      pages = new String[PAGES][WORDS_PER_PAGE];
+      for (String[] page : pages) {
+        for (int i = 0; i < page.length; i++) {
+          // Cubing a uniform value favours the low ranks, roughly like Zipf's law.
+          double u = random.nextDouble();
+          page[i] = vocabulary[(int) (u * u * u * VOCABULARY)];
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public Map<String, Integer> hashMap(Corpus corpus) {
+    Map<String, Integer> totals = new HashMap<>();
+    for (String[] page : corpus.pages) {
+      Map<String, Integer> counts = new HashMap<>();
+      for (String word : page) {
+        counts.compute(word, (k, v) -> (v == null) ? 1 : v + 1);
+      }
+      for (Map.Entry<String, Integer> e : counts.entrySet()) {
+        totals.merge(e.getKey(), e.getValue(), Integer::sum);
+      }
+    }
+    return totals;
+  }
+
+  @Benchmark
+  public WordCountMap wordCountMap(Corpus corpus) {
+    WordCountMap totals = new WordCountMap();
+    for (String[] page : corpus.pages) {
+      WordCountMap counts = new WordCountMap();
+      for (String word : page) {
+        counts.increment(word);
+      }
+      totals.mergeFrom(counts);
+    }
+    return totals;
+  }
+}
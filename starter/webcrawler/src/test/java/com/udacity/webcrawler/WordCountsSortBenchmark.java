@@ -0,0 +1,87 @@
+package com.udacity.webcrawler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * JMH benchmark that picks the most popular words out of maps of 10<sup>4</sup> to 10<sup>7</sup>
+ * distinct words, comparing sorting every word, the way {@link WordCounts#sort(Map, int)} used to,
+ * with the heap it uses now, on one thread and in parallel.
+ *
+ * <p>Counts follow a Zipf-like skew, so most words share the same few small counts and are ranked
+ * by the tie-breakers. The largest maps need a few gigabytes of heap.
+ *
+ * <p>Run it from the project directory with:
+ *
+ * <pre>{@code
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       org.openjdk.jmh.Main WordCountsSortBenchmark
+ * }</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class WordCountsSortBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Counts {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int words;
+
+    @Param({"5", "100"})
+    public int popularWordCount;
+
+    Map<String, Integer> counts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      Random random = new Random(42);
+      counts = new HashMap<>(words * 4 / 3 + 1);
+      for (int i = 0; i < words; i++) {
+        counts.put("word" + i, (int) (1 / (1 - random.nextDouble() * 0.999)));
+      }
+    }
+  }
+
+  @Benchmark
+  public Map<String, Integer> fullSort(Counts state) {
+    return state.counts.entrySet()
+        .stream()
+        .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+            .thenComparing(e -> -e.getKey().length())
+            .thenComparing(Map.Entry.comparingByKey()))
+        .limit(Math.min(state.popularWordCount, state.counts.size()))
+        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue,
+            (oldValue, newValue) -> oldValue, LinkedHashMap::new));
+  }
+
+  @Benchmark
+  public Map<String, Integer> heap(Counts state) {
+    return WordCounts.sort(state.counts, state.popularWordCount, false);
+  }
+
+  @Benchmark
+  public Map<String, Integer> parallelHeap(Counts state) {
+    return WordCounts.sort(state.counts, state.popularWordCount, true);
+  }
+}
@@ -1,9 +1,15 @@
 package com.udacity.webcrawler;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import static com.google.common.truth.Truth.assertWithMessage;
 
@@ -82,4 +88,33 @@ public final class WordCountsTest {
             Map.entry("quick", 1),
             Map.entry("fox", 1))
         .inOrder();  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  public void topWordsMatchAFullSort(boolean parallel) {
+    // Few distinct counts and lengths, so most of the order comes down to the tie-breakers.
+    Random random = new Random(11);
+    Map<String, Integer> unsortedCounts = new HashMap<>();
+    while (unsortedCounts.size() < 100_000) {
+      StringBuilder word = new StringBuilder();
+      for (int i = random.nextInt(4); i >= 0; i--) {
+        word.append((char) ('a' + random.nextInt(26)));
+      }
+      unsortedCounts.put(word.toString() + unsortedCounts.size() % 7, 1 + random.nextInt(20));
+    }
+    List<Map.Entry<String, Integer>> expected = new ArrayList<>(unsortedCounts.entrySet());
+    expected.sort(Comparator.comparing((Map.Entry<String, Integer> e) -> -e.getValue())
+        .thenComparing(e -> -e.getKey().length())
+        .thenComparing(Map.Entry::getKey));
+
+    for (int k : new int[]{1, 5, 100, 1000}) {
+      assertWithMessage("Top %s words", k)
+          .that(WordCounts.sort(unsortedCounts, k, parallel).entrySet())
+          .containsExactlyElementsIn(expected.subList(0, k))
+          .inOrder();
+    }
+    assertWithMessage("No words")
+        .that(WordCounts.sort(unsortedCounts, 0, parallel))
+        .isEmpty();
+  }
 }
@@ -0,0 +1,103 @@
+package com.udacity.webcrawler.checkpoint;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class CheckpointJournalTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void replaysRecordedPages() throws Exception {
+    Path path = tempDir.resolve("crawl.journal");
+    try (CheckpointJournal journal = CheckpointJournal.create(path, CheckpointState.empty())) {
+      journal.recordPage("a", 3, Map.of("fox", 1, "dog", 2), List.of("b", "c"));
+      journal.recordPage("b", 2, Map.of("fox", 4), List.of("a", "d"));
+      journal.recordPage("d", 1, Map.of(), List.of("e"));
+    }
+
+    CheckpointState state = CheckpointJournal.load(path);
+    assertThat(state.getCrawledUrls()).containsExactly("a", "b", "d");
+    assertThat(state.getFrontier()).containsExactly("c", 2);
+    assertThat(state.getWordCounts()).containsExactly("fox", 5, "dog", 2);
+  }
+
+  @Test
+  public void keepsDeepestFrontierDepth() throws Exception {
+    Path path = tempDir.resolve("crawl.journal");
+    try (CheckpointJournal journal = CheckpointJournal.create(path, CheckpointState.empty())) {
+      journal.recordPage("deep", 2, Map.of(), List.of("x"));
+      journal.recordPage("shallow", 5, Map.of(), List.of("x"));
+    }
+
+    assertThat(CheckpointJournal.load(path).getFrontier()).containsEntry("x", 4);
+  }
+
+  @Test
+  public void ignoresTornLastRecord() throws Exception {
+    Path path = tempDir.resolve("crawl.journal");
+    try (CheckpointJournal journal = CheckpointJournal.create(path, CheckpointState.empty())) {
+      journal.recordPage("a", 2, Map.of("fox", 1), List.of("b"));
+      journal.recordPage("b", 1, Map.of("dog", 1), List.of());
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+
+    CheckpointState state = CheckpointJournal.load(path);
+    assertThat(state.getCrawledUrls()).containsExactly("a");
+    assertThat(state.getFrontier()).containsExactly("b", 1);
+    assertThat(state.getWordCounts()).containsExactly("fox", 1);
+  }
+
+  @Test
+  public void compactsWithoutLosingState() throws Exception {
+    Path path = tempDir.resolve("crawl.journal");
+    // Compact as soon as the log is four times the size of the last snapshot.
+    try (CheckpointJournal journal =
+             CheckpointJournal.create(path, CheckpointState.empty(), 0)) {
+      for (int round = 0; round < 20; round++) {
+        for (int page = 0; page < 50; page++) {
+          journal.recordPage(
+              "page" + page + "-" + round, 2, Map.of("word", 1), List.of("next" + page));
+        }
+        Thread.sleep(CheckpointJournal.FLUSH_INTERVAL.toMillis() / 10);
+      }
+    }
+    assertThat(Files.exists(path.resolveSibling("crawl.journal.tmp"))).isFalse();
+
+    CheckpointState state = CheckpointJournal.load(path);
+    assertThat(state.getCrawledUrls()).hasSize(1000);
+    assertThat(state.getFrontier()).hasSize(50);
+    assertThat(state.getWordCounts()).containsExactly("word", 1000);
+  }
+
+  @Test
+  public void startsFromInitialState() throws Exception {
+    Path path = tempDir.resolve("crawl.journal");
+    try (CheckpointJournal journal = CheckpointJournal.create(path, CheckpointState.empty())) {
+      journal.recordPage("a", 3, Map.of("fox", 1), List.of("b", "c"));
+    }
+
+    Path resumed = tempDir.resolve("resumed.journal");
+    try (CheckpointJournal journal =
+             CheckpointJournal.create(resumed, CheckpointJournal.load(path))) {
+      journal.recordPage("b", 2, Map.of("fox", 1), List.of());
+    }
+
+    CheckpointState state = CheckpointJournal.load(resumed);
+    assertThat(state.getCrawledUrls()).containsExactly("a", "b");
+    assertThat(state.getFrontier()).containsExactly("c", 2);
+    assertThat(state.getWordCounts()).containsExactly("fox", 2);
+  }
+}
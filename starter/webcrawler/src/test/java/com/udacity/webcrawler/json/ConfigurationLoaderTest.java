@@ -24,7 +24,28 @@ public final class ConfigurationLoaderTest {
         "\"timeoutSeconds\": 10, " +
         "\"popularWordCount\": 5, " +
         "\"profileOutputPath\": \"profileOutput.txt\", " +
-        "\"resultPath\": \"resultPath.json\" " +
+        "\"resultPath\": \"resultPath.json\", " +
+        "\"maxInFlightFetches\": 250, " +
+        "\"checkpointPath\": \"crawl.journal\", " +
+        "\"resumeFrom\": \"previous.journal\", " +
+        "\"recrawlStorePath\": \"recrawl.store\", " +
+        "\"responseCachePath\": \"cache\", " +
+        "\"responseCacheMaxMegabytes\": 64, " +
+        "\"parseCacheMaxMegabytes\": 32, " +
+        "\"parseCacheTtlSeconds\": 600, " +
+        "\"visitedSet\": \"fingerprint\", " +
+        "\"visitedFingerprintBits\": 128, " +
+        "\"visitedMemoryMb\": 64, " +
+        "\"visitedFalsePositiveRate\": 0.01, " +
+        "\"sortQueryParameters\": true, " +
+        "\"strippedQueryParameters\": [\"utm_.*\"], " +
+        "\"skipNearDuplicates\": true, " +
+        "\"nearDuplicateMaxDistance\": 5, " +
+        "\"frontierMemoryUrls\": 5000, " +
+        "\"wordCountMemoryMb\": 4, " +
+        "\"wordCountErrorRate\": 0.01, " +
+        "\"clusterConnectTimeoutSeconds\": 5, " +
+        "\"clusterGracePeriodSeconds\": 2 " +
         " }";
 
     Reader reader = new StringReader(json);
@@ -48,6 +69,28 @@ public final class ConfigurationLoaderTest {
     assertThat(config.getPopularWordCount()).isEqualTo(5);
     assertThat(config.getProfileOutputPath()).isEqualTo("profileOutput.txt");
     assertThat(config.getResultPath()).isEqualTo("resultPath.json");
+    assertThat(config.getMaxInFlightFetches()).isEqualTo(250);
+    assertThat(config.getCheckpointPath()).isEqualTo("crawl.journal");
+    assertThat(config.getResumeFrom()).isEqualTo("previous.journal");
+    assertThat(config.getRecrawlStorePath()).isEqualTo("recrawl.store");
+    assertThat(config.getResponseCachePath()).isEqualTo("cache");
+    assertThat(config.getResponseCacheMaxMegabytes()).isEqualTo(64);
+    assertThat(config.getParseCacheMaxMegabytes()).isEqualTo(32);
+    assertThat(config.getParseCacheTtlSeconds()).isEqualTo(600);
+    assertThat(config.getVisitedSet()).isEqualTo("fingerprint");
+    assertThat(config.getVisitedFingerprintBits()).isEqualTo(128);
+    assertThat(config.getVisitedMemoryMb()).isEqualTo(64);
+    assertThat(config.getVisitedFalsePositiveRate()).isEqualTo(0.01);
+    assertThat(config.isSortQueryParameters()).isTrue();
+    assertThat(config.getStrippedQueryParameters()).hasSize(1);
+    assertThat(config.getStrippedQueryParameters().get(0).pattern()).isEqualTo("utm_.*");
+    assertThat(config.isSkipNearDuplicates()).isTrue();
+    assertThat(config.getNearDuplicateMaxDistance()).isEqualTo(5);
+    assertThat(config.getFrontierMemoryUrls()).isEqualTo(5000);
+    assertThat(config.getWordCountMemoryMb()).isEqualTo(4);
+    assertThat(config.getWordCountErrorRate()).isEqualTo(0.01);
+    assertThat(config.getClusterConnectTimeoutSeconds()).isEqualTo(5);
+    assertThat(config.getClusterGracePeriodSeconds()).isEqualTo(2);
   }
 
   @Test
@@ -77,5 +120,36 @@ public final class ConfigurationLoaderTest {
     assertThat(config.getPopularWordCount()).isEqualTo(5);
     assertThat(config.getProfileOutputPath()).isEmpty();
     assertThat(config.getResultPath()).isEmpty();
+    assertThat(config.getMaxInFlightFetches()).isEqualTo(0);
+    assertThat(config.getCheckpointPath()).isEmpty();
+    assertThat(config.getResumeFrom()).isEmpty();
+    assertThat(config.getRecrawlStorePath()).isEmpty();
+    assertThat(config.getResponseCachePath()).isEmpty();
+    assertThat(config.getResponseCacheMaxMegabytes()).isEqualTo(1024);
+    assertThat(config.getParseCacheMaxMegabytes()).isEqualTo(0);
+    assertThat(config.getParseCacheTtlSeconds()).isEqualTo(3600);
+    assertThat(config.getVisitedSet()).isEqualTo("exact");
+    assertThat(config.getVisitedFingerprintBits()).isEqualTo(64);
+    assertThat(config.getVisitedMemoryMb()).isEqualTo(256);
+    assertThat(config.getVisitedFalsePositiveRate()).isEqualTo(0.001);
+    assertThat(config.isSortQueryParameters()).isFalse();
+    assertThat(config.getStrippedQueryParameters()).isEmpty();
+    assertThat(config.isSkipNearDuplicates()).isFalse();
+    assertThat(config.getNearDuplicateMaxDistance()).isEqualTo(3);
+    assertThat(config.getFrontierMemoryUrls()).isEqualTo(100_000);
+    assertThat(config.isApproximateWordCounts()).isFalse();
+    assertThat(config.getWordCountMemoryMb()).isEqualTo(16);
+    assertThat(config.getWordCountErrorRate()).isEqualTo(0.0001);
+    assertThat(config.getClusterConnectTimeoutSeconds()).isEqualTo(30);
+    assertThat(config.getClusterGracePeriodSeconds()).isEqualTo(10);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testApproximateWordCounts() {
+    String json = "{ " +
+        "\"approximateWordCounts\": true " +
+        " }";
+    CrawlerConfiguration config = ConfigurationLoader.read(new StringReader(json));
+    assertThat(config.isApproximateWordCounts()).isTrue();
+  }
+}
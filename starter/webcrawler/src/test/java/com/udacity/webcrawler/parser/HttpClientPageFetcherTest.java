@@ -0,0 +1,215 @@
+package com.udacity.webcrawler.parser;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class HttpClientPageFetcherTest {
+
+  private static final String PAGE =
+      "<html><body><p>the quick brown fox <a href=\"/next.html\">link</a></p></body></html>";
+
+  private final PageFetcher fetcher = new HttpClientPageFetcher(Duration.ofSeconds(5));
+  private final Set<Integer> clientPorts = new HashSet<>();
+  private final CountDownLatch trickleStarted = new CountDownLatch(1);
+  private final CompletableFuture<IOException> trickleAborted = new CompletableFuture<>();
+  private HttpServer server;
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  public void decodesGzipResponses() throws Exception {
+    FetchedPage page = fetcher.fetch(url("/page.html"), Duration.ofSeconds(5)).get();
+
+    assertThat(new String(page.openStream().readAllBytes(), StandardCharsets.UTF_8))
+        .isEqualTo(PAGE);
+    assertThat(page.getCharset()).isEqualTo(Optional.of("utf-8"));
+  }
+
+  @Test
+  public void reusesConnectionsToTheSameHost() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      fetcher.fetch(url("/page-" + i + ".html"), Duration.ofSeconds(5)).get();
+    }
+
+    assertThat(clientPorts).hasSize(1);
+  }
+
+  @Test
+  public void failsOnHttpErrors() {
+    ExecutionException e = assertThrows(
+        ExecutionException.class,
+        () -> fetcher.fetch(url("/missing.html"), Duration.ofSeconds(5)).get());
+    assertThat(e).hasCauseThat().isInstanceOf(IOException.class);
+  }
+
+  @Test
+  public void cancellingAbortsTheDownload() throws Exception {
+    CompletableFuture<FetchedPage> page =
+        fetcher.fetch(url("/trickle.html"), Duration.ofMinutes(1));
+    assertThat(trickleStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+    page.cancel(true);
+
+    // The server only notices once the client has closed the connection.
+    assertThat(trickleAborted.get(10, TimeUnit.SECONDS)).isNotNull();
+  }
+
+  @Test
+  public void abortingTheBodyClosesTheConnection() throws Exception {
+    // No future is cancelled here, so this checks the path Java 11 relies on.
+    HttpClientPageFetcher.AbortableBodyHandler body =
+        new HttpClientPageFetcher.AbortableBodyHandler(HttpClientPageFetcher.MAX_BODY_SIZE);
+    HttpClient client = HttpClient.newHttpClient();
+    client.sendAsync(HttpRequest.newBuilder(url("/trickle.html")).build(), body);
+    assertThat(trickleStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+    body.abort();
+
+    assertThat(trickleAborted.get(10, TimeUnit.SECONDS)).isNotNull();
+  }
+
+  @Test
+  public void truncatesBodiesAtMaxBodySize() throws Exception {
+    PageFetcher small = new HttpClientPageFetcher(Duration.ofSeconds(5), 100_000);
+
+    // The server would send a megabyte, in plain text or compressed.
+    for (String path : List.of("/large.html", "/large-gzip.html")) {
+      FetchedPage page = small.fetch(url(path), Duration.ofSeconds(5)).get(10, TimeUnit.SECONDS);
+      byte[] body = page.openStream().readAllBytes();
+      assertThat(body).hasLength(100_000);
+      assertThat(body[0]).isEqualTo((byte) 'x');
+    }
+    assertThat(HttpClientPageFetcher.MAX_BODY_SIZE).isEqualTo(2 << 20);
+  }
+
+  @Test
+  public void parsesRemotePages() {
+    PageParser.Result result =
+        new PageParserImpl(url("/page.html").toString(), Duration.ofSeconds(5), List.of(), fetcher)
+            .parse();
+
+    assertThat(result.getWordCounts()).containsExactly(
+        "the", 1, "quick", 1, "brown", 1, "fox", 1, "link", 1);
+    assertThat(result.getLinks()).containsExactly(url("/next.html").toString());
+  }
+
+  private URI url(String path) {
+    return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    synchronized (clientPorts) {
+      clientPorts.add(exchange.getRemoteAddress().getPort());
+    }
+    if (exchange.getRequestURI().getPath().equals("/trickle.html")) {
+      trickle(exchange);
+      return;
+    }
+    if (exchange.getRequestURI().getPath().startsWith("/large")) {
+      large(exchange, exchange.getRequestURI().getPath().endsWith("-gzip.html"));
+      return;
+    }
+    if (exchange.getRequestURI().getPath().equals("/missing.html")) {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+      return;
+    }
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(PAGE.getBytes(StandardCharsets.UTF_8));
+    }
+    boolean acceptsGzip =
+        String.valueOf(exchange.getRequestHeaders().getFirst("Accept-Encoding")).contains("gzip");
+    byte[] body = acceptsGzip ? compressed.toByteArray() : PAGE.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+    if (acceptsGzip) {
+      exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+    }
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  /**
+   * Sends a megabyte of text as fast as the client takes it, ignoring the client going away.
+   */
+  private void large(HttpExchange exchange, boolean gzipped) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+    if (gzipped) {
+      exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+    }
+    exchange.sendResponseHeaders(200, 0);
+    byte[] chunk = new byte[1024];
+    Arrays.fill(chunk, (byte) 'x');
+    try (OutputStream out = gzipped
+        ? new GZIPOutputStream(exchange.getResponseBody())
+        : exchange.getResponseBody()) {
+      for (int i = 0; i < 1024; i++) {
+        out.write(chunk);
+      }
+    } catch (IOException e) {
+      // The client stopped reading, as it should.
+    }
+  }
+
+  /**
+   * Sends a page a little at a time for up to a minute, and records the error if the client
+   * goes away first.
+   */
+  private void trickle(HttpExchange exchange) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+    exchange.sendResponseHeaders(200, 0);
+    try (OutputStream out = exchange.getResponseBody()) {
+      byte[] chunk = new byte[1024];
+      Arrays.fill(chunk, (byte) ' ');
+      for (int i = 0; i < 1200; i++) {
+        out.write(chunk);
+        out.flush();
+        trickleStarted.countDown();
+        Thread.sleep(50);
+      }
+    } catch (IOException e) {
+      trickleAborted.complete(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class IdCountMapTest {
+
+  @Test
+  public void countsIds() {
+    IdCountMap counts = new IdCountMap();
+    counts.add(0, 1);
+    counts.add(1_000_000, 3);
+    counts.add(0, 1);
+
+    assertThat(counts.size()).isEqualTo(2);
+    assertThat(counts.get(0)).isEqualTo(2);
+    assertThat(counts.get(1_000_000)).isEqualTo(3);
+    assertThat(counts.get(7)).isEqualTo(0);
+    assertThat(toMap(counts)).containsExactly(0, 2, 1_000_000, 3);
+    assertThrows(IllegalArgumentException.class, () -> counts.add(-1, 1));
+  }
+
+  @Test
+  public void matchesHashMapWhileGrowing() {
+    Random random = new Random(7);
+    IdCountMap counts = new IdCountMap();
+    Map<Integer, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      int id = random.nextInt(20_000);
+      counts.add(id, 1);
+      expected.merge(id, 1, Integer::sum);
+    }
+
+    assertThat(toMap(counts)).containsExactlyEntriesIn(expected);
+    assertThat(counts.size()).isEqualTo(expected.size());
+  }
+
+  @Test
+  public void mergesAndCopies() {
+    IdCountMap a = new IdCountMap();
+    a.add(1, 1);
+    a.add(2, 2);
+    IdCountMap b = new IdCountMap();
+    b.add(2, 3);
+    b.add(3, 4);
+
+    IdCountMap copy = a.copy();
+    a.mergeFrom(b);
+    a.mergeFrom(a);
+
+    assertThat(toMap(a)).containsExactly(1, 2, 2, 10, 3, 8);
+    assertThat(toMap(copy)).containsExactly(1, 1, 2, 2);
+  }
+
+  private static Map<Integer, Integer> toMap(IdCountMap counts) {
+    Map<Integer, Integer> map = new HashMap<>();
+    counts.forEach(map::put);
+    return map;
+  }
+}
@@ -13,10 +13,12 @@ public final class PageParserImplTest {
 
   private static final String DATA_DIR = System.getProperty("testDataDir");
   private final String testPage = Paths.get(DATA_DIR, "test-page.html").toUri().toString();
+  private final PageFetcher fetcher = new HttpClientPageFetcher(Duration.ofSeconds(1));
 
   @Test
   public void basicParsing() {
-    PageParser.Result result = new PageParserImpl(testPage, Duration.ZERO, List.of()).parse();
+    PageParser.Result result =
+        new PageParserImpl(testPage, Duration.ZERO, List.of(), fetcher).parse();
 
     assertThat(result.getLinks())
         .containsExactly(Paths.get(DATA_DIR, "link-1.html").toUri().toString());
@@ -34,7 +36,8 @@ public final class PageParserImplTest {
   @Test
   public void parsingWithIgnoredWords() {
     PageParser.Result result =
-        new PageParserImpl(testPage, Duration.ZERO, List.of(Pattern.compile("^...$"))).parse();
+        new PageParserImpl(testPage, Duration.ZERO, List.of(Pattern.compile("^...$")), fetcher)
+            .parse();
 
     assertThat(result.getLinks())
         .containsExactly(Paths.get(DATA_DIR, "link-1.html").toUri().toString());
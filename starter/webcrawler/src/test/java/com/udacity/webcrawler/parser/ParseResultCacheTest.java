@@ -0,0 +1,115 @@
+package com.udacity.webcrawler.parser;
+
+import com.google.inject.Guice;
+import com.udacity.webcrawler.profiler.FakeClock;
+import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.profiler.ProfilerModule;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class ParseResultCacheTest {
+
+  private final FakeClock clock = new FakeClock();
+  private final Profiler profiler = Guice.createInjector(
+          new ProfilerModule(), binder -> binder.bind(Clock.class).toInstance(clock))
+      .getInstance(Profiler.class);
+  private final AtomicInteger parses = new AtomicInteger();
+
+  @Test
+  public void reusesResultForSameNormalizedUrl() throws Exception {
+    ParseResultCache cache = new ParseResultCache(clock, profiler, 1L << 20, Duration.ofHours(1));
+
+    PageParser.Result first = cache.wrap("http://example.com/a/../b#top", parser("fox")).parse();
+    PageParser.Result second = cache.wrap("HTTP://Example.COM/b", parser("dog")).parse();
+
+    assertThat(parses.get()).isEqualTo(1);
+    assertThat(second).isSameInstanceAs(first);
+    StringWriter profile = new StringWriter();
+    profiler.writeData(profile);
+    assertThat(profile.toString()).contains(ParseResultCache.HITS + " = 1");
+    assertThat(profile.toString()).contains(ParseResultCache.MISSES + " = 1");
+  }
+
+  @Test
+  public void lookupFindsResultsCachedByParsers() throws Exception {
+    ParseResultCache cache = new ParseResultCache(clock, profiler, 1L << 20, Duration.ofHours(1));
+
+    assertThat(cache.lookup("http://example.com/a")).isNull();
+    PageParser.Result parsed = cache.wrap("http://example.com/a", parser("fox")).parse();
+
+    assertThat(cache.lookup("HTTP://example.com/a#top")).isSameInstanceAs(parsed);
+    assertThat(ParseResultCache.disabled().lookup("http://example.com/a")).isNull();
+    StringWriter profile = new StringWriter();
+    profiler.writeData(profile);
+    assertThat(profile.toString()).contains(ParseResultCache.HITS + " = 1");
+  }
+
+  @Test
+  public void parsesAgainAfterTtlOrFailure() {
+    ParseResultCache cache = new ParseResultCache(clock, profiler, 1L << 20, Duration.ofMinutes(5));
+    PageParser failed = () -> {
+      parses.incrementAndGet();
+      return new PageParser.Result.Builder().setFailed().build();
+    };
+
+    cache.wrap("http://example.com/broken", failed).parse();
+    cache.wrap("http://example.com/broken", failed).parse();
+    assertThat(parses.get()).isEqualTo(2);
+
+    cache.wrap("http://example.com/a", parser("fox")).parse();
+    clock.tick(Duration.ofMinutes(4));
+    cache.wrap("http://example.com/a", parser("fox")).parse();
+    assertThat(parses.get()).isEqualTo(3);
+    clock.tick(Duration.ofMinutes(1));
+    cache.wrap("http://example.com/a", parser("fox")).parse();
+    assertThat(parses.get()).isEqualTo(4);
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedPastSizeBudget() throws Exception {
+    // Keys that land in the same stripe, so they compete for the same space.
+    String[] keys = new String[3];
+    for (int i = 0, found = 0; found < keys.length; i++) {
+      String candidate = "http://example.com/p" + i;
+      if (Math.floorMod(candidate.hashCode(), ParseResultCache.STRIPES) == 0) {
+        keys[found++] = candidate;
+      }
+    }
+    // Room for two results in each stripe, but not three.
+    long entryBytes = ParseResultCache.estimateBytes(keys[2], result("w"));
+    long maxBytes = ParseResultCache.STRIPES * (2 * entryBytes + entryBytes / 2);
+    ParseResultCache cache = new ParseResultCache(clock, profiler, maxBytes, Duration.ofHours(1));
+
+    cache.put(keys[0], result("w"));
+    cache.put(keys[1], result("w"));
+    assertThat(cache.get(keys[0])).isNotNull();
+    cache.put(keys[2], result("w"));
+
+    assertThat(cache.get(keys[0])).isNotNull();
+    assertThat(cache.get(keys[1])).isNull();
+    assertThat(cache.get(keys[2])).isNotNull();
+    StringWriter profile = new StringWriter();
+    profiler.writeData(profile);
+    assertThat(profile.toString()).contains(ParseResultCache.EVICTIONS + " = 1");
+  }
+
+  private PageParser parser(String word) {
+    return () -> {
+      parses.incrementAndGet();
+      return result(word);
+    };
+  }
+
+  private static PageParser.Result result(String word) {
+    PageParser.Result.Builder builder = new PageParser.Result.Builder();
+    builder.addWord(word);
+    builder.addLink("http://example.com/next");
+    return builder.build();
+  }
+}
@@ -0,0 +1,54 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+public final class PatternFilterTest {
+
+  private static final List<String> INPUTS = List.of(
+      "", "a", "ab", "abc", "abcd", "the", "The", "and", "a.b", "aXb", "line\nbreak", "😀",
+      "😀😀😀😀", "http://example.com/", "http://example.com/a/b.html", "https://example.com/",
+      "http://example.com/\n", "http://example.org/page-loop.html", "x\n-loop.html",
+      "http://dead-link.com", "dead-\n", "aaab", "ab1", "Ab1", "q?", "q");
+
+  @Test
+  public void agreesWithMatchingEachPattern() {
+    List<String> regexes = List.of(
+        // Literals.
+        "the", "^and$", "a\\.b", "\\Qq?\\E",
+        // Length checks.
+        "^.{1,3}$", ".{4}", ".", "^.{6,}$",
+        // Literal text at the start, the end or anywhere.
+        "http://example\\.com/.*", ".*-loop\\.html$", ".*dead-.*",
+        // Joined, with literal prefixes.
+        "https?://example\\.com/", "aa+b", "ab?c.*",
+        // Joined, without a prefix.
+        ".*\\.(html|com)", "(?i)ab1",
+        // Not joinable.
+        "(a)\\1b");
+    for (int n = 1; n <= regexes.size(); n++) {
+      assertAgrees(regexes.subList(0, n));
+      assertAgrees(regexes.subList(regexes.size() - n, regexes.size()));
+    }
+    assertAgrees(List.of());
+    assertAgrees(List.of("A", "B"), Pattern.CASE_INSENSITIVE);
+  }
+
+  private static void assertAgrees(List<String> regexes, int... flags) {
+    List<Pattern> patterns = regexes.stream()
+        .map(r -> Pattern.compile(r, flags.length == 0 ? 0 : flags[0]))
+        .collect(Collectors.toList());
+    PatternFilter filter = PatternFilter.compile(patterns);
+    for (String input : INPUTS) {
+      boolean expected = patterns.stream().anyMatch(p -> p.matcher(input).matches());
+      assertWithMessage("%s against %s", input, regexes)
+          .that(filter.matchesAny(input))
+          .isEqualTo(expected);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package com.udacity.webcrawler.parser;
+
+import com.google.inject.Guice;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.profiler.ProfilerModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class RecrawlStoreTest {
+
+  private final PageFetcher fetcher = new HttpClientPageFetcher(Duration.ofSeconds(5));
+  private final AtomicInteger fullResponses = new AtomicInteger();
+  private final AtomicInteger notModifiedResponses = new AtomicInteger();
+  private volatile String etag = "\"v1\"";
+  private volatile String page =
+      "<html><body><p>the quick brown fox <a href=\"/next.html\">link</a></p></body></html>";
+  private HttpServer server;
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  public void reusesStoredResultWhenPageIsNotModified() throws Exception {
+    Path file = tempDir.resolve("recrawl.store");
+    PageParser.Result first = parse(RecrawlStore.open(file, newProfiler()));
+    assertThat(fullResponses.get()).isEqualTo(1);
+
+    // The next crawl starts from the file alone.
+    Profiler profiler = newProfiler();
+    PageParser.Result second = parse(RecrawlStore.open(file, profiler));
+
+    assertThat(fullResponses.get()).isEqualTo(1);
+    assertThat(notModifiedResponses.get()).isEqualTo(1);
+    assertThat(second.getWordCounts()).containsExactlyEntriesIn(first.getWordCounts());
+    assertThat(second.getLinks()).containsExactlyElementsIn(first.getLinks());
+    StringWriter profile = new StringWriter();
+    profiler.writeData(profile);
+    assertThat(profile.toString()).contains(RecrawlStore.NOT_MODIFIED + " = 1");
+    assertThat(profile.toString()).contains(RecrawlStore.NOT_MODIFIED_PERCENT + " = 100");
+  }
+
+  @Test
+  public void downloadsPageAgainWhenItChanged() throws Exception {
+    Path file = tempDir.resolve("recrawl.store");
+    parse(RecrawlStore.open(file, newProfiler()));
+
+    etag = "\"v2\"";
+    page = "<html><body><p>lazy dog</p></body></html>";
+    RecrawlStore store = RecrawlStore.open(file, newProfiler());
+    PageParser.Result changed = parse(store);
+
+    assertThat(fullResponses.get()).isEqualTo(2);
+    assertThat(changed.getWordCounts()).containsExactly("lazy", 1, "dog", 1);
+    // The new version replaces the old one in the store.
+    assertThat(parse(RecrawlStore.open(file, newProfiler())).getWordCounts())
+        .containsExactly("lazy", 1, "dog", 1);
+    assertThat(notModifiedResponses.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void ignoresRecordCutOffAtEndOfFile() throws Exception {
+    Path file = tempDir.resolve("recrawl.store");
+    parse(RecrawlStore.open(file, newProfiler()));
+    Files.write(file, new byte[]{0, 42, 'h', 't'}, StandardOpenOption.APPEND);
+
+    parse(RecrawlStore.open(file, newProfiler()));
+
+    assertThat(fullResponses.get()).isEqualTo(1);
+    assertThat(notModifiedResponses.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void keepsRecordsAfterOneLongerThan64Kilobytes() throws Exception {
+    Path file = tempDir.resolve("recrawl.store");
+    String longWord = "a".repeat(70_000);
+    page = "<html><body><p>" + longWord + "</p></body></html>";
+    RecrawlStore store = RecrawlStore.open(file, newProfiler());
+    parse(store, "/long.html");
+    page = "<html><body><p>lazy dog</p></body></html>";
+    parse(store, "/page.html");
+
+    RecrawlStore reopened = RecrawlStore.open(file, newProfiler());
+    assertThat(parse(reopened, "/long.html").getWordCounts()).containsExactly(longWord, 1);
+    assertThat(parse(reopened, "/page.html").getWordCounts())
+        .containsExactly("lazy", 1, "dog", 1);
+    assertThat(fullResponses.get()).isEqualTo(2);
+    assertThat(notModifiedResponses.get()).isEqualTo(2);
+  }
+
+  private PageParser.Result parse(RecrawlStore store) {
+    return parse(store, "/page.html");
+  }
+
+  private PageParser.Result parse(RecrawlStore store, String path) {
+    String url = "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    return new PageParserImpl(
+            url, Duration.ofSeconds(5), PatternFilter.compile(List.of()), fetcher,
+            Clock.systemUTC(), Instant.MAX, store, UrlCanonicalizer.DEFAULT, new WordDictionary())
+        .parse();
+  }
+
+  private static Profiler newProfiler() {
+    return Guice.createInjector(
+            new ProfilerModule(), binder -> binder.bind(Clock.class).toInstance(Clock.systemUTC()))
+        .getInstance(Profiler.class);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    String currentTag = etag;
+    if (currentTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+      notModifiedResponses.incrementAndGet();
+      exchange.getResponseHeaders().set("ETag", currentTag);
+      exchange.sendResponseHeaders(304, -1);
+      exchange.close();
+      return;
+    }
+    fullResponses.incrementAndGet();
+    byte[] body = page.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+    exchange.getResponseHeaders().set("ETag", currentTag);
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
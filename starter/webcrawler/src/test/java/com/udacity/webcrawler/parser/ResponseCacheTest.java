@@ -0,0 +1,114 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.NoOpProfiler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class ResponseCacheTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(1);
+
+  private final AtomicInteger downloads = new AtomicInteger();
+  private final PageFetcher network = (uri, timeout) -> {
+    downloads.incrementAndGet();
+    return CompletableFuture.completedFuture(new FetchedPage(
+        uri.resolve("/final" + uri.getPath()),
+        "utf-8",
+        ByteBuffer.wrap(("<p>" + uri.getPath() + "</p>").getBytes(StandardCharsets.UTF_8)),
+        new Validators("\"tag\"", null)));
+  };
+
+  @TempDir
+  Path cacheDir;
+
+  @Test
+  public void servesRepeatedFetchesFromDisk() throws Exception {
+    URI uri = URI.create("http://example.com/a.html");
+    ResponseCache cache = ResponseCache.open(network, new NoOpProfiler(), cacheDir, 1L << 30);
+    FetchedPage downloaded = cache.fetch(uri, TIMEOUT).get();
+    cache.fetch(uri, TIMEOUT).get();
+    assertThat(downloads.get()).isEqualTo(1);
+
+    // A warm run starts from the files alone and never calls the network.
+    ResponseCache warm = ResponseCache.open(network, new NoOpProfiler(), cacheDir, 1L << 30);
+    FetchedPage cached = warm.fetch(uri, TIMEOUT).get();
+
+    assertThat(downloads.get()).isEqualTo(1);
+    assertThat(cached.getBody().isDirect()).isTrue();
+    assertThat(cached.getBody()).isEqualTo(downloaded.getBody());
+    assertThat(cached.getUri()).isEqualTo(downloaded.getUri());
+    assertThat(cached.getCharset()).isEqualTo(downloaded.getCharset());
+    assertThat(cached.getValidators()).isEqualTo(downloaded.getValidators());
+  }
+
+  @Test
+  public void evictsOldestSegmentsPastSizeCap() throws Exception {
+    byte[] big = new byte[300 << 10];
+    Arrays.fill(big, (byte) 'x');
+    PageFetcher bigPages = (uri, timeout) -> {
+      downloads.incrementAndGet();
+      return CompletableFuture.completedFuture(new FetchedPage(uri, null, ByteBuffer.wrap(big)));
+    };
+    long maxBytes = 4L << 20;
+    ResponseCache cache = ResponseCache.open(bigPages, new NoOpProfiler(), cacheDir, maxBytes);
+    for (int i = 0; i < 30; i++) {
+      cache.fetch(URI.create("http://example.com/" + i), TIMEOUT).get();
+    }
+    assertThat(directorySize()).isAtMost(maxBytes);
+
+    cache.fetch(URI.create("http://example.com/29"), TIMEOUT).get();
+    assertThat(downloads.get()).isEqualTo(30);
+    cache.fetch(URI.create("http://example.com/0"), TIMEOUT).get();
+    assertThat(downloads.get()).isEqualTo(31);
+  }
+
+  @Test
+  public void cutsOffRecordLeftPartlyWritten() throws Exception {
+    ResponseCache cache = ResponseCache.open(network, new NoOpProfiler(), cacheDir, 1L << 30);
+    cache.fetch(URI.create("http://example.com/a.html"), TIMEOUT).get();
+    Path segment = segments().get(0);
+    Files.write(segment, new byte[]{0x52, 0x43, 0x52, 0x31, 1, 2, 3}, StandardOpenOption.APPEND);
+
+    ResponseCache reopened = ResponseCache.open(network, new NoOpProfiler(), cacheDir, 1L << 30);
+    reopened.fetch(URI.create("http://example.com/a.html"), TIMEOUT).get();
+    reopened.fetch(URI.create("http://example.com/b.html"), TIMEOUT).get();
+    assertThat(downloads.get()).isEqualTo(2);
+
+    ResponseCache again = ResponseCache.open(network, new NoOpProfiler(), cacheDir, 1L << 30);
+    FetchedPage b = again.fetch(URI.create("http://example.com/b.html"), TIMEOUT).get();
+    assertThat(downloads.get()).isEqualTo(2);
+    assertThat(new String(b.openStream().readAllBytes(), StandardCharsets.UTF_8))
+        .isEqualTo("<p>/b.html</p>");
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(cacheDir)) {
+      return files.sorted().collect(Collectors.toList());
+    }
+  }
+
+  private long directorySize() throws IOException {
+    long size = 0;
+    for (Path path : segments()) {
+      size += Files.size(path);
+    }
+    return size;
+  }
+}
@@ -0,0 +1,63 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class UrlCanonicalizerTest {
+
+  private final UrlCanonicalizer canonicalizer = UrlCanonicalizer.DEFAULT;
+
+  @Test
+  public void collapsesEquivalentSpellings() {
+    assertThat(canonicalizer.canonicalize("HTTP://Example.COM/a"))
+        .isEqualTo("http://example.com/a");
+    assertThat(canonicalizer.canonicalize("http://example.com/a#top"))
+        .isEqualTo("http://example.com/a");
+    assertThat(canonicalizer.canonicalize("http://example.com:80/a"))
+        .isEqualTo("http://example.com/a");
+    assertThat(canonicalizer.canonicalize("https://example.com:443"))
+        .isEqualTo("https://example.com/");
+    assertThat(canonicalizer.canonicalize("http://example.com/a/./b/../c/"))
+        .isEqualTo("http://example.com/a/c/");
+    assertThat(canonicalizer.canonicalize("http://example.com/../a/.."))
+        .isEqualTo("http://example.com/");
+    assertThat(canonicalizer.canonicalize("http://example.com/%7ea?q=%2f"))
+        .isEqualTo("http://example.com/%7Ea?q=%2F");
+  }
+
+  @Test
+  public void keepsWhatCanChangeThePage() {
+    assertThat(canonicalizer.canonicalize("http://User@Example.com:8080/A?B=1&a=2"))
+        .isEqualTo("http://User@example.com:8080/A?B=1&a=2");
+    assertThat(canonicalizer.canonicalize("http://[::1]:8080/")).isEqualTo("http://[::1]:8080/");
+    assertThat(canonicalizer.canonicalize("mailto:Someone@Example.com"))
+        .isEqualTo("mailto:Someone@Example.com");
+    assertThat(canonicalizer.canonicalize("file:///tmp/A/./b.html"))
+        .isEqualTo("file:///tmp/A/./b.html");
+  }
+
+  @Test
+  public void returnsCanonicalUrlsUnchanged() {
+    String url = "http://example.com/a/b?x=1";
+    assertThat(canonicalizer.canonicalize(url)).isSameInstanceAs(url);
+  }
+
+  @Test
+  public void sortsAndStripsQueryParametersWhenAsked() {
+    UrlCanonicalizer configured = new UrlCanonicalizer.Builder()
+        .setSortQueryParameters(true)
+        .addStrippedQueryParameters(List.of(Pattern.compile("utm_.*")))
+        .build();
+
+    assertThat(configured.canonicalize("http://example.com/a?b=1&utm_source=x&a=2&a=1#f"))
+        .isEqualTo("http://example.com/a?a=2&a=1&b=1");
+    assertThat(configured.canonicalize("http://example.com/a?utm_medium=email"))
+        .isEqualTo("http://example.com/a");
+    assertThat(configured.canonicalize("http://example.com/a?a=2&b=1"))
+        .isEqualTo(configured.canonicalize("http://example.com/a?b=1&a=2"));
+  }
+}
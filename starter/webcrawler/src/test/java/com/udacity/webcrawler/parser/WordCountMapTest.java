@@ -0,0 +1,82 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class WordCountMapTest {
+
+  @Test
+  public void countsWords() {
+    WordCountMap counts = new WordCountMap();
+    counts.increment("the");
+    counts.increment("fox");
+    counts.increment("the");
+    counts.add("dog", 5);
+
+    assertThat(counts.size()).isEqualTo(3);
+    assertThat(counts.get("the")).isEqualTo(2);
+    assertThat(counts.get("dog")).isEqualTo(5);
+    assertThat(counts.get("cat")).isEqualTo(0);
+    assertThat(counts.asMap()).containsExactly("the", 2, "fox", 1, "dog", 5);
+  }
+
+  @Test
+  public void matchesHashMapWhileGrowing() {
+    // Enough words that the table grows many times, including words whose hashes collide.
+    Random random = new Random(7);
+    WordCountMap counts = new WordCountMap();
+    Map<String, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      String word = (i % 3 == 0) ? ((i % 2 == 0) ? "Aa" : "BB") : "w" + random.nextInt(20_000);
+      counts.increment(word);
+      expected.merge(word, 1, Integer::sum);
+    }
+
+    assertThat(counts.asMap()).containsExactlyEntriesIn(expected);
+    assertThat(counts.size()).isEqualTo(expected.size());
+  }
+
+  @Test
+  public void mergeFromAddsEveryCount() {
+    WordCountMap a = new WordCountMap();
+    a.add("the", 2);
+    a.add("fox", 1);
+    WordCountMap b = new WordCountMap();
+    b.add("the", 3);
+    b.add("dog", 4);
+
+    a.mergeFrom(b);
+    a.mergeFrom(Map.of("dog", 1, "cat", 6));
+
+    assertThat(a.asMap()).containsExactly("the", 5, "fox", 1, "dog", 5, "cat", 6);
+    assertThat(b.asMap()).containsExactly("the", 3, "dog", 4);
+  }
+
+  @Test
+  public void copyIsIndependent() {
+    WordCountMap counts = new WordCountMap();
+    counts.add("the", 2);
+    WordCountMap copy = counts.copy();
+    copy.increment("the");
+    copy.increment("fox");
+
+    assertThat(counts.asMap()).containsExactly("the", 2);
+    assertThat(copy.asMap()).containsExactly("the", 3, "fox", 1);
+  }
+
+  @Test
+  public void mapViewIsReadOnly() {
+    WordCountMap counts = new WordCountMap();
+    counts.increment("the");
+
+    assertThrows(UnsupportedOperationException.class, () -> counts.asMap().put("fox", 1));
+    assertThat(counts.asMap()).isEqualTo(Map.of("the", 1));
+    assertThat(counts.asMap().get(42)).isNull();
+  }
+}
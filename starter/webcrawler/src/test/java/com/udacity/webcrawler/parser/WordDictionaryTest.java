@@ -0,0 +1,113 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class WordDictionaryTest {
+
+  private static final String DATA_DIR = System.getProperty("testDataDir");
+
+  @Test
+  public void givesEachWordOneDenseId() {
+    WordDictionary dictionary = new WordDictionary();
+
+    assertThat(dictionary.idOf("the")).isEqualTo(0);
+    assertThat(dictionary.idOf("fox")).isEqualTo(1);
+    assertThat(dictionary.idOf(new String("the"))).isEqualTo(0);
+    assertThat(dictionary.word(1)).isEqualTo("fox");
+    assertThat(dictionary.size()).isEqualTo(2);
+    assertThrows(IllegalArgumentException.class, () -> dictionary.word(2));
+  }
+
+  @Test
+  public void concurrentLookupsAgreeOnIds() throws Exception {
+    // More words than fit in one chunk, so that threads race to add chunks too.
+    int words = 20_000;
+    WordDictionary dictionary = new WordDictionary();
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<int[]>> futures = new ArrayList<>();
+      for (int t = 0; t < 16; t++) {
+        int offset = t * (words / 16);
+        futures.add(executor.submit(() -> {
+          int[] ids = new int[words];
+          for (int i = 0; i < words; i++) {
+            int word = (i + offset) % words;
+            ids[word] = dictionary.idOf("word" + word);
+          }
+          return ids;
+        }));
+      }
+      int[] first = futures.get(0).get();
+      for (Future<int[]> future : futures) {
+        assertThat(future.get()).isEqualTo(first);
+      }
+      Set<Integer> distinct = new HashSet<>();
+      for (int word = 0; word < words; word++) {
+        assertThat(dictionary.word(first[word])).isEqualTo("word" + word);
+        distinct.add(first[word]);
+      }
+      assertThat(distinct).hasSize(words);
+      assertThat(dictionary.size()).isEqualTo(words);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void pagesParsedWithOneDictionaryShareTheirWords() {
+    WordDictionary dictionary = new WordDictionary();
+    String page = Paths.get(DATA_DIR, "test-page.html").toUri().toString();
+
+    Map<String, Integer> first = parse(page, dictionary).getWordCounts();
+    Map<String, Integer> second = parse(page, dictionary).getWordCounts();
+
+    String firstThe = first.keySet().stream().filter("the"::equals).findFirst().orElseThrow();
+    String secondThe = second.keySet().stream().filter("the"::equals).findFirst().orElseThrow();
+    assertThat(secondThe).isSameInstanceAs(firstThe);
+    assertThat(dictionary.intern("the")).isSameInstanceAs(firstThe);
+  }
+
+  @Test
+  public void addsPageCountsById() {
+    WordDictionary dictionary = new WordDictionary();
+    String page = Paths.get(DATA_DIR, "test-page.html").toUri().toString();
+    PageParser.Result result = parse(page, dictionary);
+
+    IdCountMap counts = new IdCountMap();
+    result.addWordCountsTo(counts, dictionary);
+    result.addWordCountsTo(counts, dictionary);
+    assertThat(counts.get(dictionary.idOf("the"))).isEqualTo(4);
+    assertThat(counts.get(dictionary.idOf("fox"))).isEqualTo(2);
+
+    // A different dictionary has to look each word up, but gets the same totals.
+    WordDictionary other = new WordDictionary();
+    IdCountMap otherCounts = new IdCountMap();
+    result.addWordCountsTo(otherCounts, other);
+    assertThat(otherCounts.get(other.idOf("the"))).isEqualTo(2);
+    assertThat(otherCounts.size()).isEqualTo(result.getWordCounts().size());
+  }
+
+  private static PageParser.Result parse(String page, WordDictionary dictionary) {
+    return new PageParserImpl(
+            page, Duration.ZERO, PatternFilter.compile(List.of()),
+            new HttpClientPageFetcher(Duration.ofSeconds(1)), Clock.systemUTC(), Instant.MAX,
+            RecrawlStore.disabled(), UrlCanonicalizer.DEFAULT, dictionary)
+        .parse();
+  }
+}
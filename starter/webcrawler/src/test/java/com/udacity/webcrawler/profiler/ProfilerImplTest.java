@@ -136,6 +136,21 @@ public final class ProfilerImplTest {
     assertThat(written).contains("0m 1s 0ms");
   }
 
+  @Test
+  public void testCountersAndGauges() throws Exception {
+    profiler.incrementCounter("pages.fetched", 2);
+    profiler.incrementCounter("pages.fetched", 3);
+    profiler.recordGauge("queue.depth", 4);
+    profiler.recordGauge("queue.depth", 8);
+    profiler.recordGauge("queue.depth", 0);
+
+    CloseableStringWriter writer = new CloseableStringWriter();
+    profiler.writeData(writer);
+    String written = writer.toString();
+    assertThat(written).contains("pages.fetched = 5");
+    assertThat(written).contains("queue.depth = 0 (mean 4.00, max 8)");
+  }
+
   /**
    * A test interface that does not have any {@link Profiled} methods.
    */
@@ -0,0 +1,59 @@
+package com.udacity.webcrawler.testing;
+
+import com.udacity.webcrawler.PageEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Flow.Subscriber} for streaming crawls that requests one page at a time and cancels
+ * after {@code limit} pages.
+ */
+public final class CollectingSubscriber implements Flow.Subscriber<PageEvent> {
+  private final long limit;
+  private final List<PageEvent> events = new ArrayList<>();
+  private final CompletableFuture<List<PageEvent>> done = new CompletableFuture<>();
+  private Flow.Subscription subscription;
+
+  public CollectingSubscriber(long limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * Waits until the crawl completes or the limit is reached, and returns the pages received.
+   */
+  public List<PageEvent> await(Duration timeout) throws Exception {
+    return done.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    this.subscription = subscription;
+    subscription.request(1);
+  }
+
+  @Override
+  public void onNext(PageEvent event) {
+    events.add(event);
+    if (events.size() == limit) {
+      subscription.cancel();
+      done.complete(events);
+    } else {
+      subscription.request(1);
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    done.completeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    done.complete(events);
+  }
+}
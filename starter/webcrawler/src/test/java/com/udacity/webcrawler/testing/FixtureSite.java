@@ -0,0 +1,196 @@
+package com.udacity.webcrawler.testing;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small, generated web site served over loopback HTTP for crawler tests and benchmarks.
+ *
+ * <p>Pages form a tree: page {@code i} links to pages {@code i * fanOut + 1} through
+ * {@code i * fanOut + fanOut}, and every page also links back to the root. Each page has the same
+ * short sentence plus a word that is unique to that page, so word counts do not depend on the
+ * order in which pages are visited.
+ *
+ * <p>Links end in a fragment, as links on real sites often do, so each one is a non-canonical
+ * spelling of the page it points to.
+ *
+ * <p>A site started with {@link #startGraph} has more links than the tree: every page but the root
+ * also links back to its parent, which makes a cycle, and to the first child of the next page,
+ * which then has two parents. Crawlers that visit a shared page twice, or follow a cycle forever,
+ * show it there.
+ *
+ * <p>Every response is delayed by a fixed latency to imitate a slow remote host.
+ */
+public final class FixtureSite implements AutoCloseable {
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final int pageCount;
+  private final int fanOut;
+  private final Duration latency;
+  private final boolean crossLinks;
+  private final AtomicInteger requests = new AtomicInteger();
+  private final Set<String> requestedPaths = ConcurrentHashMap.newKeySet();
+
+  private FixtureSite(int pageCount, int fanOut, Duration latency, boolean crossLinks)
+      throws IOException {
+    this.pageCount = pageCount;
+    this.fanOut = fanOut;
+    this.latency = latency;
+    this.crossLinks = crossLinks;
+    this.server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.executor = Executors.newCachedThreadPool();
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  /**
+   * Starts a site with the given number of pages, children per page and response latency.
+   */
+  public static FixtureSite start(int pageCount, int fanOut, Duration latency) throws IOException {
+    if (pageCount < 1 || fanOut < 1) {
+      throw new IllegalArgumentException("pageCount and fanOut must be positive");
+    }
+    return new FixtureSite(pageCount, fanOut, latency, false);
+  }
+
+  /**
+   * Starts a site like {@link #start}, whose pages also link to their parent and to the first
+   * child of the next page.
+   */
+  public static FixtureSite startGraph(int pageCount, int fanOut, Duration latency)
+      throws IOException {
+    if (pageCount < 1 || fanOut < 1) {
+      throw new IllegalArgumentException("pageCount and fanOut must be positive");
+    }
+    return new FixtureSite(pageCount, fanOut, latency, true);
+  }
+
+  /**
+   * Returns the URL of the root page.
+   */
+  public String rootUrl() {
+    return pageUrl(0);
+  }
+
+  /**
+   * Returns the URL of the page with the given index.
+   */
+  public String pageUrl(int index) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/page-" + index + ".html";
+  }
+
+  /**
+   * Returns the number of pages on the site.
+   */
+  public int pageCount() {
+    return pageCount;
+  }
+
+  /**
+   * Returns the smallest max depth that reaches every page from the root.
+   */
+  public int depth() {
+    int depth = 1;
+    long reachable = 1;
+    long levelSize = 1;
+    while (reachable < pageCount) {
+      levelSize *= fanOut;
+      reachable += levelSize;
+      depth++;
+    }
+    return depth;
+  }
+
+  /**
+   * Returns the number of HTTP requests served so far.
+   */
+  public int requestCount() {
+    return requests.get();
+  }
+
+  /**
+   * Returns the path of every page requested so far, which is the same for two sites of the same
+   * shape, unlike their URLs.
+   */
+  public Set<String> requestedPaths() {
+    return Set.copyOf(requestedPaths);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    requestedPaths.add(exchange.getRequestURI().getPath());
+    try {
+      Thread.sleep(latency.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    int index = pageIndex(exchange.getRequestURI().getPath());
+    if (index < 0) {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+      return;
+    }
+    byte[] body = render(index).getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private int pageIndex(String path) {
+    if (!path.startsWith("/page-") || !path.endsWith(".html")) {
+      return -1;
+    }
+    try {
+      int index = Integer.parseInt(path.substring("/page-".length(), path.length() - 5));
+      return (index >= 0 && index < pageCount) ? index : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private String render(int index) {
+    List<String> links = new ArrayList<>();
+    links.add("<a href=\"/page-0.html#top\">home</a>");
+    for (int child = index * fanOut + 1; child <= index * fanOut + fanOut; child++) {
+      if (child < pageCount) {
+        links.add("<a href=\"/page-" + child + ".html#main\">next</a>");
+      }
+    }
+    if (crossLinks && index > 0) {
+      links.add("<a href=\"/page-" + ((index - 1) / fanOut) + ".html\">up</a>");
+      int cousin = (index + 1) * fanOut + 1;
+      if (cousin < pageCount) {
+        links.add("<a href=\"/page-" + cousin + ".html\">cousin</a>");
+      }
+    }
+    return "<!DOCTYPE html><html><body>"
+        + "<p>the quick brown fox jumped over the lazy dog page" + index + "</p>"
+        + String.join(" ", links)
+        + "</body></html>";
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}